@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the identities read by a client, whose least recently used entries are evicted.<br/>
+ * The entries keep the entity tag of the identity, with which they are revalidated once they are no longer fresh.
+ */
+class ClientCache
+{
+    private final Map<String, Entry> _mapEntries = new LinkedHashMap<>( 16, 0.75f, true );
+    private final int _nMaxSize;
+    private final long _lFreshMillis;
+
+    /**
+     * Constructor
+     *
+     * @param nMaxSize
+     *            the maximum number of entries, 0 to disable the cache
+     * @param lFreshMillis
+     *            the time an entry is served without revalidation, in milliseconds
+     */
+    ClientCache( final int nMaxSize, final long lFreshMillis )
+    {
+        _nMaxSize = Math.max( 0, nMaxSize );
+        _lFreshMillis = lFreshMillis;
+    }
+
+    /**
+     * Get an entry
+     *
+     * @param strKey
+     *            the key
+     * @return the entry, {@code null} if none is cached
+     */
+    Entry get( final String strKey )
+    {
+        if ( _nMaxSize == 0 )
+        {
+            return null;
+        }
+        synchronized( _mapEntries )
+        {
+            return _mapEntries.get( strKey );
+        }
+    }
+
+    /**
+     * Cache an identity, or remove it if it has no entity tag
+     *
+     * @param strKey
+     *            the key
+     * @param strETag
+     *            the entity tag of the identity
+     * @param identity
+     *            the identity
+     */
+    void put( final String strKey, final String strETag, final Object identity )
+    {
+        if ( _nMaxSize == 0 )
+        {
+            return;
+        }
+        synchronized( _mapEntries )
+        {
+            if ( strETag == null || identity == null )
+            {
+                _mapEntries.remove( strKey );
+                return;
+            }
+            _mapEntries.put( strKey, new Entry( strETag, identity, System.currentTimeMillis( ) + _lFreshMillis ) );
+            final Iterator<Entry> iterator = _mapEntries.values( ).iterator( );
+            while ( _mapEntries.size( ) > _nMaxSize && iterator.hasNext( ) )
+            {
+                iterator.next( );
+                iterator.remove( );
+            }
+        }
+    }
+
+    /**
+     * Remove an identity
+     *
+     * @param strKey
+     *            the key
+     */
+    void remove( final String strKey )
+    {
+        put( strKey, null, null );
+    }
+
+    /**
+     * Remove all the identities
+     */
+    void clear( )
+    {
+        synchronized( _mapEntries )
+        {
+            _mapEntries.clear( );
+        }
+    }
+
+    /**
+     * Cached identity
+     */
+    static final class Entry
+    {
+        private final String _strETag;
+        private final Object _identity;
+        private final long _lFreshUntilMillis;
+
+        /**
+         * Constructor
+         *
+         * @param strETag
+         *            the entity tag
+         * @param identity
+         *            the identity
+         * @param lFreshUntilMillis
+         *            the time until which the entry is served without revalidation
+         */
+        private Entry( final String strETag, final Object identity, final long lFreshUntilMillis )
+        {
+            _strETag = strETag;
+            _identity = identity;
+            _lFreshUntilMillis = lFreshUntilMillis;
+        }
+
+        /**
+         * @return the entity tag of the identity
+         */
+        String getETag( )
+        {
+            return _strETag;
+        }
+
+        /**
+         * @return the identity
+         */
+        Object getIdentity( )
+        {
+            return _identity;
+        }
+
+        /**
+         * @return {@code true} if the entry is served without revalidation
+         */
+        boolean isFresh( )
+        {
+            return System.currentTimeMillis( ) < _lFreshUntilMillis;
+        }
+    }
+}
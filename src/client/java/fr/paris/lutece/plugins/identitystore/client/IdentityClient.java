@@ -0,0 +1,703 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import fr.paris.lutece.plugins.identitystore.v2.web.rs.util.Constants;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Client of the v1/v2 identity API.<br/>
+ * The connections are pooled and kept alive, and the responses are accepted gzip compressed, and Smile encoded if configured. The identities read by
+ * customer ID or connection ID are cached with their entity tag and revalidated with <code>If-None-Match</code>, and the concurrent reads of the same
+ * identity are coalesced into one request.<br/>
+ * The client is thread safe, and is meant to be shared by the whole application and closed on shutdown.
+ */
+public class IdentityClient implements Closeable
+{
+    private static final String REST_PATH_V1 = Constants.PLUGIN_PATH + Constants.VERSION_PATH_V1 + Constants.IDENTITY_PATH;
+    private static final String REST_PATH_V2 = Constants.PLUGIN_PATH + Constants.VERSION_PATH_V2 + Constants.IDENTITY_PATH;
+    private static final String PATH_SEARCH = "/search";
+    private static final String PATH_EXISTENCE = "/exists";
+    private static final String PATH_EXPORT = "/export";
+    private static final String EXPORT_END = "export_end";
+    private static final String PARAM_CURSOR = "cursor";
+    private static final String PARAM_LIMIT = "limit";
+    private static final String HEADER_REQUEST_TIMEOUT = "X-Request-Timeout";
+    private static final String MEDIA_TYPE_SMILE = "application/x-jackson-smile";
+    private static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    private static final String ACCEPT_JSON = ContentType.APPLICATION_JSON.getMimeType( );
+    private static final String ACCEPT_SMILE = MEDIA_TYPE_SMILE + ", " + ACCEPT_JSON + ";q=0.9";
+    private static final String KEY_SEPARATOR = "|";
+
+    private final IdentityClientConfiguration _configuration;
+    private final String _strBaseUrl;
+    private final PoolingHttpClientConnectionManager _connectionManager;
+    private final CloseableHttpClient _httpClient;
+    private final ObjectMapper _jsonMapper;
+    private final ObjectMapper _smileMapper;
+    private final ObjectReader _v2IdentityReader;
+    private final ClientCache _cache;
+    private final Map<String, CompletableFuture<Object>> _mapInFlight = new ConcurrentHashMap<>( );
+
+    /**
+     * Constructor
+     *
+     * @param configuration
+     *            the configuration of the client
+     */
+    public IdentityClient( final IdentityClientConfiguration configuration )
+    {
+        _configuration = configuration;
+        _strBaseUrl = configuration.getBaseUrl( ).endsWith( "/" ) ? configuration.getBaseUrl( ) : configuration.getBaseUrl( ) + "/";
+        _connectionManager = new PoolingHttpClientConnectionManager( );
+        _connectionManager.setMaxTotal( configuration.getMaxConnections( ) );
+        _connectionManager.setDefaultMaxPerRoute( configuration.getMaxConnections( ) );
+        final RequestConfig requestConfig = RequestConfig.custom( ).setConnectTimeout( configuration.getConnectTimeoutMillis( ) )
+                .setConnectionRequestTimeout( configuration.getConnectTimeoutMillis( ) ).setSocketTimeout( configuration.getSocketTimeoutMillis( ) )
+                .build( );
+        final HttpClientBuilder builder = HttpClients.custom( ).setConnectionManager( _connectionManager ).setDefaultRequestConfig( requestConfig )
+                .setKeepAliveStrategy( ( response, context ) -> {
+                    final long lKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration( response, context );
+                    return lKeepAlive > 0 ? lKeepAlive : configuration.getKeepAliveMillis( );
+                } );
+        if ( !configuration.isCompression( ) )
+        {
+            builder.disableContentCompression( );
+        }
+        _httpClient = builder.build( );
+        _jsonMapper = createMapper( new ObjectMapper( ) );
+        _smileMapper = configuration.isSmile( ) ? createMapper( SmileMapperFactory.create( ) ) : null;
+        _v2IdentityReader = _jsonMapper.readerFor( fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.IdentityDto.class )
+                .without( DeserializationFeature.UNWRAP_ROOT_VALUE );
+        _cache = new ClientCache( configuration.getCacheSize( ), configuration.getCacheFreshMillis( ) );
+    }
+
+    /**
+     * Get an identity from the v1 API
+     *
+     * @param strCustomerId
+     *            the customer ID, or {@code null}
+     * @param strConnectionId
+     *            the connection ID, or {@code null}
+     * @return the identity, {@code null} if it is not found
+     * @throws IdentityClientException
+     *             in case of failure
+     */
+    public fr.paris.lutece.plugins.identitystore.v1.web.rs.dto.IdentityDto getIdentityV1( final String strCustomerId, final String strConnectionId )
+            throws IdentityClientException
+    {
+        return getIdentity( REST_PATH_V1, strCustomerId, strConnectionId, fr.paris.lutece.plugins.identitystore.v1.web.rs.dto.IdentityDto.class );
+    }
+
+    /**
+     * Get an identity from the v2 API
+     *
+     * @param strCustomerId
+     *            the customer ID, or {@code null}
+     * @param strConnectionId
+     *            the connection ID, or {@code null}
+     * @return the identity, {@code null} if it is not found
+     * @throws IdentityClientException
+     *             in case of failure
+     */
+    public fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.IdentityDto getIdentity( final String strCustomerId, final String strConnectionId )
+            throws IdentityClientException
+    {
+        return getIdentity( REST_PATH_V2, strCustomerId, strConnectionId, fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.IdentityDto.class );
+    }
+
+    /**
+     * Tell whether an identity exists, with a HEAD request : the identity is not transferred
+     *
+     * @param strCustomerId
+     *            the customer ID, or {@code null}
+     * @param strConnectionId
+     *            the connection ID, or {@code null}
+     * @return {@code true} if the identity exists, or is merged into an existing identity
+     * @throws IdentityClientException
+     *             in case of failure
+     */
+    public boolean exists( final String strCustomerId, final String strConnectionId ) throws IdentityClientException
+    {
+        final HttpHead head = new HttpHead( getIdentityUrl( REST_PATH_V2, strCustomerId, strConnectionId ) );
+        prepare( head, ACCEPT_JSON );
+        try ( final CloseableHttpResponse response = _httpClient.execute( head ) )
+        {
+            final int nStatus = response.getStatusLine( ).getStatusCode( );
+            if ( nStatus == 404 )
+            {
+                return false;
+            }
+            if ( nStatus != 200 )
+            {
+                throw failure( nStatus, response.getEntity( ) );
+            }
+            return true;
+        }
+        catch( IOException e )
+        {
+            throw new IdentityClientException( "Unable to check the identity", e );
+        }
+    }
+
+    /**
+     * Check customer IDs with one request, without transferring the identities
+     *
+     * @param listCustomerIds
+     *            the customer IDs, at most the server limit
+     * @return the status of each distinct customer ID, in the order of the list
+     * @throws IdentityClientException
+     *             in case of failure
+     */
+    public List<IdentityExistence> checkIdentities( final List<String> listCustomerIds ) throws IdentityClientException
+    {
+        final ObjectNode existence = _jsonMapper.createObjectNode( );
+        final ArrayNode customerIds = existence.putObject( "existence" ).putArray( "customer_ids" );
+        listCustomerIds.forEach( customerIds::add );
+        final HttpPost post = new HttpPost( _strBaseUrl + REST_PATH_V2 + PATH_EXISTENCE );
+        try
+        {
+            post.setEntity( new StringEntity( _jsonMapper.writeValueAsString( existence ), ContentType.APPLICATION_JSON ) );
+        }
+        catch( IOException e )
+        {
+            throw new IdentityClientException( "Unable to write the existence check", e );
+        }
+        prepare( post, ACCEPT_JSON );
+        try ( final CloseableHttpResponse response = _httpClient.execute( post ) )
+        {
+            final int nStatus = response.getStatusLine( ).getStatusCode( );
+            if ( nStatus != 200 )
+            {
+                throw failure( nStatus, response.getEntity( ) );
+            }
+            final JsonNode result = readTree( response.getEntity( ) );
+            final List<IdentityExistence> listExistences = new ArrayList<>( );
+            for ( final JsonNode identity : result.path( "existences" ).path( "identities" ) )
+            {
+                // the master customer ID is only given for the merged identities
+                final JsonNode master = identity.path( "master_customer_id" );
+                listExistences.add( new IdentityExistence( identity.path( "customer_id" ).asText( ), identity.path( "status" ).asText( ),
+                        master.isMissingNode( ) ? null : master.asText( ) ) );
+            }
+            return listExistences;
+        }
+        catch( IOException e )
+        {
+            throw new IdentityClientException( "Unable to check the identities", e );
+        }
+    }
+
+    /**
+     * Search the identities by attribute values, with the v2 API
+     *
+     * @param mapAttributes
+     *            the searched values, by attribute key
+     * @param nLimit
+     *            the maximum number of identities, 0 for the server default
+     * @param listProjection
+     *            the keys of the returned attributes, {@code null} or empty for all of them
+     * @return the identities found
+     * @throws IdentityClientException
+     *             in case of failure
+     */
+    public List<fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.IdentityDto> searchIdentities( final Map<String, String> mapAttributes,
+            final int nLimit, final List<String> listProjection ) throws IdentityClientException
+    {
+        final ObjectNode search = _jsonMapper.createObjectNode( );
+        final ObjectNode criteria = search.putObject( "search" );
+        final ObjectNode attributes = criteria.putObject( "attributes" );
+        mapAttributes.forEach( attributes::put );
+        criteria.put( PARAM_LIMIT, nLimit );
+        if ( listProjection != null )
+        {
+            final ArrayNode projection = criteria.putArray( "projection" );
+            listProjection.forEach( projection::add );
+        }
+        final HttpPost post = new HttpPost( _strBaseUrl + REST_PATH_V2 + PATH_SEARCH );
+        try
+        {
+            post.setEntity( new StringEntity( _jsonMapper.writeValueAsString( search ), ContentType.APPLICATION_JSON ) );
+        }
+        catch( IOException e )
+        {
+            throw new IdentityClientException( "Unable to write the search", e );
+        }
+        prepare( post, ACCEPT_JSON );
+        try ( final CloseableHttpResponse response = _httpClient.execute( post ) )
+        {
+            final int nStatus = response.getStatusLine( ).getStatusCode( );
+            if ( nStatus != 200 )
+            {
+                throw failure( nStatus, response.getEntity( ) );
+            }
+            final JsonNode result = readTree( response.getEntity( ) );
+            final List<fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.IdentityDto> listIdentities = new ArrayList<>( );
+            for ( final JsonNode identity : result.path( "search_result" ).path( "identities" ) )
+            {
+                listIdentities.add( _v2IdentityReader.readValue( identity ) );
+            }
+            return listIdentities;
+        }
+        catch( IOException e )
+        {
+            throw new IdentityClientException( "Unable to search the identities", e );
+        }
+    }
+
+    /**
+     * Export the identities visible to the service contract of the client with the v2 API, in ascending customer ID order. The identities are decoded
+     * one at a time while they are received.
+     *
+     * @param strCursor
+     *            the customer ID after which the export starts, {@code null} to export from the beginning
+     * @param nLimit
+     *            the maximum number of exported identities, 0 for no limit
+     * @param consumer
+     *            the consumer of the exported identities
+     * @return the number of exported identities
+     * @throws IdentityClientException
+     *             in case of failure, possibly after some identities were consumed, or if the export ended without its {@code export_end} record : the
+     *             export is then resumed from the customer ID of the last one
+     */
+    public int exportIdentities( final String strCursor, final int nLimit,
+            final Consumer<fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.IdentityDto> consumer ) throws IdentityClientException
+    {
+        final StringBuilder sbUrl = new StringBuilder( _strBaseUrl ).append( REST_PATH_V2 ).append( PATH_EXPORT ).append( '?' ).append( PARAM_LIMIT )
+                .append( '=' ).append( nLimit );
+        if ( strCursor != null )
+        {
+            sbUrl.append( '&' ).append( PARAM_CURSOR ).append( '=' ).append( encode( strCursor ) );
+        }
+        final HttpGet get = new HttpGet( sbUrl.toString( ) );
+        prepare( get, MEDIA_TYPE_NDJSON );
+        try ( final CloseableHttpResponse response = _httpClient.execute( get ) )
+        {
+            final int nStatus = response.getStatusLine( ).getStatusCode( );
+            if ( nStatus != 200 )
+            {
+                throw failure( nStatus, response.getEntity( ) );
+            }
+            final ObjectReader reader = _jsonMapper.readerFor( fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.IdentityDto.class );
+            int nCount = 0;
+            boolean bEnded = false;
+            try ( final BufferedReader lines = new BufferedReader( new InputStreamReader( response.getEntity( ).getContent( ), StandardCharsets.UTF_8 ) ) )
+            {
+                String strLine;
+                while ( !bEnded && ( strLine = lines.readLine( ) ) != null )
+                {
+                    if ( !strLine.isEmpty( ) )
+                    {
+                        final JsonNode line = _jsonMapper.readTree( strLine );
+                        bEnded = !line.path( EXPORT_END ).isMissingNode( );
+                        if ( !bEnded )
+                        {
+                            consumer.accept( reader.readValue( line ) );
+                            nCount++;
+                        }
+                    }
+                }
+            }
+            if ( !bEnded )
+            {
+                throw new EOFException( "The identity export was interrupted after " + nCount + " identities" );
+            }
+            return nCount;
+        }
+        catch( IOException e )
+        {
+            throw new IdentityClientException( "Unable to export the identities", e );
+        }
+    }
+
+    /**
+     * Remove all the cached identities
+     */
+    public void clearCache( )
+    {
+        _cache.clear( );
+    }
+
+    /**
+     * Close the pooled connections
+     *
+     * @throws IOException
+     *             in case of failure
+     */
+    @Override
+    public void close( ) throws IOException
+    {
+        _httpClient.close( );
+    }
+
+    /**
+     * Get an identity, from the cache while it is fresh, otherwise coalesced with the concurrent reads of the same identity
+     *
+     * @param strPath
+     *            the path of the resource
+     * @param strCustomerId
+     *            the customer ID
+     * @param strConnectionId
+     *            the connection ID
+     * @param type
+     *            the class of the identity
+     * @param <T>
+     *            the type of the identity
+     * @return the identity, {@code null} if it is not found
+     * @throws IdentityClientException
+     *             in case of failure
+     */
+    private <T> T getIdentity( final String strPath, final String strCustomerId, final String strConnectionId, final Class<T> type )
+            throws IdentityClientException
+    {
+        final String strKey = strPath + KEY_SEPARATOR + nullToEmpty( strCustomerId ) + KEY_SEPARATOR + nullToEmpty( strConnectionId );
+        final ClientCache.Entry entry = _cache.get( strKey );
+        if ( entry != null && entry.isFresh( ) )
+        {
+            return type.cast( entry.getIdentity( ) );
+        }
+        final CompletableFuture<Object> future = new CompletableFuture<>( );
+        final CompletableFuture<Object> inFlight = _mapInFlight.putIfAbsent( strKey, future );
+        if ( inFlight != null )
+        {
+            return type.cast( await( inFlight ) );
+        }
+        try
+        {
+            final T identity = fetchIdentity( strPath, strKey, strCustomerId, strConnectionId, entry, type );
+            future.complete( identity );
+            return identity;
+        }
+        catch( IdentityClientException | RuntimeException e )
+        {
+            future.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            _mapInFlight.remove( strKey, future );
+        }
+    }
+
+    /**
+     * Read an identity from the API, revalidating the cached one if any
+     *
+     * @param strPath
+     *            the path of the resource
+     * @param strKey
+     *            the key of the identity in the cache
+     * @param strCustomerId
+     *            the customer ID
+     * @param strConnectionId
+     *            the connection ID
+     * @param entry
+     *            the cached identity, or {@code null}
+     * @param type
+     *            the class of the identity
+     * @param <T>
+     *            the type of the identity
+     * @return the identity, {@code null} if it is not found
+     * @throws IdentityClientException
+     *             in case of failure
+     */
+    private <T> T fetchIdentity( final String strPath, final String strKey, final String strCustomerId, final String strConnectionId,
+            final ClientCache.Entry entry, final Class<T> type ) throws IdentityClientException
+    {
+        final HttpGet get = new HttpGet( getIdentityUrl( strPath, strCustomerId, strConnectionId ) );
+        prepare( get, _smileMapper != null ? ACCEPT_SMILE : ACCEPT_JSON );
+        if ( _configuration.getRequestTimeoutMillis( ) > 0 )
+        {
+            get.setHeader( HEADER_REQUEST_TIMEOUT, String.valueOf( _configuration.getRequestTimeoutMillis( ) ) );
+        }
+        if ( entry != null )
+        {
+            get.setHeader( HttpHeaders.IF_NONE_MATCH, entry.getETag( ) );
+        }
+        try ( final CloseableHttpResponse response = _httpClient.execute( get ) )
+        {
+            final int nStatus = response.getStatusLine( ).getStatusCode( );
+            if ( nStatus == 304 && entry != null )
+            {
+                EntityUtils.consume( response.getEntity( ) );
+                _cache.put( strKey, entry.getETag( ), entry.getIdentity( ) );
+                return type.cast( entry.getIdentity( ) );
+            }
+            if ( nStatus == 404 )
+            {
+                EntityUtils.consume( response.getEntity( ) );
+                _cache.remove( strKey );
+                return null;
+            }
+            if ( nStatus != 200 )
+            {
+                throw failure( nStatus, response.getEntity( ) );
+            }
+            final T identity;
+            try ( final InputStream content = response.getEntity( ).getContent( ) )
+            {
+                identity = getMapper( response.getEntity( ) ).readValue( content, type );
+            }
+            _cache.put( strKey, response.containsHeader( HttpHeaders.ETAG ) ? response.getFirstHeader( HttpHeaders.ETAG ).getValue( ) : null, identity );
+            return identity;
+        }
+        catch( IOException e )
+        {
+            throw new IdentityClientException( "Unable to get the identity", e );
+        }
+    }
+
+    /**
+     * Build the URL of an identity
+     *
+     * @param strPath
+     *            the path of the resource
+     * @param strCustomerId
+     *            the customer ID, or {@code null}
+     * @param strConnectionId
+     *            the connection ID, or {@code null}
+     * @return the URL
+     */
+    private String getIdentityUrl( final String strPath, final String strCustomerId, final String strConnectionId )
+    {
+        final StringBuilder sbUrl = new StringBuilder( _strBaseUrl ).append( strPath );
+        char cSeparator = '?';
+        if ( strCustomerId != null )
+        {
+            sbUrl.append( cSeparator ).append( Constants.PARAM_ID_CUSTOMER ).append( '=' ).append( encode( strCustomerId ) );
+            cSeparator = '&';
+        }
+        if ( strConnectionId != null )
+        {
+            sbUrl.append( cSeparator ).append( Constants.PARAM_ID_CONNECTION ).append( '=' ).append( encode( strConnectionId ) );
+        }
+        return sbUrl.toString( );
+    }
+
+    /**
+     * Set the headers common to all the requests
+     *
+     * @param request
+     *            the request
+     * @param strAccept
+     *            the accepted media types
+     */
+    private void prepare( final HttpRequestBase request, final String strAccept )
+    {
+        request.setHeader( Constants.PARAM_CLIENT_CODE, _configuration.getClientCode( ) );
+        request.setHeader( HttpHeaders.ACCEPT, strAccept );
+    }
+
+    /**
+     * Give the mapper decoding a response
+     *
+     * @param entity
+     *            the entity of the response
+     * @return the Smile mapper if the response is Smile encoded, the JSON mapper otherwise
+     */
+    private ObjectMapper getMapper( final HttpEntity entity )
+    {
+        if ( _smileMapper != null && entity.getContentType( ) != null && entity.getContentType( ).getValue( ).startsWith( MEDIA_TYPE_SMILE ) )
+        {
+            return _smileMapper;
+        }
+        return _jsonMapper;
+    }
+
+    /**
+     * Read a response as a tree
+     *
+     * @param entity
+     *            the entity of the response
+     * @return the tree
+     * @throws IOException
+     *             in case of failure
+     */
+    private JsonNode readTree( final HttpEntity entity ) throws IOException
+    {
+        try ( final InputStream content = entity.getContent( ) )
+        {
+            return getMapper( entity ).readTree( content );
+        }
+    }
+
+    /**
+     * Build the failure reported by an error response
+     *
+     * @param nStatus
+     *            the HTTP status
+     * @param entity
+     *            the entity of the response, possibly {@code null}
+     * @return the failure
+     * @throws IOException
+     *             if the response cannot be read
+     */
+    private IdentityClientException failure( final int nStatus, final HttpEntity entity ) throws IOException
+    {
+        final String strBody = entity != null ? EntityUtils.toString( entity, StandardCharsets.UTF_8 ) : null;
+        return new IdentityClientException( nStatus, "Identity API responded " + nStatus + ( strBody != null ? " : " + strBody : "" ) );
+    }
+
+    /**
+     * Wait for the read of an identity by a concurrent call
+     *
+     * @param future
+     *            the read of the identity
+     * @return the identity
+     * @throws IdentityClientException
+     *             if the read failed
+     */
+    private static Object await( final CompletableFuture<Object> future ) throws IdentityClientException
+    {
+        try
+        {
+            return future.get( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IdentityClientException( "Interrupted while waiting for the identity", e );
+        }
+        catch( ExecutionException e )
+        {
+            if ( e.getCause( ) instanceof IdentityClientException )
+            {
+                throw (IdentityClientException) e.getCause( );
+            }
+            throw new IdentityClientException( "Unable to get the identity", e.getCause( ) );
+        }
+    }
+
+    /**
+     * Configure a mapper like the v1/v2 REST services
+     *
+     * @param mapper
+     *            the mapper
+     * @return the mapper
+     */
+    private static ObjectMapper createMapper( final ObjectMapper mapper )
+    {
+        mapper.enable( DeserializationFeature.UNWRAP_ROOT_VALUE );
+        mapper.disable( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES );
+        return mapper;
+    }
+
+    /**
+     * URL encode a parameter value
+     *
+     * @param strValue
+     *            the value
+     * @return the encoded value
+     */
+    private static String encode( final String strValue )
+    {
+        try
+        {
+            return URLEncoder.encode( strValue, StandardCharsets.UTF_8.name( ) );
+        }
+        catch( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * @param strValue
+     *            a value
+     * @return the value, or an empty string if it is {@code null}
+     */
+    private static String nullToEmpty( final String strValue )
+    {
+        return strValue != null ? strValue : "";
+    }
+
+    /**
+     * Factory of the Smile mapper, kept apart so that jackson-dataformat-smile is only needed when Smile is enabled
+     */
+    private static final class SmileMapperFactory
+    {
+        /**
+         * Private constructor
+         */
+        private SmileMapperFactory( )
+        {
+        }
+
+        /**
+         * @return a mapper of Smile encoded content
+         */
+        private static ObjectMapper create( )
+        {
+            return new ObjectMapper( new SmileFactory( ) );
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.client;
+
+/**
+ * Configuration of an {@link IdentityClient}
+ */
+public class IdentityClientConfiguration
+{
+    private static final int DEFAULT_MAX_CONNECTIONS = 50;
+    private static final int DEFAULT_CONNECT_TIMEOUT = 1000;
+    private static final int DEFAULT_SOCKET_TIMEOUT = 5000;
+    private static final long DEFAULT_KEEP_ALIVE = 30000;
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+
+    private String _strBaseUrl;
+    private String _strClientCode;
+    private int _nMaxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int _nConnectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT;
+    private int _nSocketTimeoutMillis = DEFAULT_SOCKET_TIMEOUT;
+    private long _lKeepAliveMillis = DEFAULT_KEEP_ALIVE;
+    private long _lRequestTimeoutMillis;
+    private boolean _bCompression = true;
+    private boolean _bSmile;
+    private int _nCacheSize = DEFAULT_CACHE_SIZE;
+    private long _lCacheFreshMillis;
+
+    /**
+     * @return the base URL of the identity store REST API, such as <code>https://host/rest/</code>
+     */
+    public String getBaseUrl( )
+    {
+        return _strBaseUrl;
+    }
+
+    /**
+     * @param strBaseUrl
+     *            the base URL of the identity store REST API, such as <code>https://host/rest/</code>
+     */
+    public void setBaseUrl( final String strBaseUrl )
+    {
+        _strBaseUrl = strBaseUrl;
+    }
+
+    /**
+     * @return the code of the client application, sent in the <code>client_code</code> header
+     */
+    public String getClientCode( )
+    {
+        return _strClientCode;
+    }
+
+    /**
+     * @param strClientCode
+     *            the code of the client application, sent in the <code>client_code</code> header
+     */
+    public void setClientCode( final String strClientCode )
+    {
+        _strClientCode = strClientCode;
+    }
+
+    /**
+     * @return the maximum number of pooled connections, also the maximum per host
+     */
+    public int getMaxConnections( )
+    {
+        return _nMaxConnections;
+    }
+
+    /**
+     * @param nMaxConnections
+     *            the maximum number of pooled connections, also the maximum per host
+     */
+    public void setMaxConnections( final int nMaxConnections )
+    {
+        _nMaxConnections = nMaxConnections;
+    }
+
+    /**
+     * @return the connection timeout, in milliseconds
+     */
+    public int getConnectTimeoutMillis( )
+    {
+        return _nConnectTimeoutMillis;
+    }
+
+    /**
+     * @param nConnectTimeoutMillis
+     *            the connection timeout, in milliseconds
+     */
+    public void setConnectTimeoutMillis( final int nConnectTimeoutMillis )
+    {
+        _nConnectTimeoutMillis = nConnectTimeoutMillis;
+    }
+
+    /**
+     * @return the read timeout, in milliseconds
+     */
+    public int getSocketTimeoutMillis( )
+    {
+        return _nSocketTimeoutMillis;
+    }
+
+    /**
+     * @param nSocketTimeoutMillis
+     *            the read timeout, in milliseconds
+     */
+    public void setSocketTimeoutMillis( final int nSocketTimeoutMillis )
+    {
+        _nSocketTimeoutMillis = nSocketTimeoutMillis;
+    }
+
+    /**
+     * @return the time an idle connection is kept alive when the server does not tell it, in milliseconds
+     */
+    public long getKeepAliveMillis( )
+    {
+        return _lKeepAliveMillis;
+    }
+
+    /**
+     * @param lKeepAliveMillis
+     *            the time an idle connection is kept alive when the server does not tell it, in milliseconds
+     */
+    public void setKeepAliveMillis( final long lKeepAliveMillis )
+    {
+        _lKeepAliveMillis = lKeepAliveMillis;
+    }
+
+    /**
+     * @return the deadline sent in the <code>X-Request-Timeout</code> header of the identity reads, in milliseconds, 0 for none
+     */
+    public long getRequestTimeoutMillis( )
+    {
+        return _lRequestTimeoutMillis;
+    }
+
+    /**
+     * @param lRequestTimeoutMillis
+     *            the deadline sent in the <code>X-Request-Timeout</code> header of the identity reads, in milliseconds, 0 for none
+     */
+    public void setRequestTimeoutMillis( final long lRequestTimeoutMillis )
+    {
+        _lRequestTimeoutMillis = lRequestTimeoutMillis;
+    }
+
+    /**
+     * @return {@code true} if gzip compressed responses are accepted
+     */
+    public boolean isCompression( )
+    {
+        return _bCompression;
+    }
+
+    /**
+     * @param bCompression
+     *            {@code true} if gzip compressed responses are accepted
+     */
+    public void setCompression( final boolean bCompression )
+    {
+        _bCompression = bCompression;
+    }
+
+    /**
+     * @return {@code true} if Smile encoded responses are accepted, which requires jackson-dataformat-smile
+     */
+    public boolean isSmile( )
+    {
+        return _bSmile;
+    }
+
+    /**
+     * @param bSmile
+     *            {@code true} if Smile encoded responses are accepted, which requires jackson-dataformat-smile
+     */
+    public void setSmile( final boolean bSmile )
+    {
+        _bSmile = bSmile;
+    }
+
+    /**
+     * @return the maximum number of cached identities, 0 to disable the cache
+     */
+    public int getCacheSize( )
+    {
+        return _nCacheSize;
+    }
+
+    /**
+     * @param nCacheSize
+     *            the maximum number of cached identities, 0 to disable the cache
+     */
+    public void setCacheSize( final int nCacheSize )
+    {
+        _nCacheSize = nCacheSize;
+    }
+
+    /**
+     * @return the time a cached identity is served without revalidation, in milliseconds, 0 to always revalidate it
+     */
+    public long getCacheFreshMillis( )
+    {
+        return _lCacheFreshMillis;
+    }
+
+    /**
+     * @param lCacheFreshMillis
+     *            the time a cached identity is served without revalidation, in milliseconds, 0 to always revalidate it
+     */
+    public void setCacheFreshMillis( final long lCacheFreshMillis )
+    {
+        _lCacheFreshMillis = lCacheFreshMillis;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.client;
+
+/**
+ * Failure of a call to the v1/v2 identity API
+ */
+public class IdentityClientException extends Exception
+{
+    private static final long serialVersionUID = 1L;
+
+    private final int _nStatus;
+
+    /**
+     * Constructor of a failure reported by the API
+     *
+     * @param nStatus
+     *            the HTTP status of the response
+     * @param strMessage
+     *            the message
+     */
+    public IdentityClientException( final int nStatus, final String strMessage )
+    {
+        super( strMessage );
+        _nStatus = nStatus;
+    }
+
+    /**
+     * Constructor of a failure to reach the API
+     *
+     * @param strMessage
+     *            the message
+     * @param cause
+     *            the cause
+     */
+    public IdentityClientException( final String strMessage, final Throwable cause )
+    {
+        super( strMessage, cause );
+        _nStatus = -1;
+    }
+
+    /**
+     * @return the HTTP status of the response, -1 if no response was received
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+}
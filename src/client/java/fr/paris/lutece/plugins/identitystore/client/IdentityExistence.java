@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.client;
+
+/**
+ * Status of a customer ID checked through the v1/v2 identity API
+ */
+public class IdentityExistence
+{
+    public static final String STATUS_EXISTS = "exists";
+    public static final String STATUS_DELETED = "deleted";
+    public static final String STATUS_MERGED = "merged";
+    public static final String STATUS_UNKNOWN = "unknown";
+
+    private final String _strCustomerId;
+    private final String _strStatus;
+    private final String _strMasterCustomerId;
+
+    /**
+     * Constructor
+     *
+     * @param strCustomerId
+     *            the checked customer ID
+     * @param strStatus
+     *            the status of the customer ID
+     * @param strMasterCustomerId
+     *            the customer ID of the identity the checked one is merged into, or {@code null}
+     */
+    public IdentityExistence( final String strCustomerId, final String strStatus, final String strMasterCustomerId )
+    {
+        _strCustomerId = strCustomerId;
+        _strStatus = strStatus;
+        _strMasterCustomerId = strMasterCustomerId;
+    }
+
+    /**
+     * @return the checked customer ID
+     */
+    public String getCustomerId( )
+    {
+        return _strCustomerId;
+    }
+
+    /**
+     * @return the status of the customer ID : {@value #STATUS_EXISTS}, {@value #STATUS_DELETED}, {@value #STATUS_MERGED} or {@value #STATUS_UNKNOWN}
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * @return the customer ID of the identity the checked one is merged into, {@code null} if it is not merged
+     */
+    public String getMasterCustomerId( )
+    {
+        return _strMasterCustomerId;
+    }
+
+    /**
+     * @return {@code true} if the identity exists, and is not merged into another one
+     */
+    public boolean exists( )
+    {
+        return STATUS_EXISTS.equals( _strStatus );
+    }
+}
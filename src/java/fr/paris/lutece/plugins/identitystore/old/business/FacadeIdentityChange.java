@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.business;
+
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.history.IdentityChangeType;
+
+import java.sql.Timestamp;
+
+/**
+ * Change of an identity, as read from the identity history by the change feed of the v1/v2 facade
+ */
+public class FacadeIdentityChange
+{
+    private long _lId;
+    private String _strCustomerId;
+    private IdentityChangeType _changeType;
+    private Timestamp _modificationDate;
+
+    /**
+     * @return the ID of the history record, used as cursor
+     */
+    public long getId( )
+    {
+        return _lId;
+    }
+
+    /**
+     * @param lId
+     *            the ID of the history record
+     */
+    public void setId( final long lId )
+    {
+        _lId = lId;
+    }
+
+    /**
+     * @return the customer ID of the changed identity
+     */
+    public String getCustomerId( )
+    {
+        return _strCustomerId;
+    }
+
+    /**
+     * @param strCustomerId
+     *            the customer ID of the changed identity
+     */
+    public void setCustomerId( final String strCustomerId )
+    {
+        _strCustomerId = strCustomerId;
+    }
+
+    /**
+     * @return the change type
+     */
+    public IdentityChangeType getChangeType( )
+    {
+        return _changeType;
+    }
+
+    /**
+     * @param changeType
+     *            the change type
+     */
+    public void setChangeType( final IdentityChangeType changeType )
+    {
+        _changeType = changeType;
+    }
+
+    /**
+     * @return the modification date
+     */
+    public Timestamp getModificationDate( )
+    {
+        return _modificationDate;
+    }
+
+    /**
+     * @param modificationDate
+     *            the modification date
+     */
+    public void setModificationDate( final Timestamp modificationDate )
+    {
+        _modificationDate = modificationDate;
+    }
+}
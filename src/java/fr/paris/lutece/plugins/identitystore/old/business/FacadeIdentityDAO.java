@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.business;
+
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.history.IdentityChangeType;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides the read-only queries on the identities used by the v1/v2 facade
+ */
+public final class FacadeIdentityDAO implements IFacadeIdentityDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT_CUSTOMER_IDS_AFTER = "SELECT customer_id FROM identitystore_identity WHERE is_deleted = 0 AND is_merged = 0 AND customer_id > ? ORDER BY customer_id LIMIT ?";
+    private static final String SQL_QUERY_SELECT_CHANGES_AFTER = "SELECT id_history, customer_id, change_type, modification_date FROM identitystore_identity_history WHERE id_history > ? AND change_type <> ? ORDER BY id_history LIMIT ?";
+    private static final String SQL_QUERY_SELECT_LAST_CHANGE_ID = "SELECT MAX(id_history) FROM identitystore_identity_history";
+    private static final String SQL_QUERY_SELECT_CUSTOMER_IDS_WITH_HISTORY = "SELECT DISTINCT customer_id FROM identitystore_identity_history WHERE customer_id IN ( ";
+    private static final String SQL_QUERY_SELECT_STATES = "SELECT i.customer_id, i.is_deleted, i.is_merged, m.customer_id FROM identitystore_identity i LEFT JOIN identitystore_identity m ON m.id_identity = i.id_master_identity WHERE i.customer_id IN ( ";
+    private static final String SQL_PARAMETER = "?";
+    private static final String SQL_PARAMETER_SEPARATOR = ", ";
+    private static final String SQL_END_LIST = " )";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> selectCustomerIdsAfter( final String strAfterCustomerId, final int nLimit, final Plugin plugin )
+    {
+        final List<String> listCustomerIds = new ArrayList<>( );
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_CUSTOMER_IDS_AFTER, plugin ) )
+        {
+            daoUtil.setString( 1, strAfterCustomerId );
+            daoUtil.setInt( 2, nLimit );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listCustomerIds.add( daoUtil.getString( 1 ) );
+            }
+        }
+        return listCustomerIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeIdentityChange> selectChangesAfter( final long lAfterId, final int nLimit, final Plugin plugin )
+    {
+        final List<FacadeIdentityChange> listChanges = new ArrayList<>( );
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_CHANGES_AFTER, plugin ) )
+        {
+            daoUtil.setLong( 1, lAfterId );
+            daoUtil.setInt( 2, IdentityChangeType.READ.getValue( ) );
+            daoUtil.setInt( 3, nLimit );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                final FacadeIdentityChange change = new FacadeIdentityChange( );
+                int nIndex = 1;
+                change.setId( daoUtil.getLong( nIndex++ ) );
+                change.setCustomerId( daoUtil.getString( nIndex++ ) );
+                change.setChangeType( getChangeType( daoUtil.getInt( nIndex++ ) ) );
+                change.setModificationDate( daoUtil.getTimestamp( nIndex ) );
+                listChanges.add( change );
+            }
+        }
+        return listChanges;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long selectLastChangeId( final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_LAST_CHANGE_ID, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                return daoUtil.getLong( 1 );
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> selectCustomerIdsWithHistory( final List<String> listCustomerIds, final Plugin plugin )
+    {
+        final List<String> listWithHistory = new ArrayList<>( );
+        if ( listCustomerIds.isEmpty( ) )
+        {
+            return listWithHistory;
+        }
+        final String strQuery = SQL_QUERY_SELECT_CUSTOMER_IDS_WITH_HISTORY
+                + StringUtils.repeat( SQL_PARAMETER, SQL_PARAMETER_SEPARATOR, listCustomerIds.size( ) ) + SQL_END_LIST;
+        try ( final DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nIndex = 1;
+            for ( final String strCustomerId : listCustomerIds )
+            {
+                daoUtil.setString( nIndex++, strCustomerId );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                listWithHistory.add( daoUtil.getString( 1 ) );
+            }
+        }
+        return listWithHistory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeIdentityState> selectStates( final List<String> listCustomerIds, final Plugin plugin )
+    {
+        final List<FacadeIdentityState> listStates = new ArrayList<>( );
+        if ( listCustomerIds.isEmpty( ) )
+        {
+            return listStates;
+        }
+        final String strQuery = SQL_QUERY_SELECT_STATES + StringUtils.repeat( SQL_PARAMETER, SQL_PARAMETER_SEPARATOR, listCustomerIds.size( ) ) + SQL_END_LIST;
+        try ( final DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nIndex = 1;
+            for ( final String strCustomerId : listCustomerIds )
+            {
+                daoUtil.setString( nIndex++, strCustomerId );
+            }
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                final FacadeIdentityState state = new FacadeIdentityState( );
+                nIndex = 1;
+                state.setCustomerId( daoUtil.getString( nIndex++ ) );
+                state.setDeleted( daoUtil.getBoolean( nIndex++ ) );
+                state.setMerged( daoUtil.getBoolean( nIndex++ ) );
+                state.setMasterCustomerId( daoUtil.getString( nIndex ) );
+                listStates.add( state );
+            }
+        }
+        return listStates;
+    }
+
+    /**
+     * Get the change type of a stored value
+     *
+     * @param nValue
+     *            the stored value
+     * @return the change type, or {@code null} if unknown
+     */
+    private static IdentityChangeType getChangeType( final int nValue )
+    {
+        for ( final IdentityChangeType changeType : IdentityChangeType.values( ) )
+        {
+            if ( changeType.getValue( ) == nValue )
+            {
+                return changeType;
+            }
+        }
+        return null;
+    }
+}
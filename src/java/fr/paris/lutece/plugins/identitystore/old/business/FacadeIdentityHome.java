@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+
+import java.util.List;
+
+/**
+ * This class provides instances management methods for the read-only queries of the v1/v2 facade
+ */
+public final class FacadeIdentityHome
+{
+    private static final String PLUGIN_NAME = "identitystore";
+
+    // Static variable pointed at the DAO instance
+    private static final IFacadeIdentityDAO _dao = new FacadeIdentityDAO( );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private FacadeIdentityHome( )
+    {
+    }
+
+    /**
+     * Find the customer IDs of the active identities greater than the given customer ID, in ascending order
+     *
+     * @param strAfterCustomerId
+     *            the cursor, an empty string to start from the beginning
+     * @param nLimit
+     *            the maximum number of customer IDs
+     * @return the customer IDs
+     */
+    public static List<String> findCustomerIdsAfter( final String strAfterCustomerId, final int nLimit )
+    {
+        return _dao.selectCustomerIdsAfter( strAfterCustomerId, nLimit, getPlugin( ) );
+    }
+
+    /**
+     * Find the identity changes recorded after the given history ID, in ascending order
+     *
+     * @param lAfterId
+     *            the cursor
+     * @param nLimit
+     *            the maximum number of changes
+     * @return the changes
+     */
+    public static List<FacadeIdentityChange> findChangesAfter( final long lAfterId, final int nLimit )
+    {
+        return _dao.selectChangesAfter( lAfterId, nLimit, getPlugin( ) );
+    }
+
+    /**
+     * @return the greatest history ID, 0 if the history is empty
+     */
+    public static long getLastChangeId( )
+    {
+        return _dao.selectLastChangeId( getPlugin( ) );
+    }
+
+    /**
+     * Find, among the given customer IDs, the ones having a history
+     *
+     * @param listCustomerIds
+     *            the customer IDs
+     * @return the customer IDs having a history
+     */
+    public static List<String> findCustomerIdsWithHistory( final List<String> listCustomerIds )
+    {
+        return _dao.selectCustomerIdsWithHistory( listCustomerIds, getPlugin( ) );
+    }
+
+    /**
+     * Find the states of the identities of the given customer IDs, with one query
+     *
+     * @param listCustomerIds
+     *            the customer IDs
+     * @return the states of the identities, the unknown customer IDs being left out
+     */
+    public static List<FacadeIdentityState> findStates( final List<String> listCustomerIds )
+    {
+        return _dao.selectStates( listCustomerIds, getPlugin( ) );
+    }
+
+    /**
+     * @return the identitystore plugin
+     */
+    private static Plugin getPlugin( )
+    {
+        return PluginService.getPlugin( PLUGIN_NAME );
+    }
+}
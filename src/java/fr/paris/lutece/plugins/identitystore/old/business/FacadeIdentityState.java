@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.business;
+
+/**
+ * State of an identity, as read by the existence checks of the v1/v2 facade : the identity itself is not loaded
+ */
+public class FacadeIdentityState
+{
+    private String _strCustomerId;
+    private boolean _bDeleted;
+    private boolean _bMerged;
+    private String _strMasterCustomerId;
+
+    /**
+     * @return the customer ID of the identity
+     */
+    public String getCustomerId( )
+    {
+        return _strCustomerId;
+    }
+
+    /**
+     * @param strCustomerId
+     *            the customer ID of the identity
+     */
+    public void setCustomerId( final String strCustomerId )
+    {
+        _strCustomerId = strCustomerId;
+    }
+
+    /**
+     * @return {@code true} if the identity is deleted
+     */
+    public boolean isDeleted( )
+    {
+        return _bDeleted;
+    }
+
+    /**
+     * @param bDeleted
+     *            {@code true} if the identity is deleted
+     */
+    public void setDeleted( final boolean bDeleted )
+    {
+        _bDeleted = bDeleted;
+    }
+
+    /**
+     * @return {@code true} if the identity is merged into another one
+     */
+    public boolean isMerged( )
+    {
+        return _bMerged;
+    }
+
+    /**
+     * @param bMerged
+     *            {@code true} if the identity is merged into another one
+     */
+    public void setMerged( final boolean bMerged )
+    {
+        _bMerged = bMerged;
+    }
+
+    /**
+     * @return the customer ID of the identity the identity is merged into, {@code null} if it is not merged
+     */
+    public String getMasterCustomerId( )
+    {
+        return _strMasterCustomerId;
+    }
+
+    /**
+     * @param strMasterCustomerId
+     *            the customer ID of the identity the identity is merged into, {@code null} if it is not merged
+     */
+    public void setMasterCustomerId( final String strMasterCustomerId )
+    {
+        _strMasterCustomerId = strMasterCustomerId;
+    }
+}
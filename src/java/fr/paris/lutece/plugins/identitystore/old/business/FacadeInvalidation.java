@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.business;
+
+import java.sql.Timestamp;
+
+/**
+ * Facade cache invalidation, sent by a node to the other nodes of the cluster
+ */
+public class FacadeInvalidation
+{
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private long _lId;
+    private String _strNode;
+    private FacadeInvalidationType _type;
+    private String _strCacheName;
+    private String _strCacheKey;
+    private Timestamp _creationDate;
+
+    /**
+     * Create the invalidation of a changed identity
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @return the invalidation
+     */
+    public static FacadeInvalidation ofIdentity( final String strCustomerId )
+    {
+        return create( FacadeInvalidationType.IDENTITY, null, strCustomerId );
+    }
+
+    /**
+     * Create the invalidation of a service contract
+     *
+     * @param strClientCode
+     *            the client code
+     * @return the invalidation
+     */
+    public static FacadeInvalidation ofContract( final String strClientCode )
+    {
+        return create( FacadeInvalidationType.CONTRACT, null, strClientCode );
+    }
+
+    /**
+     * Create the invalidation of a cache
+     *
+     * @param strCacheName
+     *            the name of the cache
+     * @param strCacheKey
+     *            the key of the entry, {@code null} for all the entries
+     * @return the invalidation
+     */
+    public static FacadeInvalidation ofCache( final String strCacheName, final String strCacheKey )
+    {
+        return create( FacadeInvalidationType.CACHE, strCacheName, strCacheKey );
+    }
+
+    /**
+     * @return the key identifying the invalidations with the same effect, whatever their node and sequence
+     */
+    public String getDeduplicationKey( )
+    {
+        return _type.getCode( ) + KEY_SEPARATOR + ( _strCacheName != null ? _strCacheName : "" ) + KEY_SEPARATOR
+                + ( _strCacheKey != null ? _strCacheKey : "" );
+    }
+
+    /**
+     * @return the sequence of the invalidation, increasing in the order the invalidations are sent
+     */
+    public long getId( )
+    {
+        return _lId;
+    }
+
+    /**
+     * @param lId
+     *            the sequence of the invalidation
+     */
+    public void setId( final long lId )
+    {
+        _lId = lId;
+    }
+
+    /**
+     * @return the node which sent the invalidation
+     */
+    public String getNode( )
+    {
+        return _strNode;
+    }
+
+    /**
+     * @param strNode
+     *            the node which sent the invalidation
+     */
+    public void setNode( final String strNode )
+    {
+        _strNode = strNode;
+    }
+
+    /**
+     * @return the kind of the invalidation
+     */
+    public FacadeInvalidationType getType( )
+    {
+        return _type;
+    }
+
+    /**
+     * @param type
+     *            the kind of the invalidation
+     */
+    public void setType( final FacadeInvalidationType type )
+    {
+        _type = type;
+    }
+
+    /**
+     * @return the name of the invalidated cache, {@code null} unless the kind is {@link FacadeInvalidationType#CACHE}
+     */
+    public String getCacheName( )
+    {
+        return _strCacheName;
+    }
+
+    /**
+     * @param strCacheName
+     *            the name of the invalidated cache
+     */
+    public void setCacheName( final String strCacheName )
+    {
+        _strCacheName = strCacheName;
+    }
+
+    /**
+     * @return the invalidated key : the customer ID, the client code or the key of the cache entry, {@code null} for all the entries of a cache
+     */
+    public String getCacheKey( )
+    {
+        return _strCacheKey;
+    }
+
+    /**
+     * @param strCacheKey
+     *            the invalidated key
+     */
+    public void setCacheKey( final String strCacheKey )
+    {
+        _strCacheKey = strCacheKey;
+    }
+
+    /**
+     * @return the date the invalidation was requested
+     */
+    public Timestamp getCreationDate( )
+    {
+        return _creationDate;
+    }
+
+    /**
+     * @param creationDate
+     *            the date the invalidation was requested
+     */
+    public void setCreationDate( final Timestamp creationDate )
+    {
+        _creationDate = creationDate;
+    }
+
+    /**
+     * Create an invalidation requested now
+     *
+     * @param type
+     *            the kind
+     * @param strCacheName
+     *            the name of the cache
+     * @param strCacheKey
+     *            the key
+     * @return the invalidation
+     */
+    private static FacadeInvalidation create( final FacadeInvalidationType type, final String strCacheName, final String strCacheKey )
+    {
+        final FacadeInvalidation invalidation = new FacadeInvalidation( );
+        invalidation.setType( type );
+        invalidation.setCacheName( strCacheName );
+        invalidation.setCacheKey( strCacheKey );
+        invalidation.setCreationDate( new Timestamp( System.currentTimeMillis( ) ) );
+        return invalidation;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides the queries on the table through which the facade nodes send their cache invalidations to each other
+ */
+public final class FacadeInvalidationDAO implements IFacadeInvalidationDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT INTO identitystore_facade_invalidation ( node, invalidation_type, cache_name, cache_key, creation_date ) VALUES ";
+    private static final String SQL_INSERT_VALUES = "( ?, ?, ?, ?, ? )";
+    private static final String SQL_INSERT_VALUES_SEPARATOR = ", ";
+    private static final String SQL_QUERY_SELECT_AFTER = "SELECT id_invalidation, node, invalidation_type, cache_name, cache_key, creation_date FROM identitystore_facade_invalidation WHERE id_invalidation > ? ORDER BY id_invalidation LIMIT ?";
+    private static final String SQL_QUERY_SELECT_LAST_ID = "SELECT MAX(id_invalidation) FROM identitystore_facade_invalidation";
+    private static final String SQL_QUERY_DELETE_BEFORE = "DELETE FROM identitystore_facade_invalidation WHERE creation_date < ?";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert( final List<FacadeInvalidation> listInvalidations, final Plugin plugin )
+    {
+        if ( listInvalidations.isEmpty( ) )
+        {
+            return;
+        }
+        final String strQuery = SQL_QUERY_INSERT + StringUtils.repeat( SQL_INSERT_VALUES, SQL_INSERT_VALUES_SEPARATOR, listInvalidations.size( ) );
+        try ( final DAOUtil daoUtil = new DAOUtil( strQuery, plugin ) )
+        {
+            int nIndex = 1;
+            for ( final FacadeInvalidation invalidation : listInvalidations )
+            {
+                daoUtil.setString( nIndex++, invalidation.getNode( ) );
+                daoUtil.setString( nIndex++, invalidation.getType( ).getCode( ) );
+                daoUtil.setString( nIndex++, invalidation.getCacheName( ) );
+                daoUtil.setString( nIndex++, invalidation.getCacheKey( ) );
+                daoUtil.setTimestamp( nIndex++, invalidation.getCreationDate( ) );
+            }
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeInvalidation> selectAfter( final long lAfterId, final int nLimit, final Plugin plugin )
+    {
+        final List<FacadeInvalidation> listInvalidations = new ArrayList<>( );
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_AFTER, plugin ) )
+        {
+            daoUtil.setLong( 1, lAfterId );
+            daoUtil.setInt( 2, nLimit );
+            daoUtil.executeQuery( );
+            while ( daoUtil.next( ) )
+            {
+                final FacadeInvalidation invalidation = new FacadeInvalidation( );
+                int nIndex = 1;
+                invalidation.setId( daoUtil.getLong( nIndex++ ) );
+                invalidation.setNode( daoUtil.getString( nIndex++ ) );
+                invalidation.setType( FacadeInvalidationType.fromCode( daoUtil.getString( nIndex++ ) ) );
+                invalidation.setCacheName( daoUtil.getString( nIndex++ ) );
+                invalidation.setCacheKey( daoUtil.getString( nIndex++ ) );
+                invalidation.setCreationDate( daoUtil.getTimestamp( nIndex ) );
+                listInvalidations.add( invalidation );
+            }
+        }
+        return listInvalidations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long selectLastId( final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_LAST_ID, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                return daoUtil.getLong( 1 );
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteBefore( final Timestamp date, final Plugin plugin )
+    {
+        try ( final DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BEFORE, plugin ) )
+        {
+            daoUtil.setTimestamp( 1, date );
+            daoUtil.executeUpdate( );
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * This class provides instances management methods for the cache invalidations sent between the facade nodes
+ */
+public final class FacadeInvalidationHome
+{
+    private static final String PLUGIN_NAME = "identitystore";
+
+    // Static variable pointed at the DAO instance
+    private static final IFacadeInvalidationDAO _dao = new FacadeInvalidationDAO( );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private FacadeInvalidationHome( )
+    {
+    }
+
+    /**
+     * Store invalidations, with one statement
+     *
+     * @param listInvalidations
+     *            the invalidations, sent by the same node
+     */
+    public static void create( final List<FacadeInvalidation> listInvalidations )
+    {
+        _dao.insert( listInvalidations, getPlugin( ) );
+    }
+
+    /**
+     * Find the invalidations sent after the given sequence, in ascending order
+     *
+     * @param lAfterId
+     *            the cursor
+     * @param nLimit
+     *            the maximum number of invalidations
+     * @return the invalidations
+     */
+    public static List<FacadeInvalidation> findAfter( final long lAfterId, final int nLimit )
+    {
+        return _dao.selectAfter( lAfterId, nLimit, getPlugin( ) );
+    }
+
+    /**
+     * @return the greatest sequence, 0 if no invalidation is stored
+     */
+    public static long getLastId( )
+    {
+        return _dao.selectLastId( getPlugin( ) );
+    }
+
+    /**
+     * Remove the invalidations requested before a date
+     *
+     * @param date
+     *            the date
+     */
+    public static void removeBefore( final Timestamp date )
+    {
+        _dao.deleteBefore( date, getPlugin( ) );
+    }
+
+    /**
+     * @return the identitystore plugin
+     */
+    private static Plugin getPlugin( )
+    {
+        return PluginService.getPlugin( PLUGIN_NAME );
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.business;
+
+/**
+ * Kind of a facade cache invalidation sent to the other nodes
+ */
+public enum FacadeInvalidationType
+{
+    /** The identity of a customer ID changed : its entries are removed from the caches keyed by customer ID */
+    IDENTITY( "identity" ),
+    /** The entries of the service contract of a client code are removed from all the caches */
+    CONTRACT( "contract" ),
+    /** An entry of a cache, or all its entries, are removed through the admin API */
+    CACHE( "cache" );
+
+    private final String _strCode;
+
+    /**
+     * Constructor
+     *
+     * @param strCode
+     *            the stored code
+     */
+    FacadeInvalidationType( final String strCode )
+    {
+        _strCode = strCode;
+    }
+
+    /**
+     * @return the stored code
+     */
+    public String getCode( )
+    {
+        return _strCode;
+    }
+
+    /**
+     * Get the kind of a stored code
+     *
+     * @param strCode
+     *            the stored code
+     * @return the kind, or {@code null} if unknown
+     */
+    public static FacadeInvalidationType fromCode( final String strCode )
+    {
+        for ( final FacadeInvalidationType type : values( ) )
+        {
+            if ( type._strCode.equals( strCode ) )
+            {
+                return type;
+            }
+        }
+        return null;
+    }
+}
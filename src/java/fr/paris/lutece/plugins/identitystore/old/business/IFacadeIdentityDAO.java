@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.util.List;
+
+/**
+ * Read-only queries on the identities used by the v1/v2 facade
+ */
+public interface IFacadeIdentityDAO
+{
+    /**
+     * Select the customer IDs of the active identities (not deleted nor merged) greater than the given customer ID, in ascending order
+     *
+     * @param strAfterCustomerId
+     *            the cursor: only the customer IDs greater than this one are selected
+     * @param nLimit
+     *            the maximum number of customer IDs to select
+     * @param plugin
+     *            the plugin
+     * @return the customer IDs
+     */
+    List<String> selectCustomerIdsAfter( String strAfterCustomerId, int nLimit, Plugin plugin );
+
+    /**
+     * Select the identity changes recorded after the given history ID, in ascending order. Reads are not selected.
+     *
+     * @param lAfterId
+     *            the cursor: only the changes with a greater history ID are selected
+     * @param nLimit
+     *            the maximum number of changes to select
+     * @param plugin
+     *            the plugin
+     * @return the changes
+     */
+    List<FacadeIdentityChange> selectChangesAfter( long lAfterId, int nLimit, Plugin plugin );
+
+    /**
+     * Select the greatest history ID
+     *
+     * @param plugin
+     *            the plugin
+     * @return the greatest history ID, 0 if the history is empty
+     */
+    long selectLastChangeId( Plugin plugin );
+
+    /**
+     * Select, among the given customer IDs, the ones having a history, in one query
+     *
+     * @param listCustomerIds
+     *            the customer IDs
+     * @param plugin
+     *            the plugin
+     * @return the customer IDs having a history
+     */
+    List<String> selectCustomerIdsWithHistory( List<String> listCustomerIds, Plugin plugin );
+
+    /**
+     * Select the states of the identities of the given customer IDs, with one query. The unknown customer IDs are not selected.
+     *
+     * @param listCustomerIds
+     *            the customer IDs
+     * @param plugin
+     *            the plugin
+     * @return the states of the identities
+     */
+    List<FacadeIdentityState> selectStates( List<String> listCustomerIds, Plugin plugin );
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Queries on the table through which the facade nodes send their cache invalidations to each other
+ */
+public interface IFacadeInvalidationDAO
+{
+    /**
+     * Insert invalidations, with one statement
+     *
+     * @param listInvalidations
+     *            the invalidations, sent by the same node
+     * @param plugin
+     *            the plugin
+     */
+    void insert( List<FacadeInvalidation> listInvalidations, Plugin plugin );
+
+    /**
+     * Select the invalidations with a sequence greater than the given one, in ascending order
+     *
+     * @param lAfterId
+     *            the cursor: only the invalidations with a greater sequence are selected
+     * @param nLimit
+     *            the maximum number of invalidations to select
+     * @param plugin
+     *            the plugin
+     * @return the invalidations
+     */
+    List<FacadeInvalidation> selectAfter( long lAfterId, int nLimit, Plugin plugin );
+
+    /**
+     * Select the greatest sequence
+     *
+     * @param plugin
+     *            the plugin
+     * @return the greatest sequence, 0 if the table is empty
+     */
+    long selectLastId( Plugin plugin );
+
+    /**
+     * Delete the invalidations requested before a date
+     *
+     * @param date
+     *            the date
+     * @param plugin
+     *            the plugin
+     */
+    void deleteBefore( Timestamp date, Plugin plugin );
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Attribute-level delta of an identity : a client passing the date of its last read only receives the attributes updated since then
+ */
+public final class AttributeDelta
+{
+    /**
+     * Private constructor
+     */
+    private AttributeDelta( )
+    {
+    }
+
+    /**
+     * Parse the date from which the delta is computed
+     *
+     * @param strSince
+     *            the date, as a number of milliseconds since the epoch or as an ISO-8601 date-time with an offset (e.g. 2024-01-31T10:15:30Z)
+     * @return the date, or {@code null} if none is provided
+     * @throws IdentityStoreException
+     *             if the date is invalid
+     */
+    public static Timestamp parseSince( final String strSince ) throws IdentityStoreException
+    {
+        if ( StringUtils.isBlank( strSince ) )
+        {
+            return null;
+        }
+        final String strValue = strSince.trim( );
+        try
+        {
+            if ( StringUtils.isNumeric( strValue ) )
+            {
+                return new Timestamp( Long.parseLong( strValue ) );
+            }
+            return Timestamp.from( OffsetDateTime.parse( strValue ).toInstant( ) );
+        }
+        catch( NumberFormatException | DateTimeParseException e )
+        {
+            throw new IdentityStoreException( "Invalid since parameter : " + strSince, e );
+        }
+    }
+
+    /**
+     * Tell if an attribute belongs to the delta
+     *
+     * @param attribute
+     *            the attribute
+     * @param since
+     *            the date from which the delta is computed, {@code null} for a full identity
+     * @return {@code true} if the attribute was updated after the date, or if its update date is unknown
+     */
+    public static boolean isUpdatedSince( final AttributeDto attribute, final Timestamp since )
+    {
+        return since == null || attribute.getLastUpdateDate( ) == null || attribute.getLastUpdateDate( ).after( since );
+    }
+}
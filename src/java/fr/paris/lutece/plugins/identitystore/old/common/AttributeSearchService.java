@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.AttributeRight;
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.AttributeSearchDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.AttributeSearchResultDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.security.AccessLoggerConstants;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.http.SecurityUtil;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Attribute search of the identities, for the v1/v2 clients.<br/>
+ * The search is made by the identitystore search engine, and the identities found are read with the service contract of the client, as by the GET
+ * requests, so that a client only gets the attributes it is allowed to read. The identities found are read with one query, without going through the
+ * identity cache, and each of them is logged as read, as by the GET requests. Each searched attribute must be searchable according to the attribute
+ * rights of the service contract, as for the v3 search.
+ */
+public final class AttributeSearchService
+{
+    private static final String PROPERTY_SEARCH_ATTRIBUTES = "identitystore.facade.search.attributes";
+    private static final String PROPERTY_SEARCH_LIMIT_MAX = "identitystore.facade.search.limit.max";
+    private static final String DEFAULT_SEARCH_ATTRIBUTES = "family_name,first_name,birthdate,email";
+    private static final int DEFAULT_SEARCH_LIMIT_MAX = 50;
+
+    private final Set<String> _setSearchableAttributes = new HashSet<>(
+            Arrays.asList( AppPropertiesService.getProperty( PROPERTY_SEARCH_ATTRIBUTES, DEFAULT_SEARCH_ATTRIBUTES ).split( "\\s*,\\s*" ) ) );
+    private final int _nLimitMax = AppPropertiesService.getPropertyInt( PROPERTY_SEARCH_LIMIT_MAX, DEFAULT_SEARCH_LIMIT_MAX );
+
+    /**
+     * private constructor
+     */
+    private AttributeSearchService( )
+    {
+    }
+
+    /**
+     * @return the instance
+     */
+    public static AttributeSearchService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Search the identities matching all the given attribute values
+     *
+     * @param strClientCode
+     *            the client code
+     * @param search
+     *            the search
+     * @param converter
+     *            the converter of the identities to the version of the API, applying the projection of the search
+     * @return the identities found, at most the limit of the search
+     * @throws IdentityStoreException
+     *             if the search is invalid, if the client has no active service contract or is not authorized to search
+     */
+    public AttributeSearchResultDto search( final String strClientCode, final AttributeSearchDto search, final Function<IdentityDto, Object> converter )
+            throws IdentityStoreException
+    {
+        final ServiceContract serviceContract = FacadeAdapters.getServiceContractProvider( ).getActiveServiceContract( strClientCode );
+        if ( serviceContract == null )
+        {
+            throw new ServiceContractNotFoundException( "No active service contract could be found for clientCode = " + strClientCode );
+        }
+        if ( !serviceContract.getAuthorizedSearch( ) )
+        {
+            throw new IdentityStoreException( "The service contract of clientCode = " + strClientCode + " does not authorize the search" );
+        }
+        final Map<String, String> mapAttributes = getSearchedAttributes( search, serviceContract );
+        // the searched values are personal data : only the searched keys are logged
+        FacadeAdapters.getAccessLogger( ).info( AccessLoggerConstants.EVENT_TYPE_READ, IdentityService.SEARCH_IDENTITY_EVENT_CODE, strClientCode, null,
+                SecurityUtil.logForgingProtect( String.join( ",", mapAttributes.keySet( ) ) ), IdentityService.SPECIFIC_ORIGIN );
+
+        final int nLimit = search.getLimit( ) <= 0 ? _nLimitMax : Math.min( search.getLimit( ), _nLimitMax );
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        final AttributeSearchResultDto result = new AttributeSearchResultDto( );
+        final List<String> listCustomerIds = identityProvider.searchCustomerIds( mapAttributes, nLimit );
+        if ( listCustomerIds.isEmpty( ) )
+        {
+            return result;
+        }
+        // the identities found are read with one query, without filling the identity cache
+        for ( final IdentityDto identity : identityProvider.findByCustomerIds( listCustomerIds, serviceContract ) )
+        {
+            FacadeAdapters.getAccessLogger( ).info( AccessLoggerConstants.EVENT_TYPE_READ, IdentityService.SEARCH_IDENTITY_EVENT_CODE, strClientCode, null,
+                    SecurityUtil.logForgingProtect( identity.getCustomerId( ) ), IdentityService.SPECIFIC_ORIGIN );
+            result.getIdentities( ).add( converter.apply( identity ) );
+        }
+
+        return result;
+    }
+
+    /**
+     * Check the searched attributes, which must be searchable by the facade and by the service contract of the client
+     *
+     * @param search
+     *            the search
+     * @param serviceContract
+     *            the service contract of the client
+     * @return the searched values, by attribute key
+     * @throws IdentityStoreException
+     *             if no value is searched or if an attribute is not searchable
+     */
+    private Map<String, String> getSearchedAttributes( final AttributeSearchDto search, final ServiceContract serviceContract ) throws IdentityStoreException
+    {
+        if ( search == null || search.getAttributes( ) == null )
+        {
+            throw new IdentityStoreException( "No searched attribute" );
+        }
+        final Set<String> setContractSearchableAttributes = serviceContract.getAttributeRights( ).stream( ).filter( AttributeRight::isSearchable )
+                .map( attributeRight -> attributeRight.getAttributeKey( ).getKeyName( ) ).collect( Collectors.toSet( ) );
+        final Map<String, String> mapAttributes = new TreeMap<>( );
+        for ( final Map.Entry<String, String> attribute : search.getAttributes( ).entrySet( ) )
+        {
+            if ( StringUtils.isBlank( attribute.getValue( ) ) )
+            {
+                continue;
+            }
+            if ( !_setSearchableAttributes.contains( attribute.getKey( ) ) )
+            {
+                throw new IdentityStoreException( "The attribute " + attribute.getKey( ) + " is not searchable" );
+            }
+            if ( !setContractSearchableAttributes.contains( attribute.getKey( ) ) )
+            {
+                throw new IdentityStoreException( "The service contract of clientCode = " + serviceContract.getClientCode( )
+                        + " does not authorize the search by the attribute " + attribute.getKey( ) );
+            }
+            mapAttributes.put( attribute.getKey( ), attribute.getValue( ).trim( ) );
+        }
+        if ( mapAttributes.isEmpty( ) )
+        {
+            throw new IdentityStoreException( "No searched attribute" );
+        }
+        return mapAttributes;
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final AttributeSearchService INSTANCE = new AttributeSearchService( );
+    }
+}
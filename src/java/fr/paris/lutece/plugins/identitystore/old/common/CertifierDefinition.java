@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+/**
+ * Definition of a certifier, as rendered in the v1/v2 certificates
+ */
+public final class CertifierDefinition
+{
+    public static final int NO_EXPIRATION = -1;
+
+    private final String _strCode;
+    private final String _strName;
+    private final int _nExpirationDelay;
+
+    /**
+     * Constructor
+     *
+     * @param strCode
+     *            the certifier code
+     * @param strName
+     *            the certifier display name
+     * @param nExpirationDelay
+     *            the validity of the certificates, in days, {@link #NO_EXPIRATION} if they do not expire
+     */
+    public CertifierDefinition( final String strCode, final String strName, final int nExpirationDelay )
+    {
+        _strCode = strCode;
+        _strName = strName;
+        _nExpirationDelay = nExpirationDelay;
+    }
+
+    /**
+     * @return the certifier code
+     */
+    public String getCode( )
+    {
+        return _strCode;
+    }
+
+    /**
+     * @return the certifier display name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * @return the validity of the certificates, in days, {@link #NO_EXPIRATION} if they do not expire
+     */
+    public int getExpirationDelay( )
+    {
+        return _nExpirationDelay;
+    }
+}
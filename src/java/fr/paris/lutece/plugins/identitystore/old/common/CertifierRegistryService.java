@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory registry of the certifiers, used to render the v1/v2 certificates without any database access.<br/>
+ * The registry is a snapshot of the certifier definitions, loaded at the first use and refreshed periodically in the background. A refresh builds a whole
+ * new snapshot which replaces the previous one at once, so that a conversion never sees a partially loaded registry. When a refresh fails, the previous
+ * snapshot is kept.
+ */
+public final class CertifierRegistryService
+{
+    private static final String PROPERTY_REFRESH_INTERVAL = "identitystore.facade.certifiers.refresh.interval";
+    private static final int DEFAULT_REFRESH_INTERVAL = 300;
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis( 1 );
+
+    private volatile Map<String, CertifierDefinition> _mapCertifiers = Collections.emptyMap( );
+
+    /**
+     * private constructor
+     */
+    private CertifierRegistryService( )
+    {
+    }
+
+    /**
+     * @return the instance
+     */
+    public static CertifierRegistryService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return the instance, created on first use
+     */
+    private static CertifierRegistryService create( )
+    {
+        final CertifierRegistryService instance = new CertifierRegistryService( );
+        instance.refresh( );
+        instance.scheduleRefresh( );
+        return instance;
+    }
+
+    /**
+     * Reload the certifier definitions and replace the current snapshot
+     */
+    public void refresh( )
+    {
+        try
+        {
+            final Map<String, CertifierDefinition> mapCertifiers = new HashMap<>( );
+            for ( final CertifierDefinition certifier : FacadeAdapters.getCertifierProvider( ).findAll( ) )
+            {
+                mapCertifiers.put( certifier.getCode( ), certifier );
+            }
+            _mapCertifiers = Collections.unmodifiableMap( mapCertifiers );
+        }
+        catch( final RuntimeException e )
+        {
+            AppLogService.error( "Unable to refresh the certifier registry, the previous snapshot is kept", e );
+        }
+    }
+
+    /**
+     * Get the display name of a certifier
+     *
+     * @param strCertifierCode
+     *            the certifier code
+     * @return the name of the certifier, or its code if it is unknown
+     */
+    public String getCertifierName( final String strCertifierCode )
+    {
+        final CertifierDefinition certifier = _mapCertifiers.get( strCertifierCode );
+        return certifier != null ? certifier.getName( ) : strCertifierCode;
+    }
+
+    /**
+     * Compute the expiration date of a certificate
+     *
+     * @param strCertifierCode
+     *            the certifier code
+     * @param dateCertification
+     *            the certification date
+     * @return the expiration date, or {@code null} if the certificates of this certifier do not expire or if the certification date is unknown
+     */
+    public Timestamp getExpirationDate( final String strCertifierCode, final Date dateCertification )
+    {
+        final CertifierDefinition certifier = _mapCertifiers.get( strCertifierCode );
+        if ( certifier == null || dateCertification == null || certifier.getExpirationDelay( ) == CertifierDefinition.NO_EXPIRATION )
+        {
+            return null;
+        }
+        return new Timestamp( dateCertification.getTime( ) + certifier.getExpirationDelay( ) * MILLIS_PER_DAY );
+    }
+
+    /**
+     * Schedule the periodic refresh of the registry
+     */
+    private void scheduleRefresh( )
+    {
+        final int nRefreshInterval = AppPropertiesService.getPropertyInt( PROPERTY_REFRESH_INTERVAL, DEFAULT_REFRESH_INTERVAL );
+        if ( nRefreshInterval <= 0 )
+        {
+            return;
+        }
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            final Thread thread = new Thread( runnable, "identitystore-facade-certifier-registry" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        scheduler.scheduleWithFixedDelay( this::refresh, nRefreshInterval, nRefreshInterval, TimeUnit.SECONDS );
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final CertifierRegistryService INSTANCE = create( );
+    }
+}
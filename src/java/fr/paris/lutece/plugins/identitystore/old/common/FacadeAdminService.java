@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Access control of the facade admin API.<br/>
+ * The admin API is restricted to the trusted client codes listed in the <code>identitystore.facade.admin.client.codes</code> property : without it, the
+ * admin API is closed.
+ */
+public final class FacadeAdminService
+{
+    private static final String PROPERTY_ADMIN_CLIENT_CODES = "identitystore.facade.admin.client.codes";
+    private static final String SEPARATOR = ",";
+
+    private static final List<String> ADMIN_CLIENT_CODES = Arrays
+            .stream( AppPropertiesService.getProperty( PROPERTY_ADMIN_CLIENT_CODES, StringUtils.EMPTY ).split( SEPARATOR ) ).map( String::trim )
+            .filter( StringUtils::isNotEmpty ).collect( Collectors.toList( ) );
+
+    /**
+     * private constructor
+     */
+    private FacadeAdminService( )
+    {
+    }
+
+    /**
+     * Verify that a client is an administrator of the facade
+     *
+     * @param strTrustedClientCode
+     *            the trusted client code
+     * @throws AdminAccessDeniedException
+     *             if the client is not an administrator
+     */
+    public static void checkAdminClient( final String strTrustedClientCode ) throws AdminAccessDeniedException
+    {
+        if ( StringUtils.isBlank( strTrustedClientCode ) || !ADMIN_CLIENT_CODES.contains( strTrustedClientCode ) )
+        {
+            throw new AdminAccessDeniedException( "The client " + strTrustedClientCode + " is not allowed to use the facade admin API" );
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+/**
+ * Constants shared by the v1 and v2 REST services and the facade admin REST service
+ */
+public final class FacadeConstants
+{
+    // PATHS
+    public static final String EXPORT_PATH = "/export";
+    public static final String CHANGES_PATH = "/changes";
+    public static final String SEARCH_PATH = "/search";
+    public static final String EXISTENCE_PATH = "/exists";
+    public static final String ADMIN_PATH = "facade/admin";
+    public static final String HOTKEYS_PATH = "/hotkeys";
+    public static final String LIMITERS_PATH = "/limiters";
+    public static final String BULKHEADS_PATH = "/bulkheads";
+    public static final String CACHES_PATH = "/caches";
+    public static final String INVALIDATIONS_PATH = "/invalidations";
+    public static final String ADMISSION_PATH = "/admission";
+    public static final String PARTITION_PATH = "facade/partition";
+    public static final String PARTITION_IDENTITY_PATH = "/identity";
+
+    // PARAMETERS
+    public static final String PARAM_CURSOR = "cursor";
+    public static final String PARAM_LIMIT = "limit";
+    public static final String PARAM_SINCE = "since";
+    public static final String PARAM_WAIT = "wait";
+    public static final String PARAM_WITH_IDENTITIES = "with_identities";
+    public static final String PARAM_DIMENSION = "dimension";
+    public static final String PARAM_WINDOW = "window";
+    public static final String PARAM_CACHE = "cache";
+    public static final String PARAM_KEY = "key";
+    public static final String PARAM_CONTRACT = "contract";
+    public static final String CACHE_PATH = CACHES_PATH + "/{" + PARAM_CACHE + "}";
+    public static final String CACHE_CONTRACT_PATH = CACHES_PATH + "/contracts/{" + PARAM_CONTRACT + "}";
+
+    // HEADERS
+    public static final String HEADER_STALE = "X-Identity-Stale";
+    public static final String HEADER_AGE = "Age";
+    public static final String HEADER_REQUEST_TIMEOUT = "X-Request-Timeout";
+    public static final String HEADER_PEER_TOKEN = "X-Facade-Peer-Token";
+
+    // MEDIA TYPES
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+
+    /**
+     * private constructor
+     */
+    private FacadeConstants( )
+    {
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.invalidation.InvalidationBus;
+import fr.paris.lutece.plugins.identitystore.service.listeners.IdentityChangeListener;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.RequestAuthor;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.history.IdentityChangeType;
+
+import java.util.Map;
+
+/**
+ * Identity change listener keeping the v1/v2 facade up to date with the identity changes made on this node.<br/>
+ * The changed identities are also removed from the caches of the other nodes through the {@link InvalidationBus}, started with the listener so that the
+ * node receives the invalidations of the other nodes from its startup.<br/>
+ * Must be declared as a Spring bean of the identitystore context to be notified.
+ */
+public class FacadeIdentityChangeListener implements IdentityChangeListener
+{
+    private static final String LISTENER_NAME = "FacadeIdentityChangeListener";
+
+    /**
+     * Constructor
+     */
+    public FacadeIdentityChangeListener( )
+    {
+        InvalidationBus.instance( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void processIdentityChange( final IdentityChangeType identityChangeType, final Identity identity, final String statusCode,
+            final String statusMessage, final RequestAuthor author, final String clientCode, final Map<String, String> metadata )
+    {
+        if ( identityChangeType == IdentityChangeType.READ )
+        {
+            return;
+        }
+        if ( identity != null )
+        {
+            FacadeCacheService.instance( ).invalidateIdentity( identity.getCustomerId( ) );
+        }
+        IdentityChangeFeedService.instance( ).signalChange( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return LISTENER_NAME;
+    }
+}
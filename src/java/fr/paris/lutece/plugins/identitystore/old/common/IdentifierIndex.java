@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityChange;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.CacheMemory;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.IFacadeCache;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.FacadeCacheDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory index resolving the connection IDs and the merged customer IDs to the customer ID of their master identity.<br/>
+ * The index is learned from the identities read : a read by connection ID, or by the customer ID of a merged identity, then reads the master identity by
+ * its customer ID, i.e. the same identity cache entry as the reads of the master customer ID, instead of a separate entry.<br/>
+ * All the entries of an identity are removed when it changes, on this node through the {@link FacadeIdentityChangeListener} and on the other nodes by
+ * polling the identity history, so that a merge, a cancelled merge or a new connection ID is never resolved to the former master.
+ */
+public final class IdentifierIndex implements IFacadeCache
+{
+    private static final String PROPERTY_IDENTIFIER_INDEX_ENABLED = "identitystore.facade.identifier.index.enabled";
+    private static final String PROPERTY_IDENTIFIER_INDEX_SIZE = "identitystore.facade.identifier.index.size";
+    private static final String PROPERTY_IDENTIFIER_INDEX_POLL_INTERVAL = "identitystore.facade.identifier.index.poll.interval";
+    private static final int DEFAULT_IDENTIFIER_INDEX_SIZE = 1000000;
+    private static final int DEFAULT_IDENTIFIER_INDEX_POLL_INTERVAL = 5;
+    private static final int CHANGES_PAGE_SIZE = 500;
+    // an invalidation is remembered longer than any identity read may take
+    private static final long INVALIDATION_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis( 5 );
+    // the keys of the two kinds of identifiers are distinct, a connection ID could be equal to a customer ID
+    private static final char PREFIX_CONNECTION_ID = 'g';
+    private static final char PREFIX_CUSTOMER_ID = 'c';
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_IDENTIFIER_INDEX_ENABLED, true );
+    private volatile int _nMaxSize = AppPropertiesService.getPropertyInt( PROPERTY_IDENTIFIER_INDEX_SIZE, DEFAULT_IDENTIFIER_INDEX_SIZE );
+    private final Map<String, String> _mapMasterCustomerIds = new ConcurrentHashMap<>( );
+    private final Map<String, Set<String>> _mapKeysByMaster = new HashMap<>( );
+    private final Map<String, Long> _mapRecentInvalidations = new ConcurrentHashMap<>( );
+    private final LongAdder _hits = new LongAdder( );
+    private final LongAdder _misses = new LongAdder( );
+    private final LongAdder _evictions = new LongAdder( );
+    private ScheduledExecutorService _scheduler;
+    private long _lLastChangeId = -1;
+
+    /**
+     * private constructor
+     */
+    private IdentifierIndex( )
+    {
+    }
+
+    /**
+     * @return the instance
+     */
+    public static IdentifierIndex instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return the instance, created on first use
+     */
+    private static IdentifierIndex create( )
+    {
+        final IdentifierIndex instance = new IdentifierIndex( );
+        if ( instance._bEnabled )
+        {
+            instance.schedulePolling( );
+        }
+        return instance;
+    }
+
+    /**
+     * @param strConnectionId
+     *            a connection ID
+     * @return the customer ID of the identity of the connection ID, or {@code null} if it is not known
+     */
+    public String resolveConnectionId( final String strConnectionId )
+    {
+        return resolve( PREFIX_CONNECTION_ID + strConnectionId );
+    }
+
+    /**
+     * @param strCustomerId
+     *            a customer ID
+     * @return the customer ID of the master identity if the customer ID is known to be merged, else {@code null}
+     */
+    public String resolveMergedCustomerId( final String strCustomerId )
+    {
+        return resolve( PREFIX_CUSTOMER_ID + strCustomerId );
+    }
+
+    /**
+     * @param strKey
+     *            a key
+     * @return the customer ID of the master identity of the key, or {@code null} if it is not known
+     */
+    private String resolve( final String strKey )
+    {
+        if ( !_bEnabled )
+        {
+            return null;
+        }
+        final String strMasterCustomerId = _mapMasterCustomerIds.get( strKey );
+        if ( strMasterCustomerId != null )
+        {
+            _hits.increment( );
+        }
+        else
+        {
+            _misses.increment( );
+        }
+        return strMasterCustomerId;
+    }
+
+    /**
+     * Record the identity found by connection ID
+     *
+     * @param strConnectionId
+     *            the connection ID
+     * @param strMasterCustomerId
+     *            the customer ID of the identity found
+     * @param lLoadStartMillis
+     *            the time at which the read of the identity started
+     */
+    public void putConnectionId( final String strConnectionId, final String strMasterCustomerId, final long lLoadStartMillis )
+    {
+        put( PREFIX_CONNECTION_ID + strConnectionId, null, strMasterCustomerId, lLoadStartMillis );
+    }
+
+    /**
+     * Record the master identity found by the customer ID of a merged identity
+     *
+     * @param strCustomerId
+     *            the customer ID of the merged identity
+     * @param strMasterCustomerId
+     *            the customer ID of the master identity
+     * @param lLoadStartMillis
+     *            the time at which the read of the identity started
+     */
+    public void putMergedCustomerId( final String strCustomerId, final String strMasterCustomerId, final long lLoadStartMillis )
+    {
+        put( PREFIX_CUSTOMER_ID + strCustomerId, strCustomerId, strMasterCustomerId, lLoadStartMillis );
+    }
+
+    /**
+     * Remove the entry of a connection ID, found to be stale
+     *
+     * @param strConnectionId
+     *            the connection ID
+     */
+    public void removeConnectionId( final String strConnectionId )
+    {
+        remove( PREFIX_CONNECTION_ID + strConnectionId );
+    }
+
+    /**
+     * Remove the entry of a customer ID, found to be stale
+     *
+     * @param strCustomerId
+     *            the customer ID
+     */
+    public void removeMergedCustomerId( final String strCustomerId )
+    {
+        remove( PREFIX_CUSTOMER_ID + strCustomerId );
+    }
+
+    /**
+     * Remove all the entries of a changed identity : its own entry if it was merged, and the entries resolved to it
+     *
+     * @param strCustomerId
+     *            the customer ID of the changed identity
+     */
+    @Override
+    public synchronized void invalidate( final String strCustomerId )
+    {
+        if ( !_bEnabled || strCustomerId == null )
+        {
+            return;
+        }
+        _mapRecentInvalidations.put( strCustomerId, System.currentTimeMillis( ) );
+        remove( PREFIX_CUSTOMER_ID + strCustomerId );
+        final Set<String> setKeys = _mapKeysByMaster.remove( strCustomerId );
+        if ( setKeys != null )
+        {
+            for ( final String strKey : setKeys )
+            {
+                _mapMasterCustomerIds.remove( strKey );
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size( )
+    {
+        return _mapMasterCustomerIds.size( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return FacadeCacheService.CACHE_IDENTIFIER_INDEX;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The entries do not expire, they are removed when their identities change.
+     */
+    @Override
+    public synchronized FacadeCacheDto getState( )
+    {
+        final FacadeCacheDto state = new FacadeCacheDto( );
+        state.setName( FacadeCacheService.CACHE_IDENTIFIER_INDEX );
+        state.setEnabled( _bEnabled );
+        state.setSize( _mapMasterCustomerIds.size( ) );
+        state.setMaxSize( _nMaxSize );
+        state.setTimeToLive( -1 );
+        final long lHits = _hits.sum( );
+        final long lMisses = _misses.sum( );
+        state.setHits( lHits );
+        state.setMisses( lMisses );
+        state.setHitRatio( lHits + lMisses > 0 ? (double) lHits / ( lHits + lMisses ) : 0 );
+        state.setEvictions( _evictions.sum( ) );
+        long lMemory = 0;
+        for ( final Map.Entry<String, String> entry : _mapMasterCustomerIds.entrySet( ) )
+        {
+            lMemory += CacheMemory.ENTRY_OVERHEAD + CacheMemory.estimate( entry.getKey( ) ) + CacheMemory.estimate( entry.getValue( ) );
+        }
+        for ( final Set<String> setKeys : _mapKeysByMaster.values( ) )
+        {
+            lMemory += CacheMemory.ENTRY_OVERHEAD * ( 1 + setKeys.size( ) );
+        }
+        state.setMemoryEstimate( lMemory );
+        state.setResizable( true );
+        return state;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void invalidateAll( )
+    {
+        clear( );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The index is cleared when it is full : it is not cleared at once when it is shrunk below its size.
+     */
+    @Override
+    public void resize( final int nMaxSize ) throws IdentityStoreException
+    {
+        if ( nMaxSize <= 0 )
+        {
+            throw new IdentityStoreException( "Invalid size of the identifier index : " + nMaxSize );
+        }
+        _nMaxSize = nMaxSize;
+    }
+
+    /**
+     * Add an entry, replacing the previous one of the key, unless one of the identities changed during the read
+     *
+     * @param strKey
+     *            the key
+     * @param strCustomerId
+     *            the customer ID of the merged identity, {@code null} for a connection ID
+     * @param strMasterCustomerId
+     *            the customer ID of the master identity
+     * @param lLoadStartMillis
+     *            the time at which the read of the identity started
+     */
+    private synchronized void put( final String strKey, final String strCustomerId, final String strMasterCustomerId, final long lLoadStartMillis )
+    {
+        if ( !_bEnabled || strMasterCustomerId == null || isInvalidatedSince( strMasterCustomerId, lLoadStartMillis )
+                || ( strCustomerId != null && isInvalidatedSince( strCustomerId, lLoadStartMillis ) ) )
+        {
+            return;
+        }
+        if ( _mapMasterCustomerIds.size( ) >= _nMaxSize && !_mapMasterCustomerIds.containsKey( strKey ) )
+        {
+            // the index is learned again from the reads
+            AppLogService.info( "Identifier index full, " + _nMaxSize + " entries cleared" );
+            _evictions.add( _mapMasterCustomerIds.size( ) );
+            _mapMasterCustomerIds.clear( );
+            _mapKeysByMaster.clear( );
+        }
+        remove( strKey );
+        _mapMasterCustomerIds.put( strKey, strMasterCustomerId );
+        _mapKeysByMaster.computeIfAbsent( strMasterCustomerId, strMaster -> new HashSet<>( 2 ) ).add( strKey );
+    }
+
+    /**
+     * @param strCustomerId
+     *            a customer ID
+     * @param lMillis
+     *            a time
+     * @return {@code true} if the identity was invalidated at or after the time
+     */
+    private boolean isInvalidatedSince( final String strCustomerId, final long lMillis )
+    {
+        final Long lInvalidationMillis = _mapRecentInvalidations.get( strCustomerId );
+        return lInvalidationMillis != null && lInvalidationMillis >= lMillis;
+    }
+
+    /**
+     * Remove an entry
+     *
+     * @param strKey
+     *            the key
+     */
+    private synchronized void remove( final String strKey )
+    {
+        final String strMasterCustomerId = _mapMasterCustomerIds.remove( strKey );
+        if ( strMasterCustomerId != null )
+        {
+            final Set<String> setKeys = _mapKeysByMaster.get( strMasterCustomerId );
+            if ( setKeys != null && setKeys.remove( strKey ) && setKeys.isEmpty( ) )
+            {
+                _mapKeysByMaster.remove( strMasterCustomerId );
+            }
+        }
+    }
+
+    /**
+     * Schedule the polling of the identity changes made on the other nodes
+     */
+    private void schedulePolling( )
+    {
+        final int nPollInterval = AppPropertiesService.getPropertyInt( PROPERTY_IDENTIFIER_INDEX_POLL_INTERVAL, DEFAULT_IDENTIFIER_INDEX_POLL_INTERVAL );
+        _scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            final Thread thread = new Thread( runnable, "identitystore-facade-identifier-index" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        _scheduler.scheduleWithFixedDelay( ( ) -> {
+            try
+            {
+                pollChanges( );
+            }
+            catch( final IdentityStoreException | RuntimeException e )
+            {
+                AppLogService.error( "Unable to poll the identity changes, the identifier index is cleared", e );
+                clear( );
+            }
+        }, 0, nPollInterval, TimeUnit.SECONDS );
+    }
+
+    /**
+     * Remove the entries of the identities changed since the last poll
+     *
+     * @throws IdentityStoreException
+     *             if the changes cannot be read
+     */
+    private void pollChanges( ) throws IdentityStoreException
+    {
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        if ( _lLastChangeId < 0 )
+        {
+            // the index is empty at startup
+            _lLastChangeId = identityProvider.getLastChangeId( );
+            return;
+        }
+        List<FacadeIdentityChange> listChanges;
+        do
+        {
+            listChanges = identityProvider.findChanges( _lLastChangeId, CHANGES_PAGE_SIZE );
+            for ( final FacadeIdentityChange change : listChanges )
+            {
+                invalidate( change.getCustomerId( ) );
+                _lLastChangeId = change.getId( );
+            }
+        }
+        while ( listChanges.size( ) == CHANGES_PAGE_SIZE );
+
+        final long lExpiration = System.currentTimeMillis( ) - INVALIDATION_RETENTION_MILLIS;
+        _mapRecentInvalidations.values( ).removeIf( lInvalidationMillis -> lInvalidationMillis < lExpiration );
+    }
+
+    /**
+     * Remove all the entries
+     */
+    private synchronized void clear( )
+    {
+        _mapMasterCustomerIds.clear( );
+        _mapKeysByMaster.clear( );
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final IdentifierIndex INSTANCE = create( );
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityChange;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.ChangeFeedDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.IdentityChangeDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.history.IdentityChangeType;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.security.AccessLoggerConstants;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.http.SecurityUtil;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Incremental change feed of the identities, for the v1/v2 clients.<br/>
+ * The feed is read from the identity history, the cursor being the ID of the last returned history record. When there is no new change, the request is
+ * held until a change is notified on this node (see {@link FacadeIdentityChangeListener}) or until the poll interval elapses, so that the changes made on
+ * other nodes are also found, and at most until the requested wait time.<br/>
+ * The history IDs are assigned before the changes are committed : a change committed late may appear below the cursor of a client which already read
+ * the following ones. The changes are therefore only returned once they are older than <code>identitystore.facade.changes.gap.wait</code>
+ * milliseconds, the changes with lower IDs being committed by then as long as the transactions which record them are shorter. This assumes that the
+ * clocks of the nodes and of the database are synchronized.
+ */
+public final class IdentityChangeFeedService
+{
+    private static final String PROPERTY_CHANGES_LIMIT_MAX = "identitystore.facade.changes.limit.max";
+    private static final String PROPERTY_CHANGES_WAIT_MAX = "identitystore.facade.changes.wait.max";
+    private static final String PROPERTY_CHANGES_POLL_INTERVAL = "identitystore.facade.changes.poll.interval";
+    private static final String PROPERTY_CHANGES_GAP_WAIT = "identitystore.facade.changes.gap.wait";
+    private static final int DEFAULT_CHANGES_LIMIT_MAX = 1000;
+    private static final int DEFAULT_CHANGES_WAIT_MAX = 30;
+    private static final int DEFAULT_CHANGES_POLL_INTERVAL = 2000;
+    private static final int DEFAULT_CHANGES_GAP_WAIT = 5000;
+
+    private final int _nLimitMax = AppPropertiesService.getPropertyInt( PROPERTY_CHANGES_LIMIT_MAX, DEFAULT_CHANGES_LIMIT_MAX );
+    private final int _nWaitMaxSeconds = AppPropertiesService.getPropertyInt( PROPERTY_CHANGES_WAIT_MAX, DEFAULT_CHANGES_WAIT_MAX );
+    private final int _nPollIntervalMillis = AppPropertiesService.getPropertyInt( PROPERTY_CHANGES_POLL_INTERVAL, DEFAULT_CHANGES_POLL_INTERVAL );
+    private final int _nGapWaitMillis = AppPropertiesService.getPropertyInt( PROPERTY_CHANGES_GAP_WAIT, DEFAULT_CHANGES_GAP_WAIT );
+    private final Object _signal = new Object( );
+    private long _lSignalCount;
+
+    /**
+     * private constructor
+     */
+    private IdentityChangeFeedService( )
+    {
+    }
+
+    /**
+     * @return the instance
+     */
+    public static IdentityChangeFeedService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Wake up the requests waiting for a change
+     */
+    public void signalChange( )
+    {
+        synchronized( _signal )
+        {
+            _lSignalCount++;
+            _signal.notifyAll( );
+        }
+    }
+
+    /**
+     * Get the identity changes following the cursor.<br/>
+     * Without cursor, no change is returned but the cursor of the head of the feed, from which the client can follow the changes.
+     *
+     * @param strClientCode
+     *            the client code
+     * @param strSince
+     *            the cursor returned by the previous call, {@code null} to get the head of the feed
+     * @param nLimit
+     *            the maximum number of changes, 0 or less for the maximum allowed
+     * @param nWaitSeconds
+     *            the maximum time to wait for a change when there is none, in seconds
+     * @param bWithIdentities
+     *            {@code true} to render the changed identities, according to the service contract of the client
+     * @param converter
+     *            the converter of the identities to the version of the API
+     * @return the changes
+     * @throws IdentityStoreException
+     *             if the cursor is invalid, if the client has no active service contract or if the changes cannot be read
+     */
+    public ChangeFeedDto getChanges( final String strClientCode, final String strSince, final int nLimit, final int nWaitSeconds,
+            final boolean bWithIdentities, final Function<IdentityDto, Object> converter ) throws IdentityStoreException
+    {
+        final ServiceContract serviceContract = FacadeAdapters.getServiceContractProvider( ).getActiveServiceContract( strClientCode );
+        if ( serviceContract == null )
+        {
+            throw new ServiceContractNotFoundException( "No active service contract could be found for clientCode = " + strClientCode );
+        }
+        FacadeAdapters.getAccessLogger( ).info( AccessLoggerConstants.EVENT_TYPE_READ, IdentityService.GET_IDENTITY_CHANGES_EVENT_CODE, strClientCode, null,
+                SecurityUtil.logForgingProtect( StringUtils.defaultString( strSince ) ), IdentityService.SPECIFIC_ORIGIN );
+
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        final ChangeFeedDto changeFeed = new ChangeFeedDto( );
+        if ( StringUtils.isBlank( strSince ) )
+        {
+            changeFeed.setCursor( String.valueOf( identityProvider.getLastChangeId( ) ) );
+            return changeFeed;
+        }
+
+        final long lSince = parseCursor( strSince );
+        final int nEffectiveLimit = nLimit <= 0 ? _nLimitMax : Math.min( nLimit, _nLimitMax );
+        final long lDeadline = System.nanoTime( ) + TimeUnit.SECONDS.toNanos( Math.max( 0, Math.min( nWaitSeconds, _nWaitMaxSeconds ) ) );
+        List<FacadeIdentityChange> listChanges;
+        while ( true )
+        {
+            final long lSignalCount = getSignalCount( );
+            final long lSettledMillis = System.currentTimeMillis( ) - _nGapWaitMillis;
+            final List<FacadeIdentityChange> listReadChanges = identityProvider.findChanges( lSince, nEffectiveLimit );
+            listChanges = getSettledChanges( listReadChanges, lSettledMillis );
+            final long lRemainingNanos = lDeadline - System.nanoTime( );
+            if ( !listChanges.isEmpty( ) || lRemainingNanos <= 0 )
+            {
+                break;
+            }
+            long lWaitMillis = Math.min( TimeUnit.NANOSECONDS.toMillis( lRemainingNanos ) + 1, _nPollIntervalMillis );
+            if ( !listReadChanges.isEmpty( ) )
+            {
+                // wait for the first change to settle
+                lWaitMillis = Math.max( 1, Math.min( lWaitMillis, listReadChanges.get( 0 ).getModificationDate( ).getTime( ) - lSettledMillis + 1 ) );
+            }
+            if ( !awaitSignal( lSignalCount, lWaitMillis ) )
+            {
+                // interrupted : the empty feed is returned with the cursor of the client
+                break;
+            }
+        }
+
+        final Map<String, Object> mapIdentities = bWithIdentities ? findIdentities( listChanges, serviceContract, converter )
+                : Collections.emptyMap( );
+        long lCursor = lSince;
+        for ( final FacadeIdentityChange change : listChanges )
+        {
+            final IdentityChangeDto changeDto = new IdentityChangeDto( );
+            changeDto.setCustomerId( change.getCustomerId( ) );
+            changeDto.setChangeType( change.getChangeType( ) != null ? change.getChangeType( ).name( ) : null );
+            changeDto.setChangeDate( change.getModificationDate( ) );
+            if ( hasIdentity( change ) )
+            {
+                changeDto.setIdentity( mapIdentities.get( change.getCustomerId( ) ) );
+            }
+            changeFeed.getChanges( ).add( changeDto );
+            lCursor = change.getId( );
+        }
+        changeFeed.setCursor( String.valueOf( lCursor ) );
+
+        return changeFeed;
+    }
+
+    /**
+     * Read and convert the identities of the changes, with one query, without going through the identity cache
+     *
+     * @param listChanges
+     *            the changes
+     * @param serviceContract
+     *            the service contract of the client
+     * @param converter
+     *            the converter of the identities to the version of the API
+     * @return the converted identities, by customer ID, the identities no longer active being left out
+     * @throws IdentityStoreException
+     *             if the identities cannot be read
+     */
+    private static Map<String, Object> findIdentities( final List<FacadeIdentityChange> listChanges, final ServiceContract serviceContract,
+            final Function<IdentityDto, Object> converter ) throws IdentityStoreException
+    {
+        final List<String> listCustomerIds = listChanges.stream( ).filter( IdentityChangeFeedService::hasIdentity ).map( FacadeIdentityChange::getCustomerId )
+                .distinct( ).collect( Collectors.toList( ) );
+        final Map<String, Object> mapIdentities = new HashMap<>( );
+        if ( !listCustomerIds.isEmpty( ) )
+        {
+            for ( final IdentityDto identity : FacadeAdapters.getIdentityProvider( ).findByCustomerIds( listCustomerIds, serviceContract ) )
+            {
+                mapIdentities.put( identity.getCustomerId( ), converter.apply( identity ) );
+            }
+        }
+        return mapIdentities;
+    }
+
+    /**
+     * Tell whether the identity of a change is rendered, which is not the case for the deleted and merged identities
+     *
+     * @param change
+     *            the change
+     * @return {@code true} if the identity is rendered
+     */
+    private static boolean hasIdentity( final FacadeIdentityChange change )
+    {
+        return change.getChangeType( ) != IdentityChangeType.DELETE && change.getChangeType( ) != IdentityChangeType.MERGED;
+    }
+
+    /**
+     * Keep the changes older than the gap wait, up to the first more recent one
+     *
+     * @param listChanges
+     *            the changes read, in ascending ID order
+     * @param lSettledMillis
+     *            the date before which the changes are settled
+     * @return the settled changes
+     */
+    private static List<FacadeIdentityChange> getSettledChanges( final List<FacadeIdentityChange> listChanges, final long lSettledMillis )
+    {
+        int nSettled = 0;
+        while ( nSettled < listChanges.size( ) && listChanges.get( nSettled ).getModificationDate( ).getTime( ) <= lSettledMillis )
+        {
+            nSettled++;
+        }
+        return nSettled == listChanges.size( ) ? listChanges : listChanges.subList( 0, nSettled );
+    }
+
+    /**
+     * Parse a cursor
+     *
+     * @param strCursor
+     *            the cursor
+     * @return the history ID
+     * @throws IdentityStoreException
+     *             if the cursor is invalid
+     */
+    private static long parseCursor( final String strCursor ) throws IdentityStoreException
+    {
+        try
+        {
+            return Long.parseLong( strCursor.trim( ) );
+        }
+        catch( NumberFormatException e )
+        {
+            throw new IdentityStoreException( "Invalid change feed cursor : " + strCursor, e );
+        }
+    }
+
+    /**
+     * @return the number of signaled changes
+     */
+    private long getSignalCount( )
+    {
+        synchronized( _signal )
+        {
+            return _lSignalCount;
+        }
+    }
+
+    /**
+     * Wait until a change is signaled after the given signal count, or until the timeout
+     *
+     * @param lSignalCount
+     *            the signal count seen before reading the changes
+     * @param lTimeoutMillis
+     *            the timeout, in milliseconds
+     * @return {@code false} if the thread has been interrupted
+     */
+    private boolean awaitSignal( final long lSignalCount, final long lTimeoutMillis )
+    {
+        final long lDeadline = System.currentTimeMillis( ) + lTimeoutMillis;
+        synchronized( _signal )
+        {
+            long lRemaining = lTimeoutMillis;
+            while ( _lSignalCount == lSignalCount && lRemaining > 0 )
+            {
+                try
+                {
+                    _signal.wait( lRemaining );
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                    return false;
+                }
+                lRemaining = lDeadline - System.currentTimeMillis( );
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final IdentityChangeFeedService INSTANCE = new IdentityChangeFeedService( );
+    }
+}
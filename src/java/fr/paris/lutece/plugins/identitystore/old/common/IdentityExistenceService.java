@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityState;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.IdentityExistenceDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.IdentityExistenceRequestDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.IdentityExistencesDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Existence checks of identities, for the v1/v2 clients which only need to know that a customer ID is still valid.<br/>
+ * The identities are neither converted to the version of the API, nor serialized, nor logged as read, nor notified to the listeners : a check by
+ * customer ID is answered by a query on the state of the identity, and a bulk check reads the states of all the customer IDs with one query, then the
+ * history of the unknown ones with another. The identity caches are not a proof of existence : with the partitioning, the identities owned by other
+ * nodes are reported as cached whether they exist or not.
+ */
+public final class IdentityExistenceService
+{
+    private static final String PROPERTY_EXISTENCE_LIMIT_MAX = "identitystore.facade.existence.limit.max";
+    private static final int DEFAULT_EXISTENCE_LIMIT_MAX = 1000;
+
+    private final int _nLimitMax = AppPropertiesService.getPropertyInt( PROPERTY_EXISTENCE_LIMIT_MAX, DEFAULT_EXISTENCE_LIMIT_MAX );
+
+    /**
+     * private constructor
+     */
+    private IdentityExistenceService( )
+    {
+    }
+
+    /**
+     * @return the instance
+     */
+    public static IdentityExistenceService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Tell whether the identity of a customer or connection ID would be given by a GET request : the identity is active, or is merged into another one
+     *
+     * @param strCustomerId
+     *            the customer ID, checked first if both are provided
+     * @param strConnectionId
+     *            the connection ID
+     * @param strClientCode
+     *            the client code
+     * @return {@code true} if the identity would be given
+     * @throws IdentityStoreException
+     *             if the client has no active service contract, or if the identity cannot be read
+     */
+    public boolean exists( final String strCustomerId, final String strConnectionId, final String strClientCode ) throws IdentityStoreException
+    {
+        final ServiceContract serviceContract = getServiceContract( strClientCode );
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        if ( StringUtils.isBlank( strCustomerId ) )
+        {
+            return identityProvider.getByConnectionId( strConnectionId, serviceContract ) != null;
+        }
+        final List<FacadeIdentityState> listStates = identityProvider.findStates( Collections.singletonList( strCustomerId ) );
+        if ( listStates.isEmpty( ) )
+        {
+            return false;
+        }
+        final FacadeIdentityState state = listStates.get( 0 );
+        if ( getStatus( state ) == IdentityExistenceStatus.MERGED )
+        {
+            // the identity given for a merged customer ID is its master
+            return state.getMasterCustomerId( ) != null && identityProvider.getByCustomerId( state.getMasterCustomerId( ), serviceContract ) != null;
+        }
+        return getStatus( state ) == IdentityExistenceStatus.EXISTS;
+    }
+
+    /**
+     * Check customer IDs
+     *
+     * @param strClientCode
+     *            the client code
+     * @param request
+     *            the customer IDs to check
+     * @return the status of each distinct customer ID, in the order of the request
+     * @throws IdentityStoreException
+     *             if the request is invalid or over the limit, if the client has no active service contract, or if the states cannot be read
+     */
+    public IdentityExistencesDto check( final String strClientCode, final IdentityExistenceRequestDto request ) throws IdentityStoreException
+    {
+        if ( request == null || request.getCustomerIds( ) == null || request.getCustomerIds( ).isEmpty( ) )
+        {
+            throw new IdentityStoreException( "No customer ID to check" );
+        }
+        final Set<String> setCustomerIds = new LinkedHashSet<>( );
+        for ( final String strCustomerId : request.getCustomerIds( ) )
+        {
+            if ( StringUtils.isNotBlank( strCustomerId ) )
+            {
+                setCustomerIds.add( strCustomerId.trim( ) );
+            }
+        }
+        if ( setCustomerIds.size( ) > _nLimitMax )
+        {
+            throw new IdentityStoreException( "At most " + _nLimitMax + " customer IDs can be checked at once" );
+        }
+        getServiceContract( strClientCode );
+
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        final List<String> listCustomerIds = new ArrayList<>( setCustomerIds );
+        final Map<String, FacadeIdentityState> mapStates = new HashMap<>( );
+        for ( final FacadeIdentityState state : identityProvider.findStates( listCustomerIds ) )
+        {
+            mapStates.put( state.getCustomerId( ), state );
+        }
+        final List<String> listUnknownCustomerIds = new ArrayList<>( );
+        for ( final String strCustomerId : listCustomerIds )
+        {
+            if ( !mapStates.containsKey( strCustomerId ) )
+            {
+                listUnknownCustomerIds.add( strCustomerId );
+            }
+        }
+        // an identity deleted for good only remains in the history
+        final Set<String> setWithHistory = listUnknownCustomerIds.isEmpty( ) ? Collections.emptySet( )
+                : identityProvider.findCustomerIdsWithHistory( listUnknownCustomerIds );
+
+        final IdentityExistencesDto result = new IdentityExistencesDto( );
+        for ( final String strCustomerId : listCustomerIds )
+        {
+            final FacadeIdentityState state = mapStates.get( strCustomerId );
+            final IdentityExistenceDto existence = new IdentityExistenceDto( );
+            existence.setCustomerId( strCustomerId );
+            if ( state != null )
+            {
+                final IdentityExistenceStatus status = getStatus( state );
+                existence.setStatus( status.getCode( ) );
+                if ( status == IdentityExistenceStatus.MERGED )
+                {
+                    existence.setMasterCustomerId( state.getMasterCustomerId( ) );
+                }
+            }
+            else
+            {
+                final IdentityExistenceStatus status = setWithHistory.contains( strCustomerId ) ? IdentityExistenceStatus.DELETED
+                        : IdentityExistenceStatus.UNKNOWN;
+                existence.setStatus( status.getCode( ) );
+            }
+            result.getIdentities( ).add( existence );
+        }
+        return result;
+    }
+
+    /**
+     * Get the status of a known identity
+     *
+     * @param state
+     *            the state of the identity
+     * @return the status
+     */
+    private static IdentityExistenceStatus getStatus( final FacadeIdentityState state )
+    {
+        if ( state.isDeleted( ) )
+        {
+            return IdentityExistenceStatus.DELETED;
+        }
+        return state.isMerged( ) ? IdentityExistenceStatus.MERGED : IdentityExistenceStatus.EXISTS;
+    }
+
+    /**
+     * Get the active service contract of a client, the checks being only allowed to the clients having one
+     *
+     * @param strClientCode
+     *            the client code
+     * @return the service contract
+     * @throws IdentityStoreException
+     *             if the client has no active service contract
+     */
+    private static ServiceContract getServiceContract( final String strClientCode ) throws IdentityStoreException
+    {
+        final ServiceContract serviceContract = FacadeAdapters.getServiceContractProvider( ).getActiveServiceContract( strClientCode );
+        if ( serviceContract == null )
+        {
+            throw new ServiceContractNotFoundException( "No active service contract could be found for clientCode = " + strClientCode );
+        }
+        return serviceContract;
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final IdentityExistenceService INSTANCE = new IdentityExistenceService( );
+    }
+}
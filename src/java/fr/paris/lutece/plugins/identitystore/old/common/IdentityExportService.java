@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.ExportEndDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.security.AccessLoggerConstants;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.http.SecurityUtil;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bulk export of the identities visible to a service contract, as newline-delimited JSON.<br/>
+ * The identities are read by pages of customer IDs, in ascending customer ID order, so that the memory used does not depend on the number of exported
+ * identities. Each page is read from the backend with one query, without going through the identity cache, so that an export does not evict the
+ * identities read by the interactive clients.<br/>
+ * The last line is an {@code export_end} record holding the number of exported identities, the cursor from which the export can be resumed and whether
+ * all the identities have been exported : an export without this record has been interrupted, and can be resumed after its last exported customer ID.
+ */
+public final class IdentityExportService
+{
+    private static final String PROPERTY_EXPORT_PAGE_SIZE = "identitystore.facade.export.page.size";
+    private static final int DEFAULT_EXPORT_PAGE_SIZE = 500;
+    private static final byte [ ] NEW_LINE = {
+            '\n'
+    };
+
+    private static IdentityExportService _instance;
+
+    private final int _nPageSize = AppPropertiesService.getPropertyInt( PROPERTY_EXPORT_PAGE_SIZE, DEFAULT_EXPORT_PAGE_SIZE );
+
+    /**
+     * private constructor
+     */
+    private IdentityExportService( )
+    {
+    }
+
+    /**
+     * @return the instance
+     */
+    public static IdentityExportService instance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new IdentityExportService( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Prepare the export of the identities visible to the service contract of the client.<br/>
+     * The service contract is checked immediately, the identities are read and written when the returned output is written.
+     *
+     * @param strClientCode
+     *            the client code
+     * @param strCursor
+     *            the customer ID after which the export starts, {@code null} or empty to export from the beginning
+     * @param nLimit
+     *            the maximum number of exported identities, 0 or less for no limit
+     * @param converter
+     *            the converter of the identities to the exported version
+     * @param writer
+     *            the JSON writer of the converted identities, which must not indent its output
+     * @return the streaming output
+     * @throws IdentityStoreException
+     *             if the client has no active service contract or is not authorized to export
+     */
+    public StreamingOutput export( final String strClientCode, final String strCursor, final int nLimit, final Function<IdentityDto, Object> converter,
+            final ObjectWriter writer ) throws IdentityStoreException
+    {
+        final ServiceContract serviceContract = FacadeAdapters.getServiceContractProvider( ).getActiveServiceContract( strClientCode );
+        if ( serviceContract == null )
+        {
+            throw new ServiceContractNotFoundException( "No active service contract could be found for clientCode = " + strClientCode );
+        }
+        if ( !serviceContract.getAuthorizedExport( ) )
+        {
+            throw new IdentityStoreException( "The service contract of clientCode = " + strClientCode + " does not authorize the export" );
+        }
+        final String strStartCursor = StringUtils.defaultString( strCursor );
+        FacadeAdapters.getAccessLogger( ).info( AccessLoggerConstants.EVENT_TYPE_READ, IdentityService.EXPORT_IDENTITIES_EVENT_CODE, strClientCode, null,
+                SecurityUtil.logForgingProtect( strStartCursor ), IdentityService.SPECIFIC_ORIGIN );
+
+        return output -> write( output, serviceContract, strStartCursor, nLimit, converter, writer );
+    }
+
+    /**
+     * Write the identities to the output, page by page, followed by the {@code export_end} record
+     *
+     * @param output
+     *            the output
+     * @param serviceContract
+     *            the service contract of the client
+     * @param strStartCursor
+     *            the customer ID after which the export starts
+     * @param nLimit
+     *            the maximum number of exported identities, 0 or less for no limit
+     * @param converter
+     *            the converter of the identities to the exported version
+     * @param writer
+     *            the JSON writer
+     * @throws IOException
+     *             if the output cannot be written or the identities cannot be read
+     */
+    private void write( final OutputStream output, final ServiceContract serviceContract, final String strStartCursor, final int nLimit,
+            final Function<IdentityDto, Object> converter, final ObjectWriter writer ) throws IOException
+    {
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        String strCursor = strStartCursor;
+        long lExported = 0;
+        boolean bComplete = false;
+        try
+        {
+            while ( nLimit <= 0 || lExported < nLimit )
+            {
+                final int nPageSize = nLimit <= 0 ? _nPageSize : (int) Math.min( _nPageSize, nLimit - lExported );
+                final List<String> listCustomerIds = identityProvider.findCustomerIds( strCursor, nPageSize );
+                for ( final IdentityDto identity : identityProvider.findByCustomerIds( listCustomerIds, serviceContract ) )
+                {
+                    output.write( writer.writeValueAsBytes( converter.apply( identity ) ) );
+                    output.write( NEW_LINE );
+                    lExported++;
+                }
+                if ( !listCustomerIds.isEmpty( ) )
+                {
+                    strCursor = listCustomerIds.get( listCustomerIds.size( ) - 1 );
+                }
+                output.flush( );
+                if ( listCustomerIds.size( ) < nPageSize )
+                {
+                    bComplete = true;
+                    break;
+                }
+            }
+        }
+        catch( IdentityStoreException e )
+        {
+            AppLogService.error( "Identity export interrupted after cursor " + strCursor + " : " + e.getMessage( ), e );
+            throw new IOException( "Identity export interrupted after cursor " + strCursor, e );
+        }
+        final ExportEndDto exportEnd = new ExportEndDto( );
+        exportEnd.setExported( lExported );
+        exportEnd.setNextCursor( strCursor );
+        exportEnd.setComplete( bComplete );
+        output.write( writer.writeValueAsBytes( exportEnd ) );
+        output.write( NEW_LINE );
+        output.flush( );
+    }
+}
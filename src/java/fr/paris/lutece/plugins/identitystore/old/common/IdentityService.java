@@ -1,11 +1,20 @@
 package fr.paris.lutece.plugins.identitystore.old.common;
 
 import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
-import fr.paris.lutece.plugins.identitystore.business.identity.IdentityHome;
-import fr.paris.lutece.plugins.identitystore.cache.IdentityDtoCache;
-import fr.paris.lutece.plugins.identitystore.service.contract.ServiceContractService;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.batch.MissBatchingService;
+import fr.paris.lutece.plugins.identitystore.old.common.deadline.RequestDeadline;
+import fr.paris.lutece.plugins.identitystore.old.common.hotkey.HotKeyDimension;
+import fr.paris.lutece.plugins.identitystore.old.common.hotkey.HotKeyService;
+import fr.paris.lutece.plugins.identitystore.old.common.hotkey.HotSetService;
+import fr.paris.lutece.plugins.identitystore.old.common.jfr.IdentitySearchEvent;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.CachedPayload;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.IdentityPayloadRequest;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.PayloadStore;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.FacadeTracer;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.TraceSpan;
 import fr.paris.lutece.plugins.identitystore.service.listeners.IdentityStoreNotifyListenerService;
-import fr.paris.lutece.plugins.identitystore.service.user.InternalUserService;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.DtoConverter;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AuthorType;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
@@ -16,9 +25,7 @@ import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.IdentitySearch
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.Constants;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.util.ResponseStatusFactory;
 import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
-import fr.paris.lutece.portal.service.security.AccessLogService;
 import fr.paris.lutece.portal.service.security.AccessLoggerConstants;
-import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.util.http.SecurityUtil;
 import org.apache.commons.lang3.StringUtils;
 
@@ -37,6 +44,8 @@ public class IdentityService {
     public static final String DECERTIFY_IDENTITY_EVENT_CODE = "DECERTIFY_IDENTITY";
     public static final String GET_IDENTITY_EVENT_CODE = "GET_IDENTITY";
     public static final String SEARCH_IDENTITY_EVENT_CODE = "SEARCH_IDENTITY";
+    public static final String EXPORT_IDENTITIES_EVENT_CODE = "EXPORT_IDENTITIES";
+    public static final String GET_IDENTITY_CHANGES_EVENT_CODE = "GET_IDENTITY_CHANGES";
     public static final String DELETE_IDENTITY_EVENT_CODE = "DELETE_IDENTITY";
     public static final String CONSOLIDATE_IDENTITY_EVENT_CODE = "CONSOLIDATE_IDENTITY";
     public static final String MERGE_IDENTITY_EVENT_CODE = "MERGE_IDENTITY";
@@ -51,14 +60,6 @@ public class IdentityService {
     private static final String PROPERTY_DUPLICATES_UPDATE_RULES = "identitystore.identity.duplicates.update.rules";
     private static final String PROPERTY_DUPLICATES_CHECK_DATABASE_ACTIVATED = "identitystore.identity.duplicates.check.database";
 
-    // SERVICES
-    private final IdentityStoreNotifyListenerService _identityStoreNotifyListenerService = IdentityStoreNotifyListenerService.instance( );
-    private final ServiceContractService _serviceContractService = ServiceContractService.instance( );
-    private final InternalUserService _internalUserService = InternalUserService.getInstance( );
-
-    // CACHE
-    private final IdentityDtoCache _identityDtoCache = SpringContextService.getBean( "identitystore.identityDtoCache" );
-
     private static IdentityService _instance;
 
     public static IdentityService instance( )
@@ -85,21 +86,186 @@ public class IdentityService {
     public void search(final String customerId, final String connectionId, final IdentitySearchResponse response, final String clientCode,
                        final RequestAuthor author ) throws IdentityStoreException
     {
-        AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_READ, GET_IDENTITY_EVENT_CODE, _internalUserService.getApiUser( clientCode ),
-                SecurityUtil.logForgingProtect( StringUtils.isNotBlank( customerId ) ? customerId : connectionId ), SPECIFIC_ORIGIN );
+        search( customerId, connectionId, response, clientCode, author, null );
+    }
+
+    /**
+     * Perform an identity research by customer or connection ID, and give the rendered payload of the found identity.<br/>
+     * When the payload store is enabled, the payloads of the identities searched by customer ID are served from the store without loading the identity.
+     *
+     * @param customerId
+     * @param connectionId
+     * @param response
+     * @param clientCode
+     * @param author
+     *            the author of the request
+     * @param payloadRequest
+     *            the requested payload, {@code null} to only get the identity in the response
+     */
+    public void search( final String customerId, final String connectionId, final IdentitySearchResponse response, final String clientCode,
+            final RequestAuthor author, final IdentityPayloadRequest payloadRequest ) throws IdentityStoreException
+    {
+        final IdentitySearchEvent event = new IdentitySearchEvent( );
+        event.begin( );
+        try
+        {
+            doSearch( customerId, connectionId, response, clientCode, author, payloadRequest, event );
+        }
+        finally
+        {
+            event.end( );
+            if ( event.shouldCommit( ) )
+            {
+                event.setClientCode( clientCode );
+                event.setByCustomerId( StringUtils.isNotBlank( customerId ) );
+                event.setFound( ( response.getIdentities( ) != null && !response.getIdentities( ).isEmpty( ) )
+                        || ( payloadRequest != null && payloadRequest.getPayload( ) != null ) );
+                event.commit( );
+            }
+        }
+    }
+
+    /**
+     * Perform an identity research by customer or connection ID.
+     *
+     * @param customerId
+     * @param connectionId
+     * @param response
+     * @param clientCode
+     * @param author
+     *            the author of the request
+     * @param payloadRequest
+     *            the requested payload, {@code null} to only get the identity in the response
+     * @param event
+     *            the flight recorder event of the search
+     */
+    private void doSearch( final String customerId, final String connectionId, final IdentitySearchResponse response, final String clientCode,
+            final RequestAuthor author, final IdentityPayloadRequest payloadRequest, final IdentitySearchEvent event ) throws IdentityStoreException
+    {
+        final HotKeyService hotKeyService = HotKeyService.instance( );
+        hotKeyService.record( HotKeyDimension.CLIENT_CODE, clientCode );
+        if ( StringUtils.isNotBlank( customerId ) )
+        {
+            hotKeyService.record( HotKeyDimension.CUSTOMER_ID, customerId );
+        }
+        else
+        {
+            hotKeyService.record( HotKeyDimension.CONNECTION_ID, connectionId );
+        }
+        final FacadeTracer tracer = FacadeTracer.instance( );
+        try ( final TraceSpan span = tracer.startSpan( FacadeTracer.SPAN_ACCESS_LOG ) )
+        {
+            FacadeAdapters.getAccessLogger( ).info( AccessLoggerConstants.EVENT_TYPE_READ, GET_IDENTITY_EVENT_CODE, clientCode, null,
+                    SecurityUtil.logForgingProtect( StringUtils.isNotBlank( customerId ) ? customerId : connectionId ), SPECIFIC_ORIGIN );
+        }
 
-        final ServiceContract serviceContract = _serviceContractService.getActiveServiceContract( clientCode );
+        final ServiceContract serviceContract;
+        RequestDeadline.check( FacadeTracer.SPAN_CONTRACT_LOOKUP );
+        try ( final TraceSpan span = tracer.startSpan( FacadeTracer.SPAN_CONTRACT_LOOKUP ) )
+        {
+            serviceContract = FacadeAdapters.getServiceContractProvider( ).getActiveServiceContract( clientCode );
+        }
         if ( serviceContract == null )
         {
             throw new ServiceContractNotFoundException( "No active service contract could be found for clientCode = " + clientCode );
         }
-        final IdentityDto identityDto = StringUtils.isNotBlank( customerId ) ? _identityDtoCache.getByCustomerId( customerId, serviceContract )
-                : _identityDtoCache.getByConnectionId( connectionId, serviceContract );
+        // a connection ID or a merged customer ID known by the index is read as its master customer ID
+        final IdentifierIndex identifierIndex = IdentifierIndex.instance( );
+        final String strMasterCustomerId = StringUtils.isNotBlank( customerId ) ? identifierIndex.resolveMergedCustomerId( customerId )
+                : identifierIndex.resolveConnectionId( connectionId );
+        final String strLookupCustomerId = strMasterCustomerId != null ? strMasterCustomerId : customerId;
+
+        // the reads of an agent are notified with the identity, which is not in the store
+        final PayloadStore payloadStore = PayloadStore.instance( );
+        final boolean bPayloadStored = payloadRequest != null && payloadRequest.isStorable( ) && payloadStore.isEnabled( )
+                && ( author == null || !AuthorType.agent.equals( author.getType( ) ) );
+        if ( bPayloadStored && StringUtils.isNotBlank( strLookupCustomerId ) )
+        {
+            final CachedPayload payload;
+            try ( final TraceSpan span = tracer.startSpan( FacadeTracer.SPAN_PAYLOAD_LOOKUP ) )
+            {
+                payload = payloadStore.get( payloadRequest.getFormat( ), serviceContract.getId( ), strLookupCustomerId );
+                span.setAttribute( "hit", payload != null );
+            }
+            if ( payload != null )
+            {
+                // the payload holds a lease on its segment : it is handed off once nothing can fail anymore, else released
+                boolean bHandedOff = false;
+                try
+                {
+                    event.setCacheHit( true );
+                    HotSetService.instance( ).record( clientCode, strLookupCustomerId );
+                    response.setStatus( ResponseStatusFactory.ok( ).setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
+                    if ( author != null )
+                    {
+                        try ( final TraceSpan span = tracer.startSpan( FacadeTracer.SPAN_ACCESS_LOG ) )
+                        {
+                            FacadeAdapters.getAccessLogger( ).info( AccessLoggerConstants.EVENT_TYPE_READ, SEARCH_IDENTITY_EVENT_CODE, clientCode, author,
+                                    SecurityUtil.logForgingProtect( strLookupCustomerId ), SPECIFIC_ORIGIN );
+                        }
+                    }
+                    payloadRequest.setPayload( payload );
+                    bHandedOff = true;
+                }
+                finally
+                {
+                    if ( !bHandedOff )
+                    {
+                        payload.release( );
+                    }
+                }
+                return;
+            }
+        }
+        final long lLoadStartMillis = System.currentTimeMillis( );
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        if ( event.isEnabled( ) && StringUtils.isNotBlank( strLookupCustomerId ) )
+        {
+            event.setCacheHit( identityProvider.isCached( strLookupCustomerId ) );
+        }
+        IdentityDto identityDto = null;
+        RequestDeadline.check( FacadeTracer.SPAN_IDENTITY_FETCH );
+        try ( final TraceSpan span = tracer.startSpan( FacadeTracer.SPAN_IDENTITY_FETCH ) )
+        {
+            if ( strMasterCustomerId != null )
+            {
+                identityDto = identityProvider.getByCustomerId( strMasterCustomerId, serviceContract );
+                span.setAttribute( "resolved", identityDto != null );
+                if ( identityDto == null )
+                {
+                    // the master was deleted since
+                    forgetIdentifier( identifierIndex, customerId, connectionId );
+                }
+            }
+            if ( identityDto == null )
+            {
+                if ( StringUtils.isNotBlank( customerId ) )
+                {
+                    MissBatchingService.instance( ).loadIntoCache( customerId );
+                    identityDto = identityProvider.getByCustomerId( customerId, serviceContract );
+                }
+                else
+                {
+                    identityDto = identityProvider.getByConnectionId( connectionId, serviceContract );
+                }
+                learnIdentifier( identifierIndex, customerId, connectionId, identityDto, lLoadStartMillis );
+            }
+            span.setAttribute( "found", identityDto != null );
+        }
         if ( identityDto == null )
         {
             // #345 : If the identity doesn't exist, make an extra search in the history (only for CUID search).
             // If there is a record, it means the identity has been deleted => send back a specific message
-            if ( StringUtils.isNotBlank( customerId ) && !IdentityHome.findHistoryByCustomerId( customerId ).isEmpty( ) )
+            final boolean bDeleted;
+            RequestDeadline.check( FacadeTracer.SPAN_HISTORY_FALLBACK );
+            try ( final TraceSpan span = tracer.startSpan( FacadeTracer.SPAN_HISTORY_FALLBACK ) )
+            {
+                bDeleted = StringUtils.isNotBlank( customerId ) && MissBatchingService.instance( ).hasHistory( customerId );
+                span.setAttribute( "deleted", bDeleted );
+            }
+            event.setDeleted( bDeleted );
+            hotKeyService.record( HotKeyDimension.NOT_FOUND_ID, StringUtils.isNotBlank( customerId ) ? customerId : connectionId );
+            if ( bDeleted )
             {
                 response.setStatus( ResponseStatusFactory.notFound( ).setMessageKey( Constants.PROPERTY_REST_ERROR_IDENTITY_DELETED ) );
             }
@@ -111,6 +277,7 @@ public class IdentityService {
         else
         {
             response.setIdentities( Collections.singletonList( identityDto ) );
+            HotSetService.instance( ).record( clientCode, identityDto.getCustomerId( ) );
             response.setStatus( ResponseStatusFactory.ok( ).setMessageKey( Constants.PROPERTY_REST_INFO_SUCCESSFUL_OPERATION ) );
             // #27998 : Dans le cas d'une interrogation sur un CUID/GUID rapproché, ajouter une ligne dans le bloc "Alerte" dans la réponse de l'identité consolidée
             if ((StringUtils.isNotBlank(customerId) && !identityDto.getCustomerId().equals(customerId)) ||
@@ -119,18 +286,90 @@ public class IdentityService {
                 alert.setMessage("Le CUID ou GUID demandé correspond à une identité rapprochée. Cette réponse contient l'identité consilidée.");
                 response.getAlerts().add(alert);
             }
+            if ( payloadRequest != null )
+            {
+                final byte [ ] payload = payloadRequest.getRenderer( ).render( identityDto );
+                payloadRequest.setPayload( CachedPayload.wrap( payload, identityDto.getCustomerId( ) ) );
+                // the payload is the same for all the identifiers of the master identity
+                if ( bPayloadStored )
+                {
+                    payloadStore.put( payloadRequest.getFormat( ), serviceContract.getId( ), identityDto.getCustomerId( ), payload, lLoadStartMillis );
+                }
+            }
             if ( author != null )
             {
-                AccessLogService.getInstance( ).info( AccessLoggerConstants.EVENT_TYPE_READ, SEARCH_IDENTITY_EVENT_CODE,
-                        _internalUserService.getApiUser( author, clientCode ), SecurityUtil.logForgingProtect( identityDto.getCustomerId( ) ),
-                        SPECIFIC_ORIGIN );
+                try ( final TraceSpan span = tracer.startSpan( FacadeTracer.SPAN_ACCESS_LOG ) )
+                {
+                    FacadeAdapters.getAccessLogger( ).info( AccessLoggerConstants.EVENT_TYPE_READ, SEARCH_IDENTITY_EVENT_CODE, clientCode, author,
+                            SecurityUtil.logForgingProtect( identityDto.getCustomerId( ) ), SPECIFIC_ORIGIN );
+                }
             }
             if ( author != null && author.getType( ).equals( AuthorType.agent ) )
             {
                 /* Indexation et historique */
-                _identityStoreNotifyListenerService.notifyListenersIdentityChange( IdentityChangeType.READ, DtoConverter.convertDtoToIdentity( identityDto ),
-                        response.getStatus( ).getType( ).name( ), response.getStatus( ).getMessage( ), author, clientCode, new HashMap<>( ) );
+                try ( final TraceSpan span = tracer.startSpan( FacadeTracer.SPAN_NOTIFICATION ) )
+                {
+                    IdentityStoreNotifyListenerService.instance( ).notifyListenersIdentityChange( IdentityChangeType.READ, DtoConverter.convertDtoToIdentity( identityDto ),
+                            response.getStatus( ).getType( ).name( ), response.getStatus( ).getMessage( ), author, clientCode, new HashMap<>( ) );
+                }
             }
         }
     }
+
+    /**
+     * Record the master identity of a connection ID, or of a merged customer ID, in the identifier index
+     *
+     * @param identifierIndex
+     *            the identifier index
+     * @param customerId
+     *            the requested customer ID
+     * @param connectionId
+     *            the requested connection ID
+     * @param identityDto
+     *            the identity found, if any
+     * @param lLoadStartMillis
+     *            the time at which the read started
+     */
+    private static void learnIdentifier( final IdentifierIndex identifierIndex, final String customerId, final String connectionId,
+            final IdentityDto identityDto, final long lLoadStartMillis )
+    {
+        if ( identityDto == null )
+        {
+            return;
+        }
+        if ( StringUtils.isNotBlank( customerId ) )
+        {
+            if ( !identityDto.getCustomerId( ).equals( customerId ) )
+            {
+                identifierIndex.putMergedCustomerId( customerId, identityDto.getCustomerId( ), lLoadStartMillis );
+            }
+        }
+        else if ( connectionId.equals( identityDto.getConnectionId( ) ) )
+        {
+            // the connection ID of a merged identity is not indexed : its own identity is unknown, its changes could not remove the entry
+            identifierIndex.putConnectionId( connectionId, identityDto.getCustomerId( ), lLoadStartMillis );
+        }
+    }
+
+    /**
+     * Remove a stale entry of the identifier index
+     *
+     * @param identifierIndex
+     *            the identifier index
+     * @param customerId
+     *            the requested customer ID
+     * @param connectionId
+     *            the requested connection ID
+     */
+    private static void forgetIdentifier( final IdentifierIndex identifierIndex, final String customerId, final String connectionId )
+    {
+        if ( StringUtils.isNotBlank( customerId ) )
+        {
+            identifierIndex.removeMergedCustomerId( customerId );
+        }
+        else
+        {
+            identifierIndex.removeConnectionId( connectionId );
+        }
+    }
 }
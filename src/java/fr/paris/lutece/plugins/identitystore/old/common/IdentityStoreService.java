@@ -1,9 +1,14 @@
 package fr.paris.lutece.plugins.identitystore.old.common;
 
 import fr.paris.lutece.plugins.identitystore.business.application.ClientApplication;
-import fr.paris.lutece.plugins.identitystore.business.application.ClientApplicationHome;
 import fr.paris.lutece.plugins.identitystore.business.identity.IdentityConstants;
 import fr.paris.lutece.plugins.identitystore.business.security.SecureMode;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.deadline.RequestDeadline;
+import fr.paris.lutece.plugins.identitystore.old.common.jfr.TrustedClientCodeEvent;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.FacadeTracer;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.TraceSpan;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
@@ -62,35 +67,102 @@ public class IdentityStoreService {
     public static String getTrustedClientCode( final String strHeaderClientCode, final String strParamClientCode, final String strHeaderAppCode )
             throws IdentityStoreException
     {
-        String trustedClientCode = StringUtils.EMPTY;
-        // Secure mode
-        switch( getSecureMode( ) )
+        final TrustedClientCodeEvent event = new TrustedClientCodeEvent( );
+        event.begin( );
+        try
+        {
+            final String strTrustedClientCode = resolveTrustedClientCode( strHeaderClientCode, strParamClientCode, strHeaderAppCode );
+            event.setSucceeded( true );
+            return strTrustedClientCode;
+        }
+        finally
         {
-            case JWT:
+            event.end( );
+            if ( event.shouldCommit( ) )
             {
-                if ( StringUtils.isNotBlank( strHeaderClientCode ) )
-                {
-                    String strJwtClaimAppCode = AppPropertiesService.getProperty( IdentityConstants.PROPERTY_JWT_CLAIM_APP_CODE );
-                    trustedClientCode = JWTUtil.getPayloadValue( strHeaderClientCode.trim( ), strJwtClaimAppCode );
-                }
-                break;
+                event.setSecureMode( getSecureMode( ).name( ) );
+                event.setCorrelationChecked( StringUtils.isNotBlank( strHeaderAppCode ) && !EXCEPTION_APP_CODES.contains( strHeaderAppCode ) );
+                event.commit( );
             }
-            case NONE:
+        }
+    }
+
+    /**
+     * Give the client code a request claims, without verifying it, to start the work depending on it before its verification ends.
+     *
+     * @param strHeaderClientCode
+     *            The application code in HTTP request header
+     * @param strParamClientCode
+     *            The application code provided by the client
+     * @return The claimed client code, or {@code null} if it cannot be known without decoding a JWT
+     */
+    public static String getClaimedClientCode( final String strHeaderClientCode, final String strParamClientCode )
+    {
+        if ( getSecureMode( ) == SecureMode.JWT )
+        {
+            return StringUtils.isNotBlank( strHeaderClientCode ) ? FacadeCacheService.instance( ).getJwtCache( ).peek( strHeaderClientCode.trim( ) ) : null;
+        }
+        if ( StringUtils.isNotBlank( strHeaderClientCode ) )
+        {
+            return strHeaderClientCode.trim( );
+        }
+        return StringUtils.isNotBlank( strParamClientCode ) ? strParamClientCode.trim( ) : null;
+    }
+
+    /**
+     * Resolve the application code to use, and verify its correlation with the application code header.
+     *
+     * @param strHeaderClientCode
+     *            The application code in HTTP request header
+     * @param strParamClientCode
+     *            The application code provided by the client
+     * @param strHeaderAppCode
+     *            The application code header provided by the API manager
+     * @return The application code to use
+     * @throws IdentityStoreException
+     *             if the correlation between the resulting trusted client code and the application code was not verified
+     */
+    private static String resolveTrustedClientCode( final String strHeaderClientCode, final String strParamClientCode, final String strHeaderAppCode )
+            throws IdentityStoreException
+    {
+        String trustedClientCode = StringUtils.EMPTY;
+        RequestDeadline.check( FacadeTracer.SPAN_TRUST_RESOLUTION );
+        try ( final TraceSpan span = FacadeTracer.instance( ).startSpan( FacadeTracer.SPAN_TRUST_RESOLUTION ) )
+        {
+            // Secure mode
+            switch( getSecureMode( ) )
             {
-                if ( StringUtils.isNotBlank( strHeaderClientCode ) )
+                case JWT:
                 {
-                    trustedClientCode = strHeaderClientCode.trim( );
+                    if ( StringUtils.isNotBlank( strHeaderClientCode ) )
+                    {
+                        final String strJwt = strHeaderClientCode.trim( );
+                        trustedClientCode = FacadeCacheService.instance( ).getJwtCache( ).get( strJwt, ( ) -> JWTUtil.getPayloadValue( strJwt,
+                                AppPropertiesService.getProperty( IdentityConstants.PROPERTY_JWT_CLAIM_APP_CODE ) ) );
+                    }
+                    break;
                 }
-                else
+                case NONE:
                 {
-                    if ( StringUtils.isNotBlank( strParamClientCode ) )
+                    if ( StringUtils.isNotBlank( strHeaderClientCode ) )
+                    {
+                        trustedClientCode = strHeaderClientCode.trim( );
+                    }
+                    else
                     {
-                        trustedClientCode = strParamClientCode.trim( );
+                        if ( StringUtils.isNotBlank( strParamClientCode ) )
+                        {
+                            trustedClientCode = strParamClientCode.trim( );
+                        }
                     }
                 }
             }
         }
-        verifyClientAndAppCodeCorrelation( trustedClientCode, strHeaderAppCode );
+        RequestDeadline.check( FacadeTracer.SPAN_CORRELATION_CHECK );
+        try ( final TraceSpan span = FacadeTracer.instance( ).startSpan( FacadeTracer.SPAN_CORRELATION_CHECK ) )
+        {
+            verifyClientAndAppCodeCorrelation( trustedClientCode, strHeaderAppCode );
+        }
         return trustedClientCode;
     }
 
@@ -126,8 +198,10 @@ public class IdentityStoreService {
         {
             return;
         }
-        final List<ClientApplication> clientApplicationList = ClientApplicationHome.findByApplicationCode( strHeaderAppCode );
-        if ( clientApplicationList.stream( ).map( ClientApplication::getClientCode ).noneMatch( clientCode -> clientCode.equals( strTrustedClientCode ) ) )
+        final List<String> listClientCodes = FacadeCacheService.instance( ).getClientApplicationCache( ).get( strHeaderAppCode,
+                ( ) -> FacadeAdapters.getClientApplicationProvider( ).findByApplicationCode( strHeaderAppCode ).stream( )
+                        .map( ClientApplication::getClientCode ).collect( Collectors.toList( ) ) );
+        if ( !listClientCodes.contains( strTrustedClientCode ) )
         {
             throw new IdentityStoreException( "The provided client code and application code are not correlating." );
         }
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common;
+
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.batch.MissBatchingService;
+import fr.paris.lutece.plugins.identitystore.old.common.deadline.RequestDeadline;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Speculative execution of the v1/v2 GET identity requests : the service contract of the claimed client code and the identity are loaded into their caches
+ * while the client code is verified, so that the latency of the request is the one of its slowest stage instead of the sum of its stages.<br/>
+ * The speculation only warms the caches : the request itself runs once the client code is verified, and reads the contract and the identity from the
+ * caches. When the verification fails, the speculation is not awaited and nothing is logged, notified or returned.<br/>
+ * Since the identities are loaded before the client is verified, an unverified client can fill the identity cache : the speculation is disabled by default.
+ */
+public final class SpeculativeFetchService
+{
+    private static final String PROPERTY_SPECULATIVE_ENABLED = "identitystore.facade.speculative.enabled";
+    private static final String PROPERTY_SPECULATIVE_THREADS = "identitystore.facade.speculative.threads";
+    private static final String PROPERTY_SPECULATIVE_WAIT = "identitystore.facade.speculative.wait";
+    private static final int DEFAULT_SPECULATIVE_THREADS = 32;
+    private static final int DEFAULT_SPECULATIVE_WAIT = 1000;
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_SPECULATIVE_ENABLED, false );
+    private final long _lWaitMillis = AppPropertiesService.getPropertyInt( PROPERTY_SPECULATIVE_WAIT, DEFAULT_SPECULATIVE_WAIT );
+    private ThreadPoolExecutor _executor;
+
+    /**
+     * private constructor
+     */
+    private SpeculativeFetchService( )
+    {
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static SpeculativeFetchService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return the instance, created on first use
+     */
+    private static SpeculativeFetchService create( )
+    {
+        final SpeculativeFetchService instance = new SpeculativeFetchService( );
+        if ( instance._bEnabled )
+        {
+            instance.startWorkers( );
+        }
+        return instance;
+    }
+
+    /**
+     * Start loading the service contract of the claimed client code and the requested identity, before the client code is verified
+     *
+     * @param strClaimedClientCode
+     *            the client code claimed by the request, possibly {@code null}
+     * @param strCustomerId
+     *            the requested customer ID
+     * @param strConnectionId
+     *            the requested connection ID
+     * @return the speculation, {@code null} if there is none
+     */
+    public CompletableFuture<Void> start( final String strClaimedClientCode, final String strCustomerId, final String strConnectionId )
+    {
+        if ( !_bEnabled )
+        {
+            return null;
+        }
+        final CompletableFuture<Void> contract = StringUtils.isNotBlank( strClaimedClientCode )
+                ? submit( ( ) -> FacadeAdapters.getServiceContractProvider( ).getActiveServiceContract( strClaimedClientCode ) )
+                : null;
+        // a connection ID unknown by the index cannot be loaded without the service contract
+        final IdentifierIndex identifierIndex = IdentifierIndex.instance( );
+        final String strMasterCustomerId = StringUtils.isNotBlank( strCustomerId ) ? identifierIndex.resolveMergedCustomerId( strCustomerId )
+                : identifierIndex.resolveConnectionId( strConnectionId );
+        final String strLookupCustomerId = strMasterCustomerId != null ? strMasterCustomerId : strCustomerId;
+        final CompletableFuture<Void> identity = StringUtils.isNotBlank( strLookupCustomerId )
+                ? submit( ( ) -> MissBatchingService.instance( ).prefetch( strLookupCustomerId ) )
+                : null;
+        if ( contract == null || identity == null )
+        {
+            return contract != null ? contract : identity;
+        }
+        return CompletableFuture.allOf( contract, identity );
+    }
+
+    /**
+     * Wait for the end of a speculation, once the client code is verified. The failures of the speculation are ignored : the request loads the contract
+     * and the identity again, and reports their failures.
+     *
+     * @param speculation
+     *            the speculation, possibly {@code null}
+     */
+    public void await( final CompletableFuture<Void> speculation )
+    {
+        if ( speculation == null )
+        {
+            return;
+        }
+        try
+        {
+            speculation.get( RequestDeadline.capTimeout( _lWaitMillis ), TimeUnit.MILLISECONDS );
+        }
+        catch( ExecutionException | TimeoutException e )
+        {
+            AppLogService.debug( "Speculative fetch not completed : " + e.getMessage( ) );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * Stop the workers
+     */
+    public synchronized void shutdown( )
+    {
+        if ( _executor != null )
+        {
+            _executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Submit a load, bound to the deadline of the request
+     *
+     * @param load
+     *            the load
+     * @return the load, {@code null} if all the workers are busy
+     */
+    private CompletableFuture<Void> submit( final ISpeculativeLoad load )
+    {
+        final RequestDeadline deadline = RequestDeadline.current( );
+        final CompletableFuture<Void> future = new CompletableFuture<>( );
+        try
+        {
+            _executor.execute( ( ) -> {
+                RequestDeadline.attach( deadline );
+                try
+                {
+                    load.load( );
+                    future.complete( null );
+                }
+                catch( IdentityStoreException | RuntimeException e )
+                {
+                    future.completeExceptionally( e );
+                }
+                finally
+                {
+                    RequestDeadline.detach( );
+                }
+            } );
+        }
+        catch( RejectedExecutionException e )
+        {
+            // the request does the load itself
+            return null;
+        }
+        return future;
+    }
+
+    /**
+     * Start the workers of the speculations. The workers are not queued : when they are all busy, the requests are not speculated.
+     */
+    private void startWorkers( )
+    {
+        final int nThreads = AppPropertiesService.getPropertyInt( PROPERTY_SPECULATIVE_THREADS, DEFAULT_SPECULATIVE_THREADS );
+        final AtomicInteger threadCount = new AtomicInteger( );
+        _executor = new ThreadPoolExecutor( 0, nThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>( ), runnable -> {
+            final Thread thread = new Thread( runnable, "identitystore-facade-speculative-" + threadCount.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    /**
+     * Load run by a speculation
+     */
+    @FunctionalInterface
+    private interface ISpeculativeLoad
+    {
+        /**
+         * Load the data into its cache
+         *
+         * @throws IdentityStoreException
+         *             if the data cannot be loaded
+         */
+        void load( ) throws IdentityStoreException;
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final SpeculativeFetchService INSTANCE = create( );
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.adapter;
+
+import fr.paris.lutece.plugins.identitystore.old.common.admission.AdmissionService;
+import fr.paris.lutece.plugins.identitystore.old.common.partition.PartitionService;
+
+/**
+ * Holder of the backend adapters used by the v1/v2 facade.<br/>
+ * The adapters default to the identitystore (Lutece) implementations, created on first use. Other implementations can be installed before the first request,
+ * for instance to run the facade outside of the Lutece webapp. The identity provider is partitioned across the facade nodes when the partitioning is enabled
+ * (see {@link PartitionService}), and the identities of the node are kept in an admission cache when it is enabled (see {@link AdmissionService}).
+ */
+public final class FacadeAdapters
+{
+    private static volatile IIdentityProvider _identityProvider;
+    private static volatile IServiceContractProvider _serviceContractProvider;
+    private static volatile IClientApplicationProvider _clientApplicationProvider;
+    private static volatile IAccessLogger _accessLogger;
+    private static volatile ICertifierProvider _certifierProvider;
+
+    /**
+     * private constructor
+     */
+    private FacadeAdapters( )
+    {
+    }
+
+    /**
+     * @return the identity provider
+     */
+    public static IIdentityProvider getIdentityProvider( )
+    {
+        if ( _identityProvider == null )
+        {
+            _identityProvider = PartitionService.instance( ).partition( AdmissionService.instance( ).wrap( new LuteceIdentityProvider( ) ) );
+        }
+        return _identityProvider;
+    }
+
+    /**
+     * @param identityProvider
+     *            the identity provider to use
+     */
+    public static void setIdentityProvider( final IIdentityProvider identityProvider )
+    {
+        _identityProvider = PartitionService.instance( ).partition( AdmissionService.instance( ).wrap( identityProvider ) );
+    }
+
+    /**
+     * @return the service contract provider
+     */
+    public static IServiceContractProvider getServiceContractProvider( )
+    {
+        if ( _serviceContractProvider == null )
+        {
+            _serviceContractProvider = new LuteceServiceContractProvider( );
+        }
+        return _serviceContractProvider;
+    }
+
+    /**
+     * @param serviceContractProvider
+     *            the service contract provider to use
+     */
+    public static void setServiceContractProvider( final IServiceContractProvider serviceContractProvider )
+    {
+        _serviceContractProvider = serviceContractProvider;
+    }
+
+    /**
+     * @return the client application provider
+     */
+    public static IClientApplicationProvider getClientApplicationProvider( )
+    {
+        if ( _clientApplicationProvider == null )
+        {
+            _clientApplicationProvider = new LuteceClientApplicationProvider( );
+        }
+        return _clientApplicationProvider;
+    }
+
+    /**
+     * @param clientApplicationProvider
+     *            the client application provider to use
+     */
+    public static void setClientApplicationProvider( final IClientApplicationProvider clientApplicationProvider )
+    {
+        _clientApplicationProvider = clientApplicationProvider;
+    }
+
+    /**
+     * @return the access logger
+     */
+    public static IAccessLogger getAccessLogger( )
+    {
+        if ( _accessLogger == null )
+        {
+            _accessLogger = new LuteceAccessLogger( );
+        }
+        return _accessLogger;
+    }
+
+    /**
+     * @param accessLogger
+     *            the access logger to use
+     */
+    public static void setAccessLogger( final IAccessLogger accessLogger )
+    {
+        _accessLogger = accessLogger;
+    }
+
+    /**
+     * @return the certifier provider
+     */
+    public static ICertifierProvider getCertifierProvider( )
+    {
+        if ( _certifierProvider == null )
+        {
+            _certifierProvider = new LuteceCertifierProvider( );
+        }
+        return _certifierProvider;
+    }
+
+    /**
+     * @param certifierProvider
+     *            the certifier provider to use
+     */
+    public static void setCertifierProvider( final ICertifierProvider certifierProvider )
+    {
+        _certifierProvider = certifierProvider;
+    }
+}
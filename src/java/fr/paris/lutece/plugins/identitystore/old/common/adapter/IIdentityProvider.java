@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.adapter;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityChange;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityState;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.IFacadeCache;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Backend access to the identities served by the v1/v2 facade.
+ */
+public interface IIdentityProvider
+{
+    /**
+     * Get the identity of the given customer ID, filtered according to the service contract
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @param serviceContract
+     *            the service contract of the client
+     * @return the identity, or {@code null} if not found
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    IdentityDto getByCustomerId( String strCustomerId, ServiceContract serviceContract ) throws IdentityStoreException;
+
+    /**
+     * Get the identity of the given connection ID, filtered according to the service contract
+     *
+     * @param strConnectionId
+     *            the connection ID
+     * @param serviceContract
+     *            the service contract of the client
+     * @return the identity, or {@code null} if not found
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    IdentityDto getByConnectionId( String strConnectionId, ServiceContract serviceContract ) throws IdentityStoreException;
+
+    /**
+     * Tells if the given customer ID has a history, which means that an identity with this customer ID existed and has been deleted when it is not found
+     * anymore.
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @return {@code true} if a history exists for this customer ID
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    boolean hasHistory( String strCustomerId ) throws IdentityStoreException;
+
+    /**
+     * Tell whether an identity is currently held in the identity cache, without loading it
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @return {@code true} if the identity is cached
+     */
+    boolean isCached( String strCustomerId );
+
+    /**
+     * Tell whether the identity of a customer ID is cached by this node. In a partitioned cluster, the identities owned by another node are read from it,
+     * and must not be loaded into the cache of this node.
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @return {@code true} if the identity is cached by this node
+     */
+    default boolean isOwned( final String strCustomerId )
+    {
+        return true;
+    }
+
+    /**
+     * Find the customer IDs of the active identities greater than the given customer ID, in ascending order. Used to iterate over all the identities with a
+     * cursor.
+     *
+     * @param strAfterCustomerId
+     *            the cursor, an empty string to start from the beginning
+     * @param nLimit
+     *            the maximum number of customer IDs
+     * @return the customer IDs
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    List<String> findCustomerIds( String strAfterCustomerId, int nLimit ) throws IdentityStoreException;
+
+    /**
+     * Find the identity changes recorded after the given change ID, in ascending order. Reads are not returned.
+     *
+     * @param lAfterId
+     *            the cursor: only the changes with a greater ID are returned
+     * @param nLimit
+     *            the maximum number of changes
+     * @return the changes
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    List<FacadeIdentityChange> findChanges( long lAfterId, int nLimit ) throws IdentityStoreException;
+
+    /**
+     * @return the ID of the last recorded identity change, 0 if none
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    long getLastChangeId( ) throws IdentityStoreException;
+
+    /**
+     * Search the active identities with the identitystore search engine, all the given attribute values being matched strictly
+     *
+     * @param mapAttributes
+     *            the searched values, by attribute key
+     * @param nMax
+     *            the maximum number of identities
+     * @return the customer IDs of the matching identities
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    List<String> searchCustomerIds( Map<String, String> mapAttributes, int nMax ) throws IdentityStoreException;
+
+    /**
+     * Load the identities of the given customer IDs which are not cached yet into the cache, with one query. The identities which cannot be loaded this way,
+     * for example the merged ones, are left to {@link #getByCustomerId(String, ServiceContract)}.
+     *
+     * @param listCustomerIds
+     *            the customer IDs
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    void loadIntoCache( List<String> listCustomerIds ) throws IdentityStoreException;
+
+    /**
+     * Read the active identities of the given customer IDs from the backend, with one query, without going through nor filling the identity cache. Used by
+     * the bulk reads, which must not evict the identities read by the interactive clients.
+     *
+     * @param listCustomerIds
+     *            the customer IDs
+     * @param serviceContract
+     *            the service contract of the client, the identities being filtered as by {@link #getByCustomerId(String, ServiceContract)}
+     * @return the identities, in the order of the given customer IDs, the unknown, merged and deleted ones being left out
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    List<IdentityDto> findByCustomerIds( List<String> listCustomerIds, ServiceContract serviceContract ) throws IdentityStoreException;
+
+    /**
+     * Find, among the given customer IDs, the ones having a history, with one query
+     *
+     * @param listCustomerIds
+     *            the customer IDs
+     * @return the customer IDs having a history
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    Set<String> findCustomerIdsWithHistory( List<String> listCustomerIds ) throws IdentityStoreException;
+
+    /**
+     * Find the states of the identities of the given customer IDs, with one query, without loading the identities
+     *
+     * @param listCustomerIds
+     *            the customer IDs
+     * @return the states of the identities, the unknown customer IDs being left out
+     * @throws IdentityStoreException
+     *             if an error occurs
+     */
+    List<FacadeIdentityState> findStates( List<String> listCustomerIds ) throws IdentityStoreException;
+
+    /**
+     * @return the caches of the provider, managed through the facade admin API
+     */
+    List<IFacadeCache> getCaches( );
+
+    /**
+     * Remove a changed identity from the caches of the provider
+     *
+     * @param strCustomerId
+     *            the customer ID
+     */
+    default void invalidate( final String strCustomerId )
+    {
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.adapter;
+
+import fr.paris.lutece.plugins.identitystore.business.referentiel.RefCertificationProcessus;
+import fr.paris.lutece.plugins.identitystore.business.referentiel.RefCertificationProcessusHome;
+import fr.paris.lutece.plugins.identitystore.old.common.CertifierDefinition;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Certifier provider backed by the identitystore certification processes.<br/>
+ * The certificates of the identitystore v3 do not expire anymore: the expiration delay of the legacy certificates can be defined per certifier code with
+ * the <code>identitystore.facade.certifier.&lt;code&gt;.expiration.delay</code> property, in days.
+ */
+public class LuteceCertifierProvider implements ICertifierProvider
+{
+    private static final String PROPERTY_EXPIRATION_DELAY_PREFIX = "identitystore.facade.certifier.";
+    private static final String PROPERTY_EXPIRATION_DELAY_SUFFIX = ".expiration.delay";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<CertifierDefinition> findAll( )
+    {
+        final List<CertifierDefinition> listCertifiers = new ArrayList<>( );
+        for ( final RefCertificationProcessus processus : RefCertificationProcessusHome.getRefCertificationProcessussList( ) )
+        {
+            final int nExpirationDelay = AppPropertiesService.getPropertyInt(
+                    PROPERTY_EXPIRATION_DELAY_PREFIX + processus.getCode( ) + PROPERTY_EXPIRATION_DELAY_SUFFIX, CertifierDefinition.NO_EXPIRATION );
+            listCertifiers.add( new CertifierDefinition( processus.getCode( ), processus.getLabel( ), nExpirationDelay ) );
+        }
+        return listCertifiers;
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.adapter;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.business.identity.Identity;
+import fr.paris.lutece.plugins.identitystore.business.identity.IdentityHome;
+import fr.paris.lutece.plugins.identitystore.cache.IdentityDtoCache;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityChange;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityHome;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityState;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.IFacadeCache;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.LuteceCacheAdapter;
+import fr.paris.lutece.plugins.identitystore.service.search.ISearchIdentityService;
+import fr.paris.lutece.plugins.identitystore.service.search.QualifiedIdentitySearchResult;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.DtoConverter;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeTreatmentType;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.SearchAttribute;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Identity provider backed by the identitystore {@link IdentityDtoCache}
+ */
+public class LuteceIdentityProvider implements IIdentityProvider
+{
+    private static final String BEAN_IDENTITY_DTO_CACHE = "identitystore.identityDtoCache";
+    private static final String PROPERTY_SEARCH_SERVICE_BEAN = "identitystore.facade.search.service.bean";
+    private static final String DEFAULT_SEARCH_SERVICE_BEAN = "identitystore.searchIdentityService";
+    private static final String BULK_READ_CACHE_NAME = "FacadeBulkReadIdentityDtoCache";
+
+    private final IdentityDtoCache _identityDtoCache = SpringContextService.getBean( BEAN_IDENTITY_DTO_CACHE );
+    private final LuteceCacheAdapter _identityDtoCacheAdapter = new LuteceCacheAdapter( FacadeCacheService.CACHE_IDENTITY, _identityDtoCache, false );
+    private final IdentityDtoCache _bulkReadCache = createBulkReadCache( );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdentityDto getByCustomerId( final String strCustomerId, final ServiceContract serviceContract ) throws IdentityStoreException
+    {
+        return _identityDtoCache.getByCustomerId( strCustomerId, serviceContract );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdentityDto getByConnectionId( final String strConnectionId, final ServiceContract serviceContract ) throws IdentityStoreException
+    {
+        return _identityDtoCache.getByConnectionId( strConnectionId, serviceContract );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasHistory( final String strCustomerId ) throws IdentityStoreException
+    {
+        return !IdentityHome.findHistoryByCustomerId( strCustomerId ).isEmpty( );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The {@link IdentityDtoCache} entries are keyed by customer ID.
+     */
+    @Override
+    public boolean isCached( final String strCustomerId )
+    {
+        return _identityDtoCache.isCacheEnable( ) && _identityDtoCache.getFromCache( strCustomerId ) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> findCustomerIds( final String strAfterCustomerId, final int nLimit )
+    {
+        return FacadeIdentityHome.findCustomerIdsAfter( strAfterCustomerId, nLimit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeIdentityChange> findChanges( final long lAfterId, final int nLimit )
+    {
+        return FacadeIdentityHome.findChangesAfter( lAfterId, nLimit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLastChangeId( )
+    {
+        return FacadeIdentityHome.getLastChangeId( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> searchCustomerIds( final Map<String, String> mapAttributes, final int nMax ) throws IdentityStoreException
+    {
+        final List<SearchAttribute> listSearchAttributes = new ArrayList<>( mapAttributes.size( ) );
+        for ( final Map.Entry<String, String> attribute : mapAttributes.entrySet( ) )
+        {
+            listSearchAttributes.add( new SearchAttribute( attribute.getKey( ), attribute.getValue( ), AttributeTreatmentType.STRICT ) );
+        }
+        final ISearchIdentityService searchIdentityService = SpringContextService
+                .getBean( AppPropertiesService.getProperty( PROPERTY_SEARCH_SERVICE_BEAN, DEFAULT_SEARCH_SERVICE_BEAN ) );
+        final QualifiedIdentitySearchResult result = searchIdentityService.getQualifiedIdentities( listSearchAttributes, nMax, false,
+                Collections.emptyList( ) );
+        return result.getQualifiedIdentities( ).stream( ).map( IdentityDto::getCustomerId ).collect( Collectors.toList( ) );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * Only the active identities are put in the cache : the cache entry of a merged customer ID is the master identity, loaded by
+     * {@link IdentityDtoCache#getByCustomerId(String, ServiceContract)}.
+     */
+    @Override
+    public void loadIntoCache( final List<String> listCustomerIds ) throws IdentityStoreException
+    {
+        if ( !_identityDtoCache.isCacheEnable( ) )
+        {
+            return;
+        }
+        final List<String> listMissingCustomerIds = listCustomerIds.stream( ).filter( strCustomerId -> _identityDtoCache.getFromCache( strCustomerId ) == null )
+                .collect( Collectors.toList( ) );
+        if ( listMissingCustomerIds.isEmpty( ) )
+        {
+            return;
+        }
+        for ( final Identity identity : IdentityHome.findByCustomerIds( listMissingCustomerIds ) )
+        {
+            if ( !identity.isMerged( ) && !identity.isDeleted( ) )
+            {
+                _identityDtoCache.putInCache( identity.getCustomerId( ), DtoConverter.convertIdentityToDto( identity ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The identities read with one query are filtered by {@link IdentityDtoCache#getByCustomerId(String, ServiceContract)}, as on GET, through a cache of
+     * their own which only holds them for the time of the read.
+     */
+    @Override
+    public List<IdentityDto> findByCustomerIds( final List<String> listCustomerIds, final ServiceContract serviceContract ) throws IdentityStoreException
+    {
+        if ( listCustomerIds.isEmpty( ) )
+        {
+            return Collections.emptyList( );
+        }
+        final Set<String> setActiveCustomerIds = new HashSet<>( );
+        try
+        {
+            for ( final Identity identity : IdentityHome.findByCustomerIds( listCustomerIds ) )
+            {
+                if ( !identity.isMerged( ) && !identity.isDeleted( ) )
+                {
+                    _bulkReadCache.putInCache( identity.getCustomerId( ), DtoConverter.convertIdentityToDto( identity ) );
+                    setActiveCustomerIds.add( identity.getCustomerId( ) );
+                }
+            }
+            // an entry removed meanwhile by a concurrent bulk read of the same identity is read again from the database
+            final List<IdentityDto> listIdentities = new ArrayList<>( setActiveCustomerIds.size( ) );
+            for ( final String strCustomerId : listCustomerIds )
+            {
+                final IdentityDto identity = setActiveCustomerIds.contains( strCustomerId ) ? _bulkReadCache.getByCustomerId( strCustomerId, serviceContract )
+                        : null;
+                if ( identity != null )
+                {
+                    listIdentities.add( identity );
+                }
+            }
+            return listIdentities;
+        }
+        finally
+        {
+            setActiveCustomerIds.forEach( _bulkReadCache::removeKey );
+        }
+    }
+
+    /**
+     * Create the identity cache through which the bulk reads are filtered according to the service contracts. It is distinct from the identity cache of the
+     * GET requests, so that the bulk reads do not evict the identities read by the interactive clients.
+     *
+     * @return the cache
+     */
+    private static IdentityDtoCache createBulkReadCache( )
+    {
+        final IdentityDtoCache bulkReadCache = new IdentityDtoCache( )
+        {
+            @Override
+            public String getName( )
+            {
+                return BULK_READ_CACHE_NAME;
+            }
+        };
+        if ( !bulkReadCache.isCacheEnable( ) )
+        {
+            bulkReadCache.initCache( );
+        }
+        return bulkReadCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> findCustomerIdsWithHistory( final List<String> listCustomerIds )
+    {
+        return new HashSet<>( FacadeIdentityHome.findCustomerIdsWithHistory( listCustomerIds ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeIdentityState> findStates( final List<String> listCustomerIds )
+    {
+        return FacadeIdentityHome.findStates( listCustomerIds );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<IFacadeCache> getCaches( )
+    {
+        return Collections.singletonList( _identityDtoCacheAdapter );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate( final String strCustomerId )
+    {
+        _identityDtoCache.removeKey( strCustomerId );
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.adapter;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.IFacadeCache;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.LuteceCacheAdapter;
+import fr.paris.lutece.plugins.identitystore.service.contract.ServiceContractService;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.cache.CacheService;
+import fr.paris.lutece.portal.service.cache.CacheableService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Service contract provider backed by the identitystore {@link ServiceContractService}
+ */
+public class LuteceServiceContractProvider implements IServiceContractProvider
+{
+    private static final String PROPERTY_SERVICE_CONTRACT_CACHE_NAME = "identitystore.facade.cache.service.contract.name";
+    private static final String DEFAULT_SERVICE_CONTRACT_CACHE_NAME = "ServiceContractCache";
+
+    private LuteceCacheAdapter _serviceContractCacheAdapter;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ServiceContract getActiveServiceContract( final String strClientCode ) throws IdentityStoreException
+    {
+        return ServiceContractService.instance( ).getActiveServiceContract( strClientCode );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The service contract cache of the identitystore is found by its name among the Lutece caches, its entries are keyed by client code.
+     */
+    @Override
+    public synchronized List<IFacadeCache> getCaches( )
+    {
+        if ( _serviceContractCacheAdapter == null )
+        {
+            final String strCacheName = AppPropertiesService.getProperty( PROPERTY_SERVICE_CONTRACT_CACHE_NAME, DEFAULT_SERVICE_CONTRACT_CACHE_NAME );
+            for ( final CacheableService cache : CacheService.getCacheableServicesList( ) )
+            {
+                if ( cache instanceof AbstractCacheableService && strCacheName.equals( cache.getName( ) ) )
+                {
+                    _serviceContractCacheAdapter = new LuteceCacheAdapter( FacadeCacheService.CACHE_SERVICE_CONTRACT, (AbstractCacheableService) cache,
+                            true );
+                }
+            }
+        }
+        return _serviceContractCacheAdapter != null ? Collections.singletonList( _serviceContractCacheAdapter ) : Collections.emptyList( );
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.admission;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityChange;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityState;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.IFacadeCache;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Identity provider keeping the identities read by customer ID in a {@link TinyLfuCache}, in front of the provider of the identities : an identity is
+ * admitted only if it is requested more often than the identity it would evict, and the memory of the identities of a service contract is bounded by its
+ * quota.<br/>
+ * The identities are filtered by the service contract, which is part of the key. The identities read by connection ID, the master identities read by a
+ * merged customer ID, and the identities loaded in batches into the cache of the provider are not kept.
+ */
+public class AdmissionIdentityProvider implements IIdentityProvider
+{
+    private static final String KEY_SEPARATOR = ":";
+
+    private final IIdentityProvider _delegate;
+    private final TinyLfuCache<IdentityDto> _cache;
+    private final Set<Integer> _setServiceContractIds = ConcurrentHashMap.newKeySet( );
+
+    /**
+     * Constructor
+     *
+     * @param delegate
+     *            the provider of the identities
+     * @param cache
+     *            the admission cache of the identities
+     */
+    public AdmissionIdentityProvider( final IIdentityProvider delegate, final TinyLfuCache<IdentityDto> cache )
+    {
+        _delegate = delegate;
+        _cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The identity is read from the provider if it is not in the admission cache, and offered to the cache.
+     */
+    @Override
+    public IdentityDto getByCustomerId( final String strCustomerId, final ServiceContract serviceContract ) throws IdentityStoreException
+    {
+        final String strKey = serviceContract.getId( ) + KEY_SEPARATOR + strCustomerId;
+        IdentityDto identity = _cache.getIfPresent( strKey, serviceContract.getClientCode( ) );
+        if ( identity != null )
+        {
+            return identity;
+        }
+        final long lLoadStartMillis = System.currentTimeMillis( );
+        identity = _delegate.getByCustomerId( strCustomerId, serviceContract );
+        // the master identity of a merged customer ID is not removed from the cache with the merged customer ID
+        if ( identity != null && strCustomerId.equals( identity.getCustomerId( ) ) )
+        {
+            _setServiceContractIds.add( serviceContract.getId( ) );
+            _cache.put( strKey, serviceContract.getClientCode( ), identity, lLoadStartMillis );
+        }
+        return identity;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdentityDto getByConnectionId( final String strConnectionId, final ServiceContract serviceContract ) throws IdentityStoreException
+    {
+        return _delegate.getByConnectionId( strConnectionId, serviceContract );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasHistory( final String strCustomerId ) throws IdentityStoreException
+    {
+        return _delegate.hasHistory( strCustomerId );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The identity is cached if it is in the admission cache for any service contract, or in the cache of the provider.
+     */
+    @Override
+    public boolean isCached( final String strCustomerId )
+    {
+        for ( final Integer nServiceContractId : _setServiceContractIds )
+        {
+            if ( _cache.contains( nServiceContractId + KEY_SEPARATOR + strCustomerId ) )
+            {
+                return true;
+            }
+        }
+        return _delegate.isCached( strCustomerId );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isOwned( final String strCustomerId )
+    {
+        return _delegate.isOwned( strCustomerId );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> findCustomerIds( final String strAfterCustomerId, final int nLimit ) throws IdentityStoreException
+    {
+        return _delegate.findCustomerIds( strAfterCustomerId, nLimit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeIdentityChange> findChanges( final long lAfterId, final int nLimit ) throws IdentityStoreException
+    {
+        return _delegate.findChanges( lAfterId, nLimit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLastChangeId( ) throws IdentityStoreException
+    {
+        return _delegate.getLastChangeId( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> searchCustomerIds( final Map<String, String> mapAttributes, final int nMax ) throws IdentityStoreException
+    {
+        return _delegate.searchCustomerIds( mapAttributes, nMax );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The identities are loaded into the cache of the provider : they enter the admission cache when they are requested.
+     */
+    @Override
+    public void loadIntoCache( final List<String> listCustomerIds ) throws IdentityStoreException
+    {
+        _delegate.loadIntoCache( listCustomerIds );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> findCustomerIdsWithHistory( final List<String> listCustomerIds ) throws IdentityStoreException
+    {
+        return _delegate.findCustomerIdsWithHistory( listCustomerIds );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The identities read are not admitted into the cache.
+     */
+    @Override
+    public List<IdentityDto> findByCustomerIds( final List<String> listCustomerIds, final ServiceContract serviceContract ) throws IdentityStoreException
+    {
+        return _delegate.findByCustomerIds( listCustomerIds, serviceContract );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeIdentityState> findStates( final List<String> listCustomerIds ) throws IdentityStoreException
+    {
+        return _delegate.findStates( listCustomerIds );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The caches are those of the provider, and the admission cache.
+     */
+    @Override
+    public List<IFacadeCache> getCaches( )
+    {
+        final List<IFacadeCache> listCaches = new ArrayList<>( _delegate.getCaches( ) );
+        listCaches.add( _cache );
+        return listCaches;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The identity is removed from the provider, and from the admission cache for all the service contracts.
+     */
+    @Override
+    public void invalidate( final String strCustomerId )
+    {
+        _delegate.invalidate( strCustomerId );
+        for ( final Integer nServiceContractId : _setServiceContractIds )
+        {
+            _cache.invalidate( nServiceContractId + KEY_SEPARATOR + strCustomerId );
+        }
+    }
+
+    /**
+     * @return the provider of the identities
+     */
+    public IIdentityProvider getDelegate( )
+    {
+        return _delegate;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.admission;
+
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.CacheMemory;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.AdmissionDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Frequency-aware caching of the identities served to the v1/v2 clients (see {@link AdmissionIdentityProvider}).<br/>
+ * The identities are kept in a {@link TinyLfuCache} of <code>identitystore.facade.admission.memory</code> MB, in front of the identity cache of the
+ * provider, so that the identities requested once by a batch do not evict the identities requested all day long. The memory used by the identities of a
+ * service contract can be bounded by the <code>identitystore.facade.admission.quota.&lt;client code&gt;</code> property, in MB, or by default by the
+ * <code>identitystore.facade.admission.quota.default</code> property.
+ */
+public final class AdmissionService
+{
+    private static final String PROPERTY_ADMISSION_ENABLED = "identitystore.facade.admission.enabled";
+    private static final String PROPERTY_ADMISSION_MEMORY = "identitystore.facade.admission.memory";
+    private static final String PROPERTY_ADMISSION_WINDOW = "identitystore.facade.admission.window";
+    private static final String PROPERTY_ADMISSION_PROTECTED = "identitystore.facade.admission.protected";
+    private static final String PROPERTY_ADMISSION_SKETCH_WIDTH = "identitystore.facade.admission.sketch.width";
+    private static final String PROPERTY_ADMISSION_TTL = "identitystore.facade.admission.ttl";
+    private static final String PROPERTY_PREFIX_ADMISSION_QUOTA = "identitystore.facade.admission.quota.";
+    private static final String PROPERTY_SUFFIX_DEFAULT = "default";
+    private static final int DEFAULT_ADMISSION_MEMORY = 256;
+    private static final int DEFAULT_ADMISSION_WINDOW = 1;
+    private static final int DEFAULT_ADMISSION_PROTECTED = 80;
+    private static final int DEFAULT_ADMISSION_SKETCH_WIDTH = 65536;
+    private static final int DEFAULT_ADMISSION_TTL = 600;
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ADMISSION_ENABLED, false );
+    private volatile TinyLfuCache<IdentityDto> _cache;
+
+    /**
+     * private constructor
+     */
+    private AdmissionService( )
+    {
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static AdmissionService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Put the admission cache in front of an identity provider, if the admission is enabled
+     *
+     * @param identityProvider
+     *            the identity provider
+     * @return the provider with the admission cache, or the given provider if the admission is disabled
+     */
+    public IIdentityProvider wrap( final IIdentityProvider identityProvider )
+    {
+        if ( !_bEnabled || identityProvider == null || identityProvider instanceof AdmissionIdentityProvider )
+        {
+            return identityProvider;
+        }
+        final long lMemory = AppPropertiesService.getPropertyInt( PROPERTY_ADMISSION_MEMORY, DEFAULT_ADMISSION_MEMORY ) * MEGABYTE;
+        if ( lMemory <= 0 )
+        {
+            AppLogService.error( "Facade admission cache disabled : " + PROPERTY_ADMISSION_MEMORY + " must be positive" );
+            return identityProvider;
+        }
+        _cache = new TinyLfuCache<>( FacadeCacheService.CACHE_ADMISSION, lMemory,
+                AppPropertiesService.getPropertyInt( PROPERTY_ADMISSION_WINDOW, DEFAULT_ADMISSION_WINDOW ),
+                AppPropertiesService.getPropertyInt( PROPERTY_ADMISSION_PROTECTED, DEFAULT_ADMISSION_PROTECTED ),
+                AppPropertiesService.getPropertyInt( PROPERTY_ADMISSION_SKETCH_WIDTH, DEFAULT_ADMISSION_SKETCH_WIDTH ),
+                AppPropertiesService.getPropertyInt( PROPERTY_ADMISSION_TTL, DEFAULT_ADMISSION_TTL ), CacheMemory::estimate, AdmissionService::getQuota );
+        AppLogService.info( "Facade admission cache enabled : " + lMemory / MEGABYTE + " MB" );
+        return new AdmissionIdentityProvider( identityProvider, _cache );
+    }
+
+    /**
+     * @return the state of the admission cache, or {@code null} if the admission is disabled
+     */
+    public AdmissionDto getState( )
+    {
+        final TinyLfuCache<IdentityDto> cache = _cache;
+        return cache == null ? null : cache.getAdmissionState( );
+    }
+
+    /**
+     * @param strClientCode
+     *            a client code
+     * @return the memory quota of the service contract of the client code, in bytes, 0 if it is only bounded by the memory of the cache
+     */
+    private static long getQuota( final String strClientCode )
+    {
+        final int nDefaultQuota = AppPropertiesService.getPropertyInt( PROPERTY_PREFIX_ADMISSION_QUOTA + PROPERTY_SUFFIX_DEFAULT, 0 );
+        return AppPropertiesService.getPropertyInt( PROPERTY_PREFIX_ADMISSION_QUOTA + strClientCode, nDefaultQuota ) * MEGABYTE;
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final AdmissionService INSTANCE = new AdmissionService( );
+    }
+}
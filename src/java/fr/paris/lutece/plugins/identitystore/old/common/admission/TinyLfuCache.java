@@ -0,0 +1,947 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.admission;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.CacheMemory;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.IFacadeCache;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.AdmissionContractDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.AdmissionDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.FacadeCacheDto;
+import fr.paris.lutece.plugins.identitystore.old.common.hotkey.CountMinSketch;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache of the facade bounded by memory, whose admission and eviction follow the W-TinyLFU policy, and whose memory is shared out between the service
+ * contracts with a quota each.<br/>
+ * The new entries enter a small LRU window. An entry leaving the window is admitted into the main space only if its key was requested more often than the
+ * key of the entry it would evict, the frequencies being estimated by a {@link CountMinSketch} of the requested keys, whose counts are halved periodically
+ * so that they reflect the recent requests. The main space is split into a probation segment and a protected segment, which holds the entries requested
+ * again since their admission. The keys requested once, as those of a batch reading the whole population, thus go through the window without evicting the
+ * frequently requested entries.<br/>
+ * When the entries of a service contract exceed its quota, its own entries are evicted, probation first.<br/>
+ * The reads do not take the lock of the policy : the entries are read from a concurrent map, and each read is recorded in a small lossy buffer of the
+ * stripe of the reading thread. The thread which fills a buffer replays all the buffered reads on the sketch and the segments, if the lock is free,
+ * and the writes replay them before changing the segments. A read dropped because its buffer is full only loses its effect on the policy.
+ *
+ * @param <V>
+ *            the type of the values
+ */
+public class TinyLfuCache<V> implements IFacadeCache
+{
+    private static final long UNKNOWN = -1;
+    // the counts are halved once the sketch recorded ten requests per counter of a row
+    private static final int SAMPLE_FACTOR = 10;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int MAX_RECENT_INVALIDATIONS = 1024;
+    // an invalidation is remembered longer than any identity load may take
+    private static final long INVALIDATION_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis( 1 );
+    private static final int MAX_READ_BUFFERS = 64;
+    private static final int READ_BUFFER_SIZE = 16;
+
+    private final String _strName;
+    private final ToLongFunction<V> _weigher;
+    private final ToLongFunction<String> _quotaResolver;
+    private final long _lMaxWeight;
+    private final long _lWindowMaxWeight;
+    private final long _lProtectedMaxWeight;
+    private final CountMinSketch _sketch;
+    private final int _nSampleSize;
+    private final ReentrantLock _lock = new ReentrantLock( );
+    private final ReadBuffer<V> [ ] _readBuffers;
+    // read without the lock, written with the lock held
+    private final Map<String, Node<V>> _mapNodes = new ConcurrentHashMap<>( );
+    private final Map<String, Node<V>> _mapWindow = new LinkedHashMap<>( 16, 0.75f, true );
+    private final Map<String, Node<V>> _mapProbation = new LinkedHashMap<>( 16, 0.75f, true );
+    private final Map<String, Node<V>> _mapProtected = new LinkedHashMap<>( 16, 0.75f, true );
+    private final Map<String, Contract> _mapContracts = new ConcurrentSkipListMap<>( );
+    private final Map<String, Long> _mapRecentInvalidations = new HashMap<>( );
+    private long _lWindowWeight;
+    private long _lProbationWeight;
+    private long _lProtectedWeight;
+    private int _nSampleCount;
+    private final LongAdder _hits = new LongAdder( );
+    private final LongAdder _misses = new LongAdder( );
+    private long _lAdmitted;
+    private long _lRejected;
+    private long _lEvictions;
+    private long _lQuotaEvictions;
+    private long _lExpirations;
+    private long _lSketchResets;
+    private long _lLastClearMillis;
+    private volatile long _lTtlMillis;
+
+    /**
+     * Constructor
+     *
+     * @param strName
+     *            the name of the cache
+     * @param lMaxWeight
+     *            the maximum memory of the entries, in bytes
+     * @param nWindowPercent
+     *            the share of the memory given to the window, in percent
+     * @param nProtectedPercent
+     *            the share of the main space given to the protected segment, in percent
+     * @param nSketchWidth
+     *            the number of counters per row of the frequency sketch
+     * @param nTtlSeconds
+     *            the time to live of the entries, in seconds
+     * @param weigher
+     *            the estimate of the heap used by a value
+     * @param quotaResolver
+     *            the quota of the service contract of a client code, in bytes, 0 if the contract is only bounded by the memory of the cache
+     */
+    public TinyLfuCache( final String strName, final long lMaxWeight, final int nWindowPercent, final int nProtectedPercent, final int nSketchWidth,
+            final int nTtlSeconds, final ToLongFunction<V> weigher, final ToLongFunction<String> quotaResolver )
+    {
+        _strName = strName;
+        _weigher = weigher;
+        _quotaResolver = quotaResolver;
+        _lMaxWeight = lMaxWeight;
+        _lWindowMaxWeight = lMaxWeight * Math.min( Math.max( 0, nWindowPercent ), 100 ) / 100;
+        _lProtectedMaxWeight = ( lMaxWeight - _lWindowMaxWeight ) * Math.min( Math.max( 0, nProtectedPercent ), 100 ) / 100;
+        _sketch = new CountMinSketch( nSketchWidth, SKETCH_DEPTH );
+        _nSampleSize = SAMPLE_FACTOR * Math.max( 1, nSketchWidth );
+        _lTtlMillis = TimeUnit.SECONDS.toMillis( nTtlSeconds );
+        int nStripes = 1;
+        while ( nStripes < Math.min( MAX_READ_BUFFERS, Runtime.getRuntime( ).availableProcessors( ) ) )
+        {
+            nStripes <<= 1;
+        }
+        @SuppressWarnings( "unchecked" )
+        final ReadBuffer<V> [ ] readBuffers = new ReadBuffer [ nStripes];
+        for ( int i = 0; i < nStripes; i++ )
+        {
+            readBuffers [i] = new ReadBuffer<>( );
+        }
+        _readBuffers = readBuffers;
+    }
+
+    /**
+     * Get a cached value, and record the request of its key
+     *
+     * @param strKey
+     *            the key
+     * @param strClientCode
+     *            the client code of the service contract the value is requested for
+     * @return the value, or {@code null} if it is not cached or expired
+     */
+    public V getIfPresent( final String strKey, final String strClientCode )
+    {
+        final Contract contract = getContract( strClientCode );
+        final Node<V> node = _mapNodes.get( strKey );
+        final boolean bHit = node != null && node._lExpirationMillis > System.currentTimeMillis( );
+        if ( bHit )
+        {
+            _hits.increment( );
+            contract._hits.increment( );
+        }
+        else
+        {
+            _misses.increment( );
+            contract._misses.increment( );
+        }
+        // the read is replayed on the policy later, by the thread which finds its buffer full
+        if ( _readBuffers [(int) Thread.currentThread( ).getId( ) & ( _readBuffers.length - 1 )].offer( new Read<>( strKey, node ) ) && _lock.tryLock( ) )
+        {
+            try
+            {
+                drainReadBuffers( );
+            }
+            finally
+            {
+                _lock.unlock( );
+            }
+        }
+        return bHit ? node._value : null;
+    }
+
+    /**
+     * Tell if a key is cached, without recording its request
+     *
+     * @param strKey
+     *            the key
+     * @return {@code true} if the key is cached and not expired
+     */
+    public boolean contains( final String strKey )
+    {
+        final Node<V> node = _mapNodes.get( strKey );
+        return node != null && node._lExpirationMillis > System.currentTimeMillis( );
+    }
+
+    /**
+     * Cache a value, replacing the previous one of the key. The value enters the window, and the entries leaving the window are admitted into the main space
+     * by frequency.<br/>
+     * A value loaded before the last invalidation of its key is not cached, so that a load racing with an update never brings a stale value back.
+     *
+     * @param strKey
+     *            the key
+     * @param strClientCode
+     *            the client code of the service contract the value was loaded for
+     * @param value
+     *            the value
+     * @param lLoadStartMillis
+     *            the time at which the load of the value started
+     */
+    public void put( final String strKey, final String strClientCode, final V value, final long lLoadStartMillis )
+    {
+        if ( value == null )
+        {
+            return;
+        }
+        final long lWeight = CacheMemory.ENTRY_OVERHEAD + CacheMemory.estimate( strKey ) + _weigher.applyAsLong( value );
+        _lock.lock( );
+        try
+        {
+            drainReadBuffers( );
+            final Long lInvalidationMillis = _mapRecentInvalidations.get( strKey );
+            if ( lLoadStartMillis <= _lLastClearMillis || ( lInvalidationMillis != null && lLoadStartMillis <= lInvalidationMillis ) )
+            {
+                return;
+            }
+            final Contract contract = getContract( strClientCode );
+            final Node<V> previous = _mapNodes.get( strKey );
+            if ( previous != null )
+            {
+                remove( previous );
+            }
+            if ( lWeight > _lMaxWeight || lWeight > contract._lQuota )
+            {
+                _lRejected++;
+                contract._lRejected++;
+                return;
+            }
+            final Node<V> node = new Node<>( strKey, value, lWeight, contract, System.currentTimeMillis( ) + _lTtlMillis );
+            _mapNodes.put( strKey, node );
+            _mapWindow.put( strKey, node );
+            _lWindowWeight += lWeight;
+            contract.add( node );
+            evictFromWindow( );
+            enforceQuota( contract );
+        }
+        finally
+        {
+            _lock.unlock( );
+        }
+    }
+
+    /**
+     * @return the time to live of the entries, in milliseconds
+     */
+    public long getTimeToLiveMillis( )
+    {
+        return _lTtlMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The maximum number of entries is unknown : the cache is bounded by memory.
+     */
+    @Override
+    public FacadeCacheDto getState( )
+    {
+        final FacadeCacheDto state = new FacadeCacheDto( );
+        state.setName( _strName );
+        state.setEnabled( true );
+        state.setMaxSize( UNKNOWN );
+        state.setTimeToLive( TimeUnit.MILLISECONDS.toSeconds( _lTtlMillis ) );
+        state.setTimeToLiveConfigurable( true );
+        _lock.lock( );
+        try
+        {
+            drainReadBuffers( );
+            state.setSize( _mapNodes.size( ) );
+            state.setMemoryEstimate( weight( ) );
+            final long lHits = _hits.sum( );
+            final long lMisses = _misses.sum( );
+            state.setHits( lHits );
+            state.setMisses( lMisses );
+            state.setHitRatio( lHits + lMisses > 0 ? (double) lHits / ( lHits + lMisses ) : 0 );
+            state.setEvictions( _lEvictions + _lQuotaEvictions + _lExpirations );
+        }
+        finally
+        {
+            _lock.unlock( );
+        }
+        return state;
+    }
+
+    /**
+     * @return the state of the admission policy : the memory of each segment, the admitted, rejected and evicted entries, and the use of each service
+     *         contract
+     */
+    public AdmissionDto getAdmissionState( )
+    {
+        final AdmissionDto state = new AdmissionDto( );
+        state.setMaxMemory( _lMaxWeight );
+        state.setWindowMaxMemory( _lWindowMaxWeight );
+        state.setProtectedMaxMemory( _lProtectedMaxWeight );
+        _lock.lock( );
+        try
+        {
+            drainReadBuffers( );
+            state.setSize( _mapNodes.size( ) );
+            state.setMemory( weight( ) );
+            state.setWindowMemory( _lWindowWeight );
+            state.setProbationMemory( _lProbationWeight );
+            state.setProtectedMemory( _lProtectedWeight );
+            state.setHits( _hits.sum( ) );
+            state.setMisses( _misses.sum( ) );
+            state.setAdmitted( _lAdmitted );
+            state.setRejected( _lRejected );
+            state.setEvictions( _lEvictions );
+            state.setQuotaEvictions( _lQuotaEvictions );
+            state.setExpirations( _lExpirations );
+            state.setSketchResets( _lSketchResets );
+            for ( final Contract contract : _mapContracts.values( ) )
+            {
+                state.getContracts( ).add( contract.getState( ) );
+            }
+        }
+        finally
+        {
+            _lock.unlock( );
+        }
+        return state;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate( final String strKey )
+    {
+        _lock.lock( );
+        try
+        {
+            final long lNow = System.currentTimeMillis( );
+            if ( _mapRecentInvalidations.size( ) >= MAX_RECENT_INVALIDATIONS )
+            {
+                final long lExpiration = lNow - INVALIDATION_RETENTION_MILLIS;
+                _mapRecentInvalidations.values( ).removeIf( lInvalidationMillis -> lInvalidationMillis < lExpiration );
+            }
+            _mapRecentInvalidations.put( strKey, lNow );
+            final Node<V> node = _mapNodes.get( strKey );
+            if ( node != null )
+            {
+                remove( node );
+            }
+        }
+        finally
+        {
+            _lock.unlock( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The entries of all the versions of the service contract of the client are removed.
+     */
+    @Override
+    public void invalidateContract( final ServiceContract serviceContract, final String strClientCode )
+    {
+        _lock.lock( );
+        try
+        {
+            _lLastClearMillis = System.currentTimeMillis( );
+            final Contract contract = _mapContracts.get( strClientCode );
+            if ( contract != null )
+            {
+                final List<Node<V>> listNodes = new ArrayList<>( );
+                for ( final Node<V> node : _mapNodes.values( ) )
+                {
+                    if ( node._contract == contract )
+                    {
+                        listNodes.add( node );
+                    }
+                }
+                listNodes.forEach( this::remove );
+            }
+        }
+        finally
+        {
+            _lock.unlock( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The frequencies of the keys are kept.
+     */
+    @Override
+    public void invalidateAll( )
+    {
+        _lock.lock( );
+        try
+        {
+            _lLastClearMillis = System.currentTimeMillis( );
+            _mapNodes.clear( );
+            _mapWindow.clear( );
+            _mapProbation.clear( );
+            _mapProtected.clear( );
+            _lWindowWeight = 0;
+            _lProbationWeight = 0;
+            _lProtectedWeight = 0;
+            for ( final Contract contract : _mapContracts.values( ) )
+            {
+                contract._lWeight = 0;
+                contract._nSize = 0;
+            }
+        }
+        finally
+        {
+            _lock.unlock( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The entries already cached keep their expiration time.
+     */
+    @Override
+    public void setTimeToLive( final int nSeconds ) throws IdentityStoreException
+    {
+        if ( nSeconds <= 0 )
+        {
+            throw new IdentityStoreException( "Invalid time to live of the cache " + _strName + " : " + nSeconds );
+        }
+        _lTtlMillis = TimeUnit.SECONDS.toMillis( nSeconds );
+    }
+
+    /**
+     * Replay the buffered reads on the policy. The lock of the entries is held.
+     */
+    private void drainReadBuffers( )
+    {
+        for ( final ReadBuffer<V> readBuffer : _readBuffers )
+        {
+            readBuffer.drain( this::replay );
+        }
+    }
+
+    /**
+     * Replay a read on the policy : record the request of its key, and move or expire its entry, unless the entry was replaced or removed since. The lock of
+     * the entries is held.
+     *
+     * @param read
+     *            the read
+     */
+    private void replay( final Read<V> read )
+    {
+        recordRequest( read._strKey );
+        final Node<V> node = read._node;
+        if ( node != null && _mapNodes.get( node._strKey ) == node )
+        {
+            if ( node._lExpirationMillis <= System.currentTimeMillis( ) )
+            {
+                remove( node );
+                _lExpirations++;
+            }
+            else
+            {
+                onHit( node );
+            }
+        }
+    }
+
+    /**
+     * Record the request of a key in the frequency sketch, and age the sketch once it is full. The lock of the entries is held.
+     *
+     * @param strKey
+     *            the key
+     */
+    private void recordRequest( final String strKey )
+    {
+        _sketch.add( strKey );
+        if ( ++_nSampleCount >= _nSampleSize )
+        {
+            _sketch.halve( );
+            _nSampleCount /= 2;
+            _lSketchResets++;
+        }
+    }
+
+    /**
+     * Move a requested entry : an entry of the probation segment is promoted to the protected segment, whose least recently used entries over its maximum
+     * memory are demoted to the probation segment. The lock of the entries is held.
+     *
+     * @param node
+     *            the entry
+     */
+    private void onHit( final Node<V> node )
+    {
+        switch( node._segment )
+        {
+            case WINDOW:
+                _mapWindow.get( node._strKey );
+                break;
+            case PROBATION:
+                _mapProbation.remove( node._strKey );
+                _lProbationWeight -= node._lWeight;
+                node._segment = Segment.PROTECTED;
+                _mapProtected.put( node._strKey, node );
+                _lProtectedWeight += node._lWeight;
+                while ( _lProtectedWeight > _lProtectedMaxWeight && _mapProtected.size( ) > 1 )
+                {
+                    final Node<V> demoted = first( _mapProtected );
+                    _mapProtected.remove( demoted._strKey );
+                    _lProtectedWeight -= demoted._lWeight;
+                    demoted._segment = Segment.PROBATION;
+                    _mapProbation.put( demoted._strKey, demoted );
+                    _lProbationWeight += demoted._lWeight;
+                }
+                break;
+            case PROTECTED:
+                _mapProtected.get( node._strKey );
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Move the least recently used entries of the window over its maximum memory to the probation segment, as candidates to the main space, then evict the
+     * entries over the maximum memory of the cache. The lock of the entries is held.
+     */
+    private void evictFromWindow( )
+    {
+        final Deque<Node<V>> candidates = new ArrayDeque<>( );
+        while ( _lWindowWeight > _lWindowMaxWeight && !_mapWindow.isEmpty( ) )
+        {
+            final Node<V> candidate = first( _mapWindow );
+            _mapWindow.remove( candidate._strKey );
+            _lWindowWeight -= candidate._lWeight;
+            candidate._segment = Segment.PROBATION;
+            _mapProbation.put( candidate._strKey, candidate );
+            _lProbationWeight += candidate._lWeight;
+            candidates.add( candidate );
+        }
+        evictFromMain( candidates );
+    }
+
+    /**
+     * Evict the entries over the maximum memory of the cache. The candidates, at the most recently used end of the probation segment, are compared in turn
+     * with the least recently used entry of the main space : the one whose key was the less frequently requested is evicted, the candidate when they tie. The
+     * lock of the entries is held.
+     *
+     * @param candidates
+     *            the entries moved from the window, least recently used first
+     */
+    private void evictFromMain( final Deque<Node<V>> candidates )
+    {
+        while ( weight( ) > _lMaxWeight )
+        {
+            final Node<V> candidate = candidates.peekFirst( );
+            Node<V> victim = first( _mapProbation );
+            if ( victim == null || victim == candidate )
+            {
+                // the probation segment only holds the candidates
+                victim = _mapProtected.isEmpty( ) ? first( _mapWindow ) : first( _mapProtected );
+            }
+            if ( candidate == null && victim == null )
+            {
+                break;
+            }
+            if ( candidate == null )
+            {
+                evict( victim );
+            }
+            else if ( victim == null || _sketch.estimate( candidate._strKey ) <= _sketch.estimate( victim._strKey ) )
+            {
+                candidates.pollFirst( );
+                remove( candidate );
+                _lRejected++;
+                candidate._contract._lRejected++;
+            }
+            else
+            {
+                evict( victim );
+            }
+        }
+        for ( final Node<V> admitted : candidates )
+        {
+            _lAdmitted++;
+            admitted._contract._lAdmitted++;
+        }
+    }
+
+    /**
+     * Evict the entries of a service contract over its quota, probation first, then window, then protected, least recently used first. The lock of the
+     * entries is held.
+     *
+     * @param contract
+     *            the service contract
+     */
+    private void enforceQuota( final Contract contract )
+    {
+        while ( contract._lWeight > contract._lQuota )
+        {
+            Node<V> node = first( _mapProbation, contract );
+            if ( node == null )
+            {
+                node = first( _mapWindow, contract );
+            }
+            if ( node == null )
+            {
+                node = first( _mapProtected, contract );
+            }
+            if ( node == null )
+            {
+                break;
+            }
+            remove( node );
+            _lQuotaEvictions++;
+            contract._lQuotaEvictions++;
+        }
+    }
+
+    /**
+     * Evict an entry of the main space. The lock of the entries is held.
+     *
+     * @param node
+     *            the entry
+     */
+    private void evict( final Node<V> node )
+    {
+        remove( node );
+        _lEvictions++;
+        node._contract._lEvictions++;
+    }
+
+    /**
+     * Remove an entry. The lock of the entries is held.
+     *
+     * @param node
+     *            the entry
+     */
+    private void remove( final Node<V> node )
+    {
+        _mapNodes.remove( node._strKey );
+        switch( node._segment )
+        {
+            case WINDOW:
+                _mapWindow.remove( node._strKey );
+                _lWindowWeight -= node._lWeight;
+                break;
+            case PROBATION:
+                _mapProbation.remove( node._strKey );
+                _lProbationWeight -= node._lWeight;
+                break;
+            case PROTECTED:
+                _mapProtected.remove( node._strKey );
+                _lProtectedWeight -= node._lWeight;
+                break;
+            default:
+                break;
+        }
+        node._contract._lWeight -= node._lWeight;
+        node._contract._nSize--;
+    }
+
+    /**
+     * @return the memory of the entries, in bytes. The lock of the entries is held.
+     */
+    private long weight( )
+    {
+        return _lWindowWeight + _lProbationWeight + _lProtectedWeight;
+    }
+
+    /**
+     * Get the usage of the service contract of a client code, created on its first request
+     *
+     * @param strClientCode
+     *            the client code
+     * @return the usage of the service contract
+     */
+    private Contract getContract( final String strClientCode )
+    {
+        return _mapContracts.computeIfAbsent( strClientCode, strCode -> new Contract( strCode, _quotaResolver.applyAsLong( strCode ) ) );
+    }
+
+    /**
+     * @param mapSegment
+     *            a segment
+     * @return its least recently used entry, or {@code null} if it is empty
+     */
+    private static <V> Node<V> first( final Map<String, Node<V>> mapSegment )
+    {
+        final Iterator<Node<V>> iterator = mapSegment.values( ).iterator( );
+        return iterator.hasNext( ) ? iterator.next( ) : null;
+    }
+
+    /**
+     * @param mapSegment
+     *            a segment
+     * @param contract
+     *            a service contract
+     * @return the least recently used entry of the service contract in the segment, or {@code null} if there is none
+     */
+    private static <V> Node<V> first( final Map<String, Node<V>> mapSegment, final Contract contract )
+    {
+        for ( final Node<V> node : mapSegment.values( ) )
+        {
+            if ( node._contract == contract )
+            {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Segment of the cache
+     */
+    private enum Segment
+    {
+        WINDOW,
+        PROBATION,
+        PROTECTED
+    }
+
+    /**
+     * Cached value
+     *
+     * @param <V>
+     *            the type of the value
+     */
+    private static final class Node<V>
+    {
+        private final String _strKey;
+        private final V _value;
+        private final long _lWeight;
+        private final Contract _contract;
+        private final long _lExpirationMillis;
+        private Segment _segment = Segment.WINDOW;
+
+        /**
+         * Constructor
+         *
+         * @param strKey
+         *            the key
+         * @param value
+         *            the value
+         * @param lWeight
+         *            the estimated memory of the entry
+         * @param contract
+         *            the service contract the value was loaded for
+         * @param lExpirationMillis
+         *            the expiration time of the value
+         */
+        private Node( final String strKey, final V value, final long lWeight, final Contract contract, final long lExpirationMillis )
+        {
+            _strKey = strKey;
+            _value = value;
+            _lWeight = lWeight;
+            _contract = contract;
+            _lExpirationMillis = lExpirationMillis;
+        }
+    }
+
+    /**
+     * Read waiting to be replayed on the policy
+     *
+     * @param <V>
+     *            the type of the values
+     */
+    private static final class Read<V>
+    {
+        private final String _strKey;
+        private final Node<V> _node;
+
+        /**
+         * Constructor
+         *
+         * @param strKey
+         *            the key read
+         * @param node
+         *            the entry read, {@code null} on a miss
+         */
+        private Read( final String strKey, final Node<V> node )
+        {
+            _strKey = strKey;
+            _node = node;
+        }
+    }
+
+    /**
+     * Bounded buffer of the reads of a stripe of threads. The reads are added without lock, and drained with the lock of the entries held.
+     *
+     * @param <V>
+     *            the type of the values
+     */
+    private static final class ReadBuffer<V>
+    {
+        private final AtomicReferenceArray<Read<V>> _reads = new AtomicReferenceArray<>( READ_BUFFER_SIZE );
+        private final AtomicLong _lWriteCount = new AtomicLong( );
+        private volatile long _lReadCount;
+
+        /**
+         * Add a read, dropped when the buffer is full or when another thread adds a read at the same time
+         *
+         * @param read
+         *            the read
+         * @return {@code true} if the buffer is full and should be drained
+         */
+        private boolean offer( final Read<V> read )
+        {
+            final long lWriteCount = _lWriteCount.get( );
+            final long lSize = lWriteCount - _lReadCount;
+            if ( lSize >= READ_BUFFER_SIZE )
+            {
+                return true;
+            }
+            if ( _lWriteCount.compareAndSet( lWriteCount, lWriteCount + 1 ) )
+            {
+                _reads.lazySet( (int) ( lWriteCount % READ_BUFFER_SIZE ), read );
+                return lSize + 1 >= READ_BUFFER_SIZE;
+            }
+            return false;
+        }
+
+        /**
+         * Drain the reads added so far, up to the first one not written yet. The lock of the entries is held.
+         *
+         * @param consumer
+         *            the consumer of the reads
+         */
+        private void drain( final Consumer<Read<V>> consumer )
+        {
+            final long lWriteCount = _lWriteCount.get( );
+            long lReadCount = _lReadCount;
+            while ( lReadCount < lWriteCount )
+            {
+                final int nIndex = (int) ( lReadCount % READ_BUFFER_SIZE );
+                final Read<V> read = _reads.get( nIndex );
+                if ( read == null )
+                {
+                    break;
+                }
+                _reads.lazySet( nIndex, null );
+                consumer.accept( read );
+                lReadCount++;
+            }
+            _lReadCount = lReadCount;
+        }
+    }
+
+    /**
+     * Usage of the cache by the service contract of a client code. Its fields, except the lookup counts, are read and written with the lock of the entries
+     * held.
+     */
+    private static final class Contract
+    {
+        private final String _strClientCode;
+        private final long _lQuota;
+        private long _lWeight;
+        private int _nSize;
+        private final LongAdder _hits = new LongAdder( );
+        private final LongAdder _misses = new LongAdder( );
+        private long _lAdmitted;
+        private long _lRejected;
+        private long _lEvictions;
+        private long _lQuotaEvictions;
+
+        /**
+         * Constructor
+         *
+         * @param strClientCode
+         *            the client code
+         * @param lQuota
+         *            the quota of the service contract, in bytes, 0 if it is only bounded by the memory of the cache
+         */
+        private Contract( final String strClientCode, final long lQuota )
+        {
+            _strClientCode = strClientCode;
+            _lQuota = lQuota > 0 ? lQuota : Long.MAX_VALUE;
+        }
+
+        /**
+         * Count a new entry of the service contract
+         *
+         * @param node
+         *            the entry
+         */
+        private void add( final Node<?> node )
+        {
+            _lWeight += node._lWeight;
+            _nSize++;
+        }
+
+        /**
+         * @return the usage of the cache by the service contract
+         */
+        private AdmissionContractDto getState( )
+        {
+            final AdmissionContractDto state = new AdmissionContractDto( );
+            state.setClientCode( _strClientCode );
+            state.setQuota( _lQuota == Long.MAX_VALUE ? 0 : _lQuota );
+            state.setSize( _nSize );
+            state.setMemory( _lWeight );
+            state.setHits( _hits.sum( ) );
+            state.setMisses( _misses.sum( ) );
+            state.setAdmitted( _lAdmitted );
+            state.setRejected( _lRejected );
+            state.setEvictions( _lEvictions );
+            state.setQuotaEvictions( _lQuotaEvictions );
+            return state;
+        }
+    }
+}
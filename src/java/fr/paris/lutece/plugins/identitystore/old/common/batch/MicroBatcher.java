@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.batch;
+
+import fr.paris.lutece.plugins.identitystore.old.common.deadline.RequestDeadline;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Groups the concurrent loads of different keys into batches loaded in one round trip.<br/>
+ * The first request of a batch opens it and becomes its leader : it waits for the other requests during the window, or until the batch is full, then loads
+ * the batch and completes the requests waiting for it. The concurrent requests of the same key share its load. There is no thread of its own : a single
+ * request only pays the window.
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values
+ */
+public class MicroBatcher<K, V>
+{
+    private final String _strName;
+    private final IBatchLoader<K, V> _loader;
+    private final int _nMaxBatchSize;
+    private final long _lWindowNanos;
+    private final long _lTimeoutMillis;
+    private final Object _lock = new Object( );
+    private Map<K, CompletableFuture<V>> _mapOpenBatch;
+
+    /**
+     * Constructor
+     *
+     * @param strName
+     *            the name of the batcher, for the errors
+     * @param loader
+     *            the loader of the batches
+     * @param nMaxBatchSize
+     *            the maximum number of keys of a batch
+     * @param lWindowMicros
+     *            the time during which a batch collects the keys, in microseconds
+     * @param lTimeoutMillis
+     *            the maximum time to wait for the load of a batch, in milliseconds
+     */
+    public MicroBatcher( final String strName, final IBatchLoader<K, V> loader, final int nMaxBatchSize, final long lWindowMicros, final long lTimeoutMillis )
+    {
+        _strName = strName;
+        _loader = loader;
+        _nMaxBatchSize = Math.max( 1, nMaxBatchSize );
+        _lWindowNanos = TimeUnit.MICROSECONDS.toNanos( lWindowMicros );
+        _lTimeoutMillis = lTimeoutMillis;
+    }
+
+    /**
+     * Load a key with the other keys requested during the window
+     *
+     * @param key
+     *            the key
+     * @return the value, or {@code null} if the key has no value
+     * @throws IdentityStoreException
+     *             if the batch cannot be loaded in time
+     */
+    public V get( final K key ) throws IdentityStoreException
+    {
+        final Map<K, CompletableFuture<V>> mapBatch;
+        final CompletableFuture<V> future;
+        final boolean bLeader;
+        synchronized( _lock )
+        {
+            bLeader = _mapOpenBatch == null;
+            if ( bLeader )
+            {
+                _mapOpenBatch = new LinkedHashMap<>( );
+            }
+            mapBatch = _mapOpenBatch;
+            future = mapBatch.computeIfAbsent( key, k -> new CompletableFuture<>( ) );
+            if ( mapBatch.size( ) >= _nMaxBatchSize )
+            {
+                // the batch is full : its leader loads it at once
+                _mapOpenBatch = null;
+                _lock.notifyAll( );
+            }
+        }
+        if ( bLeader )
+        {
+            closeAfterWindow( mapBatch );
+            load( mapBatch );
+        }
+        return await( future );
+    }
+
+    /**
+     * Wait until the window elapses or the batch is full, and close the batch
+     *
+     * @param mapBatch
+     *            the batch of the leader
+     */
+    private void closeAfterWindow( final Map<K, CompletableFuture<V>> mapBatch )
+    {
+        final long lDeadline = System.nanoTime( ) + _lWindowNanos;
+        synchronized( _lock )
+        {
+            long lRemainingNanos = _lWindowNanos;
+            while ( _mapOpenBatch == mapBatch && lRemainingNanos > 0 )
+            {
+                try
+                {
+                    TimeUnit.NANOSECONDS.timedWait( _lock, lRemainingNanos );
+                }
+                catch( final InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                    break;
+                }
+                lRemainingNanos = lDeadline - System.nanoTime( );
+            }
+            if ( _mapOpenBatch == mapBatch )
+            {
+                _mapOpenBatch = null;
+            }
+        }
+    }
+
+    /**
+     * Load a closed batch and complete its requests
+     *
+     * @param mapBatch
+     *            the batch
+     */
+    private void load( final Map<K, CompletableFuture<V>> mapBatch )
+    {
+        try
+        {
+            final Map<K, V> mapValues = _loader.loadAll( new ArrayList<>( mapBatch.keySet( ) ) );
+            for ( final Map.Entry<K, CompletableFuture<V>> request : mapBatch.entrySet( ) )
+            {
+                request.getValue( ).complete( mapValues.get( request.getKey( ) ) );
+            }
+        }
+        catch( final IdentityStoreException | RuntimeException e )
+        {
+            for ( final CompletableFuture<V> future : mapBatch.values( ) )
+            {
+                future.completeExceptionally( e );
+            }
+        }
+    }
+
+    /**
+     * Wait for the value of a request
+     *
+     * @param future
+     *            the request
+     * @return the value
+     * @throws IdentityStoreException
+     *             if the batch failed or was not loaded in time, or before the deadline of the request
+     */
+    private V await( final CompletableFuture<V> future ) throws IdentityStoreException
+    {
+        try
+        {
+            return future.get( RequestDeadline.capTimeout( _lTimeoutMillis ), TimeUnit.MILLISECONDS );
+        }
+        catch( final ExecutionException e )
+        {
+            if ( e.getCause( ) instanceof IdentityStoreException )
+            {
+                throw (IdentityStoreException) e.getCause( );
+            }
+            throw new IdentityStoreException( "Batch load of " + _strName + " failed", e.getCause( ) );
+        }
+        catch( final TimeoutException e )
+        {
+            RequestDeadline.check( "batch load of " + _strName );
+            throw new IdentityStoreException( "Batch load of " + _strName + " timed out", e );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IdentityStoreException( "Batch load of " + _strName + " interrupted", e );
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.batch;
+
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batching of the database loads of the v1/v2 GET identity requests.<br/>
+ * During a cold cache period, the concurrent requests for different customer IDs which miss the identity cache are grouped over a short window, and their
+ * identities are loaded into the cache with one query ; the history lookups of the identities not found are grouped the same way. The number of database
+ * round trips then grows with the number of windows instead of the number of requests.
+ */
+public final class MissBatchingService
+{
+    private static final String PROPERTY_BATCH_ENABLED = "identitystore.facade.batch.enabled";
+    private static final String PROPERTY_BATCH_WINDOW = "identitystore.facade.batch.window";
+    private static final String PROPERTY_BATCH_SIZE = "identitystore.facade.batch.size";
+    private static final String PROPERTY_BATCH_TIMEOUT = "identitystore.facade.batch.timeout";
+    private static final int DEFAULT_BATCH_WINDOW = 2000;
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final int DEFAULT_BATCH_TIMEOUT = 5000;
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_BATCH_ENABLED, false );
+    private final MicroBatcher<String, Boolean> _identityBatcher;
+    private final MicroBatcher<String, Boolean> _historyBatcher;
+
+    /**
+     * private constructor
+     */
+    private MissBatchingService( )
+    {
+        final int nWindowMicros = AppPropertiesService.getPropertyInt( PROPERTY_BATCH_WINDOW, DEFAULT_BATCH_WINDOW );
+        final int nBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE );
+        final int nTimeoutMillis = AppPropertiesService.getPropertyInt( PROPERTY_BATCH_TIMEOUT, DEFAULT_BATCH_TIMEOUT );
+        _identityBatcher = new MicroBatcher<>( "identities", listCustomerIds -> {
+            FacadeAdapters.getIdentityProvider( ).loadIntoCache( listCustomerIds );
+            return new HashMap<>( );
+        }, nBatchSize, nWindowMicros, nTimeoutMillis );
+        _historyBatcher = new MicroBatcher<>( "histories", listCustomerIds -> {
+            final Set<String> setWithHistory = FacadeAdapters.getIdentityProvider( ).findCustomerIdsWithHistory( listCustomerIds );
+            final Map<String, Boolean> mapHasHistory = new HashMap<>( );
+            for ( final String strCustomerId : listCustomerIds )
+            {
+                mapHasHistory.put( strCustomerId, setWithHistory.contains( strCustomerId ) );
+            }
+            return mapHasHistory;
+        }, nBatchSize, nWindowMicros, nTimeoutMillis );
+    }
+
+    /**
+     * @return the instance
+     */
+    public static MissBatchingService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Load the identity of a customer ID into the cache, with the other misses of the window, if it is cached by this node and not cached yet
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @throws IdentityStoreException
+     *             if the batch cannot be loaded
+     */
+    public void loadIntoCache( final String strCustomerId ) throws IdentityStoreException
+    {
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        if ( _bEnabled && identityProvider.isOwned( strCustomerId ) && !identityProvider.isCached( strCustomerId ) )
+        {
+            _identityBatcher.get( strCustomerId );
+        }
+    }
+
+    /**
+     * Load the identity of a customer ID into the cache if it is cached by this node and not cached yet, with the other misses of the window if the
+     * batching is enabled
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @throws IdentityStoreException
+     *             if the identity cannot be loaded
+     */
+    public void prefetch( final String strCustomerId ) throws IdentityStoreException
+    {
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        if ( _bEnabled )
+        {
+            loadIntoCache( strCustomerId );
+        }
+        else if ( identityProvider.isOwned( strCustomerId ) && !identityProvider.isCached( strCustomerId ) )
+        {
+            identityProvider.loadIntoCache( Collections.singletonList( strCustomerId ) );
+        }
+    }
+
+    /**
+     * Check whether a customer ID has a history, with the other lookups of the window
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @return {@code true} if the customer ID has a history
+     * @throws IdentityStoreException
+     *             if the history cannot be read
+     */
+    public boolean hasHistory( final String strCustomerId ) throws IdentityStoreException
+    {
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        if ( !_bEnabled )
+        {
+            return identityProvider.hasHistory( strCustomerId );
+        }
+        return Boolean.TRUE.equals( _historyBatcher.get( strCustomerId ) );
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final MissBatchingService INSTANCE = new MissBatchingService( );
+    }
+}
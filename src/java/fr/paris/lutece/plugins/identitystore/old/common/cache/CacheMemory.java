@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.cache;
+
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+
+import java.util.Collection;
+
+/**
+ * Rough estimates of the heap used by the cache entries, for the admin API : they assume a 64 bits JVM with compressed references
+ */
+public final class CacheMemory
+{
+    /** Header and fields of a hash map node */
+    public static final long ENTRY_OVERHEAD = 48;
+
+    private static final long STRING_OVERHEAD = 40;
+    private static final long COLLECTION_OVERHEAD = 40;
+    private static final long REFERENCE_SIZE = 4;
+    private static final long DTO_OVERHEAD = 64;
+
+    /**
+     * private constructor
+     */
+    private CacheMemory( )
+    {
+    }
+
+    /**
+     * @param str
+     *            a string
+     * @return the estimated heap used by the string
+     */
+    public static long estimate( final String str )
+    {
+        return str == null ? 0 : STRING_OVERHEAD + 2L * str.length( );
+    }
+
+    /**
+     * @param strings
+     *            a collection of strings
+     * @return the estimated heap used by the collection and its strings
+     */
+    public static long estimate( final Collection<String> strings )
+    {
+        long lSize = COLLECTION_OVERHEAD;
+        for ( final String str : strings )
+        {
+            lSize += REFERENCE_SIZE + estimate( str );
+        }
+        return lSize;
+    }
+
+    /**
+     * @param identity
+     *            an identity
+     * @return the estimated heap used by the identity and its attributes
+     */
+    public static long estimate( final IdentityDto identity )
+    {
+        long lSize = DTO_OVERHEAD + estimate( identity.getCustomerId( ) ) + estimate( identity.getConnectionId( ) );
+        if ( identity.getAttributes( ) != null )
+        {
+            lSize += COLLECTION_OVERHEAD;
+            for ( final AttributeDto attribute : identity.getAttributes( ) )
+            {
+                lSize += REFERENCE_SIZE + DTO_OVERHEAD + estimate( attribute.getKey( ) ) + estimate( attribute.getValue( ) )
+                        + estimate( attribute.getCertifier( ) ) + estimate( attribute.getLastUpdateClientCode( ) );
+            }
+        }
+        return lSize;
+    }
+}
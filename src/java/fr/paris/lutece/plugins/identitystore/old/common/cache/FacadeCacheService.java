@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.cache;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeInvalidation;
+import fr.paris.lutece.plugins.identitystore.old.common.IdentifierIndex;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.FacadeCacheDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.FacadeCacheSettingsDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.FacadeCachesDto;
+import fr.paris.lutece.plugins.identitystore.old.common.invalidation.InvalidationBus;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.PayloadStore;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.StalePayloadService;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registry of the caches used by the v1/v2 facade, inspected and managed at runtime through the facade admin API : an operator can flush or resize a cache
+ * without restarting the node.<br/>
+ * The caches are those of the identity and service contract providers, including the admission cache of the identities, the caches of the client
+ * application correlations and of the client codes read from the JWT, the payload store, the stale payloads and the identifier index.<br/>
+ * The invalidations made through this service are sent to the other nodes of the cluster by the {@link InvalidationBus}, when it is enabled.
+ */
+public final class FacadeCacheService
+{
+    public static final String CACHE_IDENTITY = "identity";
+    public static final String CACHE_SERVICE_CONTRACT = "service_contract";
+    public static final String CACHE_CLIENT_APPLICATION = "client_application";
+    public static final String CACHE_JWT = "jwt";
+    public static final String CACHE_PAYLOAD = "payload";
+    public static final String CACHE_STALE = "stale";
+    public static final String CACHE_IDENTIFIER_INDEX = "identifier_index";
+    public static final String CACHE_PARTITION = "partition";
+    public static final String CACHE_ADMISSION = "admission";
+
+    private static final String PROPERTY_PREFIX_CLIENT_APPLICATION = "identitystore.facade.cache.client.application";
+    private static final String PROPERTY_PREFIX_JWT = "identitystore.facade.cache.jwt";
+    private static final int DEFAULT_CLIENT_APPLICATION_SIZE = 1000;
+    private static final int DEFAULT_CLIENT_APPLICATION_TTL = 60;
+    private static final int DEFAULT_JWT_SIZE = 10000;
+    private static final int DEFAULT_JWT_TTL = 300;
+
+    private final LocalCache<List<String>> _clientApplicationCache = new LocalCache<>( CACHE_CLIENT_APPLICATION, PROPERTY_PREFIX_CLIENT_APPLICATION,
+            DEFAULT_CLIENT_APPLICATION_SIZE, DEFAULT_CLIENT_APPLICATION_TTL, CacheMemory::estimate );
+    private final LocalCache<String> _jwtCache = new LocalCache<>( CACHE_JWT, PROPERTY_PREFIX_JWT, DEFAULT_JWT_SIZE, DEFAULT_JWT_TTL,
+            CacheMemory::estimate );
+
+    /**
+     * private constructor
+     */
+    private FacadeCacheService( )
+    {
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static FacadeCacheService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return the cache of the client codes of the client applications, by application code
+     */
+    public LocalCache<List<String>> getClientApplicationCache( )
+    {
+        return _clientApplicationCache;
+    }
+
+    /**
+     * @return the cache of the client codes read from the JWT, by JWT
+     */
+    public LocalCache<String> getJwtCache( )
+    {
+        return _jwtCache;
+    }
+
+    /**
+     * @return the caches used by the facade
+     */
+    public List<IFacadeCache> getCaches( )
+    {
+        final List<IFacadeCache> listCaches = new ArrayList<>( FacadeAdapters.getIdentityProvider( ).getCaches( ) );
+        listCaches.addAll( FacadeAdapters.getServiceContractProvider( ).getCaches( ) );
+        listCaches.add( _clientApplicationCache );
+        listCaches.add( _jwtCache );
+        listCaches.add( PayloadStore.instance( ) );
+        listCaches.add( StalePayloadService.instance( ).getCache( ) );
+        listCaches.add( IdentifierIndex.instance( ) );
+        return listCaches;
+    }
+
+    /**
+     * @return the state of the caches used by the facade
+     */
+    public FacadeCachesDto getState( )
+    {
+        final FacadeCachesDto state = new FacadeCachesDto( );
+        for ( final IFacadeCache cache : getCaches( ) )
+        {
+            state.getCaches( ).add( cache.getState( ) );
+        }
+        return state;
+    }
+
+    /**
+     * Remove an entry of a cache, or all its entries
+     *
+     * @param strName
+     *            the name of the cache
+     * @param strKey
+     *            the key of the entry, {@code null} to remove all the entries
+     * @return the state of the cache
+     * @throws IdentityStoreException
+     *             if the cache is unknown
+     */
+    public FacadeCacheDto invalidate( final String strName, final String strKey ) throws IdentityStoreException
+    {
+        final IFacadeCache cache = getCache( strName );
+        invalidate( cache, strKey );
+        if ( strKey == null )
+        {
+            AppLogService.info( "Facade cache " + strName + " flushed through the admin API" );
+        }
+        InvalidationBus.send( FacadeInvalidation.ofCache( strName, strKey ) );
+        return cache.getState( );
+    }
+
+    /**
+     * Remove the entries of the service contract of a client from all the caches
+     *
+     * @param strClientCode
+     *            the client code
+     * @return the state of the caches
+     * @throws IdentityStoreException
+     *             if the service contract cannot be read
+     */
+    public FacadeCachesDto invalidateContract( final String strClientCode ) throws IdentityStoreException
+    {
+        invalidateContractEntries( strClientCode );
+        AppLogService.info( "Facade cache entries of the client " + strClientCode + " removed through the admin API" );
+        InvalidationBus.send( FacadeInvalidation.ofContract( strClientCode ) );
+        return getState( );
+    }
+
+    /**
+     * Remove the entries of a changed identity from the caches : the cache of the identity provider, the payload store, the stale payloads and the
+     * identifier index
+     *
+     * @param strCustomerId
+     *            the customer ID
+     */
+    public void invalidateIdentity( final String strCustomerId )
+    {
+        invalidateIdentityEntries( strCustomerId );
+        InvalidationBus.send( FacadeInvalidation.ofIdentity( strCustomerId ) );
+    }
+
+    /**
+     * Apply an invalidation received from another node, without sending it again
+     *
+     * @param invalidation
+     *            the invalidation
+     */
+    public void applyInvalidation( final FacadeInvalidation invalidation )
+    {
+        try
+        {
+            switch( invalidation.getType( ) )
+            {
+                case IDENTITY:
+                    invalidateIdentityEntries( invalidation.getCacheKey( ) );
+                    break;
+                case CONTRACT:
+                    invalidateContractEntries( invalidation.getCacheKey( ) );
+                    break;
+                case CACHE:
+                    invalidate( getCache( invalidation.getCacheName( ) ), invalidation.getCacheKey( ) );
+                    break;
+                default:
+                    break;
+            }
+        }
+        catch( final IdentityStoreException e )
+        {
+            AppLogService.error( "Unable to apply the facade cache invalidation of " + invalidation.getNode( ) + " : " + e.getMessage( ) );
+        }
+    }
+
+    /**
+     * Change the settings of a cache
+     *
+     * @param strName
+     *            the name of the cache
+     * @param settings
+     *            the new settings, the settings left empty are unchanged
+     * @return the state of the cache
+     * @throws IdentityStoreException
+     *             if the cache is unknown, or if a setting cannot be changed
+     */
+    public FacadeCacheDto configure( final String strName, final FacadeCacheSettingsDto settings ) throws IdentityStoreException
+    {
+        final IFacadeCache cache = getCache( strName );
+        if ( settings.getMaxSize( ) != null )
+        {
+            cache.resize( settings.getMaxSize( ) );
+        }
+        if ( settings.getTimeToLive( ) != null )
+        {
+            cache.setTimeToLive( settings.getTimeToLive( ) );
+        }
+        AppLogService.info( "Facade cache " + strName + " configured through the admin API : max size " + settings.getMaxSize( ) + ", ttl "
+                + settings.getTimeToLive( ) );
+        return cache.getState( );
+    }
+
+    /**
+     * Remove an entry of a cache, or all its entries
+     *
+     * @param cache
+     *            the cache
+     * @param strKey
+     *            the key of the entry, {@code null} to remove all the entries
+     */
+    private void invalidate( final IFacadeCache cache, final String strKey )
+    {
+        if ( strKey == null )
+        {
+            cache.invalidateAll( );
+        }
+        else
+        {
+            cache.invalidate( strKey );
+        }
+    }
+
+    /**
+     * Remove the entries of the service contract of a client from all the caches of the node
+     *
+     * @param strClientCode
+     *            the client code
+     * @throws IdentityStoreException
+     *             if the service contract cannot be read
+     */
+    private void invalidateContractEntries( final String strClientCode ) throws IdentityStoreException
+    {
+        // read before the invalidation, which removes the contract read from the cache
+        final ServiceContract serviceContract = FacadeAdapters.getServiceContractProvider( ).getActiveServiceContract( strClientCode );
+        for ( final IFacadeCache cache : getCaches( ) )
+        {
+            cache.invalidateContract( serviceContract, strClientCode );
+        }
+    }
+
+    /**
+     * Remove the entries of an identity from the caches of the node
+     *
+     * @param strCustomerId
+     *            the customer ID
+     */
+    private void invalidateIdentityEntries( final String strCustomerId )
+    {
+        FacadeAdapters.getIdentityProvider( ).invalidate( strCustomerId );
+        PayloadStore.instance( ).invalidate( strCustomerId );
+        StalePayloadService.instance( ).invalidate( strCustomerId );
+        IdentifierIndex.instance( ).invalidate( strCustomerId );
+    }
+
+    /**
+     * Get a cache
+     *
+     * @param strName
+     *            the name of the cache
+     * @return the cache
+     * @throws IdentityStoreException
+     *             if the cache is unknown
+     */
+    private IFacadeCache getCache( final String strName ) throws IdentityStoreException
+    {
+        for ( final IFacadeCache cache : getCaches( ) )
+        {
+            if ( cache.getName( ).equals( strName ) )
+            {
+                return cache;
+            }
+        }
+        throw new IdentityStoreException( "Unknown facade cache : " + strName );
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final FacadeCacheService INSTANCE = new FacadeCacheService( );
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.cache;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.FacadeCacheDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+
+/**
+ * Cache used by the facade, inspected and managed at runtime through the facade admin API (see {@link FacadeCacheService})
+ */
+public interface IFacadeCache
+{
+    /**
+     * @return the name of the cache
+     */
+    String getName( );
+
+    /**
+     * @return the state of the cache : size, lookups, evictions, memory estimate and settings
+     */
+    FacadeCacheDto getState( );
+
+    /**
+     * Remove an entry
+     *
+     * @param strKey
+     *            the key of the entry
+     */
+    void invalidate( String strKey );
+
+    /**
+     * Remove the entries of a service contract. The caches whose entries do not depend on the service contract are unchanged.
+     *
+     * @param serviceContract
+     *            the active service contract of the client, {@code null} if there is none
+     * @param strClientCode
+     *            the client code
+     */
+    default void invalidateContract( final ServiceContract serviceContract, final String strClientCode )
+    {
+    }
+
+    /**
+     * Remove all the entries
+     */
+    void invalidateAll( );
+
+    /**
+     * Change the maximum number of entries
+     *
+     * @param nMaxSize
+     *            the maximum number of entries
+     * @throws IdentityStoreException
+     *             if the size of the cache cannot be changed at runtime
+     */
+    default void resize( final int nMaxSize ) throws IdentityStoreException
+    {
+        throw new IdentityStoreException( "The size of the cache " + getName( ) + " cannot be changed at runtime" );
+    }
+
+    /**
+     * Change the time to live of the entries
+     *
+     * @param nSeconds
+     *            the time to live, in seconds
+     * @throws IdentityStoreException
+     *             if the time to live of the cache cannot be changed at runtime
+     */
+    default void setTimeToLive( final int nSeconds ) throws IdentityStoreException
+    {
+        throw new IdentityStoreException( "The time to live of the cache " + getName( ) + " cannot be changed at runtime" );
+    }
+}
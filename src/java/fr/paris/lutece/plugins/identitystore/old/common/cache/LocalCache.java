@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.cache;
+
+import fr.paris.lutece.plugins.identitystore.old.common.dto.FacadeCacheDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache of the facade, whose least recently used entries are evicted, and whose entries expire after a time to live.<br/>
+ * The maximum number of entries and the time to live are read from the <code>&lt;prefix&gt;.size</code> and <code>&lt;prefix&gt;.ttl</code> properties,
+ * and can be changed at runtime through the admin API. A maximum number of entries of 0 disables the cache.
+ *
+ * @param <V>
+ *            the type of the values
+ */
+public class LocalCache<V> implements IFacadeCache
+{
+    private static final String PROPERTY_SUFFIX_SIZE = ".size";
+    private static final String PROPERTY_SUFFIX_TTL = ".ttl";
+
+    private final String _strName;
+    private final ToLongFunction<V> _weigher;
+    private final Map<String, Entry<V>> _mapEntries = new LinkedHashMap<>( 16, 0.75f, true );
+    private final LongAdder _hits = new LongAdder( );
+    private final LongAdder _misses = new LongAdder( );
+    private final LongAdder _evictions = new LongAdder( );
+    private volatile int _nMaxSize;
+    private volatile long _lTtlMillis;
+
+    /**
+     * Constructor
+     *
+     * @param strName
+     *            the name of the cache
+     * @param strPropertyPrefix
+     *            the prefix of the properties of the cache
+     * @param nDefaultMaxSize
+     *            the default maximum number of entries
+     * @param nDefaultTtlSeconds
+     *            the default time to live of the entries, in seconds
+     * @param weigher
+     *            the estimate of the heap used by a value
+     */
+    public LocalCache( final String strName, final String strPropertyPrefix, final int nDefaultMaxSize, final int nDefaultTtlSeconds,
+            final ToLongFunction<V> weigher )
+    {
+        _strName = strName;
+        _weigher = weigher;
+        _nMaxSize = Math.max( 0, AppPropertiesService.getPropertyInt( strPropertyPrefix + PROPERTY_SUFFIX_SIZE, nDefaultMaxSize ) );
+        _lTtlMillis = TimeUnit.SECONDS.toMillis( AppPropertiesService.getPropertyInt( strPropertyPrefix + PROPERTY_SUFFIX_TTL, nDefaultTtlSeconds ) );
+    }
+
+    /**
+     * Get a value, loaded and cached if it is not cached yet. The concurrent lookups of a missing key may load it several times.
+     *
+     * @param strKey
+     *            the key
+     * @param loader
+     *            the loader of the value
+     * @return the value
+     * @throws IdentityStoreException
+     *             if the value cannot be loaded
+     */
+    public V get( final String strKey, final ICacheLoader<V> loader ) throws IdentityStoreException
+    {
+        if ( _nMaxSize <= 0 || strKey == null )
+        {
+            return loader.load( );
+        }
+        final long lNow = System.currentTimeMillis( );
+        synchronized( _mapEntries )
+        {
+            final Entry<V> entry = _mapEntries.get( strKey );
+            if ( entry != null )
+            {
+                if ( entry._lExpirationMillis > lNow )
+                {
+                    _hits.increment( );
+                    return entry._value;
+                }
+                _mapEntries.remove( strKey );
+                _evictions.increment( );
+            }
+        }
+        _misses.increment( );
+        final V value = loader.load( );
+        if ( value != null )
+        {
+            synchronized( _mapEntries )
+            {
+                _mapEntries.put( strKey, new Entry<>( value, lNow + _lTtlMillis ) );
+                evict( _nMaxSize );
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Get a cached value, counted as a lookup of the cache
+     *
+     * @param strKey
+     *            the key
+     * @return the value, or {@code null} if it is not cached or expired
+     */
+    public V getIfPresent( final String strKey )
+    {
+        final V value = peek( strKey );
+        if ( value != null )
+        {
+            _hits.increment( );
+        }
+        else
+        {
+            _misses.increment( );
+        }
+        return value;
+    }
+
+    /**
+     * Get a cached value, not counted as a lookup of the cache
+     *
+     * @param strKey
+     *            the key
+     * @return the value, or {@code null} if it is not cached or expired
+     */
+    public V peek( final String strKey )
+    {
+        if ( _nMaxSize <= 0 || strKey == null )
+        {
+            return null;
+        }
+        synchronized( _mapEntries )
+        {
+            final Entry<V> entry = _mapEntries.get( strKey );
+            if ( entry == null )
+            {
+                return null;
+            }
+            if ( entry._lExpirationMillis <= System.currentTimeMillis( ) )
+            {
+                _mapEntries.remove( strKey );
+                _evictions.increment( );
+                return null;
+            }
+            return entry._value;
+        }
+    }
+
+    /**
+     * Cache a value, replacing the previous one of the key
+     *
+     * @param strKey
+     *            the key
+     * @param value
+     *            the value
+     */
+    public void put( final String strKey, final V value )
+    {
+        if ( _nMaxSize <= 0 || strKey == null || value == null )
+        {
+            return;
+        }
+        synchronized( _mapEntries )
+        {
+            _mapEntries.put( strKey, new Entry<>( value, System.currentTimeMillis( ) + _lTtlMillis ) );
+            evict( _nMaxSize );
+        }
+    }
+
+    /**
+     * @return the time to live of the entries, in milliseconds
+     */
+    public long getTimeToLiveMillis( )
+    {
+        return _lTtlMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FacadeCacheDto getState( )
+    {
+        final FacadeCacheDto state = new FacadeCacheDto( );
+        state.setName( _strName );
+        state.setEnabled( _nMaxSize > 0 );
+        long lMemory = 0;
+        synchronized( _mapEntries )
+        {
+            state.setSize( _mapEntries.size( ) );
+            for ( final Map.Entry<String, Entry<V>> entry : _mapEntries.entrySet( ) )
+            {
+                lMemory += CacheMemory.ENTRY_OVERHEAD + CacheMemory.estimate( entry.getKey( ) ) + _weigher.applyAsLong( entry.getValue( )._value );
+            }
+        }
+        state.setMemoryEstimate( lMemory );
+        state.setMaxSize( _nMaxSize );
+        state.setTimeToLive( TimeUnit.MILLISECONDS.toSeconds( _lTtlMillis ) );
+        final long lHits = _hits.sum( );
+        final long lMisses = _misses.sum( );
+        state.setHits( lHits );
+        state.setMisses( lMisses );
+        state.setHitRatio( lHits + lMisses > 0 ? (double) lHits / ( lHits + lMisses ) : 0 );
+        state.setEvictions( _evictions.sum( ) );
+        state.setResizable( true );
+        state.setTimeToLiveConfigurable( true );
+        return state;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate( final String strKey )
+    {
+        synchronized( _mapEntries )
+        {
+            _mapEntries.remove( strKey );
+        }
+    }
+
+    /**
+     * Remove the entries whose key matches a predicate
+     *
+     * @param keyPredicate
+     *            the predicate on the keys
+     */
+    public void invalidateIf( final Predicate<String> keyPredicate )
+    {
+        synchronized( _mapEntries )
+        {
+            _mapEntries.keySet( ).removeIf( keyPredicate );
+        }
+    }
+
+    /**
+     * Remove the entries whose key and value match a predicate
+     *
+     * @param entryPredicate
+     *            the predicate on the keys and values
+     */
+    public void invalidateIf( final BiPredicate<String, V> entryPredicate )
+    {
+        synchronized( _mapEntries )
+        {
+            _mapEntries.entrySet( ).removeIf( entry -> entryPredicate.test( entry.getKey( ), entry.getValue( )._value ) );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidateAll( )
+    {
+        synchronized( _mapEntries )
+        {
+            _mapEntries.clear( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The least recently used entries over the new size are evicted at once.
+     */
+    @Override
+    public void resize( final int nMaxSize ) throws IdentityStoreException
+    {
+        if ( nMaxSize < 0 )
+        {
+            throw new IdentityStoreException( "Invalid size of the cache " + _strName + " : " + nMaxSize );
+        }
+        synchronized( _mapEntries )
+        {
+            _nMaxSize = nMaxSize;
+            evict( nMaxSize );
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The entries already cached keep their expiration time.
+     */
+    @Override
+    public void setTimeToLive( final int nSeconds ) throws IdentityStoreException
+    {
+        if ( nSeconds <= 0 )
+        {
+            throw new IdentityStoreException( "Invalid time to live of the cache " + _strName + " : " + nSeconds );
+        }
+        _lTtlMillis = TimeUnit.SECONDS.toMillis( nSeconds );
+    }
+
+    /**
+     * Evict the least recently used entries over a size. The lock of the entries is held.
+     *
+     * @param nMaxSize
+     *            the size
+     */
+    private void evict( final int nMaxSize )
+    {
+        final Iterator<Entry<V>> iterator = _mapEntries.values( ).iterator( );
+        while ( _mapEntries.size( ) > nMaxSize && iterator.hasNext( ) )
+        {
+            iterator.next( );
+            iterator.remove( );
+            _evictions.increment( );
+        }
+    }
+
+    /**
+     * Cached value
+     *
+     * @param <V>
+     *            the type of the value
+     */
+    private static final class Entry<V>
+    {
+        private final V _value;
+        private final long _lExpirationMillis;
+
+        /**
+         * Constructor
+         *
+         * @param value
+         *            the value
+         * @param lExpirationMillis
+         *            the expiration time of the value
+         */
+        private Entry( final V value, final long lExpirationMillis )
+        {
+            _value = value;
+            _lExpirationMillis = lExpirationMillis;
+        }
+    }
+}
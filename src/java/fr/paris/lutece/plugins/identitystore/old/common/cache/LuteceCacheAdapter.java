@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.FacadeCacheDto;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Facade view of a Lutece cache.<br/>
+ * The size and time to live of a Lutece cache are set by the Lutece cache configuration. Its lookups and evictions are read from the JSR-107 statistics
+ * of the cache, registered as an MBean when the statistics are enabled in the Lutece cache configuration, so that they cost nothing on the read path.
+ * Its memory is estimated from the JSON size of a sample of its entries.
+ */
+public class LuteceCacheAdapter implements IFacadeCache
+{
+    private static final int MEMORY_SAMPLE_SIZE = 32;
+    // the heap of the deserialized objects over their JSON length, the JSON characters being mostly ASCII
+    private static final int MEMORY_JSON_RATIO = 3;
+    private static final long UNKNOWN = -1;
+    private static final String JCACHE_STATISTICS = "javax.cache:type=CacheStatistics,*";
+    private static final String JCACHE_KEY_CACHE = "Cache";
+    private static final String JCACHE_HITS = "CacheHits";
+    private static final String JCACHE_MISSES = "CacheMisses";
+    private static final String JCACHE_EVICTIONS = "CacheEvictions";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper( );
+
+    private final String _strName;
+    private final AbstractCacheableService _cache;
+    private final boolean _bKeyedByClientCode;
+
+    /**
+     * Constructor
+     *
+     * @param strName
+     *            the name of the cache in the facade
+     * @param cache
+     *            the Lutece cache
+     * @param bKeyedByClientCode
+     *            {@code true} if the entries are keyed by client code, and removed with the service contract of the client
+     */
+    public LuteceCacheAdapter( final String strName, final AbstractCacheableService cache, final boolean bKeyedByClientCode )
+    {
+        _strName = strName;
+        _cache = cache;
+        _bKeyedByClientCode = bKeyedByClientCode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FacadeCacheDto getState( )
+    {
+        final FacadeCacheDto state = new FacadeCacheDto( );
+        state.setName( _strName );
+        state.setEnabled( _cache.isCacheEnable( ) );
+        state.setSize( _cache.getCacheSize( ) );
+        state.setMaxSize( UNKNOWN );
+        state.setTimeToLive( UNKNOWN );
+        state.setHits( UNKNOWN );
+        state.setMisses( UNKNOWN );
+        state.setHitRatio( UNKNOWN );
+        state.setEvictions( UNKNOWN );
+        final ObjectName statistics = findStatistics( );
+        if ( statistics != null )
+        {
+            try
+            {
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer( );
+                final long lHits = ( (Number) server.getAttribute( statistics, JCACHE_HITS ) ).longValue( );
+                final long lMisses = ( (Number) server.getAttribute( statistics, JCACHE_MISSES ) ).longValue( );
+                state.setHits( lHits );
+                state.setMisses( lMisses );
+                state.setHitRatio( lHits + lMisses > 0 ? (double) lHits / ( lHits + lMisses ) : 0 );
+                state.setEvictions( ( (Number) server.getAttribute( statistics, JCACHE_EVICTIONS ) ).longValue( ) );
+            }
+            catch( JMException e )
+            {
+                AppLogService.debug( "The statistics of the cache " + _strName + " cannot be read : " + e.getMessage( ) );
+            }
+        }
+        state.setMemoryEstimate( estimateMemory( ) );
+        return state;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate( final String strKey )
+    {
+        _cache.removeKey( strKey );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidateContract( final ServiceContract serviceContract, final String strClientCode )
+    {
+        if ( _bKeyedByClientCode )
+        {
+            _cache.removeKey( strClientCode );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidateAll( )
+    {
+        _cache.resetCache( );
+    }
+
+    /**
+     * Find the JSR-107 statistics MBean of the cache, whose name holds the name of the cache with the characters reserved by JMX replaced by dots
+     *
+     * @return the name of the MBean, {@code null} if the statistics of the cache are not enabled
+     */
+    private ObjectName findStatistics( )
+    {
+        final String strCacheName = _cache.getName( ).replaceAll( "[,:=\\n]", "." );
+        try
+        {
+            for ( final ObjectName name : ManagementFactory.getPlatformMBeanServer( ).queryNames( new ObjectName( JCACHE_STATISTICS ), null ) )
+            {
+                if ( strCacheName.equals( name.getKeyProperty( JCACHE_KEY_CACHE ) ) )
+                {
+                    return name;
+                }
+            }
+        }
+        catch( MalformedObjectNameException e )
+        {
+            AppLogService.error( "Invalid cache statistics query", e );
+        }
+        return null;
+    }
+
+    /**
+     * Estimate the memory of the cache from a sample of its entries
+     *
+     * @return the estimated memory, in bytes, -1 if the entries cannot be serialized
+     */
+    private long estimateMemory( )
+    {
+        if ( !_cache.isCacheEnable( ) )
+        {
+            return 0;
+        }
+        final List<String> listKeys = _cache.getKeys( );
+        if ( listKeys == null || listKeys.isEmpty( ) )
+        {
+            return 0;
+        }
+        final int nStep = Math.max( 1, listKeys.size( ) / MEMORY_SAMPLE_SIZE );
+        long lSampleMemory = 0;
+        int nSampleSize = 0;
+        try
+        {
+            for ( int i = 0; i < listKeys.size( ) && nSampleSize < MEMORY_SAMPLE_SIZE; i += nStep )
+            {
+                final Object value = _cache.getFromCache( listKeys.get( i ) );
+                if ( value != null )
+                {
+                    lSampleMemory += CacheMemory.ENTRY_OVERHEAD + CacheMemory.estimate( listKeys.get( i ) )
+                            + (long) MEMORY_JSON_RATIO * MAPPER.writeValueAsBytes( value ).length;
+                    nSampleSize++;
+                }
+            }
+        }
+        catch( JsonProcessingException e )
+        {
+            AppLogService.debug( "The entries of the cache " + _strName + " cannot be serialized to estimate its memory : " + e.getMessage( ) );
+            return UNKNOWN;
+        }
+        return nSampleSize == 0 ? 0 : lSampleMemory * listKeys.size( ) / nSampleSize;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.deadline;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.identitystore.old.common.DeadlineExceededException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Deadline of a request, i.e. the time after which its client no longer waits for the response.<br/>
+ * The deadline is given by the client as a timeout header, or else is the default timeout of its service contract, or else the default timeout of the
+ * facade. The deadline is bound to the thread serving the request, and each stage of the request checks it before starting : a request whose deadline is
+ * exceeded is aborted, instead of loading and serializing an identity nobody waits for.
+ */
+public final class RequestDeadline implements AutoCloseable
+{
+    private static final String PROPERTY_DEADLINE_DEFAULT = "identitystore.facade.deadline.default";
+    private static final String PROPERTY_PREFIX_DEADLINE_CLIENT = "identitystore.facade.deadline.client.";
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>( );
+
+    private final long _lStartNanos = System.nanoTime( );
+    private final boolean _bGivenByClient;
+    private volatile long _lTimeoutNanos;
+
+    /**
+     * Constructor
+     *
+     * @param lTimeoutMillis
+     *            the timeout of the request, in milliseconds, 0 for none
+     * @param bGivenByClient
+     *            true if the timeout is given by the client
+     */
+    private RequestDeadline( final long lTimeoutMillis, final boolean bGivenByClient )
+    {
+        _lTimeoutNanos = TimeUnit.MILLISECONDS.toNanos( lTimeoutMillis );
+        _bGivenByClient = bGivenByClient;
+    }
+
+    /**
+     * Start the deadline of the request served by the current thread. The deadline must be closed at the end of the request.
+     *
+     * @param strTimeout
+     *            the timeout header of the request, in milliseconds, possibly {@code null}
+     * @return the deadline
+     */
+    public static RequestDeadline start( final String strTimeout )
+    {
+        long lTimeoutMillis = 0;
+        if ( StringUtils.isNotBlank( strTimeout ) )
+        {
+            try
+            {
+                lTimeoutMillis = Long.parseLong( strTimeout.trim( ) );
+            }
+            catch( NumberFormatException e )
+            {
+                AppLogService.debug( "Invalid request timeout ignored : " + strTimeout );
+            }
+        }
+        final RequestDeadline deadline = lTimeoutMillis > 0 ? new RequestDeadline( lTimeoutMillis, true )
+                : new RequestDeadline( Math.max( 0, AppPropertiesService.getPropertyInt( PROPERTY_DEADLINE_DEFAULT, 0 ) ), false );
+        CURRENT.set( deadline );
+        return deadline;
+    }
+
+    /**
+     * Create a deadline bound to no thread, for a part of a request which goes on once the client no longer waits for it, such as the refresh of a stale
+     * payload. The part is bound to it with {@link #attach(RequestDeadline)}.
+     *
+     * @param lTimeoutMillis
+     *            the timeout of the part, in milliseconds from now, 0 for none
+     * @return the deadline
+     */
+    public static RequestDeadline of( final long lTimeoutMillis )
+    {
+        return new RequestDeadline( Math.max( 0, lTimeoutMillis ), false );
+    }
+
+    /**
+     * @return the deadline of the request served by the current thread, or {@code null} if there is none
+     */
+    public static RequestDeadline current( )
+    {
+        return CURRENT.get( );
+    }
+
+    /**
+     * Bind the deadline of a request to the current thread, which serves a part of the request. The deadline must be detached at the end of the part.
+     *
+     * @param deadline
+     *            the deadline, possibly {@code null}
+     */
+    public static void attach( final RequestDeadline deadline )
+    {
+        if ( deadline != null )
+        {
+            CURRENT.set( deadline );
+        }
+    }
+
+    /**
+     * Unbind the deadline of the current thread
+     */
+    public static void detach( )
+    {
+        CURRENT.remove( );
+    }
+
+    /**
+     * Check that the deadline of the request served by the current thread, if any, is not exceeded before starting a stage of the request
+     *
+     * @param strStage
+     *            the stage
+     * @throws DeadlineExceededException
+     *             if the deadline is exceeded
+     */
+    public static void check( final String strStage ) throws DeadlineExceededException
+    {
+        final RequestDeadline deadline = CURRENT.get( );
+        if ( deadline != null && deadline.isExceeded( ) )
+        {
+            throw new DeadlineExceededException( strStage );
+        }
+    }
+
+    /**
+     * Reduce a wait to the time left before the deadline of the request served by the current thread
+     *
+     * @param lTimeoutMillis
+     *            the maximum wait, in milliseconds
+     * @return the wait, in milliseconds
+     */
+    public static long capTimeout( final long lTimeoutMillis )
+    {
+        final RequestDeadline deadline = CURRENT.get( );
+        return deadline != null ? Math.min( lTimeoutMillis, deadline.getRemainingMillis( ) ) : lTimeoutMillis;
+    }
+
+    /**
+     * Apply the default timeout of the service contract of the client, unless the client gave its own timeout. The timeout runs from the start of the
+     * request.
+     *
+     * @param strClientCode
+     *            the trusted client code
+     */
+    public void applyClientDefault( final String strClientCode )
+    {
+        if ( !_bGivenByClient && StringUtils.isNotBlank( strClientCode ) )
+        {
+            final int nTimeoutMillis = AppPropertiesService.getPropertyInt( PROPERTY_PREFIX_DEADLINE_CLIENT + strClientCode, 0 );
+            if ( nTimeoutMillis > 0 )
+            {
+                _lTimeoutNanos = TimeUnit.MILLISECONDS.toNanos( nTimeoutMillis );
+            }
+        }
+    }
+
+    /**
+     * @return true if the request has a deadline
+     */
+    public boolean isBounded( )
+    {
+        return _lTimeoutNanos > 0;
+    }
+
+    /**
+     * @return true if the deadline is exceeded
+     */
+    public boolean isExceeded( )
+    {
+        return isBounded( ) && System.nanoTime( ) - _lStartNanos >= _lTimeoutNanos;
+    }
+
+    /**
+     * @return the time left before the deadline, in milliseconds, {@link Long#MAX_VALUE} if the request has no deadline
+     */
+    public long getRemainingMillis( )
+    {
+        if ( !isBounded( ) )
+        {
+            return Long.MAX_VALUE;
+        }
+        return Math.max( 0, TimeUnit.NANOSECONDS.toMillis( _lTimeoutNanos - ( System.nanoTime( ) - _lStartNanos ) ) );
+    }
+
+    /**
+     * Unbind the deadline from the current thread, at the end of the request
+     */
+    @Override
+    public void close( )
+    {
+        CURRENT.remove( );
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Usage of the admission cache of the identities by a service contract
+ */
+@JsonPropertyOrder( {
+        "client_code", "quota", "size", "memory", "hits", "misses", "admitted", "rejected", "evictions", "quota_evictions"
+} )
+public class AdmissionContractDto
+{
+    private String _strClientCode;
+    private long _lQuota;
+    private long _lSize;
+    private long _lMemory;
+    private long _lHits;
+    private long _lMisses;
+    private long _lAdmitted;
+    private long _lRejected;
+    private long _lEvictions;
+    private long _lQuotaEvictions;
+
+    /**
+     * @return the client code of the service contract
+     */
+    @JsonProperty( "client_code" )
+    public String getClientCode( )
+    {
+        return _strClientCode;
+    }
+
+    /**
+     * @param strClientCode
+     *            the client code of the service contract
+     */
+    @JsonProperty( "client_code" )
+    public void setClientCode( final String strClientCode )
+    {
+        _strClientCode = strClientCode;
+    }
+
+    /**
+     * @return the memory quota of the service contract, in bytes, 0 if it is only bounded by the memory of the cache
+     */
+    @JsonProperty( "quota" )
+    public long getQuota( )
+    {
+        return _lQuota;
+    }
+
+    /**
+     * @param lQuota
+     *            the memory quota of the service contract, in bytes, 0 if it is only bounded by the memory of the cache
+     */
+    @JsonProperty( "quota" )
+    public void setQuota( final long lQuota )
+    {
+        _lQuota = lQuota;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    @JsonProperty( "size" )
+    public long getSize( )
+    {
+        return _lSize;
+    }
+
+    /**
+     * @param lSize
+     *            the number of entries
+     */
+    @JsonProperty( "size" )
+    public void setSize( final long lSize )
+    {
+        _lSize = lSize;
+    }
+
+    /**
+     * @return the estimated memory of the entries, in bytes
+     */
+    @JsonProperty( "memory" )
+    public long getMemory( )
+    {
+        return _lMemory;
+    }
+
+    /**
+     * @param lMemory
+     *            the estimated memory of the entries, in bytes
+     */
+    @JsonProperty( "memory" )
+    public void setMemory( final long lMemory )
+    {
+        _lMemory = lMemory;
+    }
+
+    /**
+     * @return the number of lookups which found the entry
+     */
+    @JsonProperty( "hits" )
+    public long getHits( )
+    {
+        return _lHits;
+    }
+
+    /**
+     * @param lHits
+     *            the number of lookups which found the entry
+     */
+    @JsonProperty( "hits" )
+    public void setHits( final long lHits )
+    {
+        _lHits = lHits;
+    }
+
+    /**
+     * @return the number of lookups which did not find the entry
+     */
+    @JsonProperty( "misses" )
+    public long getMisses( )
+    {
+        return _lMisses;
+    }
+
+    /**
+     * @param lMisses
+     *            the number of lookups which did not find the entry
+     */
+    @JsonProperty( "misses" )
+    public void setMisses( final long lMisses )
+    {
+        _lMisses = lMisses;
+    }
+
+    /**
+     * @return the number of entries admitted from the window into the main space
+     */
+    @JsonProperty( "admitted" )
+    public long getAdmitted( )
+    {
+        return _lAdmitted;
+    }
+
+    /**
+     * @param lAdmitted
+     *            the number of entries admitted from the window into the main space
+     */
+    @JsonProperty( "admitted" )
+    public void setAdmitted( final long lAdmitted )
+    {
+        _lAdmitted = lAdmitted;
+    }
+
+    /**
+     * @return the number of entries not admitted, less frequently requested than their victim or larger than the quota
+     */
+    @JsonProperty( "rejected" )
+    public long getRejected( )
+    {
+        return _lRejected;
+    }
+
+    /**
+     * @param lRejected
+     *            the number of entries not admitted, less frequently requested than their victim or larger than the quota
+     */
+    @JsonProperty( "rejected" )
+    public void setRejected( final long lRejected )
+    {
+        _lRejected = lRejected;
+    }
+
+    /**
+     * @return the number of entries evicted from the main space by more frequently requested entries
+     */
+    @JsonProperty( "evictions" )
+    public long getEvictions( )
+    {
+        return _lEvictions;
+    }
+
+    /**
+     * @param lEvictions
+     *            the number of entries evicted from the main space by more frequently requested entries
+     */
+    @JsonProperty( "evictions" )
+    public void setEvictions( final long lEvictions )
+    {
+        _lEvictions = lEvictions;
+    }
+
+    /**
+     * @return the number of entries evicted by the quota of their service contract
+     */
+    @JsonProperty( "quota_evictions" )
+    public long getQuotaEvictions( )
+    {
+        return _lQuotaEvictions;
+    }
+
+    /**
+     * @param lQuotaEvictions
+     *            the number of entries evicted by the quota of their service contract
+     */
+    @JsonProperty( "quota_evictions" )
+    public void setQuotaEvictions( final long lQuotaEvictions )
+    {
+        _lQuotaEvictions = lQuotaEvictions;
+    }
+}
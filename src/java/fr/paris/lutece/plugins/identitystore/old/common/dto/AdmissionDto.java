@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of the admission cache of the identities
+ */
+@JsonRootName( "admission" )
+@JsonPropertyOrder( {
+        "max_memory", "window_max_memory", "protected_max_memory", "size", "memory", "window_memory", "probation_memory", "protected_memory", "hits",
+        "misses", "admitted", "rejected", "evictions", "quota_evictions", "expirations", "sketch_resets", "contracts"
+} )
+public class AdmissionDto
+{
+    private long _lMaxMemory;
+    private long _lWindowMaxMemory;
+    private long _lProtectedMaxMemory;
+    private long _lSize;
+    private long _lMemory;
+    private long _lWindowMemory;
+    private long _lProbationMemory;
+    private long _lProtectedMemory;
+    private long _lHits;
+    private long _lMisses;
+    private long _lAdmitted;
+    private long _lRejected;
+    private long _lEvictions;
+    private long _lQuotaEvictions;
+    private long _lExpirations;
+    private long _lSketchResets;
+    private List<AdmissionContractDto> _listContracts = new ArrayList<>( );
+
+    /**
+     * @return the maximum memory of the entries, in bytes
+     */
+    @JsonProperty( "max_memory" )
+    public long getMaxMemory( )
+    {
+        return _lMaxMemory;
+    }
+
+    /**
+     * @param lMaxMemory
+     *            the maximum memory of the entries, in bytes
+     */
+    @JsonProperty( "max_memory" )
+    public void setMaxMemory( final long lMaxMemory )
+    {
+        _lMaxMemory = lMaxMemory;
+    }
+
+    /**
+     * @return the maximum memory of the window, in bytes
+     */
+    @JsonProperty( "window_max_memory" )
+    public long getWindowMaxMemory( )
+    {
+        return _lWindowMaxMemory;
+    }
+
+    /**
+     * @param lWindowMaxMemory
+     *            the maximum memory of the window, in bytes
+     */
+    @JsonProperty( "window_max_memory" )
+    public void setWindowMaxMemory( final long lWindowMaxMemory )
+    {
+        _lWindowMaxMemory = lWindowMaxMemory;
+    }
+
+    /**
+     * @return the maximum memory of the protected segment, in bytes
+     */
+    @JsonProperty( "protected_max_memory" )
+    public long getProtectedMaxMemory( )
+    {
+        return _lProtectedMaxMemory;
+    }
+
+    /**
+     * @param lProtectedMaxMemory
+     *            the maximum memory of the protected segment, in bytes
+     */
+    @JsonProperty( "protected_max_memory" )
+    public void setProtectedMaxMemory( final long lProtectedMaxMemory )
+    {
+        _lProtectedMaxMemory = lProtectedMaxMemory;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    @JsonProperty( "size" )
+    public long getSize( )
+    {
+        return _lSize;
+    }
+
+    /**
+     * @param lSize
+     *            the number of entries
+     */
+    @JsonProperty( "size" )
+    public void setSize( final long lSize )
+    {
+        _lSize = lSize;
+    }
+
+    /**
+     * @return the estimated memory of the entries, in bytes
+     */
+    @JsonProperty( "memory" )
+    public long getMemory( )
+    {
+        return _lMemory;
+    }
+
+    /**
+     * @param lMemory
+     *            the estimated memory of the entries, in bytes
+     */
+    @JsonProperty( "memory" )
+    public void setMemory( final long lMemory )
+    {
+        _lMemory = lMemory;
+    }
+
+    /**
+     * @return the estimated memory of the entries of the window, in bytes
+     */
+    @JsonProperty( "window_memory" )
+    public long getWindowMemory( )
+    {
+        return _lWindowMemory;
+    }
+
+    /**
+     * @param lWindowMemory
+     *            the estimated memory of the entries of the window, in bytes
+     */
+    @JsonProperty( "window_memory" )
+    public void setWindowMemory( final long lWindowMemory )
+    {
+        _lWindowMemory = lWindowMemory;
+    }
+
+    /**
+     * @return the estimated memory of the entries of the probation segment, in bytes
+     */
+    @JsonProperty( "probation_memory" )
+    public long getProbationMemory( )
+    {
+        return _lProbationMemory;
+    }
+
+    /**
+     * @param lProbationMemory
+     *            the estimated memory of the entries of the probation segment, in bytes
+     */
+    @JsonProperty( "probation_memory" )
+    public void setProbationMemory( final long lProbationMemory )
+    {
+        _lProbationMemory = lProbationMemory;
+    }
+
+    /**
+     * @return the estimated memory of the entries of the protected segment, in bytes
+     */
+    @JsonProperty( "protected_memory" )
+    public long getProtectedMemory( )
+    {
+        return _lProtectedMemory;
+    }
+
+    /**
+     * @param lProtectedMemory
+     *            the estimated memory of the entries of the protected segment, in bytes
+     */
+    @JsonProperty( "protected_memory" )
+    public void setProtectedMemory( final long lProtectedMemory )
+    {
+        _lProtectedMemory = lProtectedMemory;
+    }
+
+    /**
+     * @return the number of lookups which found the entry
+     */
+    @JsonProperty( "hits" )
+    public long getHits( )
+    {
+        return _lHits;
+    }
+
+    /**
+     * @param lHits
+     *            the number of lookups which found the entry
+     */
+    @JsonProperty( "hits" )
+    public void setHits( final long lHits )
+    {
+        _lHits = lHits;
+    }
+
+    /**
+     * @return the number of lookups which did not find the entry
+     */
+    @JsonProperty( "misses" )
+    public long getMisses( )
+    {
+        return _lMisses;
+    }
+
+    /**
+     * @param lMisses
+     *            the number of lookups which did not find the entry
+     */
+    @JsonProperty( "misses" )
+    public void setMisses( final long lMisses )
+    {
+        _lMisses = lMisses;
+    }
+
+    /**
+     * @return the number of entries admitted from the window into the main space
+     */
+    @JsonProperty( "admitted" )
+    public long getAdmitted( )
+    {
+        return _lAdmitted;
+    }
+
+    /**
+     * @param lAdmitted
+     *            the number of entries admitted from the window into the main space
+     */
+    @JsonProperty( "admitted" )
+    public void setAdmitted( final long lAdmitted )
+    {
+        _lAdmitted = lAdmitted;
+    }
+
+    /**
+     * @return the number of entries not admitted, less frequently requested than their victim or larger than the quota
+     */
+    @JsonProperty( "rejected" )
+    public long getRejected( )
+    {
+        return _lRejected;
+    }
+
+    /**
+     * @param lRejected
+     *            the number of entries not admitted, less frequently requested than their victim or larger than the quota
+     */
+    @JsonProperty( "rejected" )
+    public void setRejected( final long lRejected )
+    {
+        _lRejected = lRejected;
+    }
+
+    /**
+     * @return the number of entries evicted from the main space by more frequently requested entries
+     */
+    @JsonProperty( "evictions" )
+    public long getEvictions( )
+    {
+        return _lEvictions;
+    }
+
+    /**
+     * @param lEvictions
+     *            the number of entries evicted from the main space by more frequently requested entries
+     */
+    @JsonProperty( "evictions" )
+    public void setEvictions( final long lEvictions )
+    {
+        _lEvictions = lEvictions;
+    }
+
+    /**
+     * @return the number of entries evicted by the quota of their service contract
+     */
+    @JsonProperty( "quota_evictions" )
+    public long getQuotaEvictions( )
+    {
+        return _lQuotaEvictions;
+    }
+
+    /**
+     * @param lQuotaEvictions
+     *            the number of entries evicted by the quota of their service contract
+     */
+    @JsonProperty( "quota_evictions" )
+    public void setQuotaEvictions( final long lQuotaEvictions )
+    {
+        _lQuotaEvictions = lQuotaEvictions;
+    }
+
+    /**
+     * @return the number of entries removed after their time to live
+     */
+    @JsonProperty( "expirations" )
+    public long getExpirations( )
+    {
+        return _lExpirations;
+    }
+
+    /**
+     * @param lExpirations
+     *            the number of entries removed after their time to live
+     */
+    @JsonProperty( "expirations" )
+    public void setExpirations( final long lExpirations )
+    {
+        _lExpirations = lExpirations;
+    }
+
+    /**
+     * @return the number of times the frequencies were halved
+     */
+    @JsonProperty( "sketch_resets" )
+    public long getSketchResets( )
+    {
+        return _lSketchResets;
+    }
+
+    /**
+     * @param lSketchResets
+     *            the number of times the frequencies were halved
+     */
+    @JsonProperty( "sketch_resets" )
+    public void setSketchResets( final long lSketchResets )
+    {
+        _lSketchResets = lSketchResets;
+    }
+
+    /**
+     * @return the usage of the cache by each service contract
+     */
+    @JsonProperty( "contracts" )
+    public List<AdmissionContractDto> getContracts( )
+    {
+        return _listContracts;
+    }
+
+    /**
+     * @param listContracts
+     *            the usage of the cache by each service contract
+     */
+    @JsonProperty( "contracts" )
+    public void setContracts( final List<AdmissionContractDto> listContracts )
+    {
+        _listContracts = listContracts;
+    }
+}
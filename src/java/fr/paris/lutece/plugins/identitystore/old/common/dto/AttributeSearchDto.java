@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attribute search request of a v1/v2 client
+ */
+@JsonRootName( "search" )
+public class AttributeSearchDto
+{
+    private Map<String, String> _mapAttributes = new HashMap<>( );
+    private int _nLimit;
+    private List<String> _listProjection = new ArrayList<>( );
+
+    /**
+     * @return the searched values, by attribute key
+     */
+    @JsonProperty( "attributes" )
+    public Map<String, String> getAttributes( )
+    {
+        return _mapAttributes;
+    }
+
+    /**
+     * @param mapAttributes
+     *            the searched values, by attribute key
+     */
+    @JsonProperty( "attributes" )
+    public void setAttributes( final Map<String, String> mapAttributes )
+    {
+        _mapAttributes = mapAttributes;
+    }
+
+    /**
+     * @return the maximum number of identities, 0 for the maximum allowed
+     */
+    @JsonProperty( "limit" )
+    public int getLimit( )
+    {
+        return _nLimit;
+    }
+
+    /**
+     * @param nLimit
+     *            the maximum number of identities, 0 for the maximum allowed
+     */
+    @JsonProperty( "limit" )
+    public void setLimit( final int nLimit )
+    {
+        _nLimit = nLimit;
+    }
+
+    /**
+     * @return the keys of the attributes to return, empty to return all the attributes readable by the client
+     */
+    @JsonProperty( "projection" )
+    public List<String> getProjection( )
+    {
+        return _listProjection;
+    }
+
+    /**
+     * @param listProjection
+     *            the keys of the attributes to return, empty to return all the attributes readable by the client
+     */
+    @JsonProperty( "projection" )
+    public void setProjection( final List<String> listProjection )
+    {
+        _listProjection = listProjection;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * State of a bulkhead of the facade
+ */
+@JsonPropertyOrder( {
+        "client_class", "permits", "available_permits", "in_flight", "waiting", "under_pressure", "accepted", "rejected", "yielded"
+} )
+public class BulkheadDto
+{
+    private String _strClientClass;
+    private int _nPermits;
+    private int _nAvailablePermits;
+    private int _nInFlight;
+    private int _nWaiting;
+    private boolean _bUnderPressure;
+    private long _lAccepted;
+    private long _lRejected;
+    private long _lYielded;
+
+    /**
+     * @return the class of the clients of the bulkhead
+     */
+    @JsonProperty( "client_class" )
+    public String getClientClass( )
+    {
+        return _strClientClass;
+    }
+
+    /**
+     * @param strClientClass
+     *            the class of the clients of the bulkhead
+     */
+    @JsonProperty( "client_class" )
+    public void setClientClass( final String strClientClass )
+    {
+        _strClientClass = strClientClass;
+    }
+
+    /**
+     * @return the number of permits
+     */
+    @JsonProperty( "permits" )
+    public int getPermits( )
+    {
+        return _nPermits;
+    }
+
+    /**
+     * @param nPermits
+     *            the number of permits
+     */
+    @JsonProperty( "permits" )
+    public void setPermits( final int nPermits )
+    {
+        _nPermits = nPermits;
+    }
+
+    /**
+     * @return the number of permits granted, reduced while a bulkhead of higher priority is under pressure
+     */
+    @JsonProperty( "available_permits" )
+    public int getAvailablePermits( )
+    {
+        return _nAvailablePermits;
+    }
+
+    /**
+     * @param nAvailablePermits
+     *            the number of permits granted, reduced while a bulkhead of higher priority is under pressure
+     */
+    @JsonProperty( "available_permits" )
+    public void setAvailablePermits( final int nAvailablePermits )
+    {
+        _nAvailablePermits = nAvailablePermits;
+    }
+
+    /**
+     * @return the number of requests holding a permit
+     */
+    @JsonProperty( "in_flight" )
+    public int getInFlight( )
+    {
+        return _nInFlight;
+    }
+
+    /**
+     * @param nInFlight
+     *            the number of requests holding a permit
+     */
+    @JsonProperty( "in_flight" )
+    public void setInFlight( final int nInFlight )
+    {
+        _nInFlight = nInFlight;
+    }
+
+    /**
+     * @return the number of requests waiting for a permit
+     */
+    @JsonProperty( "waiting" )
+    public int getWaiting( )
+    {
+        return _nWaiting;
+    }
+
+    /**
+     * @param nWaiting
+     *            the number of requests waiting for a permit
+     */
+    @JsonProperty( "waiting" )
+    public void setWaiting( final int nWaiting )
+    {
+        _nWaiting = nWaiting;
+    }
+
+    /**
+     * @return {@code true} if the bulkhead has waiting requests or most of its permits in use
+     */
+    @JsonProperty( "under_pressure" )
+    public boolean isUnderPressure( )
+    {
+        return _bUnderPressure;
+    }
+
+    /**
+     * @param bUnderPressure
+     *            {@code true} if the bulkhead has waiting requests or most of its permits in use
+     */
+    @JsonProperty( "under_pressure" )
+    public void setUnderPressure( final boolean bUnderPressure )
+    {
+        _bUnderPressure = bUnderPressure;
+    }
+
+    /**
+     * @return the number of accepted requests
+     */
+    @JsonProperty( "accepted" )
+    public long getAccepted( )
+    {
+        return _lAccepted;
+    }
+
+    /**
+     * @param lAccepted
+     *            the number of accepted requests
+     */
+    @JsonProperty( "accepted" )
+    public void setAccepted( final long lAccepted )
+    {
+        _lAccepted = lAccepted;
+    }
+
+    /**
+     * @return the number of rejected requests
+     */
+    @JsonProperty( "rejected" )
+    public long getRejected( )
+    {
+        return _lRejected;
+    }
+
+    /**
+     * @param lRejected
+     *            the number of rejected requests
+     */
+    @JsonProperty( "rejected" )
+    public void setRejected( final long lRejected )
+    {
+        _lRejected = lRejected;
+    }
+
+    /**
+     * @return the number of requests rejected while yielding to a bulkhead of higher priority
+     */
+    @JsonProperty( "yielded" )
+    public long getYielded( )
+    {
+        return _lYielded;
+    }
+
+    /**
+     * @param lYielded
+     *            the number of requests rejected while yielding to a bulkhead of higher priority
+     */
+    @JsonProperty( "yielded" )
+    public void setYielded( final long lYielded )
+    {
+        _lYielded = lYielded;
+    }
+}
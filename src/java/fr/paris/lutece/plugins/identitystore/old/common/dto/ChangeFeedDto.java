@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page of the change feed
+ */
+@JsonRootName( "change_feed" )
+@JsonPropertyOrder( {
+        "cursor", "changes"
+} )
+public class ChangeFeedDto
+{
+    private String _strCursor;
+    private List<IdentityChangeDto> _listChanges = new ArrayList<>( );
+
+    /**
+     * @return the cursor to pass as <code>since</code> to get the following changes
+     */
+    @JsonProperty( "cursor" )
+    public String getCursor( )
+    {
+        return _strCursor;
+    }
+
+    /**
+     * @param strCursor
+     *            the cursor
+     */
+    @JsonProperty( "cursor" )
+    public void setCursor( final String strCursor )
+    {
+        _strCursor = strCursor;
+    }
+
+    /**
+     * @return the changes
+     */
+    @JsonProperty( "changes" )
+    public List<IdentityChangeDto> getChanges( )
+    {
+        return _listChanges;
+    }
+
+    /**
+     * @param listChanges
+     *            the changes
+     */
+    @JsonProperty( "changes" )
+    public void setChanges( final List<IdentityChangeDto> listChanges )
+    {
+        _listChanges = listChanges;
+    }
+}
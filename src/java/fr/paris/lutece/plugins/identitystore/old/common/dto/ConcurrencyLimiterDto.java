@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * State of a concurrency limiter
+ */
+@JsonPropertyOrder( {
+        "name", "limit", "min_limit", "max_limit", "in_flight", "short_rtt_ms", "long_rtt_ms", "accepted", "rejected"
+} )
+public class ConcurrencyLimiterDto
+{
+    private String _strName;
+    private int _nLimit;
+    private int _nMinLimit;
+    private int _nMaxLimit;
+    private int _nInFlight;
+    private double _dShortRttMillis;
+    private double _dLongRttMillis;
+    private long _lAccepted;
+    private long _lRejected;
+
+    /**
+     * @return the name of the limiter
+     */
+    @JsonProperty( "name" )
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * @param strName
+     *            the name of the limiter
+     */
+    @JsonProperty( "name" )
+    public void setName( final String strName )
+    {
+        _strName = strName;
+    }
+
+    /**
+     * @return the current limit of the concurrent requests
+     */
+    @JsonProperty( "limit" )
+    public int getLimit( )
+    {
+        return _nLimit;
+    }
+
+    /**
+     * @param nLimit
+     *            the current limit of the concurrent requests
+     */
+    @JsonProperty( "limit" )
+    public void setLimit( final int nLimit )
+    {
+        _nLimit = nLimit;
+    }
+
+    /**
+     * @return the minimum limit
+     */
+    @JsonProperty( "min_limit" )
+    public int getMinLimit( )
+    {
+        return _nMinLimit;
+    }
+
+    /**
+     * @param nMinLimit
+     *            the minimum limit
+     */
+    @JsonProperty( "min_limit" )
+    public void setMinLimit( final int nMinLimit )
+    {
+        _nMinLimit = nMinLimit;
+    }
+
+    /**
+     * @return the maximum limit
+     */
+    @JsonProperty( "max_limit" )
+    public int getMaxLimit( )
+    {
+        return _nMaxLimit;
+    }
+
+    /**
+     * @param nMaxLimit
+     *            the maximum limit
+     */
+    @JsonProperty( "max_limit" )
+    public void setMaxLimit( final int nMaxLimit )
+    {
+        _nMaxLimit = nMaxLimit;
+    }
+
+    /**
+     * @return the number of requests in flight
+     */
+    @JsonProperty( "in_flight" )
+    public int getInFlight( )
+    {
+        return _nInFlight;
+    }
+
+    /**
+     * @param nInFlight
+     *            the number of requests in flight
+     */
+    @JsonProperty( "in_flight" )
+    public void setInFlight( final int nInFlight )
+    {
+        _nInFlight = nInFlight;
+    }
+
+    /**
+     * @return the average latency of the last window, in milliseconds
+     */
+    @JsonProperty( "short_rtt_ms" )
+    public double getShortRttMillis( )
+    {
+        return _dShortRttMillis;
+    }
+
+    /**
+     * @param dShortRttMillis
+     *            the average latency of the last window, in milliseconds
+     */
+    @JsonProperty( "short_rtt_ms" )
+    public void setShortRttMillis( final double dShortRttMillis )
+    {
+        _dShortRttMillis = dShortRttMillis;
+    }
+
+    /**
+     * @return the long term average latency, in milliseconds
+     */
+    @JsonProperty( "long_rtt_ms" )
+    public double getLongRttMillis( )
+    {
+        return _dLongRttMillis;
+    }
+
+    /**
+     * @param dLongRttMillis
+     *            the long term average latency, in milliseconds
+     */
+    @JsonProperty( "long_rtt_ms" )
+    public void setLongRttMillis( final double dLongRttMillis )
+    {
+        _dLongRttMillis = dLongRttMillis;
+    }
+
+    /**
+     * @return the number of requests accepted since the startup
+     */
+    @JsonProperty( "accepted" )
+    public long getAccepted( )
+    {
+        return _lAccepted;
+    }
+
+    /**
+     * @param lAccepted
+     *            the number of requests accepted since the startup
+     */
+    @JsonProperty( "accepted" )
+    public void setAccepted( final long lAccepted )
+    {
+        _lAccepted = lAccepted;
+    }
+
+    /**
+     * @return the number of requests rejected since the startup
+     */
+    @JsonProperty( "rejected" )
+    public long getRejected( )
+    {
+        return _lRejected;
+    }
+
+    /**
+     * @param lRejected
+     *            the number of requests rejected since the startup
+     */
+    @JsonProperty( "rejected" )
+    public void setRejected( final long lRejected )
+    {
+        _lRejected = lRejected;
+    }
+}
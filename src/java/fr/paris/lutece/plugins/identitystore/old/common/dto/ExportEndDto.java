@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * Terminal record of an identity export, written after the last exported identity
+ */
+@JsonRootName( "export_end" )
+@JsonPropertyOrder( {
+        "exported", "next_cursor", "complete"
+} )
+public class ExportEndDto
+{
+    private long _lExported;
+    private String _strNextCursor;
+    private boolean _bComplete;
+
+    /**
+     * @return the number of identities written by this export
+     */
+    @JsonProperty( "exported" )
+    public long getExported( )
+    {
+        return _lExported;
+    }
+
+    /**
+     * @param lExported
+     *            the number of identities written by this export
+     */
+    @JsonProperty( "exported" )
+    public void setExported( final long lExported )
+    {
+        _lExported = lExported;
+    }
+
+    /**
+     * @return the cursor from which the export can be resumed, the customer ID of the last read identity
+     */
+    @JsonProperty( "next_cursor" )
+    public String getNextCursor( )
+    {
+        return _strNextCursor;
+    }
+
+    /**
+     * @param strNextCursor
+     *            the cursor from which the export can be resumed, the customer ID of the last read identity
+     */
+    @JsonProperty( "next_cursor" )
+    public void setNextCursor( final String strNextCursor )
+    {
+        _strNextCursor = strNextCursor;
+    }
+
+    /**
+     * @return {@code true} if all the identities have been exported, {@code false} if the export stopped at its limit
+     */
+    @JsonProperty( "complete" )
+    public boolean isComplete( )
+    {
+        return _bComplete;
+    }
+
+    /**
+     * @param bComplete
+     *            {@code true} if all the identities have been exported, {@code false} if the export stopped at its limit
+     */
+    @JsonProperty( "complete" )
+    public void setComplete( final boolean bComplete )
+    {
+        _bComplete = bComplete;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * State of a cache of the facade
+ */
+@JsonRootName( "cache" )
+@JsonPropertyOrder( {
+        "name", "enabled", "size", "max_size", "ttl", "hits", "misses", "hit_ratio", "evictions", "rejected_writes", "memory_estimate", "resizable",
+        "ttl_configurable"
+} )
+public class FacadeCacheDto
+{
+    private String _strName;
+    private boolean _bEnabled;
+    private long _lSize;
+    private long _lMaxSize;
+    private long _lTimeToLive;
+    private long _lHits;
+    private long _lMisses;
+    private double _dHitRatio;
+    private long _lEvictions;
+    private long _lRejectedWrites;
+    private long _lMemoryEstimate;
+    private boolean _bResizable;
+    private boolean _bTimeToLiveConfigurable;
+
+    /**
+     * @return the name of the cache
+     */
+    @JsonProperty( "name" )
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * @param strName
+     *            the name of the cache
+     */
+    @JsonProperty( "name" )
+    public void setName( final String strName )
+    {
+        _strName = strName;
+    }
+
+    /**
+     * @return {@code true} if the cache is enabled
+     */
+    @JsonProperty( "enabled" )
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * @param bEnabled
+     *            {@code true} if the cache is enabled
+     */
+    @JsonProperty( "enabled" )
+    public void setEnabled( final boolean bEnabled )
+    {
+        _bEnabled = bEnabled;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    @JsonProperty( "size" )
+    public long getSize( )
+    {
+        return _lSize;
+    }
+
+    /**
+     * @param lSize
+     *            the number of entries
+     */
+    @JsonProperty( "size" )
+    public void setSize( final long lSize )
+    {
+        _lSize = lSize;
+    }
+
+    /**
+     * @return the maximum number of entries, -1 if the facade does not bound it
+     */
+    @JsonProperty( "max_size" )
+    public long getMaxSize( )
+    {
+        return _lMaxSize;
+    }
+
+    /**
+     * @param lMaxSize
+     *            the maximum number of entries, -1 if the facade does not bound it
+     */
+    @JsonProperty( "max_size" )
+    public void setMaxSize( final long lMaxSize )
+    {
+        _lMaxSize = lMaxSize;
+    }
+
+    /**
+     * @return the time to live of the entries, in seconds, -1 if the facade does not expire them
+     */
+    @JsonProperty( "ttl" )
+    public long getTimeToLive( )
+    {
+        return _lTimeToLive;
+    }
+
+    /**
+     * @param lTimeToLive
+     *            the time to live of the entries, in seconds, -1 if the facade does not expire them
+     */
+    @JsonProperty( "ttl" )
+    public void setTimeToLive( final long lTimeToLive )
+    {
+        _lTimeToLive = lTimeToLive;
+    }
+
+    /**
+     * @return the number of lookups which found their entry, -1 if the lookups are not counted
+     */
+    @JsonProperty( "hits" )
+    public long getHits( )
+    {
+        return _lHits;
+    }
+
+    /**
+     * @param lHits
+     *            the number of lookups which found their entry, -1 if the lookups are not counted
+     */
+    @JsonProperty( "hits" )
+    public void setHits( final long lHits )
+    {
+        _lHits = lHits;
+    }
+
+    /**
+     * @return the number of lookups which did not find their entry, -1 if the lookups are not counted
+     */
+    @JsonProperty( "misses" )
+    public long getMisses( )
+    {
+        return _lMisses;
+    }
+
+    /**
+     * @param lMisses
+     *            the number of lookups which did not find their entry, -1 if the lookups are not counted
+     */
+    @JsonProperty( "misses" )
+    public void setMisses( final long lMisses )
+    {
+        _lMisses = lMisses;
+    }
+
+    /**
+     * @return the ratio of the lookups which found their entry, -1 if the lookups are not counted
+     */
+    @JsonProperty( "hit_ratio" )
+    public double getHitRatio( )
+    {
+        return _dHitRatio;
+    }
+
+    /**
+     * @param dHitRatio
+     *            the ratio of the lookups which found their entry, -1 if the lookups are not counted
+     */
+    @JsonProperty( "hit_ratio" )
+    public void setHitRatio( final double dHitRatio )
+    {
+        _dHitRatio = dHitRatio;
+    }
+
+    /**
+     * @return the number of entries evicted to make room for other entries or expired, -1 if they are not counted
+     */
+    @JsonProperty( "evictions" )
+    public long getEvictions( )
+    {
+        return _lEvictions;
+    }
+
+    /**
+     * @param lEvictions
+     *            the number of entries evicted to make room for other entries or expired, -1 if they are not counted
+     */
+    @JsonProperty( "evictions" )
+    public void setEvictions( final long lEvictions )
+    {
+        _lEvictions = lEvictions;
+    }
+
+    /**
+     * @return the number of entries which could not be stored because their space could not be reclaimed
+     */
+    @JsonProperty( "rejected_writes" )
+    public long getRejectedWrites( )
+    {
+        return _lRejectedWrites;
+    }
+
+    /**
+     * @param lRejectedWrites
+     *            the number of entries which could not be stored because their space could not be reclaimed
+     */
+    @JsonProperty( "rejected_writes" )
+    public void setRejectedWrites( final long lRejectedWrites )
+    {
+        _lRejectedWrites = lRejectedWrites;
+    }
+
+    /**
+     * @return the estimated memory used by the entries, in bytes
+     */
+    @JsonProperty( "memory_estimate" )
+    public long getMemoryEstimate( )
+    {
+        return _lMemoryEstimate;
+    }
+
+    /**
+     * @param lMemoryEstimate
+     *            the estimated memory used by the entries, in bytes
+     */
+    @JsonProperty( "memory_estimate" )
+    public void setMemoryEstimate( final long lMemoryEstimate )
+    {
+        _lMemoryEstimate = lMemoryEstimate;
+    }
+
+    /**
+     * @return {@code true} if the maximum number of entries can be changed at runtime
+     */
+    @JsonProperty( "resizable" )
+    public boolean isResizable( )
+    {
+        return _bResizable;
+    }
+
+    /**
+     * @param bResizable
+     *            {@code true} if the maximum number of entries can be changed at runtime
+     */
+    @JsonProperty( "resizable" )
+    public void setResizable( final boolean bResizable )
+    {
+        _bResizable = bResizable;
+    }
+
+    /**
+     * @return {@code true} if the time to live can be changed at runtime
+     */
+    @JsonProperty( "ttl_configurable" )
+    public boolean isTimeToLiveConfigurable( )
+    {
+        return _bTimeToLiveConfigurable;
+    }
+
+    /**
+     * @param bTimeToLiveConfigurable
+     *            {@code true} if the time to live can be changed at runtime
+     */
+    @JsonProperty( "ttl_configurable" )
+    public void setTimeToLiveConfigurable( final boolean bTimeToLiveConfigurable )
+    {
+        _bTimeToLiveConfigurable = bTimeToLiveConfigurable;
+    }
+}
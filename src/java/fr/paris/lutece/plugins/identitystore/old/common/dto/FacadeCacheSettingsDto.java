@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * New settings of a cache of the facade, the settings left empty are unchanged
+ */
+@JsonRootName( "cache_settings" )
+@JsonPropertyOrder( {
+        "max_size", "ttl"
+} )
+public class FacadeCacheSettingsDto
+{
+    private Integer _nMaxSize;
+    private Integer _nTimeToLive;
+
+    /**
+     * @return the maximum number of entries
+     */
+    @JsonProperty( "max_size" )
+    public Integer getMaxSize( )
+    {
+        return _nMaxSize;
+    }
+
+    /**
+     * @param nMaxSize
+     *            the maximum number of entries
+     */
+    @JsonProperty( "max_size" )
+    public void setMaxSize( final Integer nMaxSize )
+    {
+        _nMaxSize = nMaxSize;
+    }
+
+    /**
+     * @return the time to live of the entries, in seconds
+     */
+    @JsonProperty( "ttl" )
+    public Integer getTimeToLive( )
+    {
+        return _nTimeToLive;
+    }
+
+    /**
+     * @param nTimeToLive
+     *            the time to live of the entries, in seconds
+     */
+    @JsonProperty( "ttl" )
+    public void setTimeToLive( final Integer nTimeToLive )
+    {
+        _nTimeToLive = nTimeToLive;
+    }
+}
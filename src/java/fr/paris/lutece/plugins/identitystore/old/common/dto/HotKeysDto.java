@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The most frequent keys of a dimension over a time window
+ */
+@JsonRootName( "hot_keys" )
+@JsonPropertyOrder( {
+        "dimension", "window_seconds", "total", "keys"
+} )
+public class HotKeysDto
+{
+    private String _strDimension;
+    private long _lWindowSeconds;
+    private long _lTotal;
+    private List<HotKeyDto> _listKeys = new ArrayList<>( );
+
+    /**
+     * @return the code of the dimension
+     */
+    @JsonProperty( "dimension" )
+    public String getDimension( )
+    {
+        return _strDimension;
+    }
+
+    /**
+     * @param strDimension
+     *            the code of the dimension
+     */
+    @JsonProperty( "dimension" )
+    public void setDimension( final String strDimension )
+    {
+        _strDimension = strDimension;
+    }
+
+    /**
+     * @return the actual duration of the window, in seconds
+     */
+    @JsonProperty( "window_seconds" )
+    public long getWindowSeconds( )
+    {
+        return _lWindowSeconds;
+    }
+
+    /**
+     * @param lWindowSeconds
+     *            the actual duration of the window, in seconds
+     */
+    @JsonProperty( "window_seconds" )
+    public void setWindowSeconds( final long lWindowSeconds )
+    {
+        _lWindowSeconds = lWindowSeconds;
+    }
+
+    /**
+     * @return the number of occurrences of all the keys of the dimension in the window
+     */
+    @JsonProperty( "total" )
+    public long getTotal( )
+    {
+        return _lTotal;
+    }
+
+    /**
+     * @param lTotal
+     *            the number of occurrences of all the keys of the dimension in the window
+     */
+    @JsonProperty( "total" )
+    public void setTotal( final long lTotal )
+    {
+        _lTotal = lTotal;
+    }
+
+    /**
+     * @return the most frequent keys, most frequent first
+     */
+    @JsonProperty( "keys" )
+    public List<HotKeyDto> getKeys( )
+    {
+        return _listKeys;
+    }
+
+    /**
+     * @param listKeys
+     *            the most frequent keys
+     */
+    @JsonProperty( "keys" )
+    public void setKeys( final List<HotKeyDto> listKeys )
+    {
+        _listKeys = listKeys;
+    }
+}
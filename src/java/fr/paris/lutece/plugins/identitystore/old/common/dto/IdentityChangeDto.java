@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.sql.Timestamp;
+
+/**
+ * Change of an identity returned by the change feed
+ */
+@JsonInclude( JsonInclude.Include.NON_NULL )
+@JsonPropertyOrder( {
+        "customer_id", "change_type", "change_date", "identity"
+} )
+public class IdentityChangeDto
+{
+    private String _strCustomerId;
+    private String _strChangeType;
+    private Timestamp _changeDate;
+    private Object _identity;
+
+    /**
+     * @return the customer ID of the changed identity
+     */
+    @JsonProperty( "customer_id" )
+    public String getCustomerId( )
+    {
+        return _strCustomerId;
+    }
+
+    /**
+     * @param strCustomerId
+     *            the customer ID of the changed identity
+     */
+    @JsonProperty( "customer_id" )
+    public void setCustomerId( final String strCustomerId )
+    {
+        _strCustomerId = strCustomerId;
+    }
+
+    /**
+     * @return the change type
+     */
+    @JsonProperty( "change_type" )
+    public String getChangeType( )
+    {
+        return _strChangeType;
+    }
+
+    /**
+     * @param strChangeType
+     *            the change type
+     */
+    @JsonProperty( "change_type" )
+    public void setChangeType( final String strChangeType )
+    {
+        _strChangeType = strChangeType;
+    }
+
+    /**
+     * @return the change date
+     */
+    @JsonProperty( "change_date" )
+    public Timestamp getChangeDate( )
+    {
+        return _changeDate;
+    }
+
+    /**
+     * @param changeDate
+     *            the change date
+     */
+    @JsonProperty( "change_date" )
+    public void setChangeDate( final Timestamp changeDate )
+    {
+        _changeDate = changeDate;
+    }
+
+    /**
+     * @return the identity rendered in the version of the API, if requested and still existing
+     */
+    @JsonProperty( "identity" )
+    public Object getIdentity( )
+    {
+        return _identity;
+    }
+
+    /**
+     * @param identity
+     *            the identity rendered in the version of the API
+     */
+    @JsonProperty( "identity" )
+    public void setIdentity( final Object identity )
+    {
+        _identity = identity;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Status of a checked customer ID
+ */
+@JsonInclude( JsonInclude.Include.NON_NULL )
+@JsonPropertyOrder( {
+        "customer_id", "status", "master_customer_id"
+} )
+public class IdentityExistenceDto
+{
+    private String _strCustomerId;
+    private String _strStatus;
+    private String _strMasterCustomerId;
+
+    /**
+     * @return the checked customer ID
+     */
+    @JsonProperty( "customer_id" )
+    public String getCustomerId( )
+    {
+        return _strCustomerId;
+    }
+
+    /**
+     * @param strCustomerId
+     *            the checked customer ID
+     */
+    @JsonProperty( "customer_id" )
+    public void setCustomerId( final String strCustomerId )
+    {
+        _strCustomerId = strCustomerId;
+    }
+
+    /**
+     * @return the status of the customer ID : exists, deleted, merged or unknown
+     */
+    @JsonProperty( "status" )
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * @param strStatus
+     *            the status of the customer ID : exists, deleted, merged or unknown
+     */
+    @JsonProperty( "status" )
+    public void setStatus( final String strStatus )
+    {
+        _strStatus = strStatus;
+    }
+
+    /**
+     * @return the customer ID of the identity the checked one is merged into, {@code null} if it is not merged
+     */
+    @JsonProperty( "master_customer_id" )
+    public String getMasterCustomerId( )
+    {
+        return _strMasterCustomerId;
+    }
+
+    /**
+     * @param strMasterCustomerId
+     *            the customer ID of the identity the checked one is merged into, {@code null} if it is not merged
+     */
+    @JsonProperty( "master_customer_id" )
+    public void setMasterCustomerId( final String strMasterCustomerId )
+    {
+        _strMasterCustomerId = strMasterCustomerId;
+    }
+}
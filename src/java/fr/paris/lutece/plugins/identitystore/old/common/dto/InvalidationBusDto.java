@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * State of the cache invalidation bus of the facade
+ */
+@JsonPropertyOrder( {
+        "node", "transport", "watermark", "pending", "published", "publish_failures", "read", "applied", "deduplicated", "skipped_sequences",
+        "last_lag_millis", "max_lag_millis"
+} )
+public class InvalidationBusDto
+{
+    private String _strNode;
+    private String _strTransport;
+    private long _lWatermark;
+    private int _nPending;
+    private long _lPublished;
+    private long _lPublishFailures;
+    private long _lRead;
+    private long _lApplied;
+    private long _lDeduplicated;
+    private long _lSkippedSequences;
+    private long _lLastLagMillis;
+    private long _lMaxLagMillis;
+
+    /**
+     * @return the name of the node
+     */
+    @JsonProperty( "node" )
+    public String getNode( )
+    {
+        return _strNode;
+    }
+
+    /**
+     * @param strNode
+     *            the name of the node
+     */
+    @JsonProperty( "node" )
+    public void setNode( final String strNode )
+    {
+        _strNode = strNode;
+    }
+
+    /**
+     * @return the name of the transport
+     */
+    @JsonProperty( "transport" )
+    public String getTransport( )
+    {
+        return _strTransport;
+    }
+
+    /**
+     * @param strTransport
+     *            the name of the transport
+     */
+    @JsonProperty( "transport" )
+    public void setTransport( final String strTransport )
+    {
+        _strTransport = strTransport;
+    }
+
+    /**
+     * @return the sequence up to which all the invalidations have been read
+     */
+    @JsonProperty( "watermark" )
+    public long getWatermark( )
+    {
+        return _lWatermark;
+    }
+
+    /**
+     * @param lWatermark
+     *            the sequence up to which all the invalidations have been read
+     */
+    @JsonProperty( "watermark" )
+    public void setWatermark( final long lWatermark )
+    {
+        _lWatermark = lWatermark;
+    }
+
+    /**
+     * @return the number of invalidations queued for the other nodes
+     */
+    @JsonProperty( "pending" )
+    public int getPending( )
+    {
+        return _nPending;
+    }
+
+    /**
+     * @param nPending
+     *            the number of invalidations queued for the other nodes
+     */
+    @JsonProperty( "pending" )
+    public void setPending( final int nPending )
+    {
+        _nPending = nPending;
+    }
+
+    /**
+     * @return the number of invalidations published to the other nodes
+     */
+    @JsonProperty( "published" )
+    public long getPublished( )
+    {
+        return _lPublished;
+    }
+
+    /**
+     * @param lPublished
+     *            the number of invalidations published to the other nodes
+     */
+    @JsonProperty( "published" )
+    public void setPublished( final long lPublished )
+    {
+        _lPublished = lPublished;
+    }
+
+    /**
+     * @return the number of batches of invalidations which could not be published
+     */
+    @JsonProperty( "publish_failures" )
+    public long getPublishFailures( )
+    {
+        return _lPublishFailures;
+    }
+
+    /**
+     * @param lPublishFailures
+     *            the number of batches of invalidations which could not be published
+     */
+    @JsonProperty( "publish_failures" )
+    public void setPublishFailures( final long lPublishFailures )
+    {
+        _lPublishFailures = lPublishFailures;
+    }
+
+    /**
+     * @return the number of invalidations read, those of the node included
+     */
+    @JsonProperty( "read" )
+    public long getRead( )
+    {
+        return _lRead;
+    }
+
+    /**
+     * @param lRead
+     *            the number of invalidations read, those of the node included
+     */
+    @JsonProperty( "read" )
+    public void setRead( final long lRead )
+    {
+        _lRead = lRead;
+    }
+
+    /**
+     * @return the number of invalidations of the other nodes applied
+     */
+    @JsonProperty( "applied" )
+    public long getApplied( )
+    {
+        return _lApplied;
+    }
+
+    /**
+     * @param lApplied
+     *            the number of invalidations of the other nodes applied
+     */
+    @JsonProperty( "applied" )
+    public void setApplied( final long lApplied )
+    {
+        _lApplied = lApplied;
+    }
+
+    /**
+     * @return the number of invalidations merged with an invalidation of the same entry
+     */
+    @JsonProperty( "deduplicated" )
+    public long getDeduplicated( )
+    {
+        return _lDeduplicated;
+    }
+
+    /**
+     * @param lDeduplicated
+     *            the number of invalidations merged with an invalidation of the same entry
+     */
+    @JsonProperty( "deduplicated" )
+    public void setDeduplicated( final long lDeduplicated )
+    {
+        _lDeduplicated = lDeduplicated;
+    }
+
+    /**
+     * @return the number of missing sequences skipped after the gap wait
+     */
+    @JsonProperty( "skipped_sequences" )
+    public long getSkippedSequences( )
+    {
+        return _lSkippedSequences;
+    }
+
+    /**
+     * @param lSkippedSequences
+     *            the number of missing sequences skipped after the gap wait
+     */
+    @JsonProperty( "skipped_sequences" )
+    public void setSkippedSequences( final long lSkippedSequences )
+    {
+        _lSkippedSequences = lSkippedSequences;
+    }
+
+    /**
+     * @return the time between the publication and the application of the last invalidation applied, in milliseconds
+     */
+    @JsonProperty( "last_lag_millis" )
+    public long getLastLagMillis( )
+    {
+        return _lLastLagMillis;
+    }
+
+    /**
+     * @param lLastLagMillis
+     *            the time between the publication and the application of the last invalidation applied, in milliseconds
+     */
+    @JsonProperty( "last_lag_millis" )
+    public void setLastLagMillis( final long lLastLagMillis )
+    {
+        _lLastLagMillis = lLastLagMillis;
+    }
+
+    /**
+     * @return the longest time between the publication and the application of an invalidation, in milliseconds
+     */
+    @JsonProperty( "max_lag_millis" )
+    public long getMaxLagMillis( )
+    {
+        return _lMaxLagMillis;
+    }
+
+    /**
+     * @param lMaxLagMillis
+     *            the longest time between the publication and the application of an invalidation, in milliseconds
+     */
+    @JsonProperty( "max_lag_millis" )
+    public void setMaxLagMillis( final long lMaxLagMillis )
+    {
+        _lMaxLagMillis = lMaxLagMillis;
+    }
+}
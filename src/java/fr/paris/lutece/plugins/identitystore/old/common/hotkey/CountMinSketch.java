@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.hotkey;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch of string keys, updated without lock.<br/>
+ * The estimated count of a key is never lower than its actual count, and exceeds it by at most <code>2N / width</code> with a probability of
+ * <code>1 - 2^-depth</code>, N being the total count. The counts can be aged by halving them, to estimate the recent frequency of the keys.
+ */
+public final class CountMinSketch
+{
+    private static final long [ ] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L, 0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L,
+            0x27D4EB2F165667C5L, 0x94D049BB133111EBL
+    };
+
+    private final int _nDepth;
+    private final int _nWidthMask;
+    private final int _nWidthShift;
+    private final AtomicLongArray _counters;
+
+    /**
+     * Constructor
+     *
+     * @param nWidth
+     *            the number of counters per row, rounded up to a power of two
+     * @param nDepth
+     *            the number of rows, at most 8
+     */
+    public CountMinSketch( final int nWidth, final int nDepth )
+    {
+        final int nPowerOfTwoWidth = Integer.highestOneBit( Math.max( 2, nWidth ) - 1 ) << 1;
+        _nDepth = Math.min( Math.max( 1, nDepth ), SEEDS.length );
+        _nWidthMask = nPowerOfTwoWidth - 1;
+        _nWidthShift = Integer.numberOfTrailingZeros( nPowerOfTwoWidth );
+        _counters = new AtomicLongArray( nPowerOfTwoWidth * _nDepth );
+    }
+
+    /**
+     * Count an occurrence of a key
+     *
+     * @param strKey
+     *            the key
+     * @return the estimated count of the key, including this occurrence
+     */
+    public long add( final String strKey )
+    {
+        final int nHash = strKey.hashCode( );
+        long lEstimate = Long.MAX_VALUE;
+        for ( int i = 0; i < _nDepth; i++ )
+        {
+            lEstimate = Math.min( lEstimate, _counters.incrementAndGet( index( nHash, i ) ) );
+        }
+        return lEstimate;
+    }
+
+    /**
+     * Estimate the count of a key
+     *
+     * @param strKey
+     *            the key
+     * @return the estimated count
+     */
+    public long estimate( final String strKey )
+    {
+        final int nHash = strKey.hashCode( );
+        long lEstimate = Long.MAX_VALUE;
+        for ( int i = 0; i < _nDepth; i++ )
+        {
+            lEstimate = Math.min( lEstimate, _counters.get( index( nHash, i ) ) );
+        }
+        return lEstimate;
+    }
+
+    /**
+     * Halve all the counts. The increments made concurrently may be lost.
+     */
+    public void halve( )
+    {
+        for ( int i = 0; i < _counters.length( ); i++ )
+        {
+            _counters.set( i, _counters.get( i ) >>> 1 );
+        }
+    }
+
+    /**
+     * @param nHash
+     *            the hash code of the key
+     * @param nRow
+     *            the row
+     * @return the index of the counter of the key in the row
+     */
+    private int index( final int nHash, final int nRow )
+    {
+        long lHash = ( nHash + SEEDS [nRow] ) * SEEDS [( nRow + 1 ) % SEEDS.length];
+        lHash ^= lHash >>> 32;
+        return ( nRow << _nWidthShift ) | (int) ( lHash & _nWidthMask );
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.hotkey;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Occurrences of the keys of one dimension during one time slice.<br/>
+ * The counts are kept in a {@link CountMinSketch}, and the candidate heavy hitters in a fixed table of slots : a key takes the slot of its hash when the
+ * slot is free or when its estimated count exceeds the one of the key in the slot. Both structures are updated with atomic operations only, and have a
+ * fixed size.
+ */
+final class HotKeyBucket
+{
+    private final long _lEpoch;
+    private final CountMinSketch _sketch;
+    private final AtomicReferenceArray<String> _candidates;
+    private final int _nCandidateMask;
+    private final LongAdder _total = new LongAdder( );
+
+    /**
+     * Constructor
+     *
+     * @param lEpoch
+     *            the index of the time slice
+     * @param nSketchWidth
+     *            the width of the sketch
+     * @param nSketchDepth
+     *            the depth of the sketch
+     * @param nCandidateCount
+     *            the number of candidate slots, rounded up to a power of two
+     */
+    HotKeyBucket( final long lEpoch, final int nSketchWidth, final int nSketchDepth, final int nCandidateCount )
+    {
+        final int nPowerOfTwoCount = Integer.highestOneBit( Math.max( 2, nCandidateCount ) - 1 ) << 1;
+        _lEpoch = lEpoch;
+        _sketch = new CountMinSketch( nSketchWidth, nSketchDepth );
+        _candidates = new AtomicReferenceArray<>( nPowerOfTwoCount );
+        _nCandidateMask = nPowerOfTwoCount - 1;
+    }
+
+    /**
+     * @return the index of the time slice
+     */
+    long getEpoch( )
+    {
+        return _lEpoch;
+    }
+
+    /**
+     * Count an occurrence of a key
+     *
+     * @param strKey
+     *            the key
+     */
+    void record( final String strKey )
+    {
+        _total.increment( );
+        final long lEstimate = _sketch.add( strKey );
+        final int nHash = strKey.hashCode( );
+        final int nSlot = ( nHash ^ ( nHash >>> 16 ) ) & _nCandidateMask;
+        final String strCandidate = _candidates.get( nSlot );
+        if ( strCandidate == null )
+        {
+            _candidates.compareAndSet( nSlot, null, strKey );
+        }
+        else if ( !strCandidate.equals( strKey ) && _sketch.estimate( strCandidate ) < lEstimate )
+        {
+            // losing the race is harmless : the slot is then taken by another key at least as frequent
+            _candidates.compareAndSet( nSlot, strCandidate, strKey );
+        }
+    }
+
+    /**
+     * Add the candidate heavy hitters of this bucket to a set
+     *
+     * @param setKeys
+     *            the set
+     */
+    void collectCandidates( final Set<String> setKeys )
+    {
+        for ( int i = 0; i < _candidates.length( ); i++ )
+        {
+            final String strCandidate = _candidates.get( i );
+            if ( strCandidate != null )
+            {
+                setKeys.add( strCandidate );
+            }
+        }
+    }
+
+    /**
+     * @param strKey
+     *            the key
+     * @return the estimated count of the key in this bucket
+     */
+    long estimate( final String strKey )
+    {
+        return _sketch.estimate( strKey );
+    }
+
+    /**
+     * @return the number of occurrences of all the keys in this bucket
+     */
+    long getTotal( )
+    {
+        return _total.sum( );
+    }
+}
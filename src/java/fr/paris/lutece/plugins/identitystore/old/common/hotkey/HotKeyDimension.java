@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.hotkey;
+
+/**
+ * The kinds of keys tracked by the {@link HotKeyService}
+ */
+public enum HotKeyDimension
+{
+    CUSTOMER_ID( "customer_id" ),
+    CONNECTION_ID( "connection_id" ),
+    CLIENT_CODE( "client_code" ),
+    NOT_FOUND_ID( "not_found_id" );
+
+    private final String _strCode;
+
+    /**
+     * Constructor
+     *
+     * @param strCode
+     *            the code of the dimension in the admin API
+     */
+    HotKeyDimension( final String strCode )
+    {
+        _strCode = strCode;
+    }
+
+    /**
+     * @return the code of the dimension in the admin API
+     */
+    public String getCode( )
+    {
+        return _strCode;
+    }
+
+    /**
+     * Find a dimension by its code
+     *
+     * @param strCode
+     *            the code
+     * @return the dimension, {@code null} if none
+     */
+    public static HotKeyDimension fromCode( final String strCode )
+    {
+        for ( final HotKeyDimension dimension : values( ) )
+        {
+            if ( dimension._strCode.equals( strCode ) )
+            {
+                return dimension;
+            }
+        }
+        return null;
+    }
+}
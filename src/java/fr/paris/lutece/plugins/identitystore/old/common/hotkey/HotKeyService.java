@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.hotkey;
+
+import fr.paris.lutece.plugins.identitystore.old.common.dto.HotKeysDto;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracking of the most frequent keys (heavy hitters) of the GET identity requests : customer IDs, connection IDs, client codes and IDs which were not
+ * found.<br/>
+ * Each dimension is counted by a {@link HotKeyTracker} over a sliding window of time slices. The memory is bounded by the configuration, whatever the
+ * number of distinct keys, and the recording only uses atomic operations.
+ */
+public final class HotKeyService
+{
+    private static final String PROPERTY_HOTKEYS_ENABLED = "identitystore.facade.hotkeys.enabled";
+    private static final String PROPERTY_HOTKEYS_BUCKET_SECONDS = "identitystore.facade.hotkeys.bucket.seconds";
+    private static final String PROPERTY_HOTKEYS_BUCKET_COUNT = "identitystore.facade.hotkeys.bucket.count";
+    private static final String PROPERTY_HOTKEYS_SKETCH_WIDTH = "identitystore.facade.hotkeys.sketch.width";
+    private static final String PROPERTY_HOTKEYS_SKETCH_DEPTH = "identitystore.facade.hotkeys.sketch.depth";
+    private static final String PROPERTY_HOTKEYS_CANDIDATES = "identitystore.facade.hotkeys.candidates";
+    private static final int DEFAULT_HOTKEYS_BUCKET_SECONDS = 60;
+    private static final int DEFAULT_HOTKEYS_BUCKET_COUNT = 15;
+    private static final int DEFAULT_HOTKEYS_SKETCH_WIDTH = 1024;
+    private static final int DEFAULT_HOTKEYS_SKETCH_DEPTH = 4;
+    private static final int DEFAULT_HOTKEYS_CANDIDATES = 256;
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_HOTKEYS_ENABLED, true );
+    private final int _nCandidateCount = AppPropertiesService.getPropertyInt( PROPERTY_HOTKEYS_CANDIDATES, DEFAULT_HOTKEYS_CANDIDATES );
+    private final Map<HotKeyDimension, HotKeyTracker> _mapTrackers = new EnumMap<>( HotKeyDimension.class );
+
+    /**
+     * private constructor
+     */
+    private HotKeyService( )
+    {
+        final int nBucketCount = AppPropertiesService.getPropertyInt( PROPERTY_HOTKEYS_BUCKET_COUNT, DEFAULT_HOTKEYS_BUCKET_COUNT );
+        final long lBucketMillis = TimeUnit.SECONDS
+                .toMillis( AppPropertiesService.getPropertyInt( PROPERTY_HOTKEYS_BUCKET_SECONDS, DEFAULT_HOTKEYS_BUCKET_SECONDS ) );
+        final int nSketchWidth = AppPropertiesService.getPropertyInt( PROPERTY_HOTKEYS_SKETCH_WIDTH, DEFAULT_HOTKEYS_SKETCH_WIDTH );
+        final int nSketchDepth = AppPropertiesService.getPropertyInt( PROPERTY_HOTKEYS_SKETCH_DEPTH, DEFAULT_HOTKEYS_SKETCH_DEPTH );
+        for ( final HotKeyDimension dimension : HotKeyDimension.values( ) )
+        {
+            _mapTrackers.put( dimension, new HotKeyTracker( nBucketCount, lBucketMillis, nSketchWidth, nSketchDepth, _nCandidateCount ) );
+        }
+    }
+
+    /**
+     * @return the instance
+     */
+    public static HotKeyService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Count an occurrence of a key
+     *
+     * @param dimension
+     *            the dimension of the key
+     * @param strKey
+     *            the key, ignored if blank
+     */
+    public void record( final HotKeyDimension dimension, final String strKey )
+    {
+        if ( _bEnabled && StringUtils.isNotBlank( strKey ) )
+        {
+            _mapTrackers.get( dimension ).record( strKey );
+        }
+    }
+
+    /**
+     * Get the most frequent keys of a dimension
+     *
+     * @param dimension
+     *            the dimension
+     * @param nWindowSeconds
+     *            the duration of the window, in seconds
+     * @param nLimit
+     *            the maximum number of keys, capped to the number of candidates
+     * @return the most frequent keys
+     */
+    public HotKeysDto getTopKeys( final HotKeyDimension dimension, final int nWindowSeconds, final int nLimit )
+    {
+        final HotKeysDto hotKeys = _mapTrackers.get( dimension ).getTopKeys( nWindowSeconds, Math.min( nLimit, _nCandidateCount ) );
+        hotKeys.setDimension( dimension.getCode( ) );
+        return hotKeys;
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final HotKeyService INSTANCE = new HotKeyService( );
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.hotkey;
+
+import fr.paris.lutece.plugins.identitystore.old.common.dto.HotKeyDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.HotKeysDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sliding window top-K tracker of the keys of one dimension.<br/>
+ * The time is divided in slices of fixed duration, each one counted in its own {@link HotKeyBucket}, in a ring holding the most recent slices : the
+ * memory is bounded by the ring size whatever the number of distinct keys. The bucket of a new slice replaces the expired one with a compare-and-set, so
+ * that the recording never takes a lock. The top keys of a window are computed at query time, by summing the estimates of the candidates of the slices of
+ * the window.
+ */
+final class HotKeyTracker
+{
+    private final AtomicReferenceArray<HotKeyBucket> _ring;
+    private final long _lBucketMillis;
+    private final int _nSketchWidth;
+    private final int _nSketchDepth;
+    private final int _nCandidateCount;
+
+    /**
+     * Constructor
+     *
+     * @param nBucketCount
+     *            the number of time slices kept
+     * @param lBucketMillis
+     *            the duration of a time slice, in milliseconds
+     * @param nSketchWidth
+     *            the width of the sketch of a slice
+     * @param nSketchDepth
+     *            the depth of the sketch of a slice
+     * @param nCandidateCount
+     *            the number of candidate heavy hitters of a slice
+     */
+    HotKeyTracker( final int nBucketCount, final long lBucketMillis, final int nSketchWidth, final int nSketchDepth, final int nCandidateCount )
+    {
+        _ring = new AtomicReferenceArray<>( nBucketCount );
+        _lBucketMillis = lBucketMillis;
+        _nSketchWidth = nSketchWidth;
+        _nSketchDepth = nSketchDepth;
+        _nCandidateCount = nCandidateCount;
+    }
+
+    /**
+     * Count an occurrence of a key
+     *
+     * @param strKey
+     *            the key
+     */
+    void record( final String strKey )
+    {
+        final long lEpoch = System.currentTimeMillis( ) / _lBucketMillis;
+        final int nIndex = (int) ( lEpoch % _ring.length( ) );
+        HotKeyBucket bucket = _ring.get( nIndex );
+        while ( bucket == null || bucket.getEpoch( ) < lEpoch )
+        {
+            final HotKeyBucket newBucket = new HotKeyBucket( lEpoch, _nSketchWidth, _nSketchDepth, _nCandidateCount );
+            if ( _ring.compareAndSet( nIndex, bucket, newBucket ) )
+            {
+                bucket = newBucket;
+            }
+            else
+            {
+                bucket = _ring.get( nIndex );
+            }
+        }
+        if ( bucket.getEpoch( ) == lEpoch )
+        {
+            bucket.record( strKey );
+        }
+    }
+
+    /**
+     * Get the most frequent keys of a window
+     *
+     * @param nWindowSeconds
+     *            the duration of the window, in seconds, rounded up to a whole number of slices and capped to the ring size
+     * @param nLimit
+     *            the maximum number of keys
+     * @return the keys and their estimated counts, most frequent first, and the total count of the window
+     */
+    HotKeysDto getTopKeys( final int nWindowSeconds, final int nLimit )
+    {
+        final long lEpoch = System.currentTimeMillis( ) / _lBucketMillis;
+        final int nBucketCount = (int) Math.min( _ring.length( ), Math.max( 1, ( nWindowSeconds * 1000L + _lBucketMillis - 1 ) / _lBucketMillis ) );
+        final List<HotKeyBucket> listBuckets = new ArrayList<>( nBucketCount );
+        for ( int i = 0; i < _ring.length( ); i++ )
+        {
+            final HotKeyBucket bucket = _ring.get( i );
+            if ( bucket != null && bucket.getEpoch( ) > lEpoch - nBucketCount && bucket.getEpoch( ) <= lEpoch )
+            {
+                listBuckets.add( bucket );
+            }
+        }
+
+        long lTotal = 0;
+        final Set<String> setCandidates = new HashSet<>( );
+        for ( final HotKeyBucket bucket : listBuckets )
+        {
+            lTotal += bucket.getTotal( );
+            bucket.collectCandidates( setCandidates );
+        }
+
+        // min-heap of the current top keys
+        final PriorityQueue<HotKeyDto> heap = new PriorityQueue<>( Math.max( 1, nLimit ), ( a, b ) -> Long.compare( a.getCount( ), b.getCount( ) ) );
+        for ( final String strCandidate : setCandidates )
+        {
+            long lCount = 0;
+            for ( final HotKeyBucket bucket : listBuckets )
+            {
+                lCount += bucket.estimate( strCandidate );
+            }
+            if ( heap.size( ) < nLimit )
+            {
+                heap.add( new HotKeyDto( strCandidate, lCount ) );
+            }
+            else if ( nLimit > 0 && heap.peek( ).getCount( ) < lCount )
+            {
+                heap.poll( );
+                heap.add( new HotKeyDto( strCandidate, lCount ) );
+            }
+        }
+        final List<HotKeyDto> listTopKeys = new ArrayList<>( heap );
+        listTopKeys.sort( Collections.reverseOrder( ( a, b ) -> Long.compare( a.getCount( ), b.getCount( ) ) ) );
+        final HotKeysDto hotKeys = new HotKeysDto( );
+        hotKeys.setWindowSeconds( nBucketCount * _lBucketMillis / 1000 );
+        hotKeys.setTotal( lTotal );
+        hotKeys.setKeys( listTopKeys );
+        return hotKeys;
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.hotkey;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.HotKeyDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Hot set of the identities read through the v1/v2 GET path, persisted to warm the identity cache up on restart.<br/>
+ * The (client code, customer ID) keys of the identities found are counted by a {@link HotKeyTracker}. The most frequent ones are written, most frequent
+ * first, to a gzipped text file periodically and on shutdown. On startup, the identities of the file are loaded again, in parallel batches, through the
+ * identity provider, which fills the identity cache before the node serves requests.
+ */
+public final class HotSetService
+{
+    private static final String PROPERTY_HOTSET_ENABLED = "identitystore.facade.hotset.enabled";
+    private static final String PROPERTY_HOTSET_FILE = "identitystore.facade.hotset.file";
+    private static final String PROPERTY_HOTSET_SIZE = "identitystore.facade.hotset.size";
+    private static final String PROPERTY_HOTSET_SNAPSHOT_INTERVAL = "identitystore.facade.hotset.snapshot.interval";
+    private static final String PROPERTY_HOTSET_PRELOAD_THREADS = "identitystore.facade.hotset.preload.threads";
+    private static final String PROPERTY_HOTSET_PRELOAD_BATCH_SIZE = "identitystore.facade.hotset.preload.batch.size";
+    private static final String PROPERTY_HOTSET_PRELOAD_TIMEOUT = "identitystore.facade.hotset.preload.timeout";
+    private static final String DEFAULT_HOTSET_FILE_NAME = "identitystore-facade-hotset.gz";
+    private static final int DEFAULT_HOTSET_SIZE = 10000;
+    private static final int DEFAULT_HOTSET_SNAPSHOT_INTERVAL = 300;
+    private static final int DEFAULT_HOTSET_PRELOAD_THREADS = 4;
+    private static final int DEFAULT_HOTSET_PRELOAD_BATCH_SIZE = 200;
+    private static final int DEFAULT_HOTSET_PRELOAD_TIMEOUT = 300;
+
+    // the hot set is counted over the last hour, in slices of 15 minutes
+    private static final int BUCKET_COUNT = 4;
+    private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis( 15 );
+    private static final int SKETCH_DEPTH = 4;
+    private static final int WINDOW_SECONDS = (int) TimeUnit.MILLISECONDS.toSeconds( BUCKET_COUNT * BUCKET_MILLIS );
+    private static final char SEPARATOR = '\t';
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_HOTSET_ENABLED, false );
+    private final int _nSize = AppPropertiesService.getPropertyInt( PROPERTY_HOTSET_SIZE, DEFAULT_HOTSET_SIZE );
+    private final File _file = new File( AppPropertiesService.getProperty( PROPERTY_HOTSET_FILE,
+            new File( System.getProperty( "java.io.tmpdir" ), DEFAULT_HOTSET_FILE_NAME ).getPath( ) ) );
+    private final HotKeyTracker _tracker = new HotKeyTracker( BUCKET_COUNT, BUCKET_MILLIS, _nSize * 4, SKETCH_DEPTH, _nSize * 2 );
+    private ScheduledExecutorService _scheduler;
+
+    /**
+     * private constructor
+     */
+    private HotSetService( )
+    {
+    }
+
+    /**
+     * @return the instance
+     */
+    public static HotSetService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return {@code true} if the hot set is tracked and persisted
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * Count a read of an identity
+     *
+     * @param strClientCode
+     *            the client code
+     * @param strCustomerId
+     *            the customer ID of the identity
+     */
+    public void record( final String strClientCode, final String strCustomerId )
+    {
+        if ( _bEnabled && StringUtils.isNotBlank( strClientCode ) && StringUtils.isNotBlank( strCustomerId ) )
+        {
+            _tracker.record( strClientCode + SEPARATOR + strCustomerId );
+        }
+    }
+
+    /**
+     * Write the current hot set to the file. The file is replaced atomically, and is kept unchanged when the hot set is empty.
+     */
+    public void writeSnapshot( )
+    {
+        if ( !_bEnabled )
+        {
+            return;
+        }
+        final List<HotKeyDto> listKeys = _tracker.getTopKeys( WINDOW_SECONDS, _nSize ).getKeys( );
+        if ( listKeys.isEmpty( ) )
+        {
+            return;
+        }
+        final File tmpFile = new File( _file.getPath( ) + ".tmp" );
+        try
+        {
+            try ( Writer writer = new BufferedWriter(
+                    new OutputStreamWriter( new GZIPOutputStream( new FileOutputStream( tmpFile ) ), StandardCharsets.UTF_8 ) ) )
+            {
+                for ( final HotKeyDto key : listKeys )
+                {
+                    writer.write( key.getKey( ) );
+                    writer.write( '\n' );
+                }
+            }
+            Files.move( tmpFile.toPath( ), _file.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            AppLogService.debug( "Hot set snapshot of " + listKeys.size( ) + " keys written to " + _file );
+        }
+        catch( final IOException e )
+        {
+            AppLogService.error( "Unable to write the hot set snapshot to " + _file, e );
+        }
+    }
+
+    /**
+     * Schedule the periodic write of the hot set
+     */
+    public synchronized void scheduleSnapshots( )
+    {
+        final int nInterval = AppPropertiesService.getPropertyInt( PROPERTY_HOTSET_SNAPSHOT_INTERVAL, DEFAULT_HOTSET_SNAPSHOT_INTERVAL );
+        if ( !_bEnabled || _scheduler != null || nInterval <= 0 )
+        {
+            return;
+        }
+        _scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            final Thread thread = new Thread( runnable, "identitystore-facade-hotset-snapshot" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        _scheduler.scheduleWithFixedDelay( this::writeSnapshot, nInterval, nInterval, TimeUnit.SECONDS );
+    }
+
+    /**
+     * Stop the periodic write of the hot set
+     */
+    public synchronized void stopSnapshots( )
+    {
+        if ( _scheduler != null )
+        {
+            _scheduler.shutdownNow( );
+            _scheduler = null;
+        }
+    }
+
+    /**
+     * Load the identities of the hot set file, in parallel batches, and wait for the end of the loading, at most until the preload timeout.
+     */
+    public void preload( )
+    {
+        if ( !_bEnabled || !_file.isFile( ) )
+        {
+            return;
+        }
+        final long lStart = System.currentTimeMillis( );
+        final Map<String, List<String>> mapCustomerIdsByClientCode;
+        try
+        {
+            mapCustomerIdsByClientCode = readSnapshot( );
+        }
+        catch( final IOException e )
+        {
+            AppLogService.error( "Unable to read the hot set snapshot " + _file, e );
+            return;
+        }
+
+        final int nBatchSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_HOTSET_PRELOAD_BATCH_SIZE, DEFAULT_HOTSET_PRELOAD_BATCH_SIZE ) );
+        final AtomicInteger nLoadedCount = new AtomicInteger( );
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_HOTSET_PRELOAD_THREADS, DEFAULT_HOTSET_PRELOAD_THREADS ) ), runnable -> {
+                    final Thread thread = new Thread( runnable, "identitystore-facade-hotset-preload" );
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+        try
+        {
+            for ( final Map.Entry<String, List<String>> entry : mapCustomerIdsByClientCode.entrySet( ) )
+            {
+                final ServiceContract serviceContract;
+                try
+                {
+                    serviceContract = FacadeAdapters.getServiceContractProvider( ).getActiveServiceContract( entry.getKey( ) );
+                }
+                catch( final IdentityStoreException e )
+                {
+                    AppLogService.error( "Unable to get the service contract of the client " + entry.getKey( ) + ", its hot set is not preloaded", e );
+                    continue;
+                }
+                if ( serviceContract == null )
+                {
+                    continue;
+                }
+                // in a partitioned cluster, the identities owned by the other nodes are preloaded by them
+                final List<String> listCustomerIds = entry.getValue( ).stream( ).filter( identityProvider::isOwned ).collect( Collectors.toList( ) );
+                for ( int i = 0; i < listCustomerIds.size( ); i += nBatchSize )
+                {
+                    final List<String> listBatch = listCustomerIds.subList( i, Math.min( i + nBatchSize, listCustomerIds.size( ) ) );
+                    executor.execute( ( ) -> preloadBatch( identityProvider, serviceContract, listBatch, nLoadedCount ) );
+                }
+            }
+            executor.shutdown( );
+            if ( !executor.awaitTermination( AppPropertiesService.getPropertyInt( PROPERTY_HOTSET_PRELOAD_TIMEOUT, DEFAULT_HOTSET_PRELOAD_TIMEOUT ),
+                    TimeUnit.SECONDS ) )
+            {
+                AppLogService.info( "Hot set preload timed out, the remaining identities are loaded on demand" );
+            }
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+        AppLogService.info( "Hot set preload : " + nLoadedCount.get( ) + " identities loaded in " + ( System.currentTimeMillis( ) - lStart ) + " ms" );
+    }
+
+    /**
+     * Load a batch of identities into the cache with one query, then read them through the service contract so that the per-contract caches are filled
+     * from the cache
+     *
+     * @param identityProvider
+     *            the identity provider
+     * @param serviceContract
+     *            the service contract of the client which read the identities
+     * @param listCustomerIds
+     *            the customer IDs
+     * @param nLoadedCount
+     *            the number of identities loaded
+     */
+    private static void preloadBatch( final IIdentityProvider identityProvider, final ServiceContract serviceContract, final List<String> listCustomerIds,
+            final AtomicInteger nLoadedCount )
+    {
+        try
+        {
+            identityProvider.loadIntoCache( listCustomerIds );
+        }
+        catch( final IdentityStoreException | RuntimeException e )
+        {
+            AppLogService.debug( "Hot set bulk preload failed, the identities are loaded one by one : " + e.getMessage( ) );
+        }
+        for ( final String strCustomerId : listCustomerIds )
+        {
+            if ( Thread.currentThread( ).isInterrupted( ) )
+            {
+                return;
+            }
+            try
+            {
+                if ( identityProvider.getByCustomerId( strCustomerId, serviceContract ) != null )
+                {
+                    nLoadedCount.incrementAndGet( );
+                }
+            }
+            catch( final IdentityStoreException | RuntimeException e )
+            {
+                AppLogService.debug( "Hot set preload of " + strCustomerId + " failed : " + e.getMessage( ) );
+            }
+        }
+    }
+
+    /**
+     * Read the hot set file
+     *
+     * @return the customer IDs by client code, most frequent first
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private Map<String, List<String>> readSnapshot( ) throws IOException
+    {
+        final Map<String, List<String>> mapCustomerIdsByClientCode = new LinkedHashMap<>( );
+        try ( Reader reader = new InputStreamReader( new GZIPInputStream( new FileInputStream( _file ) ), StandardCharsets.UTF_8 );
+                BufferedReader bufferedReader = new BufferedReader( reader ) )
+        {
+            String strLine;
+            while ( ( strLine = bufferedReader.readLine( ) ) != null )
+            {
+                final int nSeparator = strLine.indexOf( SEPARATOR );
+                if ( nSeparator > 0 && nSeparator < strLine.length( ) - 1 )
+                {
+                    mapCustomerIdsByClientCode.computeIfAbsent( strLine.substring( 0, nSeparator ), k -> new ArrayList<>( ) )
+                            .add( strLine.substring( nSeparator + 1 ) );
+                }
+            }
+        }
+        return mapCustomerIdsByClientCode;
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final HotSetService INSTANCE = new HotSetService( );
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.invalidation;
+
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeInvalidation;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+
+import java.util.List;
+
+/**
+ * Transport of the {@link InvalidationBus} : an ordered log of invalidations shared by the facade nodes, each invalidation being given an increasing
+ * sequence when it is published. The sequences may have gaps, the bus waits a bounded time for an invalidation published with a lower sequence to become
+ * visible.
+ */
+public interface IInvalidationTransport
+{
+    /**
+     * Publish invalidations
+     *
+     * @param listInvalidations
+     *            the invalidations, sent by the same node
+     * @throws IdentityStoreException
+     *             if the invalidations cannot be published
+     */
+    void publish( List<FacadeInvalidation> listInvalidations ) throws IdentityStoreException;
+
+    /**
+     * Read the invalidations published after a sequence
+     *
+     * @param lAfterSequence
+     *            the cursor : only the invalidations with a greater sequence are read
+     * @param nLimit
+     *            the maximum number of invalidations
+     * @return the invalidations, by ascending sequence
+     * @throws IdentityStoreException
+     *             if the invalidations cannot be read
+     */
+    List<FacadeInvalidation> poll( long lAfterSequence, int nLimit ) throws IdentityStoreException;
+
+    /**
+     * @return the sequence of the last published invalidation, 0 if there is none
+     * @throws IdentityStoreException
+     *             if the sequence cannot be read
+     */
+    long getLastSequence( ) throws IdentityStoreException;
+
+    /**
+     * Forget the invalidations published before a time
+     *
+     * @param lBeforeMillis
+     *            the time, in milliseconds since the epoch
+     * @throws IdentityStoreException
+     *             if the invalidations cannot be removed
+     */
+    void purge( long lBeforeMillis ) throws IdentityStoreException;
+
+    /**
+     * @return the name of the transport
+     */
+    String getName( );
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.invalidation;
+
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeInvalidation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport of the invalidations in the memory of the JVM, shared by the buses built on the same instance : it relays the invalidations between the
+ * facades of a single process, such as the nodes simulated by the load test harness, and the facade of a single node needing no other transport. Its
+ * sequences have no gaps.
+ */
+public class InMemoryInvalidationTransport implements IInvalidationTransport
+{
+    public static final String NAME = "memory";
+
+    private final ConcurrentNavigableMap<Long, FacadeInvalidation> _mapInvalidations = new ConcurrentSkipListMap<>( );
+    private final AtomicLong _lSequence = new AtomicLong( );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void publish( final List<FacadeInvalidation> listInvalidations )
+    {
+        // synchronized so that a sequence is never visible before a lower one
+        for ( final FacadeInvalidation invalidation : listInvalidations )
+        {
+            final FacadeInvalidation published = copy( invalidation );
+            published.setId( _lSequence.incrementAndGet( ) );
+            _mapInvalidations.put( published.getId( ), published );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeInvalidation> poll( final long lAfterSequence, final int nLimit )
+    {
+        final List<FacadeInvalidation> listInvalidations = new ArrayList<>( );
+        for ( final FacadeInvalidation invalidation : _mapInvalidations.tailMap( lAfterSequence, false ).values( ) )
+        {
+            if ( listInvalidations.size( ) >= nLimit )
+            {
+                break;
+            }
+            listInvalidations.add( copy( invalidation ) );
+        }
+        return listInvalidations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLastSequence( )
+    {
+        return _lSequence.get( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void purge( final long lBeforeMillis )
+    {
+        for ( final Map.Entry<Long, FacadeInvalidation> entry : _mapInvalidations.entrySet( ) )
+        {
+            if ( entry.getValue( ).getCreationDate( ).getTime( ) < lBeforeMillis )
+            {
+                _mapInvalidations.remove( entry.getKey( ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return NAME;
+    }
+
+    /**
+     * Copy an invalidation, so that the nodes do not share the instances
+     *
+     * @param invalidation
+     *            the invalidation
+     * @return the copy
+     */
+    private static FacadeInvalidation copy( final FacadeInvalidation invalidation )
+    {
+        final FacadeInvalidation copy = new FacadeInvalidation( );
+        copy.setId( invalidation.getId( ) );
+        copy.setNode( invalidation.getNode( ) );
+        copy.setType( invalidation.getType( ) );
+        copy.setCacheName( invalidation.getCacheName( ) );
+        copy.setCacheKey( invalidation.getCacheKey( ) );
+        copy.setCreationDate( invalidation.getCreationDate( ) );
+        return copy;
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.invalidation;
+
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeInvalidation;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.InvalidationBusDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bus relaying the cache invalidations of a facade node to the other nodes of the cluster, so that an identity changed, a service contract or a cache
+ * flushed on one node is not served from the caches of the others until their entries expire.<br/>
+ * The invalidations published by the node are applied locally at once by the caller, and queued : the queue keeps one invalidation per cache entry, and
+ * is written to the transport in batches every <code>identitystore.facade.invalidation.interval</code> milliseconds. The node then reads the invalidations
+ * of the other nodes by ascending sequence from its watermark, applies each distinct invalidation of a batch once, and advances its watermark over the
+ * contiguous sequences only : a sequence missing before a visible one is waited for during <code>identitystore.facade.invalidation.gap.wait</code>
+ * milliseconds before being skipped. Applying an invalidation twice is harmless, so the invalidations read after a gap are applied at once, and only once.
+ * <br/>
+ * A node converges with the others within the interval of the bus, plus the gap wait when a publishing transaction is late to commit. An invalidation
+ * committed after the gap wait is lost for the nodes which skipped its sequence : the gap wait must exceed the duration of the publishing transactions.
+ */
+public final class InvalidationBus
+{
+    private static final String PROPERTY_INVALIDATION_ENABLED = "identitystore.facade.invalidation.enabled";
+    private static final String PROPERTY_INVALIDATION_TRANSPORT = "identitystore.facade.invalidation.transport";
+    private static final String PROPERTY_INVALIDATION_NODE = "identitystore.facade.invalidation.node";
+    private static final String PROPERTY_INVALIDATION_INTERVAL = "identitystore.facade.invalidation.interval";
+    private static final String PROPERTY_INVALIDATION_BATCH_SIZE = "identitystore.facade.invalidation.batch.size";
+    private static final String PROPERTY_INVALIDATION_GAP_WAIT = "identitystore.facade.invalidation.gap.wait";
+    private static final String PROPERTY_INVALIDATION_RETENTION = "identitystore.facade.invalidation.retention";
+    private static final int DEFAULT_INVALIDATION_INTERVAL = 500;
+    private static final int DEFAULT_INVALIDATION_BATCH_SIZE = 500;
+    private static final int DEFAULT_INVALIDATION_GAP_WAIT = 5000;
+    private static final int DEFAULT_INVALIDATION_RETENTION = 3600;
+    private static final long PURGE_INTERVAL_MILLIS = 60_000L;
+
+    private final String _strNode;
+    private final IInvalidationTransport _transport;
+    private final Consumer<FacadeInvalidation> _applier;
+    private final int _nIntervalMillis;
+    private final int _nBatchSize;
+    private final long _lGapWaitMillis;
+    private final long _lRetentionMillis;
+    private final Map<String, FacadeInvalidation> _mapPending = new LinkedHashMap<>( );
+    // sequences above the watermark already read, while waiting for a gap
+    private final TreeSet<Long> _setReadAhead = new TreeSet<>( );
+    private final LongAdder _published = new LongAdder( );
+    private final LongAdder _publishFailures = new LongAdder( );
+    private final LongAdder _read = new LongAdder( );
+    private final LongAdder _applied = new LongAdder( );
+    private final LongAdder _deduplicated = new LongAdder( );
+    private final LongAdder _skippedSequences = new LongAdder( );
+    private volatile long _lWatermark = -1;
+    private volatile long _lLastLagMillis;
+    private volatile long _lMaxLagMillis;
+    private long _lGapSinceMillis;
+    private long _lLastPurgeMillis = System.currentTimeMillis( );
+    private ScheduledExecutorService _scheduler;
+
+    /**
+     * Constructor
+     *
+     * @param strNode
+     *            the name of the node, unique in the cluster
+     * @param transport
+     *            the transport shared by the nodes
+     * @param applier
+     *            applies an invalidation of another node to the local caches, without publishing it
+     * @param nIntervalMillis
+     *            the interval between two writes and reads of the transport, in milliseconds
+     * @param nBatchSize
+     *            the maximum number of invalidations written or read at once
+     * @param lGapWaitMillis
+     *            the time waited for a missing sequence, in milliseconds
+     * @param lRetentionMillis
+     *            the time the invalidations are kept by the transport, in milliseconds
+     */
+    public InvalidationBus( final String strNode, final IInvalidationTransport transport, final Consumer<FacadeInvalidation> applier,
+            final int nIntervalMillis, final int nBatchSize, final long lGapWaitMillis, final long lRetentionMillis )
+    {
+        _strNode = strNode;
+        _transport = transport;
+        _applier = applier;
+        _nIntervalMillis = nIntervalMillis;
+        _nBatchSize = nBatchSize;
+        _lGapWaitMillis = lGapWaitMillis;
+        _lRetentionMillis = lRetentionMillis;
+    }
+
+    /**
+     * @return the bus of the facade, started if the invalidation bus is enabled, {@code null} otherwise
+     */
+    public static InvalidationBus instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return the instance, created on first use
+     */
+    private static InvalidationBus create( )
+    {
+        if ( !AppPropertiesService.getPropertyBoolean( PROPERTY_INVALIDATION_ENABLED, false ) )
+        {
+            return null;
+        }
+        final String strTransport = AppPropertiesService.getProperty( PROPERTY_INVALIDATION_TRANSPORT, JdbcInvalidationTransport.NAME );
+        final IInvalidationTransport transport = InMemoryInvalidationTransport.NAME.equals( strTransport ) ? new InMemoryInvalidationTransport( )
+                : new JdbcInvalidationTransport( );
+        final String strNode = AppPropertiesService.getProperty( PROPERTY_INVALIDATION_NODE, ManagementFactory.getRuntimeMXBean( ).getName( ) );
+        final InvalidationBus instance = new InvalidationBus( StringUtils.left( strNode, 100 ), transport, FacadeCacheService.instance( )::applyInvalidation,
+                AppPropertiesService.getPropertyInt( PROPERTY_INVALIDATION_INTERVAL, DEFAULT_INVALIDATION_INTERVAL ),
+                AppPropertiesService.getPropertyInt( PROPERTY_INVALIDATION_BATCH_SIZE, DEFAULT_INVALIDATION_BATCH_SIZE ),
+                AppPropertiesService.getPropertyInt( PROPERTY_INVALIDATION_GAP_WAIT, DEFAULT_INVALIDATION_GAP_WAIT ),
+                1000L * AppPropertiesService.getPropertyInt( PROPERTY_INVALIDATION_RETENTION, DEFAULT_INVALIDATION_RETENTION ) );
+        instance.start( );
+        AppLogService.info( "Facade invalidation bus started : node " + instance._strNode + ", transport " + transport.getName( ) );
+        return instance;
+    }
+
+    /**
+     * Publish an invalidation to the other nodes of the bus of the facade, if it is enabled. The invalidation must have been applied locally.
+     *
+     * @param invalidation
+     *            the invalidation
+     */
+    public static void send( final FacadeInvalidation invalidation )
+    {
+        final InvalidationBus bus = instance( );
+        if ( bus != null )
+        {
+            bus.publish( invalidation );
+        }
+    }
+
+    /**
+     * Start writing and reading the transport
+     */
+    public synchronized void start( )
+    {
+        if ( _scheduler != null )
+        {
+            return;
+        }
+        _scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            final Thread thread = new Thread( runnable, "identitystore-facade-invalidation-bus" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        _scheduler.scheduleWithFixedDelay( this::run, 0, _nIntervalMillis, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Stop reading the transport, after writing the queued invalidations
+     */
+    public synchronized void shutdown( )
+    {
+        if ( _scheduler == null )
+        {
+            return;
+        }
+        _scheduler.shutdown( );
+        try
+        {
+            _scheduler.awaitTermination( _nIntervalMillis, TimeUnit.MILLISECONDS );
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        flush( );
+    }
+
+    /**
+     * Queue an invalidation to the other nodes. A queued invalidation of the same entry is replaced.
+     *
+     * @param invalidation
+     *            the invalidation, applied locally
+     */
+    public void publish( final FacadeInvalidation invalidation )
+    {
+        invalidation.setNode( _strNode );
+        synchronized( _mapPending )
+        {
+            if ( _mapPending.remove( invalidation.getDeduplicationKey( ) ) != null )
+            {
+                _deduplicated.increment( );
+            }
+            _mapPending.put( invalidation.getDeduplicationKey( ), invalidation );
+        }
+    }
+
+    /**
+     * Write the queued invalidations to the transport, in batches. The invalidations which cannot be written are queued again.
+     */
+    public void flush( )
+    {
+        final List<FacadeInvalidation> listInvalidations;
+        synchronized( _mapPending )
+        {
+            if ( _mapPending.isEmpty( ) )
+            {
+                return;
+            }
+            listInvalidations = new ArrayList<>( _mapPending.values( ) );
+            _mapPending.clear( );
+        }
+        for ( int i = 0; i < listInvalidations.size( ); i += _nBatchSize )
+        {
+            final List<FacadeInvalidation> listBatch = listInvalidations.subList( i, Math.min( i + _nBatchSize, listInvalidations.size( ) ) );
+            try
+            {
+                _transport.publish( listBatch );
+                _published.add( listBatch.size( ) );
+            }
+            catch( final IdentityStoreException | RuntimeException e )
+            {
+                _publishFailures.increment( );
+                AppLogService.error( "Unable to publish the facade cache invalidations, they are queued again", e );
+                synchronized( _mapPending )
+                {
+                    // an invalidation queued meanwhile replaces the one which failed
+                    for ( final FacadeInvalidation invalidation : listInvalidations.subList( i, listInvalidations.size( ) ) )
+                    {
+                        _mapPending.putIfAbsent( invalidation.getDeduplicationKey( ), invalidation );
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Read the invalidations published after the watermark, apply those of the other nodes, and advance the watermark
+     *
+     * @throws IdentityStoreException
+     *             if the invalidations cannot be read
+     */
+    public synchronized void poll( ) throws IdentityStoreException
+    {
+        if ( _lWatermark < 0 )
+        {
+            // a starting node has nothing to invalidate from the past
+            _lWatermark = _transport.getLastSequence( );
+        }
+        // read from the watermark, so that a late sequence is seen, the sequences already read ahead of a gap being skipped
+        long lCursor = _lWatermark;
+        List<FacadeInvalidation> listInvalidations;
+        do
+        {
+            listInvalidations = _transport.poll( lCursor, _nBatchSize );
+            final Map<String, FacadeInvalidation> mapBatch = new LinkedHashMap<>( );
+            for ( final FacadeInvalidation invalidation : listInvalidations )
+            {
+                lCursor = invalidation.getId( );
+                if ( !_setReadAhead.add( invalidation.getId( ) ) )
+                {
+                    continue;
+                }
+                _read.increment( );
+                if ( !_strNode.equals( invalidation.getNode( ) ) && mapBatch.putIfAbsent( invalidation.getDeduplicationKey( ), invalidation ) != null )
+                {
+                    _deduplicated.increment( );
+                }
+            }
+            for ( final FacadeInvalidation invalidation : mapBatch.values( ) )
+            {
+                apply( invalidation );
+            }
+        }
+        while ( listInvalidations.size( ) == _nBatchSize );
+        advanceWatermark( );
+    }
+
+    /**
+     * @return the sequence up to which all the invalidations have been read, -1 before the first read
+     */
+    public long getWatermark( )
+    {
+        return _lWatermark;
+    }
+
+    /**
+     * @return the name of the node
+     */
+    public String getNode( )
+    {
+        return _strNode;
+    }
+
+    /**
+     * @return the state of the bus
+     */
+    public InvalidationBusDto getState( )
+    {
+        final InvalidationBusDto state = new InvalidationBusDto( );
+        state.setNode( _strNode );
+        state.setTransport( _transport.getName( ) );
+        state.setWatermark( _lWatermark );
+        synchronized( _mapPending )
+        {
+            state.setPending( _mapPending.size( ) );
+        }
+        state.setPublished( _published.sum( ) );
+        state.setPublishFailures( _publishFailures.sum( ) );
+        state.setRead( _read.sum( ) );
+        state.setApplied( _applied.sum( ) );
+        state.setDeduplicated( _deduplicated.sum( ) );
+        state.setSkippedSequences( _skippedSequences.sum( ) );
+        state.setLastLagMillis( _lLastLagMillis );
+        state.setMaxLagMillis( _lMaxLagMillis );
+        return state;
+    }
+
+    /**
+     * Write, read, and purge the transport from time to time
+     */
+    private void run( )
+    {
+        flush( );
+        try
+        {
+            poll( );
+            final long lNow = System.currentTimeMillis( );
+            if ( _lRetentionMillis > 0 && lNow - _lLastPurgeMillis >= PURGE_INTERVAL_MILLIS )
+            {
+                _lLastPurgeMillis = lNow;
+                _transport.purge( lNow - _lRetentionMillis );
+            }
+        }
+        catch( final IdentityStoreException | RuntimeException e )
+        {
+            AppLogService.error( "Unable to read the facade cache invalidations, the caches may serve stale entries", e );
+        }
+    }
+
+    /**
+     * Apply an invalidation of another node
+     *
+     * @param invalidation
+     *            the invalidation
+     */
+    private void apply( final FacadeInvalidation invalidation )
+    {
+        try
+        {
+            _applier.accept( invalidation );
+        }
+        catch( final RuntimeException e )
+        {
+            AppLogService.error( "Unable to apply the facade cache invalidation " + invalidation.getDeduplicationKey( ), e );
+        }
+        _applied.increment( );
+        if ( invalidation.getCreationDate( ) != null )
+        {
+            // the lag includes the clock skew between the nodes
+            final long lLagMillis = Math.max( 0, System.currentTimeMillis( ) - invalidation.getCreationDate( ).getTime( ) );
+            _lLastLagMillis = lLagMillis;
+            _lMaxLagMillis = Math.max( _lMaxLagMillis, lLagMillis );
+        }
+    }
+
+    /**
+     * Advance the watermark over the contiguous sequences read, and over a gap waited for too long
+     */
+    private void advanceWatermark( )
+    {
+        while ( !_setReadAhead.isEmpty( ) )
+        {
+            final long lNext = _setReadAhead.first( );
+            if ( lNext > _lWatermark + 1 )
+            {
+                final long lNow = System.currentTimeMillis( );
+                if ( _lGapSinceMillis == 0 )
+                {
+                    _lGapSinceMillis = lNow;
+                }
+                if ( lNow - _lGapSinceMillis < _lGapWaitMillis )
+                {
+                    return;
+                }
+                _skippedSequences.add( lNext - _lWatermark - 1 );
+                AppLogService.info( "Facade invalidation sequences " + ( _lWatermark + 1 ) + " to " + ( lNext - 1 ) + " skipped after "
+                        + _lGapWaitMillis + " ms" );
+            }
+            _setReadAhead.pollFirst( );
+            _lWatermark = lNext;
+            _lGapSinceMillis = 0;
+        }
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final InvalidationBus INSTANCE = create( );
+    }
+}
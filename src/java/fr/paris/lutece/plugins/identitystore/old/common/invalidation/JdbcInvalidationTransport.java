@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.invalidation;
+
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeInvalidation;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeInvalidationHome;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Transport of the invalidations through the <code>identitystore_facade_invalidation</code> table of the identitystore database, polled by the nodes : the
+ * sequence of an invalidation is its auto-incremented ID. An ID can be allocated by a transaction which commits after a transaction with a greater ID, or
+ * which rolls back, hence the gaps waited for by the bus.
+ */
+public class JdbcInvalidationTransport implements IInvalidationTransport
+{
+    public static final String NAME = "jdbc";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void publish( final List<FacadeInvalidation> listInvalidations ) throws IdentityStoreException
+    {
+        try
+        {
+            FacadeInvalidationHome.create( listInvalidations );
+        }
+        catch( final RuntimeException e )
+        {
+            throw new IdentityStoreException( "Unable to publish the facade cache invalidations", e );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeInvalidation> poll( final long lAfterSequence, final int nLimit ) throws IdentityStoreException
+    {
+        try
+        {
+            return FacadeInvalidationHome.findAfter( lAfterSequence, nLimit );
+        }
+        catch( final RuntimeException e )
+        {
+            throw new IdentityStoreException( "Unable to read the facade cache invalidations", e );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLastSequence( ) throws IdentityStoreException
+    {
+        try
+        {
+            return FacadeInvalidationHome.getLastId( );
+        }
+        catch( final RuntimeException e )
+        {
+            throw new IdentityStoreException( "Unable to read the last facade cache invalidation", e );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void purge( final long lBeforeMillis ) throws IdentityStoreException
+    {
+        try
+        {
+            FacadeInvalidationHome.removeBefore( new Timestamp( lBeforeMillis ) );
+        }
+        catch( final RuntimeException e )
+        {
+            throw new IdentityStoreException( "Unable to purge the facade cache invalidations", e );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return NAME;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of the conversion of a v3 identity to the v1 or v2 model
+ */
+@Name( FacadeEvents.EVENT_NAME_PREFIX + "IdentityConversion" )
+@Label( "Identity Conversion" )
+@Category( {
+        FacadeEvents.CATEGORY_IDENTITYSTORE, FacadeEvents.CATEGORY_FACADE
+} )
+public class IdentityConversionEvent extends jdk.jfr.Event
+{
+    @Label( "API Version" )
+    @Name( "apiVersion" )
+    private String _strApiVersion;
+
+    @Label( "Attribute Count" )
+    @Name( "attributeCount" )
+    private int _nAttributeCount;
+
+    /**
+     * @param strApiVersion
+     *            the version of the API the identity is converted to
+     */
+    public void setApiVersion( final String strApiVersion )
+    {
+        _strApiVersion = strApiVersion;
+    }
+
+    /**
+     * @param nAttributeCount
+     *            the number of converted attributes
+     */
+    public void setAttributeCount( final int nAttributeCount )
+    {
+        _nAttributeCount = nAttributeCount;
+    }
+}
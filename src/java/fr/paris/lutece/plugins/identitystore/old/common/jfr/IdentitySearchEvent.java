@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of an identity search by customer or connection ID
+ */
+@Name( FacadeEvents.EVENT_NAME_PREFIX + "IdentitySearch" )
+@Label( "Identity Search" )
+@Description( "Search of an identity by customer or connection ID, including the service contract lookup, the history fallback and the access log" )
+@Category( {
+        FacadeEvents.CATEGORY_IDENTITYSTORE, FacadeEvents.CATEGORY_FACADE
+} )
+public class IdentitySearchEvent extends jdk.jfr.Event
+{
+    @Label( "Client Code" )
+    @Name( "clientCode" )
+    private String _strClientCode;
+
+    @Label( "By Customer ID" )
+    @Name( "byCustomerId" )
+    private boolean _bByCustomerId;
+
+    @Label( "Cache Hit" )
+    @Description( "The identity was in the identity cache before the search (only known for the searches by customer ID)" )
+    @Name( "cacheHit" )
+    private boolean _bCacheHit;
+
+    @Label( "Found" )
+    @Name( "found" )
+    private boolean _bFound;
+
+    @Label( "Deleted" )
+    @Description( "The identity was not found but has a history, i.e. it was deleted" )
+    @Name( "deleted" )
+    private boolean _bDeleted;
+
+    /**
+     * @param strClientCode
+     *            the client code
+     */
+    public void setClientCode( final String strClientCode )
+    {
+        _strClientCode = strClientCode;
+    }
+
+    /**
+     * @param bByCustomerId
+     *            {@code true} if the search is by customer ID
+     */
+    public void setByCustomerId( final boolean bByCustomerId )
+    {
+        _bByCustomerId = bByCustomerId;
+    }
+
+    /**
+     * @param bCacheHit
+     *            {@code true} if the identity was cached
+     */
+    public void setCacheHit( final boolean bCacheHit )
+    {
+        _bCacheHit = bCacheHit;
+    }
+
+    /**
+     * @param bFound
+     *            {@code true} if the identity was found
+     */
+    public void setFound( final boolean bFound )
+    {
+        _bFound = bFound;
+    }
+
+    /**
+     * @param bDeleted
+     *            {@code true} if the identity was deleted
+     */
+    public void setDeleted( final boolean bDeleted )
+    {
+        _bDeleted = bDeleted;
+    }
+}
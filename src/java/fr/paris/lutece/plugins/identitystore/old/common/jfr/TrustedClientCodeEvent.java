@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of the resolution of the trusted client code of a request
+ */
+@Name( FacadeEvents.EVENT_NAME_PREFIX + "TrustedClientCode" )
+@Label( "Trusted Client Code" )
+@Description( "Resolution of the trusted client code of a request, and verification of its correlation with the application code" )
+@Category( {
+        FacadeEvents.CATEGORY_IDENTITYSTORE, FacadeEvents.CATEGORY_FACADE
+} )
+public class TrustedClientCodeEvent extends jdk.jfr.Event
+{
+    @Label( "Secure Mode" )
+    @Name( "secureMode" )
+    private String _strSecureMode;
+
+    @Label( "Correlation Checked" )
+    @Description( "An application code was provided and its correlation with the client code verified" )
+    @Name( "correlationChecked" )
+    private boolean _bCorrelationChecked;
+
+    @Label( "Succeeded" )
+    @Name( "succeeded" )
+    private boolean _bSucceeded;
+
+    /**
+     * @param strSecureMode
+     *            the secure mode of the identitystore
+     */
+    public void setSecureMode( final String strSecureMode )
+    {
+        _strSecureMode = strSecureMode;
+    }
+
+    /**
+     * @param bCorrelationChecked
+     *            {@code true} if the correlation with the application code was verified
+     */
+    public void setCorrelationChecked( final boolean bCorrelationChecked )
+    {
+        _bCorrelationChecked = bCorrelationChecked;
+    }
+
+    /**
+     * @param bSucceeded
+     *            {@code true} if the client code was resolved
+     */
+    public void setSucceeded( final boolean bSucceeded )
+    {
+        _bSucceeded = bSucceeded;
+    }
+}
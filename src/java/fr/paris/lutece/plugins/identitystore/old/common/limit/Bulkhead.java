@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.limit;
+
+import fr.paris.lutece.plugins.identitystore.old.common.ServiceOverloadedException;
+import fr.paris.lutece.plugins.identitystore.old.common.deadline.RequestDeadline;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.BulkheadDto;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of permits dedicated to a class of clients, so that the requests of a class cannot use the threads and the database connections of the others.<br/>
+ * The requests over the permits wait for a release, up to a maximum wait and a maximum number of waiting requests, then are rejected.<br/>
+ * A bulkhead may yield to a bulkhead of higher priority : while the latter is under pressure, i.e. has waiting requests or most of its permits in use, the
+ * yielding bulkhead only grants its reserved permits, so that its requests still progress but cannot starve the requests of higher priority.
+ */
+public class Bulkhead
+{
+    private static final long YIELD_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos( 10 );
+
+    private final ClientClass _clientClass;
+    private final int _nPermits;
+    private final int _nMaxWaiting;
+    private final long _lWaitMillis;
+    private final Bulkhead _priorityBulkhead;
+    private final double _dPressureRatio;
+    private final int _nReservedPermits;
+    private final ReentrantLock _lock = new ReentrantLock( );
+    private final Condition _released = _lock.newCondition( );
+    private final LongAdder _lAccepted = new LongAdder( );
+    private final LongAdder _lRejected = new LongAdder( );
+    private final LongAdder _lYielded = new LongAdder( );
+    private volatile int _nInFlight;
+    private volatile int _nWaiting;
+
+    /**
+     * Constructor of a bulkhead without priority
+     *
+     * @param clientClass
+     *            the class of the clients of the bulkhead
+     * @param nPermits
+     *            the number of permits
+     * @param nMaxWaiting
+     *            the maximum number of requests waiting for a permit
+     * @param lWaitMillis
+     *            the maximum wait for a permit, in milliseconds
+     */
+    public Bulkhead( final ClientClass clientClass, final int nPermits, final int nMaxWaiting, final long lWaitMillis )
+    {
+        this( clientClass, nPermits, nMaxWaiting, lWaitMillis, null, 1, nPermits );
+    }
+
+    /**
+     * Constructor of a bulkhead yielding to a bulkhead of higher priority
+     *
+     * @param clientClass
+     *            the class of the clients of the bulkhead
+     * @param nPermits
+     *            the number of permits
+     * @param nMaxWaiting
+     *            the maximum number of requests waiting for a permit
+     * @param lWaitMillis
+     *            the maximum wait for a permit, in milliseconds
+     * @param priorityBulkhead
+     *            the bulkhead of higher priority, possibly {@code null}
+     * @param dPressureRatio
+     *            the ratio of the permits of the bulkhead of higher priority in use above which it is under pressure
+     * @param nReservedPermits
+     *            the number of permits granted while the bulkhead of higher priority is under pressure
+     */
+    public Bulkhead( final ClientClass clientClass, final int nPermits, final int nMaxWaiting, final long lWaitMillis, final Bulkhead priorityBulkhead,
+            final double dPressureRatio, final int nReservedPermits )
+    {
+        _clientClass = clientClass;
+        _nPermits = Math.max( 1, nPermits );
+        _nMaxWaiting = Math.max( 0, nMaxWaiting );
+        _lWaitMillis = Math.max( 0, lWaitMillis );
+        _priorityBulkhead = priorityBulkhead;
+        _dPressureRatio = Math.min( 1, Math.max( 0, dPressureRatio ) );
+        _nReservedPermits = Math.min( _nPermits, Math.max( 1, nReservedPermits ) );
+    }
+
+    /**
+     * @return the class of the clients of the bulkhead
+     */
+    public ClientClass getClientClass( )
+    {
+        return _clientClass;
+    }
+
+    /**
+     * Acquire a permit, to be closed when the request is served. The wait for a permit is shortened to the deadline of the request, if any.
+     *
+     * @return the permit
+     * @throws ServiceOverloadedException
+     *             if no permit is released in time
+     */
+    public BulkheadPermit acquire( ) throws ServiceOverloadedException
+    {
+        long lRemainingNanos = TimeUnit.MILLISECONDS.toNanos( RequestDeadline.capTimeout( _lWaitMillis ) );
+        _lock.lock( );
+        try
+        {
+            if ( _nInFlight >= getAvailablePermits( ) )
+            {
+                if ( lRemainingNanos <= 0 || _nWaiting >= _nMaxWaiting )
+                {
+                    throw reject( );
+                }
+                _nWaiting++;
+                try
+                {
+                    while ( _nInFlight >= getAvailablePermits( ) )
+                    {
+                        if ( lRemainingNanos <= 0 )
+                        {
+                            throw reject( );
+                        }
+                        // the end of the pressure of the bulkhead of higher priority is not signaled
+                        final long lWaitNanos = _priorityBulkhead != null ? Math.min( lRemainingNanos, YIELD_POLL_NANOS ) : lRemainingNanos;
+                        lRemainingNanos -= lWaitNanos - _released.awaitNanos( lWaitNanos );
+                    }
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                    throw reject( );
+                }
+                finally
+                {
+                    _nWaiting--;
+                }
+            }
+            _nInFlight++;
+        }
+        finally
+        {
+            _lock.unlock( );
+        }
+        _lAccepted.increment( );
+        return new BulkheadPermit( this );
+    }
+
+    /**
+     * Release a permit
+     */
+    void release( )
+    {
+        _lock.lock( );
+        try
+        {
+            _nInFlight--;
+            _released.signal( );
+        }
+        finally
+        {
+            _lock.unlock( );
+        }
+    }
+
+    /**
+     * @return {@code true} if the bulkhead has waiting requests or most of its permits in use
+     */
+    public boolean isUnderPressure( )
+    {
+        return _nWaiting > 0 || _nInFlight >= _nPermits * _dPressureRatio;
+    }
+
+    /**
+     * @return the number of permits granted, reduced to the reserved permits while the bulkhead of higher priority is under pressure
+     */
+    private int getAvailablePermits( )
+    {
+        return _priorityBulkhead != null && _priorityBulkhead.isUnderPressure( ) ? _nReservedPermits : _nPermits;
+    }
+
+    /**
+     * Count a rejected request
+     *
+     * @return the exception to throw
+     */
+    private ServiceOverloadedException reject( )
+    {
+        _lRejected.increment( );
+        if ( getAvailablePermits( ) < _nPermits )
+        {
+            _lYielded.increment( );
+        }
+        return new ServiceOverloadedException( "No permit of the " + _clientClass.getCode( ) + " bulkhead available" );
+    }
+
+    /**
+     * @return the state of the bulkhead
+     */
+    public BulkheadDto getState( )
+    {
+        final BulkheadDto state = new BulkheadDto( );
+        state.setClientClass( _clientClass.getCode( ) );
+        state.setPermits( _nPermits );
+        state.setAvailablePermits( getAvailablePermits( ) );
+        state.setInFlight( _nInFlight );
+        state.setWaiting( _nWaiting );
+        state.setUnderPressure( isUnderPressure( ) );
+        state.setAccepted( _lAccepted.sum( ) );
+        state.setRejected( _lRejected.sum( ) );
+        state.setYielded( _lYielded.sum( ) );
+        return state;
+    }
+}
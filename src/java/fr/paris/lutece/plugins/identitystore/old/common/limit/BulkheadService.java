@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.limit;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.identitystore.old.common.ServiceOverloadedException;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.BulkheadsDto;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Isolation of the v1/v2 requests of the classes of clients (see {@link Bulkhead}) : the interactive front-ends of the agents, the batch synchronizations
+ * and the Swagger documentation each have their own permits. The change feed calls, which may hold their permit for a long poll, are served by their own
+ * bulkhead whatever the class of the client.<br/>
+ * The class of a client is configured by its client code, i.e. by its service contract, and defaults to interactive. The batch bulkhead yields to the
+ * interactive one : while the interactive requests are under pressure, the batch requests only get their reserved permits.<br/>
+ * The bulkheads apply once the client is identified, after the adaptive limit of the node (see {@link ConcurrencyLimiterService}).
+ */
+public final class BulkheadService
+{
+    private static final String PROPERTY_BULKHEAD_ENABLED = "identitystore.facade.bulkhead.enabled";
+    private static final String PROPERTY_BULKHEAD_DEFAULT_CLASS = "identitystore.facade.bulkhead.default.class";
+    private static final String PROPERTY_PREFIX_BULKHEAD_CLIENT = "identitystore.facade.bulkhead.client.";
+    private static final String PROPERTY_PREFIX_BULKHEAD = "identitystore.facade.bulkhead.";
+    private static final String PROPERTY_SUFFIX_PERMITS = ".permits";
+    private static final String PROPERTY_SUFFIX_QUEUE = ".queue";
+    private static final String PROPERTY_SUFFIX_WAIT = ".wait";
+    private static final String PROPERTY_BULKHEAD_BATCH_PRESSURE = "identitystore.facade.bulkhead.batch.pressure";
+    private static final String PROPERTY_BULKHEAD_BATCH_RESERVED = "identitystore.facade.bulkhead.batch.reserved";
+    private static final int DEFAULT_INTERACTIVE_PERMITS = 100;
+    private static final int DEFAULT_INTERACTIVE_QUEUE = 100;
+    private static final int DEFAULT_INTERACTIVE_WAIT = 100;
+    private static final int DEFAULT_BATCH_PERMITS = 20;
+    private static final int DEFAULT_BATCH_QUEUE = 20;
+    private static final int DEFAULT_BATCH_WAIT = 1000;
+    private static final String DEFAULT_BATCH_PRESSURE = "0.8";
+    private static final int DEFAULT_BATCH_RESERVED = 2;
+    private static final int DEFAULT_DOCUMENTATION_PERMITS = 2;
+    private static final int DEFAULT_FEED_PERMITS = 20;
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_BULKHEAD_ENABLED, false );
+    private final ClientClass _defaultClass;
+    private final Map<ClientClass, Bulkhead> _mapBulkheads = new EnumMap<>( ClientClass.class );
+
+    /**
+     * private constructor
+     */
+    private BulkheadService( )
+    {
+        final ClientClass defaultClass = ClientClass.fromCode( AppPropertiesService.getProperty( PROPERTY_BULKHEAD_DEFAULT_CLASS ) );
+        _defaultClass = defaultClass != null ? defaultClass : ClientClass.INTERACTIVE;
+        final Bulkhead interactive = new Bulkhead( ClientClass.INTERACTIVE, getPermits( ClientClass.INTERACTIVE, DEFAULT_INTERACTIVE_PERMITS ),
+                getQueue( ClientClass.INTERACTIVE, DEFAULT_INTERACTIVE_QUEUE ), getWait( ClientClass.INTERACTIVE, DEFAULT_INTERACTIVE_WAIT ) );
+        final double dBatchPressure = Double.parseDouble( AppPropertiesService.getProperty( PROPERTY_BULKHEAD_BATCH_PRESSURE, DEFAULT_BATCH_PRESSURE ) );
+        final Bulkhead batch = new Bulkhead( ClientClass.BATCH, getPermits( ClientClass.BATCH, DEFAULT_BATCH_PERMITS ),
+                getQueue( ClientClass.BATCH, DEFAULT_BATCH_QUEUE ), getWait( ClientClass.BATCH, DEFAULT_BATCH_WAIT ), interactive, dBatchPressure,
+                AppPropertiesService.getPropertyInt( PROPERTY_BULKHEAD_BATCH_RESERVED, DEFAULT_BATCH_RESERVED ) );
+        final Bulkhead documentation = new Bulkhead( ClientClass.DOCUMENTATION, getPermits( ClientClass.DOCUMENTATION, DEFAULT_DOCUMENTATION_PERMITS ),
+                getQueue( ClientClass.DOCUMENTATION, 0 ), getWait( ClientClass.DOCUMENTATION, 0 ) );
+        _mapBulkheads.put( ClientClass.INTERACTIVE, interactive );
+        _mapBulkheads.put( ClientClass.BATCH, batch );
+        final Bulkhead feed = new Bulkhead( ClientClass.FEED, getPermits( ClientClass.FEED, DEFAULT_FEED_PERMITS ), getQueue( ClientClass.FEED, 0 ),
+                getWait( ClientClass.FEED, 0 ) );
+        _mapBulkheads.put( ClientClass.DOCUMENTATION, documentation );
+        _mapBulkheads.put( ClientClass.FEED, feed );
+    }
+
+    /**
+     * @return the instance
+     */
+    public static BulkheadService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Give the class of a client
+     *
+     * @param strClientCode
+     *            the trusted client code
+     * @return the class configured for the client, or the default class
+     */
+    public ClientClass getClientClass( final String strClientCode )
+    {
+        if ( StringUtils.isNotBlank( strClientCode ) )
+        {
+            final ClientClass clientClass = ClientClass.fromCode( AppPropertiesService.getProperty( PROPERTY_PREFIX_BULKHEAD_CLIENT + strClientCode ) );
+            if ( clientClass != null )
+            {
+                return clientClass;
+            }
+        }
+        return _defaultClass;
+    }
+
+    /**
+     * Acquire a permit of the bulkhead of a client
+     *
+     * @param strClientCode
+     *            the trusted client code
+     * @return the permit, to be closed when the request is served, {@code null} if the bulkheads are disabled
+     * @throws ServiceOverloadedException
+     *             if no permit is available in time
+     */
+    public BulkheadPermit acquire( final String strClientCode ) throws ServiceOverloadedException
+    {
+        return _bEnabled ? _mapBulkheads.get( getClientClass( strClientCode ) ).acquire( ) : null;
+    }
+
+    /**
+     * Acquire a permit of the bulkhead of a class of clients
+     *
+     * @param clientClass
+     *            the class of clients
+     * @return the permit, to be closed when the request is served, {@code null} if the bulkheads are disabled
+     * @throws ServiceOverloadedException
+     *             if no permit is available in time
+     */
+    public BulkheadPermit acquire( final ClientClass clientClass ) throws ServiceOverloadedException
+    {
+        return _bEnabled ? _mapBulkheads.get( clientClass ).acquire( ) : null;
+    }
+
+    /**
+     * @return the state of the bulkheads
+     */
+    public BulkheadsDto getState( )
+    {
+        final BulkheadsDto state = new BulkheadsDto( );
+        state.setEnabled( _bEnabled );
+        for ( final Bulkhead bulkhead : _mapBulkheads.values( ) )
+        {
+            state.getBulkheads( ).add( bulkhead.getState( ) );
+        }
+        return state;
+    }
+
+    /**
+     * @param clientClass
+     *            the class of clients
+     * @param nDefault
+     *            the default number of permits
+     * @return the number of permits of the bulkhead of the class
+     */
+    private static int getPermits( final ClientClass clientClass, final int nDefault )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_PREFIX_BULKHEAD + clientClass.getCode( ) + PROPERTY_SUFFIX_PERMITS, nDefault );
+    }
+
+    /**
+     * @param clientClass
+     *            the class of clients
+     * @param nDefault
+     *            the default maximum number of waiting requests
+     * @return the maximum number of requests waiting for a permit of the bulkhead of the class
+     */
+    private static int getQueue( final ClientClass clientClass, final int nDefault )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_PREFIX_BULKHEAD + clientClass.getCode( ) + PROPERTY_SUFFIX_QUEUE, nDefault );
+    }
+
+    /**
+     * @param clientClass
+     *            the class of clients
+     * @param nDefault
+     *            the default maximum wait, in milliseconds
+     * @return the maximum wait for a permit of the bulkhead of the class, in milliseconds
+     */
+    private static int getWait( final ClientClass clientClass, final int nDefault )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_PREFIX_BULKHEAD + clientClass.getCode( ) + PROPERTY_SUFFIX_WAIT, nDefault );
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final BulkheadService INSTANCE = new BulkheadService( );
+    }
+}
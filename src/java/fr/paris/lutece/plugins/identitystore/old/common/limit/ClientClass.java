@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.limit;
+
+/**
+ * The classes of clients isolated by the {@link BulkheadService}
+ */
+public enum ClientClass
+{
+    INTERACTIVE( "interactive" ),
+    BATCH( "batch" ),
+    DOCUMENTATION( "documentation" ),
+    FEED( "feed" );
+
+    private final String _strCode;
+
+    /**
+     * Constructor
+     *
+     * @param strCode
+     *            the code of the class in the properties and the admin API
+     */
+    ClientClass( final String strCode )
+    {
+        _strCode = strCode;
+    }
+
+    /**
+     * @return the code of the class in the properties and the admin API
+     */
+    public String getCode( )
+    {
+        return _strCode;
+    }
+
+    /**
+     * Find a class by its code
+     *
+     * @param strCode
+     *            the code
+     * @return the class, {@code null} if none
+     */
+    public static ClientClass fromCode( final String strCode )
+    {
+        for ( final ClientClass clientClass : values( ) )
+        {
+            if ( clientClass._strCode.equals( strCode ) )
+            {
+                return clientClass;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.limit;
+
+import fr.paris.lutece.plugins.identitystore.old.common.ServiceOverloadedException;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.ConcurrencyLimiterDto;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive limit of the concurrent requests, following the gradient of the latency.<br/>
+ * The latencies are averaged over windows of samples. The average of a window (short RTT) is compared to a slow moving average of the previous windows
+ * (long RTT) : while the short RTT stays within the tolerance of the long RTT, the limit grows by about its square root per window ; when the latency rises,
+ * the limit shrinks in proportion, down to half of the limit per window. The requests over the limit are rejected immediately instead of being queued until
+ * they time out.<br/>
+ * The limit does not grow while the requests in flight stay below half of it, so that it is not raised by a load it was never tested with.
+ */
+public class ConcurrencyLimiter
+{
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double LONG_RTT_DRIFT_RATIO = 2;
+    private static final double LONG_RTT_DRIFT_DECAY = 0.95;
+    private static final long WINDOW_MAX_NANOS = TimeUnit.SECONDS.toNanos( 1 );
+
+    private final String _strName;
+    private final int _nMinLimit;
+    private final int _nMaxLimit;
+    private final double _dRttTolerance;
+    private final double _dSmoothing;
+    private final int _nWindowSize;
+    private final int _nLongWindow;
+    private final AtomicInteger _nInFlight = new AtomicInteger( );
+    private final LongAdder _lAccepted = new LongAdder( );
+    private final LongAdder _lRejected = new LongAdder( );
+    private volatile int _nLimit;
+    private double _dLimit;
+    private double _dLongRttNanos;
+    private double _dShortRttNanos;
+    private long _lWindowStartNanos = System.nanoTime( );
+    private long _lWindowSumNanos;
+    private int _nWindowCount;
+    private int _nWindowMaxInFlight;
+
+    /**
+     * Constructor
+     *
+     * @param strName
+     *            the name of the limiter
+     * @param nInitialLimit
+     *            the initial limit
+     * @param nMinLimit
+     *            the minimum limit
+     * @param nMaxLimit
+     *            the maximum limit
+     * @param dRttTolerance
+     *            the ratio of the long RTT below which the short RTT is not considered as a rise of the latency
+     * @param dSmoothing
+     *            the weight of the new limit computed at the end of a window, between 0 and 1
+     * @param nWindowSize
+     *            the number of samples of a window, a window also ending after one second
+     * @param nLongWindow
+     *            the number of windows averaged by the long RTT
+     */
+    public ConcurrencyLimiter( final String strName, final int nInitialLimit, final int nMinLimit, final int nMaxLimit, final double dRttTolerance,
+            final double dSmoothing, final int nWindowSize, final int nLongWindow )
+    {
+        _strName = strName;
+        _nMinLimit = Math.max( 1, nMinLimit );
+        _nMaxLimit = Math.max( _nMinLimit, nMaxLimit );
+        _dRttTolerance = Math.max( 1, dRttTolerance );
+        _dSmoothing = Math.min( 1, Math.max( 0, dSmoothing ) );
+        _nWindowSize = Math.max( 1, nWindowSize );
+        _nLongWindow = Math.max( 1, nLongWindow );
+        _dLimit = Math.min( _nMaxLimit, Math.max( _nMinLimit, nInitialLimit ) );
+        _nLimit = (int) _dLimit;
+    }
+
+    /**
+     * Acquire a permit, to be closed when the request is served
+     *
+     * @return the permit
+     * @throws ServiceOverloadedException
+     *             if the limit is reached
+     */
+    public LimiterPermit acquire( ) throws ServiceOverloadedException
+    {
+        int nInFlight;
+        do
+        {
+            nInFlight = _nInFlight.get( );
+            if ( nInFlight >= _nLimit )
+            {
+                _lRejected.increment( );
+                throw new ServiceOverloadedException( "Concurrency limit " + _nLimit + " of " + _strName + " reached" );
+            }
+        }
+        while ( !_nInFlight.compareAndSet( nInFlight, nInFlight + 1 ) );
+        _lAccepted.increment( );
+        return new LimiterPermit( this, nInFlight + 1, System.nanoTime( ) );
+    }
+
+    /**
+     * Release a permit and record the latency of its request
+     *
+     * @param nInFlight
+     *            the requests in flight when the permit was acquired
+     * @param lRttNanos
+     *            the latency of the request
+     */
+    void release( final int nInFlight, final long lRttNanos )
+    {
+        _nInFlight.decrementAndGet( );
+        synchronized( this )
+        {
+            _lWindowSumNanos += lRttNanos;
+            _nWindowCount++;
+            _nWindowMaxInFlight = Math.max( _nWindowMaxInFlight, nInFlight );
+            final long lNow = System.nanoTime( );
+            if ( _nWindowCount >= _nWindowSize || lNow - _lWindowStartNanos >= WINDOW_MAX_NANOS )
+            {
+                updateLimit( (double) _lWindowSumNanos / _nWindowCount );
+                _lWindowStartNanos = lNow;
+                _lWindowSumNanos = 0;
+                _nWindowCount = 0;
+                _nWindowMaxInFlight = 0;
+            }
+        }
+    }
+
+    /**
+     * Compute the limit at the end of a window
+     *
+     * @param dShortRttNanos
+     *            the average latency of the window
+     */
+    private void updateLimit( final double dShortRttNanos )
+    {
+        _dShortRttNanos = dShortRttNanos;
+        if ( _dLongRttNanos == 0 )
+        {
+            _dLongRttNanos = dShortRttNanos;
+        }
+        else
+        {
+            _dLongRttNanos += ( dShortRttNanos - _dLongRttNanos ) / _nLongWindow;
+        }
+        // after a long period of high latency, the long RTT follows the recovery faster
+        if ( _dLongRttNanos > LONG_RTT_DRIFT_RATIO * dShortRttNanos )
+        {
+            _dLongRttNanos *= LONG_RTT_DRIFT_DECAY;
+        }
+        if ( _nWindowMaxInFlight < _dLimit / 2 )
+        {
+            return;
+        }
+        final double dGradient = Math.max( MIN_GRADIENT, Math.min( 1, _dRttTolerance * _dLongRttNanos / dShortRttNanos ) );
+        final double dNewLimit = _dLimit * dGradient + Math.sqrt( _dLimit );
+        _dLimit = Math.min( _nMaxLimit, Math.max( _nMinLimit, _dLimit * ( 1 - _dSmoothing ) + dNewLimit * _dSmoothing ) );
+        _nLimit = (int) _dLimit;
+    }
+
+    /**
+     * @return the state of the limiter
+     */
+    public synchronized ConcurrencyLimiterDto getState( )
+    {
+        final ConcurrencyLimiterDto state = new ConcurrencyLimiterDto( );
+        state.setName( _strName );
+        state.setLimit( _nLimit );
+        state.setMinLimit( _nMinLimit );
+        state.setMaxLimit( _nMaxLimit );
+        state.setInFlight( _nInFlight.get( ) );
+        state.setShortRttMillis( _dShortRttNanos / TimeUnit.MILLISECONDS.toNanos( 1 ) );
+        state.setLongRttMillis( _dLongRttNanos / TimeUnit.MILLISECONDS.toNanos( 1 ) );
+        state.setAccepted( _lAccepted.sum( ) );
+        state.setRejected( _lRejected.sum( ) );
+        return state;
+    }
+}
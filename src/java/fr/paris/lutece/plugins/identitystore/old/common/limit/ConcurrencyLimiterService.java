@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.limit;
+
+import fr.paris.lutece.plugins.identitystore.old.common.ServiceOverloadedException;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.ConcurrencyLimitersDto;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Adaptive concurrency limit of the v1/v2 GET identity requests (see {@link ConcurrencyLimiter}).<br/>
+ * The limit is global to the node and applies before the client is identified : it protects the identity store when the database slows down, whatever the
+ * client, and is independent of any per-client limit.
+ */
+public final class ConcurrencyLimiterService
+{
+    public static final String LIMITER_GET_IDENTITY = "get_identity";
+
+    private static final String PROPERTY_LIMITER_ENABLED = "identitystore.facade.limiter.enabled";
+    private static final String PROPERTY_LIMITER_INITIAL_LIMIT = "identitystore.facade.limiter.initial.limit";
+    private static final String PROPERTY_LIMITER_MIN_LIMIT = "identitystore.facade.limiter.min.limit";
+    private static final String PROPERTY_LIMITER_MAX_LIMIT = "identitystore.facade.limiter.max.limit";
+    private static final String PROPERTY_LIMITER_RTT_TOLERANCE = "identitystore.facade.limiter.rtt.tolerance";
+    private static final String PROPERTY_LIMITER_SMOOTHING = "identitystore.facade.limiter.smoothing";
+    private static final String PROPERTY_LIMITER_WINDOW_SIZE = "identitystore.facade.limiter.window.size";
+    private static final String PROPERTY_LIMITER_LONG_WINDOW = "identitystore.facade.limiter.long.window";
+    private static final int DEFAULT_LIMITER_INITIAL_LIMIT = 20;
+    private static final int DEFAULT_LIMITER_MIN_LIMIT = 10;
+    private static final int DEFAULT_LIMITER_MAX_LIMIT = 500;
+    private static final String DEFAULT_LIMITER_RTT_TOLERANCE = "1.5";
+    private static final String DEFAULT_LIMITER_SMOOTHING = "0.2";
+    private static final int DEFAULT_LIMITER_WINDOW_SIZE = 100;
+    private static final int DEFAULT_LIMITER_LONG_WINDOW = 60;
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_LIMITER_ENABLED, false );
+    private final ConcurrencyLimiter _getIdentityLimiter = new ConcurrencyLimiter( LIMITER_GET_IDENTITY,
+            AppPropertiesService.getPropertyInt( PROPERTY_LIMITER_INITIAL_LIMIT, DEFAULT_LIMITER_INITIAL_LIMIT ),
+            AppPropertiesService.getPropertyInt( PROPERTY_LIMITER_MIN_LIMIT, DEFAULT_LIMITER_MIN_LIMIT ),
+            AppPropertiesService.getPropertyInt( PROPERTY_LIMITER_MAX_LIMIT, DEFAULT_LIMITER_MAX_LIMIT ),
+            Double.parseDouble( AppPropertiesService.getProperty( PROPERTY_LIMITER_RTT_TOLERANCE, DEFAULT_LIMITER_RTT_TOLERANCE ) ),
+            Double.parseDouble( AppPropertiesService.getProperty( PROPERTY_LIMITER_SMOOTHING, DEFAULT_LIMITER_SMOOTHING ) ),
+            AppPropertiesService.getPropertyInt( PROPERTY_LIMITER_WINDOW_SIZE, DEFAULT_LIMITER_WINDOW_SIZE ),
+            AppPropertiesService.getPropertyInt( PROPERTY_LIMITER_LONG_WINDOW, DEFAULT_LIMITER_LONG_WINDOW ) );
+
+    /**
+     * private constructor
+     */
+    private ConcurrencyLimiterService( )
+    {
+    }
+
+    /**
+     * @return the instance
+     */
+    public static ConcurrencyLimiterService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Acquire a permit for a GET identity request
+     *
+     * @return the permit, to be closed when the request is served
+     * @throws ServiceOverloadedException
+     *             if the limit is reached
+     */
+    public LimiterPermit acquireGetIdentity( ) throws ServiceOverloadedException
+    {
+        return _bEnabled ? _getIdentityLimiter.acquire( ) : null;
+    }
+
+    /**
+     * @return the state of the limiters
+     */
+    public ConcurrencyLimitersDto getState( )
+    {
+        final ConcurrencyLimitersDto state = new ConcurrencyLimitersDto( );
+        state.setEnabled( _bEnabled );
+        state.getLimiters( ).add( _getIdentityLimiter.getState( ) );
+        return state;
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final ConcurrencyLimiterService INSTANCE = new ConcurrencyLimiterService( );
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.limit;
+
+/**
+ * Permit of a request accepted by a {@link ConcurrencyLimiter}, closed when the request is served to release it and record its latency
+ */
+public final class LimiterPermit implements AutoCloseable
+{
+    private final ConcurrencyLimiter _limiter;
+    private final int _nInFlight;
+    private final long _lStartNanos;
+    private boolean _bClosed;
+
+    /**
+     * Constructor
+     *
+     * @param limiter
+     *            the limiter
+     * @param nInFlight
+     *            the requests in flight, this one included
+     * @param lStartNanos
+     *            the time at which the permit was acquired
+     */
+    LimiterPermit( final ConcurrencyLimiter limiter, final int nInFlight, final long lStartNanos )
+    {
+        _limiter = limiter;
+        _nInFlight = nInFlight;
+        _lStartNanos = lStartNanos;
+    }
+
+    /**
+     * Release the permit
+     */
+    @Override
+    public void close( )
+    {
+        if ( !_bClosed )
+        {
+            _bClosed = true;
+            _limiter.release( _nInFlight, System.nanoTime( ) - _lStartNanos );
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.partition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring of the facade nodes, which gives the node owning a customer ID.<br/>
+ * Each node is placed on the ring at several points (the virtual nodes), so that the keys are evenly spread, and adding or removing a node only moves the
+ * keys of its neighbours on the ring. All the nodes of a cluster build the same ring from the same node list, whatever its order.
+ */
+public final class ConsistentHashRing
+{
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final char VIRTUAL_NODE_SEPARATOR = '#';
+
+    private final TreeMap<Long, String> _mapRing = new TreeMap<>( );
+    private final List<String> _listNodes;
+
+    /**
+     * Constructor
+     *
+     * @param listNodes
+     *            the nodes
+     * @param nVirtualNodes
+     *            the number of points of each node on the ring
+     */
+    public ConsistentHashRing( final List<String> listNodes, final int nVirtualNodes )
+    {
+        _listNodes = Collections.unmodifiableList( new ArrayList<>( listNodes ) );
+        for ( final String strNode : _listNodes )
+        {
+            for ( int nVirtualNode = 0; nVirtualNode < Math.max( 1, nVirtualNodes ); nVirtualNode++ )
+            {
+                // on a collision, the smallest node name wins on every node
+                final long lPoint = hash( strNode + VIRTUAL_NODE_SEPARATOR + nVirtualNode );
+                final String strOwner = _mapRing.get( lPoint );
+                if ( strOwner == null || strNode.compareTo( strOwner ) < 0 )
+                {
+                    _mapRing.put( lPoint, strNode );
+                }
+            }
+        }
+    }
+
+    /**
+     * Give the node owning a key
+     *
+     * @param strKey
+     *            the key
+     * @return the node, {@code null} if the ring is empty
+     */
+    public String getOwner( final String strKey )
+    {
+        if ( _mapRing.isEmpty( ) )
+        {
+            return null;
+        }
+        final Map.Entry<Long, String> point = _mapRing.ceilingEntry( hash( strKey ) );
+        return point != null ? point.getValue( ) : _mapRing.firstEntry( ).getValue( );
+    }
+
+    /**
+     * @return the nodes
+     */
+    public List<String> getNodes( )
+    {
+        return _listNodes;
+    }
+
+    /**
+     * Hash a key : 64 bits FNV-1a of its UTF-8 bytes, followed by the MurmurHash3 finalizer to spread the close keys
+     *
+     * @param strKey
+     *            the key
+     * @return the hash
+     */
+    static long hash( final String strKey )
+    {
+        long lHash = FNV_OFFSET_BASIS;
+        for ( final byte b : strKey.getBytes( StandardCharsets.UTF_8 ) )
+        {
+            lHash ^= b & 0xff;
+            lHash *= FNV_PRIME;
+        }
+        lHash ^= lHash >>> 33;
+        lHash *= 0xff51afd7ed558ccdL;
+        lHash ^= lHash >>> 33;
+        lHash *= 0xc4ceb93fe53ba00dL;
+        lHash ^= lHash >>> 33;
+        return lHash;
+    }
+}
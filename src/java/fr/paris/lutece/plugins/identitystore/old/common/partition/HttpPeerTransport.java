@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.partition;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.FacadeConstants;
+import fr.paris.lutece.plugins.identitystore.old.common.deadline.RequestDeadline;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.FacadeTracer;
+import fr.paris.lutece.plugins.identitystore.v2.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Transport of the identity reads to the other nodes over HTTP, through their partition REST service. The nodes are named by the base URL of their REST
+ * API, such as <code>http://node1:8080/rest/</code>.<br/>
+ * The connections are kept alive by the JDK between the reads, and the reads are bounded by the deadline of the request.
+ */
+public class HttpPeerTransport implements IPeerTransport
+{
+    private static final String PATH_IDENTITY = Constants.PLUGIN_PATH + FacadeConstants.PARTITION_PATH + FacadeConstants.PARTITION_IDENTITY_PATH;
+    private static final int BUFFER_SIZE = 512;
+
+    private final int _nTimeoutMillis;
+    private final String _strToken;
+    private final ObjectMapper _objectMapper;
+
+    /**
+     * Constructor
+     *
+     * @param nTimeoutMillis
+     *            the maximum duration of a read, in milliseconds
+     * @param strToken
+     *            the token shared by the nodes of the cluster
+     */
+    public HttpPeerTransport( final int nTimeoutMillis, final String strToken )
+    {
+        _nTimeoutMillis = nTimeoutMillis;
+        _strToken = strToken;
+        _objectMapper = new ObjectMapper( );
+        _objectMapper.disable( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdentityDto getByCustomerId( final String strNode, final String strCustomerId, final ServiceContract serviceContract )
+            throws IdentityStoreException
+    {
+        RequestDeadline.check( FacadeTracer.SPAN_IDENTITY_FETCH );
+        final int nTimeoutMillis = (int) Math.max( 1, RequestDeadline.capTimeout( _nTimeoutMillis ) );
+        HttpURLConnection connection = null;
+        try
+        {
+            final String strBaseUrl = strNode.endsWith( "/" ) ? strNode : strNode + "/";
+            final URL url = new URL( strBaseUrl + PATH_IDENTITY + '?' + Constants.PARAM_ID_CUSTOMER + '='
+                    + URLEncoder.encode( strCustomerId, StandardCharsets.UTF_8.name( ) ) );
+            connection = (HttpURLConnection) url.openConnection( );
+            connection.setConnectTimeout( nTimeoutMillis );
+            connection.setReadTimeout( nTimeoutMillis );
+            connection.setRequestProperty( Constants.PARAM_CLIENT_CODE, serviceContract.getClientCode( ) );
+            connection.setRequestProperty( FacadeConstants.HEADER_PEER_TOKEN, _strToken );
+            final int nStatus = connection.getResponseCode( );
+            if ( nStatus == HttpURLConnection.HTTP_NOT_FOUND )
+            {
+                drain( connection.getErrorStream( ) );
+                return null;
+            }
+            if ( nStatus != HttpURLConnection.HTTP_OK )
+            {
+                drain( connection.getErrorStream( ) );
+                throw new IdentityStoreException( "Partition peer " + strNode + " responded " + nStatus );
+            }
+            try ( final InputStream content = connection.getInputStream( ) )
+            {
+                return _objectMapper.readValue( content, IdentityDto.class );
+            }
+        }
+        catch( IOException e )
+        {
+            if ( connection != null )
+            {
+                connection.disconnect( );
+            }
+            throw new IdentityStoreException( "Unable to read the identity from the partition peer " + strNode, e );
+        }
+    }
+
+    /**
+     * Read an error response to its end, so that the connection is kept alive
+     *
+     * @param stream
+     *            the error response, possibly {@code null}
+     * @throws IOException
+     *             if the response cannot be read
+     */
+    private static void drain( final InputStream stream ) throws IOException
+    {
+        if ( stream == null )
+        {
+            return;
+        }
+        try ( final InputStream content = stream )
+        {
+            final byte [ ] buffer = new byte [ BUFFER_SIZE];
+            while ( content.read( buffer ) >= 0 )
+            {
+                // discarded
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.partition;
+
+import fr.paris.lutece.plugins.identitystore.old.common.AdminAccessDeniedException;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Partitioning of the identity cache across the facade nodes running behind a load balancer (see {@link PartitionedIdentityProvider}).<br/>
+ * The nodes are listed, by the base URL of their REST API, in the <code>identitystore.facade.partition.nodes</code> property, identical on all the nodes,
+ * and each node is named in its own <code>identitystore.facade.partition.self</code> property. The nodes read the identities from each other with the
+ * token of the <code>identitystore.facade.partition.token</code> property.
+ */
+public final class PartitionService
+{
+    private static final String PROPERTY_PARTITION_ENABLED = "identitystore.facade.partition.enabled";
+    private static final String PROPERTY_PARTITION_NODES = "identitystore.facade.partition.nodes";
+    private static final String PROPERTY_PARTITION_SELF = "identitystore.facade.partition.self";
+    private static final String PROPERTY_PARTITION_VIRTUAL_NODES = "identitystore.facade.partition.virtual.nodes";
+    private static final String PROPERTY_PARTITION_TIMEOUT = "identitystore.facade.partition.timeout";
+    private static final String PROPERTY_PARTITION_TOKEN = "identitystore.facade.partition.token";
+    private static final String PROPERTY_PREFIX_PARTITION_L1 = "identitystore.facade.partition.l1";
+    private static final int DEFAULT_PARTITION_VIRTUAL_NODES = 128;
+    private static final int DEFAULT_PARTITION_TIMEOUT = 200;
+    private static final int DEFAULT_PARTITION_L1_SIZE = 1000;
+    private static final int DEFAULT_PARTITION_L1_TTL = 5;
+    private static final String SEPARATOR = ",";
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_PARTITION_ENABLED, false );
+    private final String _strToken = AppPropertiesService.getProperty( PROPERTY_PARTITION_TOKEN, StringUtils.EMPTY );
+
+    /**
+     * private constructor
+     */
+    private PartitionService( )
+    {
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static PartitionService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Partition an identity provider, if the partitioning is enabled and configured
+     *
+     * @param identityProvider
+     *            the provider of the identities of the node
+     * @return the partitioned provider, or the given provider if the partitioning is disabled
+     */
+    public IIdentityProvider partition( final IIdentityProvider identityProvider )
+    {
+        if ( !_bEnabled || identityProvider == null || identityProvider instanceof PartitionedIdentityProvider )
+        {
+            return identityProvider;
+        }
+        final List<String> listNodes = Arrays.stream( AppPropertiesService.getProperty( PROPERTY_PARTITION_NODES, StringUtils.EMPTY ).split( SEPARATOR ) )
+                .map( String::trim ).filter( StringUtils::isNotEmpty ).collect( Collectors.toList( ) );
+        final String strSelf = AppPropertiesService.getProperty( PROPERTY_PARTITION_SELF, StringUtils.EMPTY ).trim( );
+        if ( !listNodes.contains( strSelf ) || StringUtils.isEmpty( _strToken ) )
+        {
+            AppLogService.error( "Facade partitioning disabled : " + PROPERTY_PARTITION_SELF + " must be one of " + PROPERTY_PARTITION_NODES + ", and "
+                    + PROPERTY_PARTITION_TOKEN + " must be set" );
+            return identityProvider;
+        }
+        final ConsistentHashRing ring = new ConsistentHashRing( listNodes,
+                AppPropertiesService.getPropertyInt( PROPERTY_PARTITION_VIRTUAL_NODES, DEFAULT_PARTITION_VIRTUAL_NODES ) );
+        final IPeerTransport transport = new HttpPeerTransport( AppPropertiesService.getPropertyInt( PROPERTY_PARTITION_TIMEOUT, DEFAULT_PARTITION_TIMEOUT ),
+                _strToken );
+        AppLogService.info( "Facade partitioning enabled : node " + strSelf + " of " + listNodes.size( ) );
+        return new PartitionedIdentityProvider( identityProvider, ring, strSelf, transport,
+                new PeerIdentityCache( PROPERTY_PREFIX_PARTITION_L1, DEFAULT_PARTITION_L1_SIZE, DEFAULT_PARTITION_L1_TTL ) );
+    }
+
+    /**
+     * @return the provider of the identities owned by the node, which are read without partitioning
+     */
+    public IIdentityProvider getLocalIdentityProvider( )
+    {
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        return identityProvider instanceof PartitionedIdentityProvider ? ( (PartitionedIdentityProvider) identityProvider ).getDelegate( ) : identityProvider;
+    }
+
+    /**
+     * Check that a read comes from a node of the cluster
+     *
+     * @param strToken
+     *            the token of the read
+     * @throws AdminAccessDeniedException
+     *             if the partitioning is disabled, or if the token is not the one of the cluster
+     */
+    public void checkPeerToken( final String strToken ) throws AdminAccessDeniedException
+    {
+        if ( !_bEnabled || StringUtils.isEmpty( _strToken ) || strToken == null
+                || !MessageDigest.isEqual( _strToken.getBytes( StandardCharsets.UTF_8 ), strToken.getBytes( StandardCharsets.UTF_8 ) ) )
+        {
+            throw new AdminAccessDeniedException( "Invalid partition peer token" );
+        }
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final PartitionService INSTANCE = new PartitionService( );
+    }
+}
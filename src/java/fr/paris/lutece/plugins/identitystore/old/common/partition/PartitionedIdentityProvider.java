@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.partition;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityChange;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityState;
+import fr.paris.lutece.plugins.identitystore.old.common.DeadlineExceededException;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.IFacadeCache;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Identity provider of a facade node in a partitioned cluster : each node caches the identities of the customer IDs it owns on the
+ * {@link ConsistentHashRing}, and reads the other identities from their owner, so that the identity cache of the cluster grows with the number of nodes
+ * instead of being replicated on each node.<br/>
+ * The identities read from a peer are kept in a small local cache (L1) for a short time, so that the hot identities do not cross the network on each
+ * request. When the owner cannot be reached, the identity is read from the backend, as without partitioning.<br/>
+ * The identities read by connection ID, and the other backend accesses, are not partitioned.
+ */
+public class PartitionedIdentityProvider implements IIdentityProvider
+{
+    private final IIdentityProvider _delegate;
+    private final ConsistentHashRing _ring;
+    private final String _strSelf;
+    private final IPeerTransport _transport;
+    private final PeerIdentityCache _peerCache;
+    private final Set<Integer> _setServiceContractIds = ConcurrentHashMap.newKeySet( );
+    private final LongAdder _peerReads = new LongAdder( );
+    private final LongAdder _peerFailures = new LongAdder( );
+
+    /**
+     * Constructor
+     *
+     * @param delegate
+     *            the provider of the identities owned by the node
+     * @param ring
+     *            the ring of the nodes of the cluster
+     * @param strSelf
+     *            the name of the node on the ring
+     * @param transport
+     *            the transport of the reads to the other nodes
+     * @param peerCache
+     *            the local cache of the identities read from the other nodes
+     */
+    public PartitionedIdentityProvider( final IIdentityProvider delegate, final ConsistentHashRing ring, final String strSelf,
+            final IPeerTransport transport, final PeerIdentityCache peerCache )
+    {
+        _delegate = delegate;
+        _ring = ring;
+        _strSelf = strSelf;
+        _transport = transport;
+        _peerCache = peerCache;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The identity is read from its owner if it is not owned by the node.
+     */
+    @Override
+    public IdentityDto getByCustomerId( final String strCustomerId, final ServiceContract serviceContract ) throws IdentityStoreException
+    {
+        final String strOwner = _ring.getOwner( strCustomerId );
+        if ( strOwner == null || strOwner.equals( _strSelf ) )
+        {
+            return _delegate.getByCustomerId( strCustomerId, serviceContract );
+        }
+        _setServiceContractIds.add( serviceContract.getId( ) );
+        return _peerCache.get( PeerIdentityCache.buildKey( serviceContract.getId( ), strCustomerId ),
+                ( ) -> readFromPeer( strOwner, strCustomerId, serviceContract ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdentityDto getByConnectionId( final String strConnectionId, final ServiceContract serviceContract ) throws IdentityStoreException
+    {
+        return _delegate.getByConnectionId( strConnectionId, serviceContract );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasHistory( final String strCustomerId ) throws IdentityStoreException
+    {
+        return _delegate.hasHistory( strCustomerId );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * An identity owned by another node is cached if it is in the local cache of the identities read from the other nodes, for any service contract.
+     */
+    @Override
+    public boolean isCached( final String strCustomerId )
+    {
+        if ( isOwned( strCustomerId ) )
+        {
+            return _delegate.isCached( strCustomerId );
+        }
+        for ( final Integer nServiceContractId : _setServiceContractIds )
+        {
+            if ( _peerCache.peek( PeerIdentityCache.buildKey( nServiceContractId, strCustomerId ) ) != null )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> findCustomerIds( final String strAfterCustomerId, final int nLimit ) throws IdentityStoreException
+    {
+        return _delegate.findCustomerIds( strAfterCustomerId, nLimit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeIdentityChange> findChanges( final long lAfterId, final int nLimit ) throws IdentityStoreException
+    {
+        return _delegate.findChanges( lAfterId, nLimit );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLastChangeId( ) throws IdentityStoreException
+    {
+        return _delegate.getLastChangeId( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> searchCustomerIds( final Map<String, String> mapAttributes, final int nMax ) throws IdentityStoreException
+    {
+        return _delegate.searchCustomerIds( mapAttributes, nMax );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * Only the identities owned by the node are loaded.
+     */
+    @Override
+    public void loadIntoCache( final List<String> listCustomerIds ) throws IdentityStoreException
+    {
+        final List<String> listOwnedCustomerIds = listCustomerIds.stream( ).filter( this::isOwned ).collect( Collectors.toList( ) );
+        if ( !listOwnedCustomerIds.isEmpty( ) )
+        {
+            _delegate.loadIntoCache( listOwnedCustomerIds );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> findCustomerIdsWithHistory( final List<String> listCustomerIds ) throws IdentityStoreException
+    {
+        return _delegate.findCustomerIdsWithHistory( listCustomerIds );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The bulk reads do not go through the partitions : the identities are read from the backend.
+     */
+    @Override
+    public List<IdentityDto> findByCustomerIds( final List<String> listCustomerIds, final ServiceContract serviceContract ) throws IdentityStoreException
+    {
+        return _delegate.findByCustomerIds( listCustomerIds, serviceContract );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeIdentityState> findStates( final List<String> listCustomerIds ) throws IdentityStoreException
+    {
+        return _delegate.findStates( listCustomerIds );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The caches are those of the provider of the owned identities, and the local cache of the identities read from the other nodes.
+     */
+    @Override
+    public List<IFacadeCache> getCaches( )
+    {
+        final List<IFacadeCache> listCaches = new ArrayList<>( _delegate.getCaches( ) );
+        listCaches.add( _peerCache );
+        return listCaches;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The identity is removed from the provider of the owned identities, and from the local cache of the identities read from the other nodes, for all
+     * the service contracts.
+     */
+    @Override
+    public void invalidate( final String strCustomerId )
+    {
+        _delegate.invalidate( strCustomerId );
+        _peerCache.invalidateIdentity( strCustomerId );
+    }
+
+    /**
+     * @return the provider of the identities owned by the node
+     */
+    public IIdentityProvider getDelegate( )
+    {
+        return _delegate;
+    }
+
+    /**
+     * @return the ring of the nodes of the cluster
+     */
+    public ConsistentHashRing getRing( )
+    {
+        return _ring;
+    }
+
+    /**
+     * @return the number of identities read from the other nodes
+     */
+    public long getPeerReadCount( )
+    {
+        return _peerReads.sum( );
+    }
+
+    /**
+     * @return the number of reads from the other nodes which failed, and were served from the backend
+     */
+    public long getPeerFailureCount( )
+    {
+        return _peerFailures.sum( );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The node owns the customer IDs it is given by the ring.
+     */
+    @Override
+    public boolean isOwned( final String strCustomerId )
+    {
+        final String strOwner = _ring.getOwner( strCustomerId );
+        return strOwner == null || strOwner.equals( _strSelf );
+    }
+
+    /**
+     * Read an identity from its owner, or from the backend if the owner cannot be reached
+     *
+     * @param strOwner
+     *            the owner
+     * @param strCustomerId
+     *            the customer ID
+     * @param serviceContract
+     *            the service contract of the client
+     * @return the identity, or {@code null} if not found
+     * @throws IdentityStoreException
+     *             if the backend fails
+     */
+    private IdentityDto readFromPeer( final String strOwner, final String strCustomerId, final ServiceContract serviceContract )
+            throws IdentityStoreException
+    {
+        _peerReads.increment( );
+        try
+        {
+            return _transport.getByCustomerId( strOwner, strCustomerId, serviceContract );
+        }
+        catch( DeadlineExceededException e )
+        {
+            throw e;
+        }
+        catch( IdentityStoreException e )
+        {
+            _peerFailures.increment( );
+            AppLogService.debug( "Partition peer " + strOwner + " failed to read " + strCustomerId + ", read from the backend : " + e.getMessage( ) );
+            return _delegate.getByCustomerId( strCustomerId, serviceContract );
+        }
+    }
+}
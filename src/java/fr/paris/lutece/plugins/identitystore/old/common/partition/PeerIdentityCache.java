@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.partition;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.CacheMemory;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.LocalCache;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+
+/**
+ * Local cache (L1) of the identities read by a node from the other nodes of the cluster (see {@link PartitionedIdentityProvider}).<br/>
+ * The identities are filtered by the service contract of the client, so they are keyed by service contract ID and customer ID.
+ */
+public class PeerIdentityCache extends LocalCache<IdentityDto>
+{
+    private static final String KEY_SEPARATOR = ":";
+
+    /**
+     * Constructor
+     *
+     * @param strPropertyPrefix
+     *            the prefix of the properties of the cache
+     * @param nDefaultMaxSize
+     *            the default maximum number of entries
+     * @param nDefaultTtlSeconds
+     *            the default time to live of the entries, in seconds
+     */
+    public PeerIdentityCache( final String strPropertyPrefix, final int nDefaultMaxSize, final int nDefaultTtlSeconds )
+    {
+        super( FacadeCacheService.CACHE_PARTITION, strPropertyPrefix, nDefaultMaxSize, nDefaultTtlSeconds, CacheMemory::estimate );
+    }
+
+    /**
+     * Build the key of an identity
+     *
+     * @param nServiceContractId
+     *            the ID of the service contract the identity is filtered by
+     * @param strCustomerId
+     *            the customer ID
+     * @return the key
+     */
+    static String buildKey( final int nServiceContractId, final String strCustomerId )
+    {
+        return nServiceContractId + KEY_SEPARATOR + strCustomerId;
+    }
+
+    /**
+     * Remove an identity, for all the service contracts
+     *
+     * @param strCustomerId
+     *            the customer ID
+     */
+    void invalidateIdentity( final String strCustomerId )
+    {
+        final String strKeySuffix = KEY_SEPARATOR + strCustomerId;
+        invalidateIf( strKey -> strKey.endsWith( strKeySuffix ) );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The identities filtered by the service contract are removed.
+     */
+    @Override
+    public void invalidateContract( final ServiceContract serviceContract, final String strClientCode )
+    {
+        if ( serviceContract != null )
+        {
+            final String strKeyPrefix = serviceContract.getId( ) + KEY_SEPARATOR;
+            invalidateIf( strKey -> strKey.startsWith( strKeyPrefix ) );
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.payload;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A rendered payload read from the {@link PayloadStore}.<br/>
+ * The bytes are a read-only view of the memory-mapped segment : the payload holds a lease on the segment until it is released, so that the segment is
+ * not recycled while the payload is written to a response. The lease is stamped with the generation of the segment and its acquire time : a lease never
+ * released expires, and a payload whose segment was recycled since it was read is no longer valid.
+ */
+public final class CachedPayload
+{
+    private final PayloadStore _store;
+    private final int _nSegment;
+    private final int _nGeneration;
+    private final long _lAcquireMillis = System.currentTimeMillis( );
+    private final ByteBuffer _bytes;
+    private final String _strCustomerId;
+    private final long _lStaleMillis;
+    private final AtomicBoolean _bReleased = new AtomicBoolean( );
+    private String _strETag;
+
+    /**
+     * Constructor
+     *
+     * @param store
+     *            the store
+     * @param nSegment
+     *            the leased segment, negative if the payload is not mapped
+     * @param nGeneration
+     *            the generation of the segment when the payload was read
+     * @param bytes
+     *            the payload
+     * @param strCustomerId
+     *            the customer ID of the rendered identity
+     */
+    CachedPayload( final PayloadStore store, final int nSegment, final int nGeneration, final ByteBuffer bytes, final String strCustomerId )
+    {
+        this( store, nSegment, nGeneration, bytes, strCustomerId, 0 );
+    }
+
+    /**
+     * Constructor
+     *
+     * @param store
+     *            the store
+     * @param nSegment
+     *            the leased segment, negative if the payload is not mapped
+     * @param nGeneration
+     *            the generation of the segment when the payload was read
+     * @param bytes
+     *            the payload
+     * @param strCustomerId
+     *            the customer ID of the rendered identity
+     * @param lStaleMillis
+     *            the time at which the payload was last known to be fresh, 0 if it is fresh
+     */
+    private CachedPayload( final PayloadStore store, final int nSegment, final int nGeneration, final ByteBuffer bytes, final String strCustomerId,
+            final long lStaleMillis )
+    {
+        _store = store;
+        _nSegment = nSegment;
+        _nGeneration = nGeneration;
+        _bytes = bytes;
+        _strCustomerId = strCustomerId;
+        _lStaleMillis = lStaleMillis;
+    }
+
+    /**
+     * Wrap a payload which is not stored
+     *
+     * @param bytes
+     *            the payload
+     * @param strCustomerId
+     *            the customer ID of the rendered identity
+     * @return the payload
+     */
+    public static CachedPayload wrap( final byte [ ] bytes, final String strCustomerId )
+    {
+        return new CachedPayload( null, -1, 0, ByteBuffer.wrap( bytes ), strCustomerId );
+    }
+
+    /**
+     * Wrap a payload served stale, because the identity could not be read in time
+     *
+     * @param bytes
+     *            the payload
+     * @param strCustomerId
+     *            the customer ID of the rendered identity
+     * @param lFreshMillis
+     *            the time at which the payload was last known to be fresh
+     * @return the payload
+     */
+    public static CachedPayload stale( final byte [ ] bytes, final String strCustomerId, final long lFreshMillis )
+    {
+        return new CachedPayload( null, -1, 0, ByteBuffer.wrap( bytes ), strCustomerId, lFreshMillis );
+    }
+
+    /**
+     * @return the customer ID of the rendered identity, which is the master identity of a merged customer ID
+     */
+    public String getCustomerId( )
+    {
+        return _strCustomerId;
+    }
+
+    /**
+     * @return {@code true} if the payload is served stale
+     */
+    public boolean isStale( )
+    {
+        return _lStaleMillis > 0;
+    }
+
+    /**
+     * @return the age of a stale payload, in milliseconds, 0 if it is fresh
+     */
+    public long getAgeMillis( )
+    {
+        return _lStaleMillis > 0 ? Math.max( 0, System.currentTimeMillis( ) - _lStaleMillis ) : 0;
+    }
+
+    /**
+     * @return {@code true} if the payload is mapped from the payload store
+     */
+    public boolean isMapped( )
+    {
+        return _store != null;
+    }
+
+    /**
+     * Tell if the bytes of the payload are still the ones read : the segment of a mapped payload may have been recycled once its lease expired. A payload
+     * read before must not be trusted if it is not valid after.
+     *
+     * @return {@code true} if the payload is not mapped, or if its segment was not recycled since it was read
+     */
+    public boolean isValid( )
+    {
+        return _store == null || _store.isValid( this );
+    }
+
+    /**
+     * @return the leased segment, negative if the payload is not mapped
+     */
+    int getSegment( )
+    {
+        return _nSegment;
+    }
+
+    /**
+     * @return the generation of the segment when the payload was read
+     */
+    int getGeneration( )
+    {
+        return _nGeneration;
+    }
+
+    /**
+     * @return the time at which the lease was acquired
+     */
+    long getAcquireMillis( )
+    {
+        return _lAcquireMillis;
+    }
+
+    /**
+     * @return a new view of the payload, read-only when it is mapped
+     */
+    public ByteBuffer getBytes( )
+    {
+        return _bytes.duplicate( );
+    }
+
+    /**
+     * @return the entity tag of the payload, computed on first use
+     */
+    public String getETag( )
+    {
+        if ( _strETag == null )
+        {
+            _strETag = PayloadETag.of( _bytes );
+        }
+        return _strETag;
+    }
+
+    /**
+     * @return the size of the payload, in bytes
+     */
+    public int getLength( )
+    {
+        return _bytes.remaining( );
+    }
+
+    /**
+     * Release the payload, which must not be read anymore
+     */
+    public void release( )
+    {
+        if ( _store != null && _bReleased.compareAndSet( false, true ) )
+        {
+            _store.release( this );
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.payload;
+
+/**
+ * Request of the rendered payload of an identity, which is served from the {@link PayloadStore} when it is stored there
+ */
+public class IdentityPayloadRequest
+{
+    private final String _strFormat;
+    private final IIdentityPayloadRenderer _renderer;
+    private CachedPayload _payload;
+
+    /**
+     * Constructor
+     *
+     * @param strFormat
+     *            the format of the payload, i.e. the version of the API
+     * @param renderer
+     *            the renderer of the payload, used when the payload is not stored
+     */
+    public IdentityPayloadRequest( final String strFormat, final IIdentityPayloadRenderer renderer )
+    {
+        _strFormat = strFormat;
+        _renderer = renderer;
+    }
+
+    /**
+     * Constructor of a request whose payload is always rendered, and never stored
+     *
+     * @param renderer
+     *            the renderer of the payload
+     */
+    public IdentityPayloadRequest( final IIdentityPayloadRenderer renderer )
+    {
+        this( null, renderer );
+    }
+
+    /**
+     * @return the format of the payload
+     */
+    public String getFormat( )
+    {
+        return _strFormat;
+    }
+
+    /**
+     * @return {@code true} if the payload may be served from and put in the {@link PayloadStore}
+     */
+    public boolean isStorable( )
+    {
+        return _strFormat != null;
+    }
+
+    /**
+     * @return the renderer of the payload
+     */
+    public IIdentityPayloadRenderer getRenderer( )
+    {
+        return _renderer;
+    }
+
+    /**
+     * @return the payload, or {@code null} if the identity was not found
+     */
+    public CachedPayload getPayload( )
+    {
+        return _payload;
+    }
+
+    /**
+     * @param payload
+     *            the payload
+     */
+    public void setPayload( final CachedPayload payload )
+    {
+        _payload = payload;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.payload;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Entity tags of the rendered payloads, so that a client holding a payload can revalidate it with <code>If-None-Match</code> and receive a 304 status
+ * instead of the payload when it did not change.<br/>
+ * The tag is a 64 bits FNV-1a hash of the payload : it only depends on the rendered bytes, so that the nodes of a cluster give the same tag to the same
+ * payload.
+ */
+public final class PayloadETag
+{
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+    private static final char QUOTE = '"';
+    private static final char SEPARATOR = ',';
+
+    /**
+     * private constructor
+     */
+    private PayloadETag( )
+    {
+    }
+
+    /**
+     * Compute the entity tag of a payload
+     *
+     * @param bytes
+     *            the payload, whose position is not changed
+     * @return the quoted entity tag
+     */
+    public static String of( final ByteBuffer bytes )
+    {
+        long lHash = FNV_OFFSET_BASIS;
+        for ( int nIndex = bytes.position( ); nIndex < bytes.limit( ); nIndex++ )
+        {
+            lHash ^= bytes.get( nIndex ) & 0xff;
+            lHash *= FNV_PRIME;
+        }
+        final String strHash = Long.toHexString( lHash );
+        final StringBuilder sbTag = new StringBuilder( 18 ).append( QUOTE );
+        for ( int nPadding = strHash.length( ); nPadding < 16; nPadding++ )
+        {
+            sbTag.append( '0' );
+        }
+        return sbTag.append( strHash ).append( QUOTE ).toString( );
+    }
+
+    /**
+     * Tell if an entity tag matches the <code>If-None-Match</code> header of a request, with the weak comparison of RFC 9110
+     *
+     * @param strIfNoneMatch
+     *            the header, possibly {@code null}
+     * @param strETag
+     *            the quoted entity tag of the payload
+     * @return {@code true} if the header lists the tag, or is <code>*</code>
+     */
+    public static boolean matches( final String strIfNoneMatch, final String strETag )
+    {
+        if ( strIfNoneMatch == null || strETag == null )
+        {
+            return false;
+        }
+        int nStart = 0;
+        while ( nStart < strIfNoneMatch.length( ) )
+        {
+            int nEnd = strIfNoneMatch.indexOf( SEPARATOR, nStart );
+            if ( nEnd < 0 )
+            {
+                nEnd = strIfNoneMatch.length( );
+            }
+            String strCandidate = strIfNoneMatch.substring( nStart, nEnd ).trim( );
+            if ( strCandidate.startsWith( WEAK_PREFIX ) )
+            {
+                strCandidate = strCandidate.substring( WEAK_PREFIX.length( ) );
+            }
+            if ( ANY.equals( strCandidate ) || strETag.equals( strCandidate ) )
+            {
+                return true;
+            }
+            nStart = nEnd + 1;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.payload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-mapped index of the {@link PayloadStore}.<br/>
+ * The file starts with a header holding the layout and the state of the store (write position, generations of the segments, invalidation cursor),
+ * followed by an open addressing hash table of fixed size slots. The home slot of a key is derived from the hash of its identifier, so that all the
+ * entries of an identity (one per format and service contract) are found by probing from the same slot, which makes the invalidation of an identity a
+ * single probe sequence. Removed entries are marked as deleted to keep the probe sequences intact.<br/>
+ * This class is not thread-safe : the {@link PayloadStore} serializes the writes.
+ */
+final class PayloadIndex
+{
+    static final int STATE_EMPTY = 0;
+    static final int STATE_USED = 1;
+    static final int STATE_DELETED = 2;
+
+    private static final long MAGIC = 0x49445346504C4431L;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4096;
+    private static final int SLOT_SIZE = 32;
+    private static final int MAX_SEGMENT_COUNT = ( HEADER_SIZE - 64 ) / Integer.BYTES;
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    // header layout
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_FORMAT_VERSION = 8;
+    private static final int HEADER_CAPACITY = 12;
+    private static final int HEADER_SEGMENT_SIZE = 16;
+    private static final int HEADER_SEGMENT_COUNT = 20;
+    private static final int HEADER_CLEAN = 24;
+    private static final int HEADER_CURRENT_SEGMENT = 28;
+    private static final int HEADER_WRITE_OFFSET = 32;
+    private static final int HEADER_LAST_CHANGE_ID = 40;
+    private static final int HEADER_SEGMENT_GENERATIONS = 64;
+
+    // slot layout
+    private static final int SLOT_KEY_HASH = 0;
+    private static final int SLOT_IDENTIFIER_HASH = 8;
+    private static final int SLOT_STATE = 12;
+    private static final int SLOT_SEGMENT = 16;
+    private static final int SLOT_OFFSET = 20;
+    private static final int SLOT_LENGTH = 24;
+    private static final int SLOT_GENERATION = 28;
+
+    private final MappedByteBuffer _buffer;
+    private final int _nCapacity;
+    private final int _nMask;
+    private final boolean _bRecovered;
+
+    /**
+     * Open the index file, or create it when it does not exist, does not match the layout or was not closed cleanly
+     *
+     * @param file
+     *            the index file
+     * @param nCapacity
+     *            the number of slots, rounded up to a power of two, at most 2^25
+     * @param nSegmentSize
+     *            the size of a segment
+     * @param nSegmentCount
+     *            the number of segments
+     * @throws IOException
+     *             if the file cannot be mapped
+     */
+    PayloadIndex( final File file, final int nCapacity, final int nSegmentSize, final int nSegmentCount ) throws IOException
+    {
+        if ( nSegmentCount > MAX_SEGMENT_COUNT )
+        {
+            throw new IOException( "At most " + MAX_SEGMENT_COUNT + " segments are supported" );
+        }
+        _nCapacity = Integer.highestOneBit( Math.min( Math.max( 2, nCapacity ), MAX_CAPACITY ) - 1 ) << 1;
+        _nMask = _nCapacity - 1;
+        try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) )
+        {
+            final long lSize = HEADER_SIZE + (long) _nCapacity * SLOT_SIZE;
+            raf.setLength( lSize );
+            _buffer = raf.getChannel( ).map( FileChannel.MapMode.READ_WRITE, 0, lSize );
+        }
+        _bRecovered = _buffer.getLong( HEADER_MAGIC ) == MAGIC && _buffer.getInt( HEADER_FORMAT_VERSION ) == FORMAT_VERSION
+                && _buffer.getInt( HEADER_CAPACITY ) == _nCapacity && _buffer.getInt( HEADER_SEGMENT_SIZE ) == nSegmentSize
+                && _buffer.getInt( HEADER_SEGMENT_COUNT ) == nSegmentCount && _buffer.getInt( HEADER_CLEAN ) == 1;
+        if ( !_bRecovered )
+        {
+            clear( );
+            _buffer.putLong( HEADER_MAGIC, MAGIC );
+            _buffer.putInt( HEADER_FORMAT_VERSION, FORMAT_VERSION );
+            _buffer.putInt( HEADER_CAPACITY, _nCapacity );
+            _buffer.putInt( HEADER_SEGMENT_SIZE, nSegmentSize );
+            _buffer.putInt( HEADER_SEGMENT_COUNT, nSegmentCount );
+            _buffer.putInt( HEADER_CURRENT_SEGMENT, 0 );
+            _buffer.putInt( HEADER_WRITE_OFFSET, 0 );
+            _buffer.putLong( HEADER_LAST_CHANGE_ID, 0 );
+            for ( int i = 0; i < nSegmentCount; i++ )
+            {
+                _buffer.putInt( HEADER_SEGMENT_GENERATIONS + i * Integer.BYTES, 1 );
+            }
+        }
+        // until the next clean close, a crash leaves the store to be reset
+        _buffer.putInt( HEADER_CLEAN, 0 );
+        _buffer.force( );
+    }
+
+    /**
+     * @return {@code true} if the content of the previous run was kept
+     */
+    boolean isRecovered( )
+    {
+        return _bRecovered;
+    }
+
+    /**
+     * Remove all the entries
+     */
+    void clear( )
+    {
+        final long lEnd = HEADER_SIZE + (long) _nCapacity * SLOT_SIZE;
+        for ( int nPosition = HEADER_SIZE; nPosition < lEnd; nPosition += Long.BYTES )
+        {
+            _buffer.putLong( nPosition, 0L );
+        }
+    }
+
+    /**
+     * @return the number of slots
+     */
+    int getCapacity( )
+    {
+        return _nCapacity;
+    }
+
+    /**
+     * @param nIdentifierHash
+     *            the hash of the identifier
+     * @return the home slot of the entries of the identifier
+     */
+    int homeSlot( final int nIdentifierHash )
+    {
+        return ( nIdentifierHash ^ ( nIdentifierHash >>> 16 ) ) & _nMask;
+    }
+
+    /**
+     * @param nSlot
+     *            a slot
+     * @return the next slot of the probe sequence
+     */
+    int nextSlot( final int nSlot )
+    {
+        return ( nSlot + 1 ) & _nMask;
+    }
+
+    /**
+     * @param nSlot
+     *            the slot
+     * @return the state of the slot
+     */
+    int getState( final int nSlot )
+    {
+        return _buffer.getInt( position( nSlot ) + SLOT_STATE );
+    }
+
+    /**
+     * @param nSlot
+     *            the slot
+     * @return the hash of the key of the entry
+     */
+    long getKeyHash( final int nSlot )
+    {
+        return _buffer.getLong( position( nSlot ) + SLOT_KEY_HASH );
+    }
+
+    /**
+     * @param nSlot
+     *            the slot
+     * @return the hash of the identifier of the entry
+     */
+    int getIdentifierHash( final int nSlot )
+    {
+        return _buffer.getInt( position( nSlot ) + SLOT_IDENTIFIER_HASH );
+    }
+
+    /**
+     * @param nSlot
+     *            the slot
+     * @return the segment of the record of the entry
+     */
+    int getSegment( final int nSlot )
+    {
+        return _buffer.getInt( position( nSlot ) + SLOT_SEGMENT );
+    }
+
+    /**
+     * @param nSlot
+     *            the slot
+     * @return the offset of the record of the entry in its segment
+     */
+    int getOffset( final int nSlot )
+    {
+        return _buffer.getInt( position( nSlot ) + SLOT_OFFSET );
+    }
+
+    /**
+     * @param nSlot
+     *            the slot
+     * @return the length of the record of the entry
+     */
+    int getLength( final int nSlot )
+    {
+        return _buffer.getInt( position( nSlot ) + SLOT_LENGTH );
+    }
+
+    /**
+     * @param nSlot
+     *            the slot
+     * @return the generation of the segment when the record of the entry was written
+     */
+    int getGeneration( final int nSlot )
+    {
+        return _buffer.getInt( position( nSlot ) + SLOT_GENERATION );
+    }
+
+    /**
+     * Write an entry. The state is written last, so that a crash never leaves a used slot with a partial location.
+     *
+     * @param nSlot
+     *            the slot
+     * @param lKeyHash
+     *            the hash of the key
+     * @param nIdentifierHash
+     *            the hash of the identifier
+     * @param nSegment
+     *            the segment of the record
+     * @param nOffset
+     *            the offset of the record in the segment
+     * @param nLength
+     *            the length of the record
+     * @param nGeneration
+     *            the generation of the segment
+     */
+    void setEntry( final int nSlot, final long lKeyHash, final int nIdentifierHash, final int nSegment, final int nOffset, final int nLength,
+            final int nGeneration )
+    {
+        final int nPosition = position( nSlot );
+        _buffer.putInt( nPosition + SLOT_STATE, STATE_DELETED );
+        _buffer.putLong( nPosition + SLOT_KEY_HASH, lKeyHash );
+        _buffer.putInt( nPosition + SLOT_IDENTIFIER_HASH, nIdentifierHash );
+        _buffer.putInt( nPosition + SLOT_SEGMENT, nSegment );
+        _buffer.putInt( nPosition + SLOT_OFFSET, nOffset );
+        _buffer.putInt( nPosition + SLOT_LENGTH, nLength );
+        _buffer.putInt( nPosition + SLOT_GENERATION, nGeneration );
+        _buffer.putInt( nPosition + SLOT_STATE, STATE_USED );
+    }
+
+    /**
+     * Mark an entry as deleted
+     *
+     * @param nSlot
+     *            the slot
+     */
+    void delete( final int nSlot )
+    {
+        _buffer.putInt( position( nSlot ) + SLOT_STATE, STATE_DELETED );
+    }
+
+    /**
+     * @return the segment being written
+     */
+    int getCurrentSegment( )
+    {
+        return _buffer.getInt( HEADER_CURRENT_SEGMENT );
+    }
+
+    /**
+     * @return the write offset in the segment being written
+     */
+    int getWriteOffset( )
+    {
+        return _buffer.getInt( HEADER_WRITE_OFFSET );
+    }
+
+    /**
+     * @param nSegment
+     *            the segment being written
+     * @param nOffset
+     *            the write offset in the segment
+     */
+    void setWritePosition( final int nSegment, final int nOffset )
+    {
+        _buffer.putInt( HEADER_CURRENT_SEGMENT, nSegment );
+        _buffer.putInt( HEADER_WRITE_OFFSET, nOffset );
+    }
+
+    /**
+     * @param nSegment
+     *            the segment
+     * @return the generation of the segment, incremented each time it is recycled
+     */
+    int getSegmentGeneration( final int nSegment )
+    {
+        return _buffer.getInt( HEADER_SEGMENT_GENERATIONS + nSegment * Integer.BYTES );
+    }
+
+    /**
+     * @param nSegment
+     *            the segment
+     * @param nGeneration
+     *            the generation of the segment
+     */
+    void setSegmentGeneration( final int nSegment, final int nGeneration )
+    {
+        _buffer.putInt( HEADER_SEGMENT_GENERATIONS + nSegment * Integer.BYTES, nGeneration );
+    }
+
+    /**
+     * @return the ID of the last identity change applied to the store
+     */
+    long getLastChangeId( )
+    {
+        return _buffer.getLong( HEADER_LAST_CHANGE_ID );
+    }
+
+    /**
+     * @param lLastChangeId
+     *            the ID of the last identity change applied to the store
+     */
+    void setLastChangeId( final long lLastChangeId )
+    {
+        _buffer.putLong( HEADER_LAST_CHANGE_ID, lLastChangeId );
+    }
+
+    /**
+     * Flush the index to the disk and mark it as cleanly closed
+     */
+    void close( )
+    {
+        _buffer.force( );
+        _buffer.putInt( HEADER_CLEAN, 1 );
+        _buffer.force( );
+    }
+
+    /**
+     * @param nSlot
+     *            a slot
+     * @return the position of the slot in the file
+     */
+    private static int position( final int nSlot )
+    {
+        return HEADER_SIZE + nSlot * SLOT_SIZE;
+    }
+}
@@ -0,0 +1,841 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.payload;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityChange;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.IFacadeCache;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.FacadeCacheDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Off-heap, persistent tier of the rendered v1/v2 identity payloads.<br/>
+ * The serialized identities are appended to memory-mapped segment files used as a circular log : when the last segment is full, the oldest one is
+ * recycled, its generation is incremented and the index entries of the previous generation become misses. The entries are found through a memory-mapped
+ * {@link PayloadIndex} keyed by format, service contract and customer ID. Neither the payloads nor the index live on the heap, and both survive a clean
+ * restart.<br/>
+ * The invalidation is versioned : each invalidation of an identity is recorded with its time, and a payload rendered from an identity loaded before the
+ * last invalidation of this identity is not stored, so that a load racing with an update never brings a stale payload back. The identities changed on
+ * any node, or while the node was stopped, are invalidated by polling the identity history from the last applied change.
+ */
+public final class PayloadStore implements IFacadeCache
+{
+    private static final String PROPERTY_PAYLOAD_ENABLED = "identitystore.facade.payload.enabled";
+    private static final String PROPERTY_PAYLOAD_DIRECTORY = "identitystore.facade.payload.directory";
+    private static final String PROPERTY_PAYLOAD_SEGMENT_SIZE = "identitystore.facade.payload.segment.size";
+    private static final String PROPERTY_PAYLOAD_SEGMENT_COUNT = "identitystore.facade.payload.segment.count";
+    private static final String PROPERTY_PAYLOAD_INDEX_CAPACITY = "identitystore.facade.payload.index.capacity";
+    private static final String PROPERTY_PAYLOAD_TTL = "identitystore.facade.payload.ttl";
+    private static final String PROPERTY_PAYLOAD_INVALIDATION_POLL_INTERVAL = "identitystore.facade.payload.invalidation.poll.interval";
+    private static final String PROPERTY_PAYLOAD_LEASE = "identitystore.facade.payload.lease";
+    private static final String DEFAULT_PAYLOAD_DIRECTORY_NAME = "identitystore-facade-payloads";
+    private static final int DEFAULT_PAYLOAD_SEGMENT_SIZE = 256;
+    private static final int DEFAULT_PAYLOAD_SEGMENT_COUNT = 16;
+    private static final int DEFAULT_PAYLOAD_INDEX_CAPACITY = 4 * 1024 * 1024;
+    private static final int DEFAULT_PAYLOAD_TTL = 86400;
+    private static final int DEFAULT_PAYLOAD_INVALIDATION_POLL_INTERVAL = 5;
+    private static final int DEFAULT_PAYLOAD_LEASE = 60000;
+
+    private static final String INDEX_FILE_NAME = "index.dat";
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+    private static final String SEGMENT_FILE_SUFFIX = ".dat";
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int MAX_PROBE = 512;
+    private static final int CHANGES_PAGE_SIZE = 500;
+    // an invalidation is remembered longer than any identity load may take
+    private static final long INVALIDATION_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis( 5 );
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final ReadWriteLock _lock = new ReentrantReadWriteLock( );
+    private final Map<String, Long> _mapRecentInvalidations = new ConcurrentHashMap<>( );
+    private final LongAdder _hits = new LongAdder( );
+    private final LongAdder _misses = new LongAdder( );
+    private final LongAdder _evictions = new LongAdder( );
+    private final LongAdder _rejectedWrites = new LongAdder( );
+    private final long _lLeaseMillis = AppPropertiesService.getPropertyInt( PROPERTY_PAYLOAD_LEASE, DEFAULT_PAYLOAD_LEASE );
+    private volatile long _lTtlMillis = TimeUnit.SECONDS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_PAYLOAD_TTL, DEFAULT_PAYLOAD_TTL ) );
+    private volatile boolean _bEnabled;
+    private PayloadIndex _index;
+    private MappedByteBuffer [ ] _segments;
+    private Set<CachedPayload> [ ] _leases;
+    private int [ ] _segmentEntries;
+    private boolean _bRecycleBlocked;
+    private int _nSegmentSize;
+    private ScheduledExecutorService _scheduler;
+
+    /**
+     * private constructor
+     */
+    private PayloadStore( )
+    {
+    }
+
+    /**
+     * @return the instance
+     */
+    public static PayloadStore instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return the instance, created on first use
+     */
+    private static PayloadStore create( )
+    {
+        final PayloadStore instance = new PayloadStore( );
+        if ( AppPropertiesService.getPropertyBoolean( PROPERTY_PAYLOAD_ENABLED, false ) )
+        {
+            instance.open( );
+        }
+        return instance;
+    }
+
+    /**
+     * @return {@code true} if the store is open
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * Get a payload
+     *
+     * @param strFormat
+     *            the format of the payload, i.e. the version of the API
+     * @param nServiceContractId
+     *            the ID of the service contract the identity was rendered for
+     * @param strCustomerId
+     *            the customer ID
+     * @return the payload, which must be released after use, or {@code null} if it is not stored
+     */
+    public CachedPayload get( final String strFormat, final int nServiceContractId, final String strCustomerId )
+    {
+        if ( !_bEnabled )
+        {
+            return null;
+        }
+        final byte [ ] key = buildKey( strFormat, nServiceContractId, strCustomerId );
+        final long lKeyHash = hash( key );
+        final int nIdentifierHash = identifierHash( strCustomerId );
+        final CachedPayload payload = find( key, lKeyHash, nIdentifierHash, strCustomerId );
+        if ( payload != null )
+        {
+            _hits.increment( );
+        }
+        else
+        {
+            _misses.increment( );
+        }
+        return payload;
+    }
+
+    /**
+     * Find a payload
+     *
+     * @param key
+     *            the key of the payload
+     * @param lKeyHash
+     *            the hash of the key
+     * @param nIdentifierHash
+     *            the hash of the customer ID
+     * @param strCustomerId
+     *            the customer ID
+     * @return the payload, which must be released after use, or {@code null} if it is not stored
+     */
+    private CachedPayload find( final byte [ ] key, final long lKeyHash, final int nIdentifierHash, final String strCustomerId )
+    {
+        _lock.readLock( ).lock( );
+        try
+        {
+            int nSlot = _index.homeSlot( nIdentifierHash );
+            for ( int i = 0; i < MAX_PROBE; i++, nSlot = _index.nextSlot( nSlot ) )
+            {
+                final int nState = _index.getState( nSlot );
+                if ( nState == PayloadIndex.STATE_EMPTY )
+                {
+                    return null;
+                }
+                if ( nState == PayloadIndex.STATE_USED && _index.getKeyHash( nSlot ) == lKeyHash && _index.getIdentifierHash( nSlot ) == nIdentifierHash )
+                {
+                    return read( nSlot, key, strCustomerId );
+                }
+            }
+            return null;
+        }
+        finally
+        {
+            _lock.readLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Store a payload
+     *
+     * @param strFormat
+     *            the format of the payload, i.e. the version of the API
+     * @param nServiceContractId
+     *            the ID of the service contract the identity was rendered for
+     * @param strCustomerId
+     *            the customer ID
+     * @param payload
+     *            the payload
+     * @param lLoadStartMillis
+     *            the time at which the load of the rendered identity started
+     */
+    public void put( final String strFormat, final int nServiceContractId, final String strCustomerId, final byte [ ] payload, final long lLoadStartMillis )
+    {
+        if ( !_bEnabled )
+        {
+            return;
+        }
+        final byte [ ] key = buildKey( strFormat, nServiceContractId, strCustomerId );
+        final int nRecordLength = RECORD_HEADER_SIZE + key.length + payload.length;
+        if ( nRecordLength > _nSegmentSize )
+        {
+            return;
+        }
+        final long lKeyHash = hash( key );
+        final int nIdentifierHash = identifierHash( strCustomerId );
+        _lock.writeLock( ).lock( );
+        try
+        {
+            // checked under the lock : an invalidation recorded later will find and remove this entry
+            final Long lInvalidationMillis = _mapRecentInvalidations.get( strCustomerId );
+            if ( lInvalidationMillis != null && lInvalidationMillis >= lLoadStartMillis )
+            {
+                return;
+            }
+            final int nSlot = findSlotForWrite( lKeyHash, nIdentifierHash );
+            if ( nSlot < 0 )
+            {
+                return;
+            }
+            int nSegment = _index.getCurrentSegment( );
+            int nOffset = _index.getWriteOffset( );
+            if ( nOffset + nRecordLength > _nSegmentSize )
+            {
+                nSegment = ( nSegment + 1 ) % _segments.length;
+                nOffset = 0;
+                if ( !recycle( nSegment ) )
+                {
+                    return;
+                }
+            }
+            final ByteBuffer segment = _segments [nSegment].duplicate( );
+            segment.position( nOffset );
+            segment.putInt( key.length );
+            segment.putInt( payload.length );
+            segment.putLong( System.currentTimeMillis( ) );
+            segment.put( key );
+            segment.put( payload );
+            _index.setWritePosition( nSegment, nOffset + nRecordLength );
+            _segmentEntries [nSegment]++;
+            _index.setEntry( nSlot, lKeyHash, nIdentifierHash, nSegment, nOffset, nRecordLength, _index.getSegmentGeneration( nSegment ) );
+        }
+        finally
+        {
+            _lock.writeLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Invalidate all the payloads of an identity
+     *
+     * @param strCustomerId
+     *            the customer ID of the identity
+     */
+    @Override
+    public void invalidate( final String strCustomerId )
+    {
+        if ( !_bEnabled || strCustomerId == null )
+        {
+            return;
+        }
+        _mapRecentInvalidations.put( strCustomerId, System.currentTimeMillis( ) );
+        final int nIdentifierHash = identifierHash( strCustomerId );
+        _lock.writeLock( ).lock( );
+        try
+        {
+            int nSlot = _index.homeSlot( nIdentifierHash );
+            for ( int i = 0; i < MAX_PROBE && _index.getState( nSlot ) != PayloadIndex.STATE_EMPTY; i++, nSlot = _index.nextSlot( nSlot ) )
+            {
+                if ( _index.getState( nSlot ) == PayloadIndex.STATE_USED && _index.getIdentifierHash( nSlot ) == nIdentifierHash )
+                {
+                    _index.delete( nSlot );
+                }
+            }
+        }
+        finally
+        {
+            _lock.writeLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Invalidate all the payloads
+     */
+    @Override
+    public void invalidateAll( )
+    {
+        if ( !_bEnabled )
+        {
+            return;
+        }
+        _lock.writeLock( ).lock( );
+        try
+        {
+            _index.clear( );
+        }
+        finally
+        {
+            _lock.writeLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Invalidate all the payloads rendered for a service contract. All the entries of the index are read.
+     *
+     * @param serviceContract
+     *            the service contract
+     * @param strClientCode
+     *            the client code
+     */
+    @Override
+    public void invalidateContract( final ServiceContract serviceContract, final String strClientCode )
+    {
+        if ( !_bEnabled || serviceContract == null )
+        {
+            return;
+        }
+        final byte [ ] serviceContractId = ( KEY_SEPARATOR + String.valueOf( serviceContract.getId( ) ) + KEY_SEPARATOR ).getBytes( StandardCharsets.UTF_8 );
+        _lock.writeLock( ).lock( );
+        try
+        {
+            for ( int nSlot = 0; nSlot < _index.getCapacity( ); nSlot++ )
+            {
+                if ( isLive( nSlot ) && hasServiceContract( nSlot, serviceContractId ) )
+                {
+                    _index.delete( nSlot );
+                }
+            }
+        }
+        finally
+        {
+            _lock.writeLock( ).unlock( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return FacadeCacheService.CACHE_PAYLOAD;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The payloads are stored in memory-mapped files : the memory estimate is the size of the mapped segments, and the maximum number of entries is the
+     * capacity of the index. All the entries of the index are read.
+     */
+    @Override
+    public synchronized FacadeCacheDto getState( )
+    {
+        final FacadeCacheDto state = new FacadeCacheDto( );
+        state.setName( FacadeCacheService.CACHE_PAYLOAD );
+        state.setEnabled( _bEnabled );
+        state.setTimeToLive( TimeUnit.MILLISECONDS.toSeconds( _lTtlMillis ) );
+        state.setTimeToLiveConfigurable( true );
+        final long lHits = _hits.sum( );
+        final long lMisses = _misses.sum( );
+        state.setHits( lHits );
+        state.setMisses( lMisses );
+        state.setHitRatio( lHits + lMisses > 0 ? (double) lHits / ( lHits + lMisses ) : 0 );
+        state.setEvictions( _evictions.sum( ) );
+        state.setRejectedWrites( _rejectedWrites.sum( ) );
+        if ( _bEnabled )
+        {
+            _lock.readLock( ).lock( );
+            try
+            {
+                int nSize = 0;
+                for ( int nSlot = 0; nSlot < _index.getCapacity( ); nSlot++ )
+                {
+                    if ( isLive( nSlot ) )
+                    {
+                        nSize++;
+                    }
+                }
+                state.setSize( nSize );
+                state.setMaxSize( _index.getCapacity( ) );
+            }
+            finally
+            {
+                _lock.readLock( ).unlock( );
+            }
+            state.setMemoryEstimate( (long) _nSegmentSize * _segments.length );
+        }
+        return state;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The payloads already stored expire with the new time to live.
+     */
+    @Override
+    public void setTimeToLive( final int nSeconds ) throws IdentityStoreException
+    {
+        if ( nSeconds <= 0 )
+        {
+            throw new IdentityStoreException( "Invalid time to live of the payload store : " + nSeconds );
+        }
+        _lTtlMillis = TimeUnit.SECONDS.toMillis( nSeconds );
+    }
+
+    /**
+     * Flush the store to the disk and close it
+     */
+    public synchronized void close( )
+    {
+        if ( !_bEnabled )
+        {
+            return;
+        }
+        if ( _scheduler != null )
+        {
+            _scheduler.shutdownNow( );
+        }
+        _lock.writeLock( ).lock( );
+        try
+        {
+            _bEnabled = false;
+            for ( final MappedByteBuffer segment : _segments )
+            {
+                segment.force( );
+            }
+            _index.close( );
+        }
+        finally
+        {
+            _lock.writeLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Release the lease of a payload on its segment
+     *
+     * @param payload
+     *            the payload
+     */
+    void release( final CachedPayload payload )
+    {
+        _leases [payload.getSegment( )].remove( payload );
+    }
+
+    /**
+     * Tell if the segment of a payload was not recycled since the payload was read
+     *
+     * @param payload
+     *            the payload
+     * @return {@code true} if the bytes of the payload are still the ones read
+     */
+    boolean isValid( final CachedPayload payload )
+    {
+        _lock.readLock( ).lock( );
+        try
+        {
+            return _index.getSegmentGeneration( payload.getSegment( ) ) == payload.getGeneration( );
+        }
+        finally
+        {
+            _lock.readLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Open the store : map the files, apply the identity changes made since the last run and schedule the polling of the changes
+     */
+    private void open( )
+    {
+        final File directory = new File( AppPropertiesService.getProperty( PROPERTY_PAYLOAD_DIRECTORY,
+                new File( System.getProperty( "java.io.tmpdir" ), DEFAULT_PAYLOAD_DIRECTORY_NAME ).getPath( ) ) );
+        final int nSegmentCount = Math.max( 2, AppPropertiesService.getPropertyInt( PROPERTY_PAYLOAD_SEGMENT_COUNT, DEFAULT_PAYLOAD_SEGMENT_COUNT ) );
+        _nSegmentSize = AppPropertiesService.getPropertyInt( PROPERTY_PAYLOAD_SEGMENT_SIZE, DEFAULT_PAYLOAD_SEGMENT_SIZE ) * 1024 * 1024;
+        try
+        {
+            if ( !directory.isDirectory( ) && !directory.mkdirs( ) )
+            {
+                throw new IOException( "Unable to create the directory " + directory );
+            }
+            _index = new PayloadIndex( new File( directory, INDEX_FILE_NAME ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_PAYLOAD_INDEX_CAPACITY, DEFAULT_PAYLOAD_INDEX_CAPACITY ), _nSegmentSize, nSegmentCount );
+            _segments = new MappedByteBuffer [ nSegmentCount];
+            for ( int i = 0; i < nSegmentCount; i++ )
+            {
+                try ( RandomAccessFile raf = new RandomAccessFile( new File( directory, SEGMENT_FILE_PREFIX + i + SEGMENT_FILE_SUFFIX ), "rw" ) )
+                {
+                    raf.setLength( _nSegmentSize );
+                    _segments [i] = raf.getChannel( ).map( FileChannel.MapMode.READ_WRITE, 0, _nSegmentSize );
+                }
+            }
+            _leases = newLeases( nSegmentCount );
+            _segmentEntries = new int [ nSegmentCount];
+            _bEnabled = true;
+
+            final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+            if ( !_index.isRecovered( ) )
+            {
+                _index.setLastChangeId( identityProvider.getLastChangeId( ) );
+            }
+            pollChanges( );
+            AppLogService.info( "Payload store opened in " + directory + ( _index.isRecovered( ) ? ", content of the previous run kept" : ", empty" ) );
+        }
+        catch( final IOException | IdentityStoreException | RuntimeException e )
+        {
+            AppLogService.error( "Unable to open the payload store in " + directory + ", the payloads are not stored", e );
+            _bEnabled = false;
+            return;
+        }
+
+        final int nPollInterval = AppPropertiesService.getPropertyInt( PROPERTY_PAYLOAD_INVALIDATION_POLL_INTERVAL, DEFAULT_PAYLOAD_INVALIDATION_POLL_INTERVAL );
+        _scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            final Thread thread = new Thread( runnable, "identitystore-facade-payload-invalidation" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        _scheduler.scheduleWithFixedDelay( ( ) -> {
+            try
+            {
+                pollChanges( );
+            }
+            catch( final IdentityStoreException | RuntimeException e )
+            {
+                AppLogService.error( "Unable to poll the identity changes, the payload store may serve stale payloads", e );
+            }
+        }, nPollInterval, nPollInterval, TimeUnit.SECONDS );
+    }
+
+    /**
+     * Invalidate the identities changed since the last applied change, and forget the old invalidations
+     *
+     * @throws IdentityStoreException
+     *             if the changes cannot be read
+     */
+    private void pollChanges( ) throws IdentityStoreException
+    {
+        final IIdentityProvider identityProvider = FacadeAdapters.getIdentityProvider( );
+        long lLastChangeId = _index.getLastChangeId( );
+        List<FacadeIdentityChange> listChanges;
+        do
+        {
+            listChanges = identityProvider.findChanges( lLastChangeId, CHANGES_PAGE_SIZE );
+            for ( final FacadeIdentityChange change : listChanges )
+            {
+                invalidate( change.getCustomerId( ) );
+                lLastChangeId = change.getId( );
+            }
+        }
+        while ( listChanges.size( ) == CHANGES_PAGE_SIZE );
+
+        _lock.writeLock( ).lock( );
+        try
+        {
+            _index.setLastChangeId( lLastChangeId );
+        }
+        finally
+        {
+            _lock.writeLock( ).unlock( );
+        }
+        final long lExpiration = System.currentTimeMillis( ) - INVALIDATION_RETENTION_MILLIS;
+        _mapRecentInvalidations.values( ).removeIf( lInvalidationMillis -> lInvalidationMillis < lExpiration );
+    }
+
+    /**
+     * Find the slot where to write an entry : the slot of the same key if any, else the first free slot of the probe sequence
+     *
+     * @param lKeyHash
+     *            the hash of the key
+     * @param nIdentifierHash
+     *            the hash of the identifier
+     * @return the slot, or -1 if the probe sequence is full
+     */
+    private int findSlotForWrite( final long lKeyHash, final int nIdentifierHash )
+    {
+        int nFreeSlot = -1;
+        int nSlot = _index.homeSlot( nIdentifierHash );
+        for ( int i = 0; i < MAX_PROBE; i++, nSlot = _index.nextSlot( nSlot ) )
+        {
+            final int nState = _index.getState( nSlot );
+            if ( nState == PayloadIndex.STATE_EMPTY )
+            {
+                return nFreeSlot >= 0 ? nFreeSlot : nSlot;
+            }
+            if ( nState == PayloadIndex.STATE_USED && _index.getKeyHash( nSlot ) == lKeyHash && _index.getIdentifierHash( nSlot ) == nIdentifierHash )
+            {
+                return nSlot;
+            }
+            final boolean bStale = nState == PayloadIndex.STATE_USED && _index.getGeneration( nSlot ) != _index.getSegmentGeneration( _index.getSegment( nSlot ) );
+            if ( nFreeSlot < 0 && ( nState == PayloadIndex.STATE_DELETED || bStale ) )
+            {
+                nFreeSlot = nSlot;
+            }
+        }
+        return nFreeSlot;
+    }
+
+    /**
+     * Read the payload of an entry
+     *
+     * @param nSlot
+     *            the slot of the entry
+     * @param key
+     *            the expected key
+     * @param strCustomerId
+     *            the customer ID of the key
+     * @return the payload, or {@code null} if the segment was recycled, the key does not match or the payload expired
+     */
+    private CachedPayload read( final int nSlot, final byte [ ] key, final String strCustomerId )
+    {
+        final int nSegment = _index.getSegment( nSlot );
+        if ( _index.getGeneration( nSlot ) != _index.getSegmentGeneration( nSegment ) )
+        {
+            return null;
+        }
+        final MappedByteBuffer segment = _segments [nSegment];
+        final int nOffset = _index.getOffset( nSlot );
+        final int nKeyLength = segment.getInt( nOffset );
+        final int nPayloadLength = segment.getInt( nOffset + Integer.BYTES );
+        final long lWriteMillis = segment.getLong( nOffset + 2 * Integer.BYTES );
+        if ( nKeyLength != key.length || RECORD_HEADER_SIZE + nKeyLength + nPayloadLength != _index.getLength( nSlot )
+                || lWriteMillis + _lTtlMillis < System.currentTimeMillis( ) )
+        {
+            return null;
+        }
+        final int nKeyOffset = nOffset + RECORD_HEADER_SIZE;
+        for ( int i = 0; i < nKeyLength; i++ )
+        {
+            if ( segment.get( nKeyOffset + i ) != key [i] )
+            {
+                return null;
+            }
+        }
+        final ByteBuffer payload = segment.duplicate( );
+        payload.limit( nKeyOffset + nKeyLength + nPayloadLength );
+        payload.position( nKeyOffset + nKeyLength );
+        final CachedPayload cachedPayload = new CachedPayload( this, nSegment, _index.getSegmentGeneration( nSegment ), payload.slice( ).asReadOnlyBuffer( ),
+                strCustomerId );
+        _leases [nSegment].add( cachedPayload );
+        return cachedPayload;
+    }
+
+    /**
+     * Tell if an index entry is used, and its segment not recycled since it was written. A lock is held.
+     *
+     * @param nSlot
+     *            the slot of the entry
+     * @return {@code true} if the entry is live
+     */
+    private boolean isLive( final int nSlot )
+    {
+        return _index.getState( nSlot ) == PayloadIndex.STATE_USED
+                && _index.getGeneration( nSlot ) == _index.getSegmentGeneration( _index.getSegment( nSlot ) );
+    }
+
+    /**
+     * Tell if the payload of a live index entry was rendered for a service contract. A lock is held.
+     *
+     * @param nSlot
+     *            the slot of the entry
+     * @param serviceContractId
+     *            the service contract ID surrounded by the key separators
+     * @return {@code true} if the key of the payload has the service contract ID
+     */
+    private boolean hasServiceContract( final int nSlot, final byte [ ] serviceContractId )
+    {
+        final MappedByteBuffer segment = _segments [_index.getSegment( nSlot )];
+        final int nOffset = _index.getOffset( nSlot );
+        final int nKeyLength = segment.getInt( nOffset );
+        final int nKeyOffset = nOffset + RECORD_HEADER_SIZE;
+        // the service contract ID follows the format in the key
+        int nStart = 0;
+        while ( nStart < nKeyLength && segment.get( nKeyOffset + nStart ) != KEY_SEPARATOR )
+        {
+            nStart++;
+        }
+        if ( nStart + serviceContractId.length > nKeyLength )
+        {
+            return false;
+        }
+        for ( int i = 0; i < serviceContractId.length; i++ )
+        {
+            if ( segment.get( nKeyOffset + nStart + i ) != serviceContractId [i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Recycle a segment before writing in it again. The write lock is held, so the segment is not waited for when a response is still streaming from it : the
+     * writes are rejected until the leases are released or expire.
+     *
+     * @param nSegment
+     *            the segment
+     * @return {@code false} if the segment is still read
+     */
+    private boolean recycle( final int nSegment )
+    {
+        final Set<CachedPayload> leases = _leases [nSegment];
+        final long lExpiredMillis = System.currentTimeMillis( ) - _lLeaseMillis;
+        // a lease never released, when the response was not written, is reclaimed once expired ; its payload is rendered again if it is written later
+        if ( leases.removeIf( payload -> payload.getAcquireMillis( ) < lExpiredMillis ) )
+        {
+            AppLogService.error( "Payload segment " + nSegment + " had leases held for more than " + _lLeaseMillis + " ms, they are reclaimed" );
+        }
+        if ( !leases.isEmpty( ) )
+        {
+            _rejectedWrites.increment( );
+            if ( !_bRecycleBlocked )
+            {
+                // each blocking episode is logged once
+                _bRecycleBlocked = true;
+                AppLogService.error( "Payload segment " + nSegment + " is still read by " + leases.size( ) + " responses, the payloads are not stored" );
+            }
+            return false;
+        }
+        if ( _bRecycleBlocked )
+        {
+            _bRecycleBlocked = false;
+            AppLogService.info( "Payload segment " + nSegment + " recycled, the payloads are stored again" );
+        }
+        _index.setSegmentGeneration( nSegment, _index.getSegmentGeneration( nSegment ) + 1 );
+        _evictions.add( _segmentEntries [nSegment] );
+        _segmentEntries [nSegment] = 0;
+        return true;
+    }
+
+    /**
+     * @param nSegmentCount
+     *            the number of segments
+     * @return the empty sets of leases of the segments
+     */
+    @SuppressWarnings( "unchecked" )
+    private static Set<CachedPayload> [ ] newLeases( final int nSegmentCount )
+    {
+        final Set<CachedPayload> [ ] leases = new Set [ nSegmentCount];
+        for ( int i = 0; i < nSegmentCount; i++ )
+        {
+            leases [i] = ConcurrentHashMap.newKeySet( );
+        }
+        return leases;
+    }
+
+    /**
+     * @param strFormat
+     *            the format
+     * @param nServiceContractId
+     *            the service contract ID
+     * @param strCustomerId
+     *            the customer ID
+     * @return the key of a payload
+     */
+    private static byte [ ] buildKey( final String strFormat, final int nServiceContractId, final String strCustomerId )
+    {
+        return ( strFormat + KEY_SEPARATOR + nServiceContractId + KEY_SEPARATOR + strCustomerId ).getBytes( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * @param bytes
+     *            the bytes
+     * @return the 64 bits FNV-1a hash of the bytes
+     */
+    private static long hash( final byte [ ] bytes )
+    {
+        long lHash = FNV_OFFSET_BASIS;
+        for ( final byte b : bytes )
+        {
+            lHash ^= b & 0xFF;
+            lHash *= FNV_PRIME;
+        }
+        return lHash;
+    }
+
+    /**
+     * @param strIdentifier
+     *            the identifier
+     * @return the hash of the identifier
+     */
+    private static int identifierHash( final String strIdentifier )
+    {
+        final long lHash = hash( strIdentifier.getBytes( StandardCharsets.UTF_8 ) );
+        return (int) ( lHash ^ ( lHash >>> 32 ) );
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final PayloadStore INSTANCE = create( );
+    }
+}
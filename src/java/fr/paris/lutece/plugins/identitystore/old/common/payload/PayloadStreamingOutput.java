@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.payload;
+
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a {@link CachedPayload} to a response.<br/>
+ * A mapped payload is copied from its segment into a reused per-thread buffer, so that it is never allocated on the heap for each response. The lease of
+ * the payload may have expired and its segment been recycled before the response is written : the generation of the segment is checked once the payload is
+ * copied, and the payload is searched again, i.e. rendered again, on mismatch.
+ */
+public class PayloadStreamingOutput implements StreamingOutput
+{
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_SEARCHES = 2;
+    private static final ThreadLocal<byte [ ]> BUFFER = ThreadLocal.withInitial( ( ) -> new byte [ BUFFER_SIZE] );
+
+    private final CachedPayload _payload;
+    private final IPayloadSearch _search;
+
+    /**
+     * Constructor
+     *
+     * @param payload
+     *            the payload
+     * @param search
+     *            the search of the payload, used again when the segment of the payload was recycled before it is written
+     */
+    public PayloadStreamingOutput( final CachedPayload payload, final IPayloadSearch search )
+    {
+        _payload = payload;
+        _search = search;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( final OutputStream output ) throws IOException
+    {
+        CachedPayload payload = _payload;
+        for ( int i = 0; payload != null; i++ )
+        {
+            try
+            {
+                final ByteBuffer bytes = payload.getBytes( );
+                if ( bytes.hasArray( ) )
+                {
+                    output.write( bytes.array( ), bytes.arrayOffset( ) + bytes.position( ), bytes.remaining( ) );
+                    return;
+                }
+                final int nLength = bytes.remaining( );
+                final byte [ ] buffer = buffer( nLength );
+                bytes.get( buffer, 0, nLength );
+                if ( payload.isValid( ) )
+                {
+                    output.write( buffer, 0, nLength );
+                    return;
+                }
+            }
+            finally
+            {
+                payload.release( );
+            }
+            if ( i + 1 >= MAX_SEARCHES )
+            {
+                break;
+            }
+            payload = search( );
+        }
+        throw new IOException( "The payload of the identity could not be read from the payload store" );
+    }
+
+    /**
+     * Search the payload again
+     *
+     * @return the payload, or {@code null} if the identity is no longer found
+     * @throws IOException
+     *             if the search failed
+     */
+    private CachedPayload search( ) throws IOException
+    {
+        try
+        {
+            return _search.search( );
+        }
+        catch( final IdentityStoreException e )
+        {
+            throw new IOException( "Unable to render the identity again", e );
+        }
+    }
+
+    /**
+     * @param nLength
+     *            the length of the payload
+     * @return the buffer of the thread, grown to the length of the payload
+     */
+    private static byte [ ] buffer( final int nLength )
+    {
+        byte [ ] buffer = BUFFER.get( );
+        if ( buffer.length < nLength )
+        {
+            buffer = new byte [ Math.max( nLength, buffer.length * 2 )];
+            BUFFER.set( buffer );
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.payload;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.DeadlineExceededException;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.LocalCache;
+import fr.paris.lutece.plugins.identitystore.old.common.deadline.RequestDeadline;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.FacadeTracer;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.TraceSpan;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stale-while-revalidate serving of the v1/v2 GET identity requests.<br/>
+ * When it is enabled, the search of an identity runs on a worker thread within a latency budget, and the last payload rendered for the same request is
+ * kept for a staleness window. When the search exceeds the budget, or fails on a backend error, the last payload is served, marked as stale, while the
+ * search goes on in the background and refreshes it. A request without a payload inside the window waits for its search, as before.<br/>
+ * Only the wait of the client is bounded by the deadline of the request : when a stale payload can be served, the search runs within the refresh budget
+ * instead, so that it still refreshes the payload while the backend is slower than the timeout of the client, and its spans are traced with those of the
+ * request.<br/>
+ * The stale payloads of an identity are dropped when the identity changes or is no longer found, and those of a client when its service contract is
+ * invalidated, so that a payload the client may no longer read is never served.
+ */
+public final class StalePayloadService
+{
+    private static final String PROPERTY_STALE_ENABLED = "identitystore.facade.stale.enabled";
+    private static final String PROPERTY_STALE_BUDGET = "identitystore.facade.stale.budget";
+    private static final String PROPERTY_STALE_THREADS = "identitystore.facade.stale.threads";
+    private static final String PROPERTY_STALE_REFRESH_BUDGET = "identitystore.facade.stale.refresh.budget";
+    private static final String PROPERTY_PREFIX_STALE_CACHE = "identitystore.facade.stale";
+    private static final int DEFAULT_STALE_BUDGET = 500;
+    private static final int DEFAULT_STALE_THREADS = 32;
+    private static final int DEFAULT_STALE_REFRESH_BUDGET = 10000;
+    private static final int DEFAULT_STALE_SIZE = 10000;
+    private static final int DEFAULT_STALE_WINDOW = 300;
+    private static final long PAYLOAD_OVERHEAD = 32;
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final char PREFIX_CONNECTION_ID = 'g';
+    private static final char PREFIX_CUSTOMER_ID = 'c';
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_STALE_ENABLED, false );
+    private final long _lBudgetMillis = AppPropertiesService.getPropertyInt( PROPERTY_STALE_BUDGET, DEFAULT_STALE_BUDGET );
+    private final long _lRefreshBudgetMillis = AppPropertiesService.getPropertyInt( PROPERTY_STALE_REFRESH_BUDGET, DEFAULT_STALE_REFRESH_BUDGET );
+    private final LocalCache<FreshPayload> _cache = new StaleCache( );
+    private ThreadPoolExecutor _executor;
+
+    /**
+     * private constructor
+     */
+    private StalePayloadService( )
+    {
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static StalePayloadService instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return the instance, created on first use
+     */
+    private static StalePayloadService create( )
+    {
+        final StalePayloadService instance = new StalePayloadService( );
+        if ( instance._bEnabled )
+        {
+            instance.startWorkers( );
+        }
+        return instance;
+    }
+
+    /**
+     * @return the cache of the last fresh payloads
+     */
+    public LocalCache<?> getCache( )
+    {
+        return _cache;
+    }
+
+    /**
+     * Drop the stale payloads of a changed identity : the payloads rendered for its customer ID, and the payloads requested by this customer ID
+     *
+     * @param strCustomerId
+     *            the customer ID
+     */
+    public void invalidate( final String strCustomerId )
+    {
+        final String strKeySuffix = String.valueOf( KEY_SEPARATOR ) + PREFIX_CUSTOMER_ID + strCustomerId;
+        _cache.invalidateIf( ( strKey, kept ) -> strCustomerId.equals( kept._strCustomerId ) || strKey.endsWith( strKeySuffix ) );
+    }
+
+    /**
+     * Build the key of the payloads of a request
+     *
+     * @param strFormat
+     *            the format of the payload, i.e. the version of the API
+     * @param strClientCode
+     *            the client code
+     * @param strCustomerId
+     *            the requested customer ID
+     * @param strConnectionId
+     *            the requested connection ID
+     * @return the key
+     */
+    public static String buildKey( final String strFormat, final String strClientCode, final String strCustomerId, final String strConnectionId )
+    {
+        return strFormat + KEY_SEPARATOR + strClientCode + KEY_SEPARATOR
+                + ( StringUtils.isNotBlank( strCustomerId ) ? PREFIX_CUSTOMER_ID + strCustomerId : PREFIX_CONNECTION_ID + strConnectionId );
+    }
+
+    /**
+     * Search a payload within the latency budget, or serve the last fresh payload of the request
+     *
+     * @param strKey
+     *            the key of the request
+     * @param search
+     *            the search of the payload
+     * @return the payload, which must be released after use and is marked when it is stale, or {@code null} if the identity is not found
+     * @throws IdentityStoreException
+     *             if the search fails, and no payload can be served instead
+     */
+    public CachedPayload search( final String strKey, final IPayloadSearch search ) throws IdentityStoreException
+    {
+        if ( !_bEnabled )
+        {
+            return search.search( );
+        }
+        final RequestDeadline deadline = RequestDeadline.current( );
+        // with a stale payload to serve, the client never waits for the search beyond the budget : the search may only refresh the payload
+        final RequestDeadline searchDeadline = _cache.peek( strKey ) != null ? RequestDeadline.of( _lRefreshBudgetMillis ) : deadline;
+        final FacadeTracer tracer = FacadeTracer.instance( );
+        final TraceSpan span = tracer.currentSpan( );
+        final CompletableFuture<CachedPayload> future;
+        try
+        {
+            future = CompletableFuture.supplyAsync( ( ) -> {
+                RequestDeadline.attach( searchDeadline );
+                tracer.attach( span );
+                try
+                {
+                    return search.search( );
+                }
+                catch( IdentityStoreException e )
+                {
+                    throw new CompletionException( e );
+                }
+                finally
+                {
+                    tracer.detach( );
+                    RequestDeadline.detach( );
+                }
+            }, _executor );
+        }
+        catch( RejectedExecutionException e )
+        {
+            // all the workers wait for the backend
+            final CachedPayload stale = getStale( strKey );
+            return stale != null ? stale : record( strKey, search.search( ) );
+        }
+        try
+        {
+            // a deadline shorter than the budget leaves no time for the search, but still for the stale payload
+            return record( strKey, future.get( RequestDeadline.capTimeout( _lBudgetMillis ), TimeUnit.MILLISECONDS ) );
+        }
+        catch( TimeoutException e )
+        {
+            final CachedPayload stale = getStale( strKey );
+            if ( stale == null )
+            {
+                return record( strKey, await( future, deadline ) );
+            }
+            // the search goes on and refreshes the payload
+            future.whenComplete( ( payload, exception ) -> {
+                if ( exception == null && record( strKey, payload ) != null )
+                {
+                    payload.release( );
+                }
+            } );
+            return stale;
+        }
+        catch( ExecutionException e )
+        {
+            if ( isBackendFailure( e.getCause( ) ) )
+            {
+                final CachedPayload stale = getStale( strKey );
+                if ( stale != null )
+                {
+                    AppLogService.debug( "Identity search failed, the stale payload is served : " + e.getCause( ).getMessage( ) );
+                    return stale;
+                }
+            }
+            throw unwrap( e );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            releaseLate( future );
+            throw new IdentityStoreException( "Interrupted while searching the identity", e );
+        }
+    }
+
+    /**
+     * Stop the workers
+     */
+    public synchronized void shutdown( )
+    {
+        if ( _executor != null )
+        {
+            _executor.shutdownNow( );
+        }
+    }
+
+    /**
+     * Wait for a search without budget, until the deadline of the request if any
+     *
+     * @param future
+     *            the search
+     * @param deadline
+     *            the deadline of the request, possibly {@code null}
+     * @return the payload
+     * @throws IdentityStoreException
+     *             if the search fails, or does not end before the deadline
+     */
+    private static CachedPayload await( final CompletableFuture<CachedPayload> future, final RequestDeadline deadline ) throws IdentityStoreException
+    {
+        try
+        {
+            if ( deadline == null || !deadline.isBounded( ) )
+            {
+                return future.get( );
+            }
+            return future.get( deadline.getRemainingMillis( ), TimeUnit.MILLISECONDS );
+        }
+        catch( TimeoutException e )
+        {
+            releaseLate( future );
+            throw new DeadlineExceededException( FacadeTracer.SPAN_IDENTITY_FETCH );
+        }
+        catch( ExecutionException e )
+        {
+            throw unwrap( e );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IdentityStoreException( "Interrupted while searching the identity", e );
+        }
+    }
+
+    /**
+     * Release the payload of a search nobody waits for anymore
+     *
+     * @param future
+     *            the search
+     */
+    private static void releaseLate( final CompletableFuture<CachedPayload> future )
+    {
+        future.whenComplete( ( payload, exception ) -> {
+            if ( payload != null )
+            {
+                payload.release( );
+            }
+        } );
+    }
+
+    /**
+     * Keep a fresh payload for the staleness window. A payload already kept is replaced once it is older than half the window, so that the payloads
+     * served from the payload store are not copied for each request. The payload kept is dropped when the identity is no longer found.
+     *
+     * @param strKey
+     *            the key of the request
+     * @param payload
+     *            the payload, possibly {@code null}
+     * @return the payload
+     */
+    private CachedPayload record( final String strKey, final CachedPayload payload )
+    {
+        if ( payload == null )
+        {
+            _cache.invalidate( strKey );
+            return null;
+        }
+        final FreshPayload kept = _cache.peek( strKey );
+        final long lNow = System.currentTimeMillis( );
+        if ( kept == null || kept._lFreshMillis + getWindowMillis( ) / 2 < lNow )
+        {
+            final ByteBuffer buffer = payload.getBytes( );
+            final byte [ ] bytes = new byte [ buffer.remaining( )];
+            buffer.get( bytes );
+            _cache.put( strKey, new FreshPayload( bytes, payload.getCustomerId( ), lNow ) );
+        }
+        return payload;
+    }
+
+    /**
+     * @param strKey
+     *            the key of the request
+     * @return the last fresh payload of the request, marked as stale, or {@code null} if there is none in the window
+     */
+    private CachedPayload getStale( final String strKey )
+    {
+        final FreshPayload kept = _cache.getIfPresent( strKey );
+        return kept != null ? CachedPayload.stale( kept._bytes, kept._strCustomerId, kept._lFreshMillis ) : null;
+    }
+
+    /**
+     * @return the staleness window, in milliseconds
+     */
+    private long getWindowMillis( )
+    {
+        return _cache.getTimeToLiveMillis( );
+    }
+
+    /**
+     * Tell if a failure comes from the backend, i.e. from the database, and not from the request
+     *
+     * @param throwable
+     *            the failure
+     * @return {@code true} if the failure or one of its causes is a SQL or Lutece application exception
+     */
+    private static boolean isBackendFailure( final Throwable throwable )
+    {
+        for ( Throwable cause = throwable; cause != null; cause = cause.getCause( ) )
+        {
+            if ( cause instanceof SQLException || cause instanceof AppException )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param exception
+     *            the failure of a search
+     * @return the exception to throw, a runtime exception being thrown as is
+     */
+    private static IdentityStoreException unwrap( final ExecutionException exception )
+    {
+        final Throwable cause = exception.getCause( );
+        if ( cause instanceof IdentityStoreException )
+        {
+            return (IdentityStoreException) cause;
+        }
+        if ( cause instanceof RuntimeException )
+        {
+            throw (RuntimeException) cause;
+        }
+        return new IdentityStoreException( "Identity search failed", cause );
+    }
+
+    /**
+     * Start the workers of the searches. The workers are not queued : when they all wait for the backend, the searches run on the request threads.
+     */
+    private void startWorkers( )
+    {
+        final int nThreads = AppPropertiesService.getPropertyInt( PROPERTY_STALE_THREADS, DEFAULT_STALE_THREADS );
+        final AtomicInteger threadCount = new AtomicInteger( );
+        _executor = new ThreadPoolExecutor( 0, nThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>( ), runnable -> {
+            final Thread thread = new Thread( runnable, "identitystore-facade-stale-" + threadCount.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    /**
+     * Payload kept with the time at which it was fresh
+     */
+    private static final class FreshPayload
+    {
+        private final byte [ ] _bytes;
+        private final String _strCustomerId;
+        private final long _lFreshMillis;
+
+        /**
+         * Constructor
+         *
+         * @param bytes
+         *            the payload
+         * @param strCustomerId
+         *            the customer ID of the rendered identity
+         * @param lFreshMillis
+         *            the time at which the payload was fresh
+         */
+        private FreshPayload( final byte [ ] bytes, final String strCustomerId, final long lFreshMillis )
+        {
+            _bytes = bytes;
+            _strCustomerId = strCustomerId;
+            _lFreshMillis = lFreshMillis;
+        }
+    }
+
+    /**
+     * Cache of the last fresh payloads, keyed by request : the client code follows the format in the key
+     */
+    private static final class StaleCache extends LocalCache<FreshPayload>
+    {
+        /**
+         * Constructor
+         */
+        private StaleCache( )
+        {
+            super( FacadeCacheService.CACHE_STALE, PROPERTY_PREFIX_STALE_CACHE, DEFAULT_STALE_SIZE, DEFAULT_STALE_WINDOW,
+                    payload -> PAYLOAD_OVERHEAD + payload._bytes.length );
+        }
+
+        /**
+         * {@inheritDoc}<br/>
+         * The payloads requested by the client are removed, whatever its service contract.
+         */
+        @Override
+        public void invalidateContract( final ServiceContract serviceContract, final String strClientCode )
+        {
+            final String strClientCodeKey = strClientCode + KEY_SEPARATOR;
+            invalidateIf( strKey -> strKey.startsWith( strClientCodeKey, strKey.indexOf( KEY_SEPARATOR ) + 1 ) );
+        }
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final StalePayloadService INSTANCE = create( );
+    }
+}
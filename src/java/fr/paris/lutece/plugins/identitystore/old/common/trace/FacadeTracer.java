@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.trace;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampled tracing of the facade requests.<br/>
+ * A request is traced when its incoming W3C <code>traceparent</code> header is flagged as sampled, or, without such header, according to the sample rate.
+ * The spans of a traced request are kept in memory until the root span ends, then written by a {@link TraceFileExporter} to a local file, in the
+ * OpenTelemetry JSON format. The tracing is disabled by default.
+ */
+public final class FacadeTracer
+{
+    public static final String HEADER_TRACEPARENT = "traceparent";
+
+    // SPAN NAMES
+    public static final String SPAN_GET_IDENTITY = "GET identity";
+    public static final String SPAN_TRUST_RESOLUTION = "trust resolution";
+    public static final String SPAN_CORRELATION_CHECK = "correlation check";
+    public static final String SPAN_CONTRACT_LOOKUP = "contract lookup";
+    public static final String SPAN_PAYLOAD_LOOKUP = "payload lookup";
+    public static final String SPAN_IDENTITY_FETCH = "identity fetch";
+    public static final String SPAN_HISTORY_FALLBACK = "history fallback";
+    public static final String SPAN_CONVERSION = "conversion";
+    public static final String SPAN_SERIALIZATION = "serialization";
+    public static final String SPAN_ACCESS_LOG = "access log";
+    public static final String SPAN_NOTIFICATION = "notification";
+
+    private static final String PROPERTY_TRACING_ENABLED = "identitystore.facade.tracing.enabled";
+    private static final String PROPERTY_TRACING_SAMPLE_RATE = "identitystore.facade.tracing.sample.rate";
+    private static final String PROPERTY_TRACING_FILE = "identitystore.facade.tracing.file";
+    private static final String PROPERTY_TRACING_FILE_MAX_SIZE = "identitystore.facade.tracing.file.max.size";
+    private static final String PROPERTY_TRACING_FILE_MAX_COUNT = "identitystore.facade.tracing.file.max.count";
+    private static final String DEFAULT_TRACING_SAMPLE_RATE = "0.01";
+    private static final String DEFAULT_TRACING_FILE = "/WEB-INF/logs/identitystore-facade-traces.json";
+    private static final long DEFAULT_TRACING_FILE_MAX_SIZE = 10L * 1024 * 1024;
+    private static final int DEFAULT_TRACING_FILE_MAX_COUNT = 5;
+
+    private static final String TRACEPARENT_VERSION = "00";
+    private static final String TRACEPARENT_SEPARATOR = "-";
+    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+    private static final int TRACE_ID_LENGTH = 32;
+    private static final int SPAN_ID_LENGTH = 16;
+    private static final int FLAG_SAMPLED = 0x01;
+
+    private final ThreadLocal<TraceSpan> _currentSpan = new ThreadLocal<>( );
+    private final boolean _bEnabled;
+    private final double _dSampleRate;
+    private final TraceFileExporter _exporter;
+
+    /**
+     * private constructor
+     */
+    private FacadeTracer( )
+    {
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_TRACING_ENABLED, false );
+        _dSampleRate = Double.parseDouble( AppPropertiesService.getProperty( PROPERTY_TRACING_SAMPLE_RATE, DEFAULT_TRACING_SAMPLE_RATE ) );
+        if ( _bEnabled )
+        {
+            final String strFile = AppPropertiesService.getProperty( PROPERTY_TRACING_FILE,
+                    AppPathService.getWebAppPath( ) + DEFAULT_TRACING_FILE );
+            _exporter = new TraceFileExporter( strFile, AppPropertiesService.getPropertyLong( PROPERTY_TRACING_FILE_MAX_SIZE, DEFAULT_TRACING_FILE_MAX_SIZE ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_TRACING_FILE_MAX_COUNT, DEFAULT_TRACING_FILE_MAX_COUNT ) );
+            AppLogService.info( "Facade tracing enabled, sample rate " + _dSampleRate + ", traces written to " + strFile );
+        }
+        else
+        {
+            _exporter = null;
+        }
+    }
+
+    /**
+     * @return the instance
+     */
+    public static FacadeTracer instance( )
+    {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Start the root span of a request
+     *
+     * @param strTraceParent
+     *            the incoming <code>traceparent</code> header, possibly {@code null}
+     * @param strName
+     *            the span name
+     * @return the root span, or a no-op span if the request is not sampled
+     */
+    public TraceSpan startTrace( final String strTraceParent, final String strName )
+    {
+        if ( !_bEnabled )
+        {
+            return TraceSpan.NOOP;
+        }
+        final String [ ] parts = parseTraceParent( strTraceParent );
+        final TraceSpan span;
+        if ( parts != null )
+        {
+            if ( ( Integer.parseInt( parts [3], 16 ) & FLAG_SAMPLED ) == 0 )
+            {
+                return TraceSpan.NOOP;
+            }
+            span = new TraceSpan( this, null, parts [1], newId( SPAN_ID_LENGTH ), parts [2], strName );
+        }
+        else
+        {
+            if ( ThreadLocalRandom.current( ).nextDouble( ) >= _dSampleRate )
+            {
+                return TraceSpan.NOOP;
+            }
+            span = new TraceSpan( this, null, newId( TRACE_ID_LENGTH ), newId( SPAN_ID_LENGTH ), null, strName );
+        }
+        _currentSpan.set( span );
+        return span;
+    }
+
+    /**
+     * Start a span, child of the current span of the thread
+     *
+     * @param strName
+     *            the span name
+     * @return the span, or a no-op span if the current request is not sampled
+     */
+    public TraceSpan startSpan( final String strName )
+    {
+        final TraceSpan parent = _currentSpan.get( );
+        if ( parent == null )
+        {
+            return TraceSpan.NOOP;
+        }
+        final TraceSpan span = new TraceSpan( this, parent, parent.getTraceId( ), newId( SPAN_ID_LENGTH ), parent.getSpanId( ), strName );
+        _currentSpan.set( span );
+        return span;
+    }
+
+    /**
+     * @return the current span of the thread, or a no-op span if the current request is not sampled
+     */
+    public TraceSpan currentSpan( )
+    {
+        final TraceSpan span = _currentSpan.get( );
+        return span != null ? span : TraceSpan.NOOP;
+    }
+
+    /**
+     * Bind the current span of a request to the current thread, which serves a part of the request : the spans started by the thread are children of
+     * this span. The span must be detached at the end of the part.
+     *
+     * @param span
+     *            the current span of the request, possibly the no-op span
+     */
+    public void attach( final TraceSpan span )
+    {
+        if ( span != null && span.isRecording( ) )
+        {
+            _currentSpan.set( span );
+        }
+    }
+
+    /**
+     * Unbind the span of the current thread
+     */
+    public void detach( )
+    {
+        _currentSpan.remove( );
+    }
+
+    /**
+     * Called when a span ends : restores its parent as current span, and exports the trace when the root span ends
+     *
+     * @param span
+     *            the ended span
+     */
+    void end( final TraceSpan span )
+    {
+        if ( span.getParent( ) != null )
+        {
+            _currentSpan.set( span.getParent( ) );
+        }
+        else
+        {
+            _currentSpan.remove( );
+            // the spans still closed by the other threads of the request are left out
+            _exporter.export( new ArrayList<>( span.getFinishedSpans( ) ) );
+        }
+    }
+
+    /**
+     * Parse a <code>traceparent</code> header
+     *
+     * @param strTraceParent
+     *            the header
+     * @return the version, trace ID, parent ID and flags, or {@code null} if the header is missing or invalid
+     */
+    private static String [ ] parseTraceParent( final String strTraceParent )
+    {
+        if ( StringUtils.isBlank( strTraceParent ) )
+        {
+            return null;
+        }
+        final String [ ] parts = strTraceParent.trim( ).toLowerCase( ).split( TRACEPARENT_SEPARATOR );
+        if ( parts.length < 4 || !TRACEPARENT_VERSION.equals( parts [0] ) || !isHex( parts [1], TRACE_ID_LENGTH ) || !isHex( parts [2], SPAN_ID_LENGTH )
+                || !isHex( parts [3], 2 ) || INVALID_TRACE_ID.equals( parts [1] ) || INVALID_SPAN_ID.equals( parts [2] ) )
+        {
+            return null;
+        }
+        return parts;
+    }
+
+    /**
+     * @param strValue
+     *            the value
+     * @param nLength
+     *            the expected length
+     * @return {@code true} if the value is a lowercase hexadecimal string of the expected length
+     */
+    private static boolean isHex( final String strValue, final int nLength )
+    {
+        if ( strValue.length( ) != nLength )
+        {
+            return false;
+        }
+        for ( int i = 0; i < nLength; i++ )
+        {
+            final char c = strValue.charAt( i );
+            if ( ( c < '0' || c > '9' ) && ( c < 'a' || c > 'f' ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param nLength
+     *            the number of hexadecimal digits
+     * @return a new random, non zero, identifier
+     */
+    private static String newId( final int nLength )
+    {
+        final StringBuilder sbId = new StringBuilder( nLength );
+        final ThreadLocalRandom random = ThreadLocalRandom.current( );
+        for ( int i = 0; i < nLength; i += 16 )
+        {
+            final String strPart = Long.toHexString( random.nextLong( ) | 1L );
+            sbId.append( StringUtils.leftPad( strPart, 16, '0' ) );
+        }
+        return sbId.substring( 0, nLength );
+    }
+
+    /**
+     * Holder of the instance, created on first use without locking
+     */
+    private static final class InstanceHolder
+    {
+        private static final FacadeTracer INSTANCE = new FacadeTracer( );
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes the traces to a rolling local file, one OpenTelemetry JSON <code>ExportTraceServiceRequest</code> per line (the format of the OpenTelemetry
+ * collector file exporter), so that they can be loaded in any OpenTelemetry compatible backend without running a collector.<br/>
+ * The traces are written by a background thread: when it falls behind, the traces are dropped rather than slowing the requests down.
+ */
+class TraceFileExporter
+{
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final String SERVICE_NAME = "library-identitystore-v1-v2";
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int SPAN_KIND_SERVER = 2;
+    private static final int STATUS_CODE_OK = 1;
+    private static final int STATUS_CODE_ERROR = 2;
+    private static final byte [ ] LINE_SEPARATOR = "\n".getBytes( StandardCharsets.UTF_8 );
+
+    private final BlockingQueue<List<TraceSpan>> _queue = new ArrayBlockingQueue<>( QUEUE_CAPACITY );
+    private final ObjectMapper _objectMapper = new ObjectMapper( );
+    private final File _file;
+    private final long _lMaxSize;
+    private final int _nMaxCount;
+    private OutputStream _out;
+    private long _lSize;
+    private long _lDroppedCount;
+
+    /**
+     * Constructor
+     *
+     * @param strFile
+     *            the path of the trace file
+     * @param lMaxSize
+     *            the size from which the file is rolled, in bytes
+     * @param nMaxCount
+     *            the number of rolled files kept
+     */
+    TraceFileExporter( final String strFile, final long lMaxSize, final int nMaxCount )
+    {
+        _file = new File( strFile );
+        _lMaxSize = lMaxSize;
+        _nMaxCount = nMaxCount;
+        final Thread thread = new Thread( this::run, "identitystore-facade-trace-exporter" );
+        thread.setDaemon( true );
+        thread.start( );
+    }
+
+    /**
+     * Queue the spans of a trace
+     *
+     * @param listSpans
+     *            the spans
+     */
+    void export( final List<TraceSpan> listSpans )
+    {
+        if ( !_queue.offer( listSpans ) )
+        {
+            synchronized( this )
+            {
+                _lDroppedCount++;
+            }
+        }
+    }
+
+    /**
+     * Write the queued traces
+     */
+    private void run( )
+    {
+        while ( !Thread.currentThread( ).isInterrupted( ) )
+        {
+            try
+            {
+                final List<TraceSpan> listSpans = _queue.take( );
+                write( _objectMapper.writeValueAsBytes( toExportRequest( listSpans ) ) );
+            }
+            catch( final InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+            catch( final IOException | RuntimeException e )
+            {
+                AppLogService.error( "Unable to write a facade trace to " + _file, e );
+                closeQuietly( );
+            }
+        }
+    }
+
+    /**
+     * Append a line to the trace file, rolling it when it is full
+     *
+     * @param line
+     *            the line
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    private void write( final byte [ ] line ) throws IOException
+    {
+        if ( _out != null && _lSize + line.length > _lMaxSize )
+        {
+            closeQuietly( );
+            roll( );
+        }
+        if ( _out == null )
+        {
+            final File directory = _file.getAbsoluteFile( ).getParentFile( );
+            if ( directory != null && !directory.exists( ) && !directory.mkdirs( ) )
+            {
+                throw new IOException( "Unable to create the directory " + directory );
+            }
+            _out = new FileOutputStream( _file, true );
+            _lSize = _file.length( );
+        }
+        _out.write( line );
+        _out.write( LINE_SEPARATOR );
+        _lSize += line.length + LINE_SEPARATOR.length;
+        if ( _queue.isEmpty( ) )
+        {
+            _out.flush( );
+        }
+    }
+
+    /**
+     * Roll the trace files : file.json becomes file.json.1, file.json.1 becomes file.json.2, and so on up to the max count
+     */
+    private void roll( )
+    {
+        final File oldest = new File( _file.getPath( ) + "." + _nMaxCount );
+        if ( oldest.exists( ) && !oldest.delete( ) )
+        {
+            AppLogService.error( "Unable to delete the trace file " + oldest );
+        }
+        for ( int i = _nMaxCount - 1; i >= 1; i-- )
+        {
+            final File rolled = new File( _file.getPath( ) + "." + i );
+            if ( rolled.exists( ) && !rolled.renameTo( new File( _file.getPath( ) + "." + ( i + 1 ) ) ) )
+            {
+                AppLogService.error( "Unable to roll the trace file " + rolled );
+            }
+        }
+        if ( _nMaxCount > 0 ? !_file.renameTo( new File( _file.getPath( ) + ".1" ) ) : !_file.delete( ) )
+        {
+            AppLogService.error( "Unable to roll the trace file " + _file );
+        }
+        synchronized( this )
+        {
+            if ( _lDroppedCount > 0 )
+            {
+                AppLogService.info( _lDroppedCount + " facade traces were dropped because the exporter could not keep up" );
+                _lDroppedCount = 0;
+            }
+        }
+    }
+
+    /**
+     * Close the current trace file
+     */
+    private void closeQuietly( )
+    {
+        if ( _out != null )
+        {
+            try
+            {
+                _out.close( );
+            }
+            catch( final IOException e )
+            {
+                AppLogService.debug( "Unable to close the trace file : " + e.getMessage( ) );
+            }
+            _out = null;
+        }
+    }
+
+    /**
+     * Build the OpenTelemetry JSON representation of a trace
+     *
+     * @param listSpans
+     *            the spans of the trace
+     * @return the export request
+     */
+    private static Map<String, Object> toExportRequest( final List<TraceSpan> listSpans )
+    {
+        final List<Map<String, Object>> listJsonSpans = new ArrayList<>( listSpans.size( ) );
+        for ( final TraceSpan span : listSpans )
+        {
+            final Map<String, Object> jsonSpan = new LinkedHashMap<>( );
+            jsonSpan.put( "traceId", span.getTraceId( ) );
+            jsonSpan.put( "spanId", span.getSpanId( ) );
+            if ( span.getParentSpanId( ) != null )
+            {
+                jsonSpan.put( "parentSpanId", span.getParentSpanId( ) );
+            }
+            jsonSpan.put( "name", span.getName( ) );
+            jsonSpan.put( "kind", span.getParent( ) == null ? SPAN_KIND_SERVER : SPAN_KIND_INTERNAL );
+            // 64 bits integers are strings in the OpenTelemetry JSON encoding
+            jsonSpan.put( "startTimeUnixNano", Long.toString( span.getStartEpochNanos( ) ) );
+            jsonSpan.put( "endTimeUnixNano", Long.toString( span.getEndEpochNanos( ) ) );
+            jsonSpan.put( "attributes", toAttributes( span.getAttributes( ) ) );
+            final Map<String, Object> status = new LinkedHashMap<>( );
+            status.put( "code", span.isError( ) ? STATUS_CODE_ERROR : STATUS_CODE_OK );
+            if ( span.getErrorMessage( ) != null )
+            {
+                status.put( "message", span.getErrorMessage( ) );
+            }
+            jsonSpan.put( "status", status );
+            listJsonSpans.add( jsonSpan );
+        }
+
+        final Map<String, Object> scopeSpans = new LinkedHashMap<>( );
+        scopeSpans.put( "scope", Collections.singletonMap( "name", SERVICE_NAME ) );
+        scopeSpans.put( "spans", listJsonSpans );
+        final Map<String, Object> resourceSpans = new LinkedHashMap<>( );
+        resourceSpans.put( "resource",
+                Collections.singletonMap( "attributes", toAttributes( Collections.singletonMap( "service.name", SERVICE_NAME ) ) ) );
+        resourceSpans.put( "scopeSpans", Collections.singletonList( scopeSpans ) );
+        return Collections.singletonMap( "resourceSpans", Collections.singletonList( resourceSpans ) );
+    }
+
+    /**
+     * Build the OpenTelemetry JSON representation of attributes
+     *
+     * @param mapAttributes
+     *            the attributes
+     * @return the key/value list
+     */
+    private static List<Map<String, Object>> toAttributes( final Map<String, ?> mapAttributes )
+    {
+        final List<Map<String, Object>> listAttributes = new ArrayList<>( mapAttributes.size( ) );
+        for ( final Map.Entry<String, ?> entry : mapAttributes.entrySet( ) )
+        {
+            final Object value = entry.getValue( );
+            final String strType;
+            Object jsonValue = value;
+            if ( value instanceof Boolean )
+            {
+                strType = "boolValue";
+            }
+            else if ( value instanceof Double || value instanceof Float )
+            {
+                strType = "doubleValue";
+            }
+            else if ( value instanceof Number )
+            {
+                strType = "intValue";
+                jsonValue = value.toString( );
+            }
+            else
+            {
+                strType = "stringValue";
+                jsonValue = String.valueOf( value );
+            }
+            final Map<String, Object> attribute = new LinkedHashMap<>( );
+            attribute.put( "key", entry.getKey( ) );
+            attribute.put( "value", Collections.singletonMap( strType, jsonValue ) );
+            listAttributes.add( attribute );
+        }
+        return listAttributes;
+    }
+}
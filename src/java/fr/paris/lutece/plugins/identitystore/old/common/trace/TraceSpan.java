@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.common.trace;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A span of a sampled trace, i.e. the timing of one stage of a facade request.<br/>
+ * Spans are opened by {@link FacadeTracer} and must be closed by the thread which opened them, typically with a try-with-resources statement. The spans of
+ * a request which is not sampled are the {@link #NOOP} span, which records nothing.<br/>
+ * A part of a request may run on another thread (see {@link FacadeTracer#attach(TraceSpan)}) : the spans it closes once the root span is ended are not
+ * exported.
+ */
+public class TraceSpan implements AutoCloseable
+{
+    static final TraceSpan NOOP = new TraceSpan( );
+
+    private final FacadeTracer _tracer;
+    private final TraceSpan _parent;
+    private final TraceSpan _root;
+    private final String _strTraceId;
+    private final String _strSpanId;
+    private final String _strParentSpanId;
+    private final String _strName;
+    private final long _lStartEpochNanos;
+    private final long _lStartNanos;
+    private final Map<String, Object> _mapAttributes = new LinkedHashMap<>( );
+    private final List<TraceSpan> _listFinishedSpans;
+    private long _lEndEpochNanos;
+    private String _strErrorMessage;
+    private boolean _bError;
+
+    /**
+     * Constructor of the no-op span
+     */
+    private TraceSpan( )
+    {
+        _tracer = null;
+        _parent = null;
+        _root = null;
+        _strTraceId = null;
+        _strSpanId = null;
+        _strParentSpanId = null;
+        _strName = null;
+        _lStartEpochNanos = 0;
+        _lStartNanos = 0;
+        _listFinishedSpans = null;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param tracer
+     *            the tracer
+     * @param parent
+     *            the parent span in this process, {@code null} for the root span of a request
+     * @param strTraceId
+     *            the trace ID
+     * @param strSpanId
+     *            the span ID
+     * @param strParentSpanId
+     *            the ID of the parent span, possibly in the calling process, {@code null} if none
+     * @param strName
+     *            the span name
+     */
+    TraceSpan( final FacadeTracer tracer, final TraceSpan parent, final String strTraceId, final String strSpanId, final String strParentSpanId,
+            final String strName )
+    {
+        _tracer = tracer;
+        _parent = parent;
+        _root = parent != null ? parent._root : this;
+        _strTraceId = strTraceId;
+        _strSpanId = strSpanId;
+        _strParentSpanId = strParentSpanId;
+        _strName = strName;
+        _lStartNanos = System.nanoTime( );
+        // the epoch time of the children is derived from the monotonic clock, so that the stages of a request are consistently ordered
+        _lStartEpochNanos = parent != null ? _root._lStartEpochNanos + ( _lStartNanos - _root._lStartNanos ) : System.currentTimeMillis( ) * 1_000_000L;
+        _listFinishedSpans = parent != null ? null : new CopyOnWriteArrayList<>( );
+    }
+
+    /**
+     * Add an attribute to the span
+     *
+     * @param strKey
+     *            the attribute key
+     * @param value
+     *            the attribute value, a string, a number or a boolean
+     * @return this span
+     */
+    public TraceSpan setAttribute( final String strKey, final Object value )
+    {
+        if ( this != NOOP && value != null )
+        {
+            _mapAttributes.put( strKey, value );
+        }
+        return this;
+    }
+
+    /**
+     * Mark the span as failed
+     *
+     * @param exception
+     *            the failure
+     * @return this span
+     */
+    public TraceSpan setError( final Exception exception )
+    {
+        if ( this != NOOP )
+        {
+            _bError = true;
+            _strErrorMessage = exception.getClass( ).getSimpleName( );
+        }
+        return this;
+    }
+
+    /**
+     * @return {@code true} if the request of this span is sampled
+     */
+    public boolean isRecording( )
+    {
+        return this != NOOP;
+    }
+
+    /**
+     * End the span
+     */
+    @Override
+    public void close( )
+    {
+        if ( this == NOOP || _lEndEpochNanos != 0 )
+        {
+            return;
+        }
+        _lEndEpochNanos = _lStartEpochNanos + ( System.nanoTime( ) - _lStartNanos );
+        _root._listFinishedSpans.add( this );
+        _tracer.end( this );
+    }
+
+    /**
+     * @return the parent span in this process, {@code null} for the root span
+     */
+    TraceSpan getParent( )
+    {
+        return _parent;
+    }
+
+    /**
+     * @return the spans of the request, once the root span is ended
+     */
+    List<TraceSpan> getFinishedSpans( )
+    {
+        return _listFinishedSpans;
+    }
+
+    /**
+     * @return the trace ID
+     */
+    String getTraceId( )
+    {
+        return _strTraceId;
+    }
+
+    /**
+     * @return the span ID
+     */
+    String getSpanId( )
+    {
+        return _strSpanId;
+    }
+
+    /**
+     * @return the parent span ID, {@code null} if none
+     */
+    String getParentSpanId( )
+    {
+        return _strParentSpanId;
+    }
+
+    /**
+     * @return the span name
+     */
+    String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * @return the start time, in nanoseconds since the epoch
+     */
+    long getStartEpochNanos( )
+    {
+        return _lStartEpochNanos;
+    }
+
+    /**
+     * @return the end time, in nanoseconds since the epoch
+     */
+    long getEndEpochNanos( )
+    {
+        return _lEndEpochNanos;
+    }
+
+    /**
+     * @return the attributes
+     */
+    Map<String, Object> getAttributes( )
+    {
+        return _mapAttributes;
+    }
+
+    /**
+     * @return {@code true} if the span failed
+     */
+    boolean isError( )
+    {
+        return _bError;
+    }
+
+    /**
+     * @return the error message, {@code null} if none
+     */
+    String getErrorMessage( )
+    {
+        return _strErrorMessage;
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.web.rs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import fr.paris.lutece.plugins.identitystore.old.common.AdminAccessDeniedException;
+import fr.paris.lutece.plugins.identitystore.old.common.FacadeAdminService;
+import fr.paris.lutece.plugins.identitystore.old.common.FacadeConstants;
+import fr.paris.lutece.plugins.identitystore.old.common.IdentityStoreService;
+import fr.paris.lutece.plugins.identitystore.old.common.admission.AdmissionService;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.AdmissionDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.FacadeCacheSettingsDto;
+import fr.paris.lutece.plugins.identitystore.old.common.hotkey.HotKeyDimension;
+import fr.paris.lutece.plugins.identitystore.old.common.hotkey.HotKeyService;
+import fr.paris.lutece.plugins.identitystore.old.common.invalidation.InvalidationBus;
+import fr.paris.lutece.plugins.identitystore.old.common.limit.BulkheadService;
+import fr.paris.lutece.plugins.identitystore.old.common.limit.ConcurrencyLimiterService;
+import fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.ResponseDto;
+import fr.paris.lutece.plugins.identitystore.v2.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.plugins.rest.service.RestConstants;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Admin REST service of the facade, restricted to the client codes declared as administrators (see {@link FacadeAdminService})
+ */
+@Path( RestConstants.BASE_PATH + Constants.PLUGIN_PATH + FacadeConstants.ADMIN_PATH )
+public final class FacadeAdminRestService
+{
+    private static final String ERROR_ACCESS_DENIED = "Access denied";
+    private static final String ERROR_DURING_TREATMENT = "An error occurred during the treatment.";
+    private static final String DEFAULT_WINDOW = "300";
+    private static final String DEFAULT_LIMIT = "20";
+    private final ObjectMapper _objectMapper;
+
+    /**
+     * Constructor
+     */
+    public FacadeAdminRestService( )
+    {
+        _objectMapper = new ObjectMapper( );
+        _objectMapper.enable( SerializationFeature.INDENT_OUTPUT );
+        _objectMapper.enable( SerializationFeature.WRAP_ROOT_VALUE );
+        _objectMapper.enable( DeserializationFeature.UNWRAP_ROOT_VALUE );
+    }
+
+    /**
+     * Gives the most frequent keys of the GET identity requests over a sliding window
+     *
+     * @param strDimension
+     *            the kind of keys : <code>customer_id</code>, <code>connection_id</code>, <code>client_code</code> or <code>not_found_id</code>
+     * @param nWindowSeconds
+     *            the duration of the window, in seconds
+     * @param nLimit
+     *            the maximum number of keys
+     * @param strHeaderClientAppCode
+     *            client code
+     * @return the most frequent keys with their estimated counts
+     */
+    @GET
+    @Path( FacadeConstants.HOTKEYS_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response getHotKeys( @QueryParam( FacadeConstants.PARAM_DIMENSION ) String strDimension,
+            @QueryParam( FacadeConstants.PARAM_WINDOW ) @DefaultValue( DEFAULT_WINDOW ) int nWindowSeconds,
+            @QueryParam( FacadeConstants.PARAM_LIMIT ) @DefaultValue( DEFAULT_LIMIT ) int nLimit,
+            @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode )
+    {
+        try
+        {
+            FacadeAdminService.checkAdminClient( IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, null ) );
+            final HotKeyDimension dimension = HotKeyDimension.fromCode( strDimension );
+            if ( dimension == null )
+            {
+                throw new IdentityStoreException( "Unknown hot key dimension : " + strDimension );
+            }
+
+            return Response.ok( _objectMapper.writeValueAsString( HotKeyService.instance( ).getTopKeys( dimension, nWindowSeconds, nLimit ) ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Gives the state of the concurrency limiters of the GET identity requests
+     *
+     * @param strHeaderClientAppCode
+     *            client code
+     * @return the limit, the requests in flight, the latencies and the counts of accepted and rejected requests of each limiter
+     */
+    @GET
+    @Path( FacadeConstants.LIMITERS_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response getLimiters( @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode )
+    {
+        try
+        {
+            FacadeAdminService.checkAdminClient( IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, null ) );
+
+            return Response.ok( _objectMapper.writeValueAsString( ConcurrencyLimiterService.instance( ).getState( ) ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Gives the state of the bulkheads isolating the classes of clients
+     *
+     * @param strHeaderClientAppCode
+     *            client code
+     * @return the permits, the requests in flight and waiting, and the counts of accepted, rejected and yielded requests of each bulkhead
+     */
+    @GET
+    @Path( FacadeConstants.BULKHEADS_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response getBulkheads( @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode )
+    {
+        try
+        {
+            FacadeAdminService.checkAdminClient( IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, null ) );
+
+            return Response.ok( _objectMapper.writeValueAsString( BulkheadService.instance( ).getState( ) ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Gives the state of the caches used by the facade
+     *
+     * @param strHeaderClientAppCode
+     *            client code
+     * @return the size, the lookups, the evictions, the memory estimate and the settings of each cache
+     */
+    @GET
+    @Path( FacadeConstants.CACHES_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response getCaches( @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode )
+    {
+        try
+        {
+            FacadeAdminService.checkAdminClient( IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, null ) );
+
+            return Response.ok( _objectMapper.writeValueAsString( FacadeCacheService.instance( ).getState( ) ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Gives the state of the bus sending the cache invalidations to the other nodes
+     *
+     * @param strHeaderClientAppCode
+     *            client code
+     * @return the watermark, the queued, published, read and applied invalidations, and the lag of the bus
+     */
+    @GET
+    @Path( FacadeConstants.INVALIDATIONS_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response getInvalidations( @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode )
+    {
+        try
+        {
+            FacadeAdminService.checkAdminClient( IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, null ) );
+            final InvalidationBus invalidationBus = InvalidationBus.instance( );
+            if ( invalidationBus == null )
+            {
+                throw new IdentityStoreException( "The facade invalidation bus is disabled" );
+            }
+
+            return Response.ok( _objectMapper.writeValueAsString( invalidationBus.getState( ) ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Gives the state of the admission cache of the identities
+     *
+     * @param strHeaderClientAppCode
+     *            client code
+     * @return the memory of each segment, the admitted, rejected and evicted identities, and the memory and quota of each service contract
+     */
+    @GET
+    @Path( FacadeConstants.ADMISSION_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response getAdmission( @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode )
+    {
+        try
+        {
+            FacadeAdminService.checkAdminClient( IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, null ) );
+            final AdmissionDto admission = AdmissionService.instance( ).getState( );
+            if ( admission == null )
+            {
+                throw new IdentityStoreException( "The facade admission cache is disabled" );
+            }
+
+            return Response.ok( _objectMapper.writeValueAsString( admission ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Removes an entry of a cache, or all its entries
+     *
+     * @param strCache
+     *            the name of the cache
+     * @param strKey
+     *            the key of the entry, none to remove all the entries
+     * @param strHeaderClientAppCode
+     *            client code
+     * @return the state of the cache
+     */
+    @DELETE
+    @Path( FacadeConstants.CACHE_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response invalidateCache( @PathParam( FacadeConstants.PARAM_CACHE ) String strCache, @QueryParam( FacadeConstants.PARAM_KEY ) String strKey,
+            @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode )
+    {
+        try
+        {
+            FacadeAdminService.checkAdminClient( IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, null ) );
+
+            return Response.ok( _objectMapper.writeValueAsString( FacadeCacheService.instance( ).invalidate( strCache, strKey ) ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Removes the entries of the service contract of a client from all the caches
+     *
+     * @param strContractClientCode
+     *            the client code of the service contract
+     * @param strHeaderClientAppCode
+     *            client code
+     * @return the state of the caches
+     */
+    @DELETE
+    @Path( FacadeConstants.CACHE_CONTRACT_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response invalidateContractCaches( @PathParam( FacadeConstants.PARAM_CONTRACT ) String strContractClientCode,
+            @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode )
+    {
+        try
+        {
+            FacadeAdminService.checkAdminClient( IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, null ) );
+
+            return Response.ok( _objectMapper.writeValueAsString( FacadeCacheService.instance( ).invalidateContract( strContractClientCode ) ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Changes the maximum number of entries or the time to live of a cache
+     *
+     * @param strCache
+     *            the name of the cache
+     * @param settings
+     *            the new settings, as JSON
+     * @param strHeaderClientAppCode
+     *            client code
+     * @return the state of the cache
+     */
+    @PUT
+    @Path( FacadeConstants.CACHE_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response configureCache( @PathParam( FacadeConstants.PARAM_CACHE ) String strCache, String settings,
+            @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode )
+    {
+        try
+        {
+            FacadeAdminService.checkAdminClient( IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, null ) );
+            final FacadeCacheSettingsDto settingsDto = _objectMapper.readValue( settings, FacadeCacheSettingsDto.class );
+
+            return Response.ok( _objectMapper.writeValueAsString( FacadeCacheService.instance( ).configure( strCache, settingsDto ) ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * build error response from exception
+     *
+     * @param exception
+     *            the exception
+     * @return ResponseDto from exception
+     */
+    private Response getErrorResponse( Exception exception )
+    {
+        // For security purpose, send a generic message
+        String strMessage;
+        Response.StatusType status;
+
+        AppLogService.debug( "FacadeAdminRestService getErrorResponse : " + exception.getMessage( ) );
+
+        if ( exception instanceof AdminAccessDeniedException )
+        {
+            strMessage = ERROR_ACCESS_DENIED;
+            status = Response.Status.FORBIDDEN;
+        }
+        else
+        {
+            strMessage = ERROR_DURING_TREATMENT;
+            status = Response.Status.BAD_REQUEST;
+        }
+
+        return buildResponse( strMessage, status );
+    }
+
+    /**
+     * Builds a {@code Response} object from the specified message and status
+     *
+     * @param strMessage
+     *            the message
+     * @param status
+     *            the status
+     * @return the {@code Response} object
+     */
+    private Response buildResponse( String strMessage, Response.StatusType status )
+    {
+        try
+        {
+            ResponseDto response = new ResponseDto( );
+            response.setStatus( status.toString( ) );
+            response.setMessage( strMessage );
+
+            return Response.status( status ).type( MediaType.APPLICATION_JSON ).entity( _objectMapper.writeValueAsString( response ) ).build( );
+        }
+        catch( JsonProcessingException jpe )
+        {
+            return Response.status( status ).type( MediaType.TEXT_PLAIN ).entity( strMessage ).build( );
+        }
+    }
+}
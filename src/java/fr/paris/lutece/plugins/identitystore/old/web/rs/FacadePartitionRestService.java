@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.old.web.rs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.AdminAccessDeniedException;
+import fr.paris.lutece.plugins.identitystore.old.common.FacadeConstants;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.partition.PartitionService;
+import fr.paris.lutece.plugins.identitystore.v2.web.rs.util.Constants;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.rest.service.RestConstants;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * REST service through which the facade nodes of a partitioned cluster read the identities they do not own from their owner (see
+ * {@link PartitionService}). It is restricted to the nodes holding the token of the cluster.
+ */
+@Path( RestConstants.BASE_PATH + Constants.PLUGIN_PATH + FacadeConstants.PARTITION_PATH )
+public final class FacadePartitionRestService
+{
+    private final ObjectMapper _objectMapper = new ObjectMapper( );
+
+    /**
+     * Gives an identity owned by the node, filtered according to the service contract of the client of the requesting node
+     *
+     * @param strCustomerId
+     *            the customer ID
+     * @param strClientCode
+     *            the client code of the request served by the requesting node, already trusted by that node
+     * @param strPeerToken
+     *            the token of the cluster
+     * @return the identity, as serialized by the v3 DTO
+     */
+    @GET
+    @Path( FacadeConstants.PARTITION_IDENTITY_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response getIdentity( @QueryParam( Constants.PARAM_ID_CUSTOMER ) String strCustomerId,
+            @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strClientCode, @HeaderParam( FacadeConstants.HEADER_PEER_TOKEN ) String strPeerToken )
+    {
+        try
+        {
+            PartitionService.instance( ).checkPeerToken( strPeerToken );
+            final ServiceContract serviceContract = FacadeAdapters.getServiceContractProvider( ).getActiveServiceContract( strClientCode );
+            // served locally even if the ring of this node disagrees, so that a read never loops between the nodes
+            final IdentityDto identity = PartitionService.instance( ).getLocalIdentityProvider( ).getByCustomerId( strCustomerId, serviceContract );
+            if ( identity == null )
+            {
+                return Response.status( Response.Status.NOT_FOUND ).build( );
+            }
+            return Response.ok( _objectMapper.writeValueAsString( identity ) ).build( );
+        }
+        catch( AdminAccessDeniedException exception )
+        {
+            return Response.status( Response.Status.FORBIDDEN ).build( );
+        }
+        catch( Exception exception )
+        {
+            AppLogService.debug( "FacadePartitionRestService getIdentity : " + exception.getMessage( ) );
+            return Response.status( Response.Status.INTERNAL_SERVER_ERROR ).build( );
+        }
+    }
+}
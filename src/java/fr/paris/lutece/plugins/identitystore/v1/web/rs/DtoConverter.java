@@ -33,11 +33,16 @@
  */
 package fr.paris.lutece.plugins.identitystore.v1.web.rs;
 
+import fr.paris.lutece.plugins.identitystore.old.common.AttributeDelta;
+import fr.paris.lutece.plugins.identitystore.old.common.CertifierRegistryService;
+import fr.paris.lutece.plugins.identitystore.old.common.jfr.FacadeEvents;
+import fr.paris.lutece.plugins.identitystore.old.common.jfr.IdentityConversionEvent;
 import fr.paris.lutece.plugins.identitystore.v1.web.rs.dto.CertificateDto;
 import fr.paris.lutece.plugins.identitystore.v1.web.rs.dto.IdentityDto;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
 import org.apache.commons.lang3.StringUtils;
 
+import java.sql.Timestamp;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -62,9 +67,24 @@ public final class DtoConverter
      * @return identityDtoOldVersion from package v1
      */
     public static IdentityDto convert( final fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto v3Identity )
+    {
+        return convert( v3Identity, null );
+    }
+
+    /**
+     * Convert an v3Identity from V2 version to V1 version, with only the attributes updated after the provided date
+     * 
+     * @param v3Identity
+     * @param since
+     *            the date after which the attributes to convert were updated, {@code null} to convert all the attributes
+     * @return identityDtoOldVersion from package v1
+     */
+    public static IdentityDto convert( final fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto v3Identity, final Timestamp since )
     {
         if ( v3Identity != null )
         {
+            final IdentityConversionEvent event = new IdentityConversionEvent( );
+            event.begin( );
             final IdentityDto v1Identity = new IdentityDto( );
             v1Identity.setConnectionId( v3Identity.getConnectionId( ) );
             v1Identity.setCustomerId( ( v3Identity.getCustomerId( ) ) );
@@ -73,11 +93,22 @@ public final class DtoConverter
 
             for ( final AttributeDto attributeDto : v3Identity.getAttributes( ) )
             {
+                if ( !AttributeDelta.isUpdatedSince( attributeDto, since ) )
+                {
+                    continue;
+                }
                 newMapAttributeOldVersion.put( attributeDto.getKey( ), convertToAttributeDtoOldVersion( attributeDto ) );
             }
 
             v1Identity.setAttributes( newMapAttributeOldVersion );
 
+            event.end( );
+            if ( event.shouldCommit( ) )
+            {
+                event.setApiVersion( FacadeEvents.API_VERSION_V1 );
+                event.setAttributeCount( v3Identity.getAttributes( ).size( ) );
+                event.commit( );
+            }
             return v1Identity;
         }
 
@@ -116,10 +147,12 @@ public final class DtoConverter
 
         if ( attributeDto != null && StringUtils.isNotEmpty( attributeDto.getCertifier( ) ) )
         {
-            certificateDtoOldVersion.setCertificateExpirationDate( null ); // TODO n'existe pas en V3
+            final CertifierRegistryService certifierRegistry = CertifierRegistryService.instance( );
+            certificateDtoOldVersion.setCertificateExpirationDate(
+                    certifierRegistry.getExpirationDate( attributeDto.getCertifier( ), attributeDto.getCertificationDate( ) ) );
             certificateDtoOldVersion.setCertifierCode( attributeDto.getCertifier( ) );
             certificateDtoOldVersion.setCertifierLevel( attributeDto.getCertificationLevel( ) );
-            certificateDtoOldVersion.setCertifierName( attributeDto.getCertifier( ) );
+            certificateDtoOldVersion.setCertifierName( certifierRegistry.getCertifierName( attributeDto.getCertifier( ) ) );
 
             return certificateDtoOldVersion;
         }
@@ -34,7 +34,7 @@
 package fr.paris.lutece.plugins.identitystore.v1.web.rs;
 
 import fr.paris.lutece.plugins.identitystore.business.application.ClientApplication;
-import fr.paris.lutece.plugins.identitystore.business.application.ClientApplicationHome;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
 import fr.paris.lutece.plugins.identitystore.v1.web.rs.util.Constants;
 import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
@@ -97,7 +97,7 @@ public final class IdentityRequestValidator
             throw new AppException( Constants.PARAM_CLIENT_CODE + " is missing" );
         }
 
-        ClientApplication clientApp = ClientApplicationHome.findByCode( strClientCode );
+        ClientApplication clientApp = FacadeAdapters.getClientApplicationProvider( ).findByCode( strClientCode );
 
         if ( clientApp == null )
         {
@@ -36,22 +36,45 @@ package fr.paris.lutece.plugins.identitystore.v2.web.request;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.paris.lutece.plugins.identitystore.old.common.IdentityService;
+import fr.paris.lutece.plugins.identitystore.old.common.deadline.RequestDeadline;
+import fr.paris.lutece.plugins.identitystore.old.common.jfr.FacadeEvents;
+import fr.paris.lutece.plugins.identitystore.old.common.jfr.IdentitySerializationEvent;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.CachedPayload;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.IdentityPayloadRequest;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.PayloadETag;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.PayloadStreamingOutput;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.StalePayloadService;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.FacadeTracer;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.TraceSpan;
 import fr.paris.lutece.plugins.identitystore.v2.web.rs.DtoConverter;
+import fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.IdentityDto;
 import fr.paris.lutece.plugins.identitystore.v2.web.rs.IdentityRequestValidator;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.search.IdentitySearchResponse;
 import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
 import fr.paris.lutece.portal.service.util.AppException;
 
+import javax.ws.rs.core.StreamingOutput;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
 /**
  * This class represents a get request for IdentityStoreRestServive
  */
 public class IdentityStoreGetRequest extends IdentityStoreRequest
 {
+    private static final String PAYLOAD_FORMAT = "v2";
 
     private final String _strConnectionId;
     private final String _strCustomerId;
     private final String _strClientAppCode;
     private final ObjectMapper _objectMapper;
+    private final Timestamp _since;
+    private boolean _bNotModified;
+    private boolean _bUnchanged;
+    private long _lStaleAge = -1;
+    private String _strETag;
 
     /**
      * Constructor of IdentityStoreGetRequest
@@ -66,12 +89,32 @@ public class IdentityStoreGetRequest extends IdentityStoreRequest
      *            for json transformation
      */
     public IdentityStoreGetRequest( String strConnectionId, String strCustomerId, String strClientCode, ObjectMapper objectMapper )
+    {
+        this( strConnectionId, strCustomerId, strClientCode, objectMapper, null );
+    }
+
+    /**
+     * Constructor of IdentityStoreGetRequest
+     *
+     * @param strConnectionId
+     *            the connectionId
+     * @param strCustomerId
+     *            the customerId
+     * @param strClientCode
+     *            the clientCode
+     * @param objectMapper
+     *            for json transformation
+     * @param since
+     *            the date after which the attributes to give were updated, {@code null} to give all the attributes
+     */
+    public IdentityStoreGetRequest( String strConnectionId, String strCustomerId, String strClientCode, ObjectMapper objectMapper, Timestamp since )
     {
         super( );
         this._strConnectionId = strConnectionId;
         this._strCustomerId = strCustomerId;
         this._strClientAppCode = strClientCode;
         this._objectMapper = objectMapper;
+        this._since = since;
     }
 
     /**
@@ -90,28 +133,179 @@ public class IdentityStoreGetRequest extends IdentityStoreRequest
     /**
      * get the identity
      *
-     * @throws AppException
+     * @throws IdentityStoreException
      *             if there is an exception during the treatment
      */
     @Override
     protected String doSpecificRequest( ) throws IdentityStoreException
     {
-        final IdentitySearchResponse response = new IdentitySearchResponse( );
-
-        IdentityService.instance( ).search( _strCustomerId, _strConnectionId, response, _strClientAppCode, null );
-        if ( response.getIdentities( ) != null && !response.getIdentities( ).isEmpty( ) )
+        // the segment of a mapped payload may be recycled once its lease expired, the payload is then searched again
+        CachedPayload payload = searchPayload( );
+        while ( payload != null )
         {
             try
             {
-                return _objectMapper.writeValueAsString( DtoConverter.convert( response.getIdentities( ).get( 0 ) ) );
+                final ByteBuffer bytes = payload.getBytes( );
+                final byte [ ] response = new byte [ bytes.remaining( )];
+                bytes.get( response );
+                if ( payload.isValid( ) )
+                {
+                    return new String( response, StandardCharsets.UTF_8 );
+                }
             }
-            catch( JsonProcessingException e )
+            finally
             {
-                throw new IdentityStoreException( ERROR_JSON_MAPPING, e );
+                payload.release( );
             }
+            payload = searchPayload( );
         }
-
         return null;
     }
 
+    /**
+     * Do the request, and give the identity as a payload streamed to the response, served from the payload store when it is stored there
+     *
+     * @return the identity, or {@code null} if it is not found
+     * @throws IdentityStoreException
+     *             in case of failure
+     */
+    public StreamingOutput doPayloadRequest( ) throws IdentityStoreException
+    {
+        return doPayloadRequest( null );
+    }
+
+    /**
+     * Do the request, and give the identity as a payload streamed to the response, served from the payload store when it is stored there, unless the
+     * client already holds it
+     *
+     * @param strIfNoneMatch
+     *            the entity tags of the payloads held by the client, possibly {@code null}
+     * @return the identity, or {@code null} if it is not found, not modified or unchanged since the provided date
+     * @throws IdentityStoreException
+     *             in case of failure
+     */
+    public StreamingOutput doPayloadRequest( final String strIfNoneMatch ) throws IdentityStoreException
+    {
+        validRequest( );
+
+        // a delta is computed from the identity, never served stale
+        final CachedPayload payload = _since == null ? StalePayloadService.instance( ).search(
+                StalePayloadService.buildKey( PAYLOAD_FORMAT, _strClientAppCode, _strCustomerId, _strConnectionId ), this::searchPayload ) : searchPayload( );
+        if ( payload == null )
+        {
+            return null;
+        }
+        if ( _bUnchanged )
+        {
+            payload.release( );
+            return null;
+        }
+        _strETag = payload.getETag( );
+        if ( PayloadETag.matches( strIfNoneMatch, _strETag ) )
+        {
+            payload.release( );
+            _bNotModified = true;
+            return null;
+        }
+        if ( payload.isStale( ) )
+        {
+            _lStaleAge = TimeUnit.MILLISECONDS.toSeconds( payload.getAgeMillis( ) );
+        }
+        return new PayloadStreamingOutput( payload, this::searchPayload );
+    }
+
+    /**
+     * @return {@code true} if the client already holds the identity, according to the entity tags it gave
+     */
+    public boolean isNotModified( )
+    {
+        return _bNotModified;
+    }
+
+    /**
+     * @return {@code true} if the request is a delta request and no attribute was updated since the provided date
+     */
+    public boolean isUnchanged( )
+    {
+        return _bUnchanged;
+    }
+
+    /**
+     * @return the entity tag of the identity, {@code null} if it is not found or not modified since the provided date
+     */
+    public String getETag( )
+    {
+        return _strETag;
+    }
+
+    /**
+     * @return the age of the identity, in seconds, if it is served stale because it could not be read in time, else -1
+     */
+    public long getStaleAge( )
+    {
+        return _lStaleAge;
+    }
+
+    /**
+     * Search the identity
+     *
+     * @return the payload of the identity, which must be released after use, or {@code null} if it is not found
+     * @throws IdentityStoreException
+     *             in case of failure
+     */
+    private CachedPayload searchPayload( ) throws IdentityStoreException
+    {
+        final IdentitySearchResponse response = new IdentitySearchResponse( );
+        // a delta depends on the date of the request, it is never stored
+        final IdentityPayloadRequest payloadRequest = _since == null ? new IdentityPayloadRequest( PAYLOAD_FORMAT, this::render )
+                : new IdentityPayloadRequest( this::render );
+
+        IdentityService.instance( ).search( _strCustomerId, _strConnectionId, response, _strClientAppCode, null, payloadRequest );
+        return payloadRequest.getPayload( );
+    }
+
+    /**
+     * Render the identity
+     *
+     * @param identity
+     *            the identity, filtered by the service contract
+     * @return the JSON payload
+     * @throws IdentityStoreException
+     *             if the identity cannot be serialized
+     */
+    private byte [ ] render( final fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto identity ) throws IdentityStoreException
+    {
+        final FacadeTracer tracer = FacadeTracer.instance( );
+        final IdentityDto identityDto;
+        try ( final TraceSpan span = tracer.startSpan( FacadeTracer.SPAN_CONVERSION ) )
+        {
+            identityDto = DtoConverter.convert( identity, null, _since );
+        }
+        if ( _since != null && ( identityDto.getAttributes( ) == null || identityDto.getAttributes( ).isEmpty( ) ) )
+        {
+            _bUnchanged = true;
+            return new byte [ 0];
+        }
+        RequestDeadline.check( FacadeTracer.SPAN_SERIALIZATION );
+        try ( final TraceSpan span = tracer.startSpan( FacadeTracer.SPAN_SERIALIZATION ) )
+        {
+            final IdentitySerializationEvent event = new IdentitySerializationEvent( );
+            event.begin( );
+            final byte [ ] payload = _objectMapper.writeValueAsBytes( identityDto );
+            event.end( );
+            span.setAttribute( "length", payload.length );
+            if ( event.shouldCommit( ) )
+            {
+                event.setApiVersion( FacadeEvents.API_VERSION_V2 );
+                event.setByteSize( payload.length );
+                event.commit( );
+            }
+            return payload;
+        }
+        catch( JsonProcessingException e )
+        {
+            throw new IdentityStoreException( ERROR_JSON_MAPPING, e );
+        }
+    }
+
 }
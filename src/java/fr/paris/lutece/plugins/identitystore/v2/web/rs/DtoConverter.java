@@ -33,11 +33,17 @@
  */
 package fr.paris.lutece.plugins.identitystore.v2.web.rs;
 
+import fr.paris.lutece.plugins.identitystore.old.common.AttributeDelta;
+import fr.paris.lutece.plugins.identitystore.old.common.CertifierRegistryService;
+import fr.paris.lutece.plugins.identitystore.old.common.jfr.FacadeEvents;
+import fr.paris.lutece.plugins.identitystore.old.common.jfr.IdentityConversionEvent;
 import fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.CertificateDto;
 import fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.IdentityDto;
 import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
 import org.apache.commons.lang3.StringUtils;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -64,6 +70,40 @@ public final class DtoConverter
      */
     public static IdentityDto convert( final fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto qualifiedIdentity )
     {
+        return convert( qualifiedIdentity, null );
+    }
+
+    /**
+     * returns a identityDto initialized from provided qualifiedIdentity, with only the attributes of the projection
+     *
+     * @param qualifiedIdentity
+     *            business qualifiedIdentity to convert
+     * @param projection
+     *            the keys of the attributes to convert, {@code null} or empty to convert all the attributes
+     * @return identityDto initialized from provided qualifiedIdentity
+     */
+    public static IdentityDto convert( final fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto qualifiedIdentity,
+            final Collection<String> projection )
+    {
+        return convert( qualifiedIdentity, projection, null );
+    }
+
+    /**
+     * returns a identityDto initialized from provided qualifiedIdentity, with only the attributes of the projection updated after the provided date
+     *
+     * @param qualifiedIdentity
+     *            business qualifiedIdentity to convert
+     * @param projection
+     *            the keys of the attributes to convert, {@code null} or empty to convert all the attributes
+     * @param since
+     *            the date after which the attributes to convert were updated, {@code null} to convert the attributes whatever their update date
+     * @return identityDto initialized from provided qualifiedIdentity
+     */
+    public static IdentityDto convert( final fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto qualifiedIdentity,
+            final Collection<String> projection, final Timestamp since )
+    {
+        final IdentityConversionEvent event = new IdentityConversionEvent( );
+        event.begin( );
         IdentityDto identityDto = new IdentityDto( );
         identityDto.setConnectionId( qualifiedIdentity.getConnectionId( ) );
         identityDto.setCustomerId( qualifiedIdentity.getCustomerId( ) );
@@ -74,6 +114,14 @@ public final class DtoConverter
 
             for ( final AttributeDto attributeDto : qualifiedIdentity.getAttributes( ) )
             {
+                if ( projection != null && !projection.isEmpty( ) && !projection.contains( attributeDto.getKey( ) ) )
+                {
+                    continue;
+                }
+                if ( !AttributeDelta.isUpdatedSince( attributeDto, since ) )
+                {
+                    continue;
+                }
                 fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.AttributeDto attrDto = new fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.AttributeDto( );
                 attrDto.setKey( attributeDto.getKey( ) );
                 attrDto.setValue( attributeDto.getValue( ) );
@@ -85,9 +133,11 @@ public final class DtoConverter
                 if ( StringUtils.isNotEmpty( attributeDto.getCertifier( ) ) )
                 {
                     final CertificateDto certifDto = new CertificateDto( );
-                    certifDto.setCertificateExpirationDate( null ); // TODO n'existe pas en V3
+                    final CertifierRegistryService certifierRegistry = CertifierRegistryService.instance( );
+                    certifDto.setCertificateExpirationDate(
+                            certifierRegistry.getExpirationDate( attributeDto.getCertifier( ), attributeDto.getCertificationDate( ) ) );
                     certifDto.setCertifierCode( attributeDto.getCertifier( ) );
-                    certifDto.setCertifierName( attributeDto.getCertifier( ) );
+                    certifDto.setCertifierName( certifierRegistry.getCertifierName( attributeDto.getCertifier( ) ) );
                     certifDto.setCertifierLevel( attributeDto.getCertificationLevel( ) );
                     attrDto.setCertificate( certifDto );
                 }
@@ -99,6 +149,13 @@ public final class DtoConverter
             identityDto.setAttributes( mapAttributeDto );
         }
 
+        event.end( );
+        if ( event.shouldCommit( ) )
+        {
+            event.setApiVersion( FacadeEvents.API_VERSION_V2 );
+            event.setAttributeCount( qualifiedIdentity.getAttributes( ) != null ? qualifiedIdentity.getAttributes( ).size( ) : 0 );
+            event.commit( );
+        }
         return identityDto;
     }
 }
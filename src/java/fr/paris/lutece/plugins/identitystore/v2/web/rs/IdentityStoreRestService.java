@@ -36,9 +36,29 @@ package fr.paris.lutece.plugins.identitystore.v2.web.rs;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import fr.paris.lutece.plugins.identitystore.old.common.AttributeDelta;
+import fr.paris.lutece.plugins.identitystore.old.common.AttributeSearchService;
+import fr.paris.lutece.plugins.identitystore.old.common.DeadlineExceededException;
+import fr.paris.lutece.plugins.identitystore.old.common.FacadeConstants;
+import fr.paris.lutece.plugins.identitystore.old.common.IdentityChangeFeedService;
+import fr.paris.lutece.plugins.identitystore.old.common.IdentityExistenceService;
+import fr.paris.lutece.plugins.identitystore.old.common.IdentityExportService;
 import fr.paris.lutece.plugins.identitystore.old.common.IdentityNotFoundException;
 import fr.paris.lutece.plugins.identitystore.old.common.IdentityStoreService;
+import fr.paris.lutece.plugins.identitystore.old.common.ServiceOverloadedException;
+import fr.paris.lutece.plugins.identitystore.old.common.SpeculativeFetchService;
+import fr.paris.lutece.plugins.identitystore.old.common.deadline.RequestDeadline;
+import fr.paris.lutece.plugins.identitystore.old.common.limit.BulkheadPermit;
+import fr.paris.lutece.plugins.identitystore.old.common.limit.BulkheadService;
+import fr.paris.lutece.plugins.identitystore.old.common.limit.ClientClass;
+import fr.paris.lutece.plugins.identitystore.old.common.limit.ConcurrencyLimiterService;
+import fr.paris.lutece.plugins.identitystore.old.common.limit.LimiterPermit;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.AttributeSearchDto;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.IdentityExistenceRequestDto;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.FacadeTracer;
+import fr.paris.lutece.plugins.identitystore.old.common.trace.TraceSpan;
 import fr.paris.lutece.plugins.identitystore.v2.web.request.IdentityStoreGetRequest;
 import fr.paris.lutece.plugins.identitystore.v2.web.rs.dto.ResponseDto;
 import fr.paris.lutece.plugins.identitystore.v2.web.rs.util.Constants;
@@ -47,8 +67,12 @@ import fr.paris.lutece.plugins.rest.service.RestConstants;
 import fr.paris.lutece.portal.service.util.AppLogService;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST service for channel resource
@@ -60,7 +84,11 @@ public final class IdentityStoreRestService
     private static final String ERROR_NO_IDENTITY_FOUND = "No identity found";
     private static final String ERROR_NO_IDENTITY_TO_UPDATE = "no identity to update";
     private static final String ERROR_DURING_TREATMENT = "An error occurred during the treatment.";
+    private static final String ERROR_DEADLINE_EXCEEDED = "The deadline of the request is exceeded.";
+    private static final String ERROR_SERVICE_OVERLOADED = "The service is overloaded, retry later.";
+    private static final String RETRY_AFTER_SECONDS = "1";
     private final ObjectMapper _objectMapper;
+    private final ObjectWriter _exportObjectWriter;
 
     /**
      * private constructor
@@ -72,6 +100,7 @@ public final class IdentityStoreRestService
         _objectMapper.enable( SerializationFeature.WRAP_ROOT_VALUE );
         _objectMapper.enable( DeserializationFeature.UNWRAP_ROOT_VALUE );
         _objectMapper.disable( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES );
+        _exportObjectWriter = _objectMapper.writer( ).without( SerializationFeature.INDENT_OUTPUT );
     }
 
     /**
@@ -86,20 +115,267 @@ public final class IdentityStoreRestService
      *            client code
      * @param strQueryClientAppCode
      *            client code, will be removed, use Header parameter instead
+     * @param strSince
+     *            the date of the last read of the identity by the client (milliseconds since the epoch or ISO-8601 date-time), to only receive the
+     *            attributes updated since then, or a 204 status if none was updated
+     * @param strTraceParent
+     *            the W3C trace context of the caller, if any
+     * @param strRequestTimeout
+     *            the time the caller waits for the identity, in milliseconds, if any : the request is aborted with a 504 status once it elapsed
+     * @param strIfNoneMatch
+     *            the entity tags of the identities held by the caller, if any : a 304 status is returned if the identity still matches one of them
      * @return the identity
      */
     @GET
     @Produces( MediaType.APPLICATION_JSON )
     public Response getIdentity( @QueryParam( Constants.PARAM_ID_CONNECTION ) String strConnectionId,
             @QueryParam( Constants.PARAM_ID_CUSTOMER ) String strCustomerId, @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode,
+            @QueryParam( Constants.PARAM_CLIENT_CODE ) String strQueryClientAppCode, @QueryParam( FacadeConstants.PARAM_SINCE ) String strSince,
+            @HeaderParam( FacadeTracer.HEADER_TRACEPARENT ) String strTraceParent,
+            @HeaderParam( FacadeConstants.HEADER_REQUEST_TIMEOUT ) String strRequestTimeout, @HeaderParam( HttpHeaders.IF_NONE_MATCH ) String strIfNoneMatch )
+            throws IdentityStoreException
+    {
+        try ( final RequestDeadline deadline = RequestDeadline.start( strRequestTimeout );
+                final TraceSpan trace = FacadeTracer.instance( ).startTrace( strTraceParent, FacadeTracer.SPAN_GET_IDENTITY ) )
+        {
+            // the excess load is rejected before any work, the trust resolution included
+            try ( final LimiterPermit permit = ConcurrencyLimiterService.instance( ).acquireGetIdentity( ) )
+            {
+                // the contract and the identity are loaded while the client code is verified, if the speculation is enabled
+                final SpeculativeFetchService speculativeFetch = SpeculativeFetchService.instance( );
+                final CompletableFuture<Void> speculation = speculativeFetch
+                        .start( IdentityStoreService.getClaimedClientCode( strHeaderClientAppCode, strQueryClientAppCode ), strCustomerId, strConnectionId );
+                String strClientAppCode = IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, strQueryClientAppCode );
+                trace.setAttribute( "client_code", strClientAppCode );
+                trace.setAttribute( "speculative", speculation != null );
+                deadline.applyClientDefault( strClientAppCode );
+                trace.setAttribute( "client_class", BulkheadService.instance( ).getClientClass( strClientAppCode ).getCode( ) );
+                try ( final BulkheadPermit bulkhead = BulkheadService.instance( ).acquire( strClientAppCode ) )
+                {
+                    speculativeFetch.await( speculation );
+                    IdentityStoreGetRequest identityStoreRequest = new IdentityStoreGetRequest( strConnectionId, strCustomerId, strClientAppCode,
+                            _objectMapper, AttributeDelta.parseSince( strSince ) );
+
+                    final StreamingOutput identity = identityStoreRequest.doPayloadRequest( strIfNoneMatch );
+                    if ( identityStoreRequest.isUnchanged( ) )
+                    {
+                        // not a conditional request : a 304 status would tell the client to use a cached response it may not have
+                        return Response.noContent( ).build( );
+                    }
+                    if ( identityStoreRequest.isNotModified( ) )
+                    {
+                        return Response.notModified( ).header( HttpHeaders.ETAG, identityStoreRequest.getETag( ) ).build( );
+                    }
+                    if ( identityStoreRequest.getStaleAge( ) >= 0 )
+                    {
+                        trace.setAttribute( "stale", true );
+                        return Response.ok( identity ).header( HttpHeaders.ETAG, identityStoreRequest.getETag( ) )
+                                .header( FacadeConstants.HEADER_STALE, Boolean.TRUE.toString( ) )
+                                .header( FacadeConstants.HEADER_AGE, identityStoreRequest.getStaleAge( ) ).build( );
+                    }
+                    return Response.ok( identity ).header( HttpHeaders.ETAG, identityStoreRequest.getETag( ) ).build( );
+                }
+                catch( Exception exception )
+                {
+                    trace.setError( exception );
+                    return getErrorResponse( exception );
+                }
+            }
+            catch( ServiceOverloadedException | DeadlineExceededException exception )
+            {
+                trace.setError( exception );
+                return getErrorResponse( exception );
+            }
+        }
+    }
+
+    /**
+     * Tells whether the identity of a connectionId or customerID exists, as a GET request without its body : the identity is neither converted, nor
+     * serialized, nor logged as read
+     *
+     * @param strConnectionId
+     *            connection ID
+     * @param strCustomerId
+     *            customerID
+     * @param strHeaderClientAppCode
+     *            client code
+     * @param strQueryClientAppCode
+     *            client code, will be removed, use Header parameter instead
+     * @return a 200 status if the identity exists, or is merged into an existing identity, else a 404 status
+     */
+    @HEAD
+    public Response checkIdentity( @QueryParam( Constants.PARAM_ID_CONNECTION ) String strConnectionId,
+            @QueryParam( Constants.PARAM_ID_CUSTOMER ) String strCustomerId, @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode,
+            @QueryParam( Constants.PARAM_CLIENT_CODE ) String strQueryClientAppCode ) throws IdentityStoreException
+    {
+        String strClientAppCode = IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, strQueryClientAppCode );
+        try ( final BulkheadPermit bulkhead = BulkheadService.instance( ).acquire( strClientAppCode ) )
+        {
+            IdentityRequestValidator.instance( ).checkIdentity( strConnectionId, strCustomerId );
+            IdentityRequestValidator.instance( ).checkClientApplication( strClientAppCode );
+
+            final boolean bExists = IdentityExistenceService.instance( ).exists( strCustomerId, strConnectionId, strClientAppCode );
+            return Response.status( bExists ? Response.Status.OK : Response.Status.NOT_FOUND ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Gives the status of customer IDs : exists, deleted, merged (with the customer ID of the identity it is merged into) or unknown. The identities are
+     * not loaded.
+     *
+     * @param existence
+     *            the customer IDs, as JSON
+     * @param strHeaderClientAppCode
+     *            client code
+     * @param strQueryClientAppCode
+     *            client code, will be removed, use Header parameter instead
+     * @return the status of each customer ID
+     */
+    @POST
+    @Path( FacadeConstants.EXISTENCE_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response checkIdentities( String existence, @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode,
             @QueryParam( Constants.PARAM_CLIENT_CODE ) String strQueryClientAppCode ) throws IdentityStoreException
     {
         String strClientAppCode = IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, strQueryClientAppCode );
+        try ( final BulkheadPermit bulkhead = BulkheadService.instance( ).acquire( strClientAppCode ) )
+        {
+            IdentityRequestValidator.instance( ).checkClientApplication( strClientAppCode );
+            final IdentityExistenceRequestDto existenceDto = _objectMapper.readValue( existence, IdentityExistenceRequestDto.class );
+
+            return Response.ok( _objectMapper.writeValueAsString( IdentityExistenceService.instance( ).check( strClientAppCode, existenceDto ) ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Export the identities visible to the service contract of the client, as newline-delimited JSON (one identity per line).<br/>
+     * The identities are exported in ascending customer ID order: an interrupted export is resumed by passing the customer ID of the last received identity
+     * as cursor.
+     *
+     * @param strCursor
+     *            the customer ID after which the export starts, none to export from the beginning
+     * @param nLimit
+     *            the maximum number of exported identities, none for no limit
+     * @param strHeaderClientAppCode
+     *            client code
+     * @param strQueryClientAppCode
+     *            client code, will be removed, use Header parameter instead
+     * @return the identities
+     */
+    @GET
+    @Path( FacadeConstants.EXPORT_PATH )
+    @Produces( FacadeConstants.MEDIA_TYPE_NDJSON )
+    public Response exportIdentities( @QueryParam( FacadeConstants.PARAM_CURSOR ) String strCursor, @QueryParam( FacadeConstants.PARAM_LIMIT ) int nLimit,
+            @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode, @QueryParam( Constants.PARAM_CLIENT_CODE ) String strQueryClientAppCode )
+            throws IdentityStoreException
+    {
+        String strClientAppCode = IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, strQueryClientAppCode );
+        BulkheadPermit bulkhead = null;
         try
         {
-            IdentityStoreGetRequest identityStoreRequest = new IdentityStoreGetRequest( strConnectionId, strCustomerId, strClientAppCode, _objectMapper );
+            IdentityRequestValidator.instance( ).checkClientApplication( strClientAppCode );
+            bulkhead = BulkheadService.instance( ).acquire( strClientAppCode );
+
+            StreamingOutput export = IdentityExportService.instance( ).export( strClientAppCode, strCursor, nLimit, DtoConverter::convert,
+                    _exportObjectWriter );
+            if ( bulkhead != null )
+            {
+                // the export is streamed once the request returned
+                export = bulkhead.holdUntilWritten( export );
+                bulkhead = null;
+            }
+            return Response.ok( export ).type( FacadeConstants.MEDIA_TYPE_NDJSON ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+        finally
+        {
+            if ( bulkhead != null )
+            {
+                bulkhead.close( );
+            }
+        }
+    }
+
+    /**
+     * Gives the identities created, updated, merged or deleted after the cursor.<br/>
+     * Without cursor, no change is returned but the cursor of the head of the feed. When there is no change after the cursor, the response is held until a
+     * change occurs or the wait time elapses.
+     *
+     * @param strSince
+     *            the cursor returned by the previous call
+     * @param nLimit
+     *            the maximum number of changes
+     * @param nWaitSeconds
+     *            the maximum time to wait for a change, in seconds
+     * @param bWithIdentities
+     *            true to add the changed identities to the response
+     * @param strHeaderClientAppCode
+     *            client code
+     * @param strQueryClientAppCode
+     *            client code, will be removed, use Header parameter instead
+     * @return the changes and the cursor of the next call
+     */
+    @GET
+    @Path( FacadeConstants.CHANGES_PATH )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response getIdentityChanges( @QueryParam( FacadeConstants.PARAM_SINCE ) String strSince, @QueryParam( FacadeConstants.PARAM_LIMIT ) int nLimit,
+            @QueryParam( FacadeConstants.PARAM_WAIT ) int nWaitSeconds, @QueryParam( FacadeConstants.PARAM_WITH_IDENTITIES ) boolean bWithIdentities,
+            @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode, @QueryParam( Constants.PARAM_CLIENT_CODE ) String strQueryClientAppCode )
+            throws IdentityStoreException
+    {
+        String strClientAppCode = IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, strQueryClientAppCode );
+        try ( final BulkheadPermit bulkhead = BulkheadService.instance( ).acquire( ClientClass.FEED ) )
+        {
+            IdentityRequestValidator.instance( ).checkClientApplication( strClientAppCode );
+
+            return Response.ok( _objectMapper.writeValueAsString( IdentityChangeFeedService.instance( ).getChanges( strClientAppCode, strSince, nLimit,
+                    nWaitSeconds, bWithIdentities, DtoConverter::convert ) ) ).build( );
+        }
+        catch( Exception exception )
+        {
+            return getErrorResponse( exception );
+        }
+    }
+
+    /**
+     * Search the identities matching all the given attribute values, for example the family name, the first name and the birthdate, or the email.<br/>
+     * The identities are returned with the attributes readable by the client, restricted to the projection of the search if any.
+     *
+     * @param search
+     *            the search, as JSON
+     * @param strHeaderClientAppCode
+     *            client code
+     * @param strQueryClientAppCode
+     *            client code, will be removed, use Header parameter instead
+     * @return the identities found
+     */
+    @POST
+    @Path( FacadeConstants.SEARCH_PATH )
+    @Consumes( MediaType.APPLICATION_JSON )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response searchIdentities( String search, @HeaderParam( Constants.PARAM_CLIENT_CODE ) String strHeaderClientAppCode,
+            @QueryParam( Constants.PARAM_CLIENT_CODE ) String strQueryClientAppCode ) throws IdentityStoreException
+    {
+        String strClientAppCode = IdentityStoreService.getTrustedClientCode( strHeaderClientAppCode, strQueryClientAppCode );
+        try ( final BulkheadPermit bulkhead = BulkheadService.instance( ).acquire( strClientAppCode ) )
+        {
+            IdentityRequestValidator.instance( ).checkClientApplication( strClientAppCode );
+            final AttributeSearchDto searchDto = _objectMapper.readValue( search, AttributeSearchDto.class );
 
-            return Response.ok( identityStoreRequest.doRequest( ) ).build( );
+            return Response.ok( _objectMapper.writeValueAsString( AttributeSearchService.instance( ).search( strClientAppCode, searchDto,
+                    identity -> DtoConverter.convert( identity, searchDto.getProjection( ) ) ) ) ).build( );
         }
         catch( Exception exception )
         {
@@ -127,6 +403,18 @@ public final class IdentityStoreRestService
             strMessage = ERROR_NO_IDENTITY_FOUND;
             status = Response.Status.NOT_FOUND;
         }
+        else if ( exception instanceof DeadlineExceededException )
+        {
+            // the caller no longer waits for the response
+            strMessage = ERROR_DEADLINE_EXCEEDED;
+            status = Response.Status.GATEWAY_TIMEOUT;
+        }
+        else if ( exception instanceof ServiceOverloadedException )
+        {
+            // the client may retry once the load is absorbed
+            return Response.fromResponse( buildResponse( ERROR_SERVICE_OVERLOADED, Response.Status.SERVICE_UNAVAILABLE ) )
+                    .header( HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS ).build( );
+        }
         else
         {
             strMessage = ERROR_DURING_TREATMENT;
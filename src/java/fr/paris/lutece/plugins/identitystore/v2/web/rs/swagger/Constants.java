@@ -53,6 +53,7 @@ public final class Constants
     public static final String EMPTY_OBJECT = "{}";
     public static final String ERROR_NOT_FOUND_VERSION = "Version not found";
     public static final String ERROR_NOT_FOUND_RESOURCE = "Resource not found";
+    public static final String ERROR_SERVICE_OVERLOADED = "Service overloaded, retry later";
     public static final String ERROR_BAD_REQUEST_EMPTY_PARAMETER = "Empty parameter";
 
     public static final String SERVICECONTRACT_PATH = "/servicecontracts";
@@ -35,6 +35,10 @@ package fr.paris.lutece.plugins.identitystore.v2.web.rs.swagger;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import fr.paris.lutece.plugins.identitystore.old.common.ServiceOverloadedException;
+import fr.paris.lutece.plugins.identitystore.old.common.limit.BulkheadPermit;
+import fr.paris.lutece.plugins.identitystore.old.common.limit.BulkheadService;
+import fr.paris.lutece.plugins.identitystore.old.common.limit.ClientClass;
 import fr.paris.lutece.plugins.rest.service.RestConstants;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPathService;
@@ -85,33 +89,42 @@ public class SwaggerRest
     public Response getSwagger( @Context HttpServletRequest request, @PathParam( Constants.VERSION ) String strVersion )
             throws MalformedURLException, IOException
     {
-        File fileJson = new File( getJsonFilePath( strVersion ) );
-        if ( fileJson.exists( ) )
+        // the documentation is served by its own permits, so that it cannot slow down the identity requests
+        try ( final BulkheadPermit bulkhead = BulkheadService.instance( ).acquire( ClientClass.DOCUMENTATION ) )
         {
-            Map<String, String> mapBaseInfos = getBaseInfos( AppPathService.getBaseUrl( request ), strVersion );
+            File fileJson = new File( getJsonFilePath( strVersion ) );
+            if ( fileJson.exists( ) )
+            {
+                Map<String, String> mapBaseInfos = getBaseInfos( AppPathService.getBaseUrl( request ), strVersion );
 
-            ObjectMapper mapper = new ObjectMapper( );
-            ObjectNode objectNode = mapper.readValue( fileJson, ObjectNode.class );
+                ObjectMapper mapper = new ObjectMapper( );
+                ObjectNode objectNode = mapper.readValue( fileJson, ObjectNode.class );
 
-            if ( objectNode.path( BASE_INFOS_HOST ).isMissingNode( ) )
-            {
-                objectNode.put( BASE_INFOS_HOST, mapBaseInfos.get( BASE_INFOS_HOST ) );
-            }
-            if ( objectNode.path( BASE_INFOS_SCHEMES ).isMissingNode( ) )
-            {
-                objectNode.putArray( BASE_INFOS_SCHEMES ).add( mapBaseInfos.get( BASE_INFOS_SCHEMES ) );
+                if ( objectNode.path( BASE_INFOS_HOST ).isMissingNode( ) )
+                {
+                    objectNode.put( BASE_INFOS_HOST, mapBaseInfos.get( BASE_INFOS_HOST ) );
+                }
+                if ( objectNode.path( BASE_INFOS_SCHEMES ).isMissingNode( ) )
+                {
+                    objectNode.putArray( BASE_INFOS_SCHEMES ).add( mapBaseInfos.get( BASE_INFOS_SCHEMES ) );
+                }
+                if ( objectNode.path( BASE_INFOS_BASE_PATH ).isMissingNode( ) )
+                {
+                    objectNode.put( BASE_INFOS_BASE_PATH, mapBaseInfos.get( BASE_INFOS_BASE_PATH ) );
+                }
+                String strSwaggerJson = mapper.writerWithDefaultPrettyPrinter( ).writeValueAsString( objectNode );
+                return Response.status( Response.Status.OK ).entity( strSwaggerJson ).build( );
             }
-            if ( objectNode.path( BASE_INFOS_BASE_PATH ).isMissingNode( ) )
-            {
-                objectNode.put( BASE_INFOS_BASE_PATH, mapBaseInfos.get( BASE_INFOS_BASE_PATH ) );
-            }
-            String strSwaggerJson = mapper.writerWithDefaultPrettyPrinter( ).writeValueAsString( objectNode );
-            return Response.status( Response.Status.OK ).entity( strSwaggerJson ).build( );
+            AppLogService.error( Constants.ERROR_NOT_FOUND_RESOURCE );
+            return Response.status( Response.Status.NOT_FOUND )
+                    .entity( JsonUtil.buildJsonResponse( new ErrorJsonResponse( Response.Status.NOT_FOUND.name( ), Constants.ERROR_NOT_FOUND_RESOURCE ) ) )
+                    .build( );
+        }
+        catch( ServiceOverloadedException e )
+        {
+            return Response.status( Response.Status.SERVICE_UNAVAILABLE ).entity( JsonUtil.buildJsonResponse(
+                    new ErrorJsonResponse( Response.Status.SERVICE_UNAVAILABLE.name( ), Constants.ERROR_SERVICE_OVERLOADED ) ) ).build( );
         }
-        AppLogService.error( Constants.ERROR_NOT_FOUND_RESOURCE );
-        return Response.status( Response.Status.NOT_FOUND )
-                .entity( JsonUtil.buildJsonResponse( new ErrorJsonResponse( Response.Status.NOT_FOUND.name( ), Constants.ERROR_NOT_FOUND_RESOURCE ) ) )
-                .build( );
     }
 
     /**
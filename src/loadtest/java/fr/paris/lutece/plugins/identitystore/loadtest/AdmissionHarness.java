@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.admission.AdmissionIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.admission.TinyLfuCache;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.CacheMemory;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.FacadeCacheService;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.AdmissionDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+
+import java.io.PrintStream;
+import java.util.Random;
+
+/**
+ * In-process harness of the admission cache of the identities.<br/>
+ * Replays a day of interactive reads concentrated on a hot set of identities, a night batch reading every identity once with another service contract,
+ * and the first interactive reads of the next morning, first against a LRU identity cache, then against a {@link TinyLfuCache} of the same memory, without and
+ * with a quota on the batch contract. For each policy, the harness prints the hit ratio of the day and of the morning : the batch flushes the hot set out
+ * of the LRU cache, not out of the admission cache. The run is configured with <code>loadtest.admission.*</code> system properties, e.g.
+ * <code>mvn -Ploadtest test-compile exec:java -Dexec.mainClass=fr.paris.lutece.plugins.identitystore.loadtest.AdmissionHarness
+ * -Dloadtest.admission.identities=200000</code>
+ */
+public final class AdmissionHarness
+{
+    private static final String PREFIX = "loadtest.admission.";
+    private static final String AGENT_CLIENT_CODE = "LOADTEST_AGENT";
+    private static final String BATCH_CLIENT_CODE = "LOADTEST_BATCH";
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+    private static final int TTL_SECONDS = 86400;
+    private static final long SEED = 42;
+
+    private final int _nIdentityCount = Integer.getInteger( PREFIX + "identities", 100000 );
+    private final int _nCacheCapacity = Integer.getInteger( PREFIX + "cacheCapacity", 10000 );
+    private final int _nHotSetSize = Integer.getInteger( PREFIX + "hotSet", 5000 );
+    private final int _nHotPercent = Integer.getInteger( PREFIX + "hotPercent", 90 );
+    private final int _nRequestCount = Integer.getInteger( PREFIX + "requests", 200000 );
+    private final int _nMorningRequestCount = Integer.getInteger( PREFIX + "morningRequests", 10000 );
+    private final int _nBatchQuotaPercent = Integer.getInteger( PREFIX + "batchQuota", 10 );
+    private final ServiceContract _agentContract = new ServiceContract( );
+    private final ServiceContract _batchContract = new ServiceContract( );
+
+    /**
+     * Constructor
+     */
+    private AdmissionHarness( )
+    {
+        _agentContract.setId( 1 );
+        _agentContract.setClientCode( AGENT_CLIENT_CODE );
+        _batchContract.setId( 2 );
+        _batchContract.setClientCode( BATCH_CLIENT_CODE );
+    }
+
+    /**
+     * Run the harness
+     *
+     * @param args
+     *            not used, the configuration is read from the system properties
+     * @throws Exception
+     *             if the run fails
+     */
+    public static void main( final String [ ] args ) throws Exception
+    {
+        final AdmissionHarness harness = new AdmissionHarness( );
+        final PrintStream out = System.out;
+        out.println( "identities " + harness._nIdentityCount + ", cache capacity " + harness._nCacheCapacity + " identities, hot set "
+                + harness._nHotSetSize + " (" + harness._nHotPercent + "% of the interactive reads), requests per day " + harness._nRequestCount
+                + ", in the morning " + harness._nMorningRequestCount );
+        out.println( "policy                 day hit ratio  morning hit ratio  admitted  rejected  evictions  quota evictions" );
+        harness.runLru( out );
+        harness.runAdmission( "w-tinylfu", 0, out );
+        harness.runAdmission( "w-tinylfu, batch quota", harness._nBatchQuotaPercent, out );
+    }
+
+    /**
+     * Replay the reads against the LRU identity cache of the provider
+     *
+     * @param out
+     *            the stream of the report
+     * @throws IdentityStoreException
+     *             if a read fails
+     */
+    private void runLru( final PrintStream out ) throws IdentityStoreException
+    {
+        final InMemoryIdentityProvider backend = newBackend( _nCacheCapacity );
+        final double [ ] hitRatios = replay( backend, backend );
+        out.println( String.format( "%-22s %13.1f%% %17.1f%%", "lru", hitRatios [0], hitRatios [1] ) );
+    }
+
+    /**
+     * Replay the reads against an admission cache of the memory of the LRU cache, the provider caching nothing
+     *
+     * @param strPolicy
+     *            the name of the policy in the report
+     * @param nBatchQuotaPercent
+     *            the quota of the batch contract, in percent of the memory, 0 for none
+     * @param out
+     *            the stream of the report
+     * @throws IdentityStoreException
+     *             if a read fails
+     */
+    private void runAdmission( final String strPolicy, final int nBatchQuotaPercent, final PrintStream out ) throws IdentityStoreException
+    {
+        final IdentityDto sample = newBackend( 0 ).getByCustomerId( InMemoryIdentityProvider.getCustomerId( 0 ), _agentContract );
+        final long lEntryWeight = CacheMemory.ENTRY_OVERHEAD + CacheMemory.estimate( _agentContract.getId( ) + ":" + sample.getCustomerId( ) )
+                + CacheMemory.estimate( sample );
+        final long lMemory = lEntryWeight * _nCacheCapacity;
+        final long lBatchQuota = lMemory * nBatchQuotaPercent / 100;
+        final TinyLfuCache<IdentityDto> cache = new TinyLfuCache<>( FacadeCacheService.CACHE_ADMISSION, lMemory, WINDOW_PERCENT, PROTECTED_PERCENT,
+                _nCacheCapacity, TTL_SECONDS, CacheMemory::estimate, strClientCode -> BATCH_CLIENT_CODE.equals( strClientCode ) ? lBatchQuota : 0 );
+        final InMemoryIdentityProvider backend = newBackend( 0 );
+        final double [ ] hitRatios = replay( new AdmissionIdentityProvider( backend, cache ), backend );
+        final AdmissionDto state = cache.getAdmissionState( );
+        out.println( String.format( "%-22s %13.1f%% %17.1f%%  %8d  %8d  %9d  %15d", strPolicy, hitRatios [0], hitRatios [1], state.getAdmitted( ),
+                state.getRejected( ), state.getEvictions( ), state.getQuotaEvictions( ) ) );
+    }
+
+    /**
+     * Replay a day of interactive reads, twice to warm the cache, the night batch and the first interactive reads of the morning
+     *
+     * @param provider
+     *            the identity provider
+     * @param backend
+     *            the backend of the provider, which counts the loads
+     * @return the hit ratio of the day and of the morning, in percent
+     * @throws IdentityStoreException
+     *             if a read fails
+     */
+    private double [ ] replay( final IIdentityProvider provider, final InMemoryIdentityProvider backend ) throws IdentityStoreException
+    {
+        final Random random = new Random( SEED );
+        sendInteractiveReads( provider, random, _nRequestCount );
+        long lLoadsBefore = backend.getLoadCount( );
+        sendInteractiveReads( provider, random, _nRequestCount );
+        final double dDayHitRatio = 100.0 * ( _nRequestCount - ( backend.getLoadCount( ) - lLoadsBefore ) ) / _nRequestCount;
+
+        for ( int nIdentity = 0; nIdentity < _nIdentityCount; nIdentity++ )
+        {
+            provider.getByCustomerId( InMemoryIdentityProvider.getCustomerId( nIdentity ), _batchContract );
+        }
+
+        lLoadsBefore = backend.getLoadCount( );
+        sendInteractiveReads( provider, random, _nMorningRequestCount );
+        final double dMorningHitRatio = 100.0 * ( _nMorningRequestCount - ( backend.getLoadCount( ) - lLoadsBefore ) ) / _nMorningRequestCount;
+        return new double [ ] {
+                dDayHitRatio, dMorningHitRatio
+        };
+    }
+
+    /**
+     * Send the interactive reads : most of them in the hot set, the others in the whole population
+     *
+     * @param provider
+     *            the identity provider
+     * @param random
+     *            the random generator
+     * @param nRequestCount
+     *            the number of reads
+     * @throws IdentityStoreException
+     *             if a read fails
+     */
+    private void sendInteractiveReads( final IIdentityProvider provider, final Random random, final int nRequestCount ) throws IdentityStoreException
+    {
+        for ( int nRequest = 0; nRequest < nRequestCount; nRequest++ )
+        {
+            final int nIdentity = random.nextInt( 100 ) < _nHotPercent ? random.nextInt( _nHotSetSize ) : random.nextInt( _nIdentityCount );
+            provider.getByCustomerId( InMemoryIdentityProvider.getCustomerId( nIdentity ), _agentContract );
+        }
+    }
+
+    /**
+     * @param nCacheCapacity
+     *            the capacity of the simulated identity cache
+     * @return a backend of the identities, without latency
+     */
+    private InMemoryIdentityProvider newBackend( final int nCacheCapacity )
+    {
+        return new InMemoryIdentityProvider( _nIdentityCount, 0, nCacheCapacity, InjectedLatency.NONE, InjectedLatency.NONE, InjectedLatency.NONE );
+    }
+}
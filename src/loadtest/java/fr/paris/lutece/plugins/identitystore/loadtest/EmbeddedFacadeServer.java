@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.servlet.ServletContainer;
+
+/**
+ * Embedded Jetty server exposing the v1, v2 and admin REST resources of the facade through Jersey
+ */
+public class EmbeddedFacadeServer
+{
+    public static final String REST_SERVLET_PATH = "/rest";
+
+    private final Server _server;
+
+    /**
+     * Constructor
+     *
+     * @param nPort
+     *            the HTTP port, 0 for a random port
+     */
+    public EmbeddedFacadeServer( final int nPort )
+    {
+        final ResourceConfig resourceConfig = new ResourceConfig( );
+        resourceConfig.register( fr.paris.lutece.plugins.identitystore.v1.web.rs.IdentityStoreRestService.class );
+        resourceConfig.register( fr.paris.lutece.plugins.identitystore.v2.web.rs.IdentityStoreRestService.class );
+        resourceConfig.register( fr.paris.lutece.plugins.identitystore.v1.web.rs.swagger.SwaggerRest.class );
+        resourceConfig.register( fr.paris.lutece.plugins.identitystore.v2.web.rs.swagger.SwaggerRest.class );
+        resourceConfig.register( fr.paris.lutece.plugins.identitystore.old.web.rs.FacadeAdminRestService.class );
+
+        final ServletContextHandler context = new ServletContextHandler( ServletContextHandler.NO_SESSIONS );
+        context.setContextPath( "/" );
+        context.addServlet( new ServletHolder( new ServletContainer( resourceConfig ) ), REST_SERVLET_PATH + "/*" );
+
+        _server = new Server( nPort );
+        _server.setHandler( context );
+    }
+
+    /**
+     * Start the server
+     *
+     * @throws Exception
+     *             if the server cannot start
+     */
+    public void start( ) throws Exception
+    {
+        _server.start( );
+    }
+
+    /**
+     * Stop the server
+     *
+     * @throws Exception
+     *             if the server cannot stop
+     */
+    public void stop( ) throws Exception
+    {
+        _server.stop( );
+    }
+
+    /**
+     * @return the base URL of the REST servlet
+     */
+    public String getRestBaseUrl( )
+    {
+        return "http://localhost:" + ( (ServerConnector) _server.getConnectors( ) [0] ).getLocalPort( ) + REST_SERVLET_PATH;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import fr.paris.lutece.plugins.identitystore.business.application.ClientApplication;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IClientApplicationProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory stand-in of the client application repository
+ */
+public class InMemoryClientApplicationProvider implements IClientApplicationProvider
+{
+    private final Map<String, ClientApplication> _mapByClientCode = new ConcurrentHashMap<>( );
+    private final Map<String, List<ClientApplication>> _mapByApplicationCode = new ConcurrentHashMap<>( );
+    private final InjectedLatency _latency;
+
+    /**
+     * Constructor
+     *
+     * @param latency
+     *            the latency of a client application lookup
+     */
+    public InMemoryClientApplicationProvider( final InjectedLatency latency )
+    {
+        _latency = latency;
+    }
+
+    /**
+     * Declare a client application
+     *
+     * @param strClientCode
+     *            the client code
+     * @param strApplicationCode
+     *            the application code
+     */
+    public void addClientApplication( final String strClientCode, final String strApplicationCode )
+    {
+        final ClientApplication clientApplication = new ClientApplication( );
+        clientApplication.setName( strClientCode );
+        clientApplication.setClientCode( strClientCode );
+        clientApplication.setApplicationCode( strApplicationCode );
+        _mapByClientCode.put( strClientCode, clientApplication );
+        _mapByApplicationCode.computeIfAbsent( strApplicationCode, k -> Collections.synchronizedList( new ArrayList<>( ) ) ).add( clientApplication );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ClientApplication> findByApplicationCode( final String strApplicationCode )
+    {
+        _latency.pause( );
+        return _mapByApplicationCode.getOrDefault( strApplicationCode, Collections.emptyList( ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClientApplication findByCode( final String strClientCode )
+    {
+        _latency.pause( );
+        return _mapByClientCode.get( strClientCode );
+    }
+}
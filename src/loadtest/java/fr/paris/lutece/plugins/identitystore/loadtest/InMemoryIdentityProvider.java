@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityChange;
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeIdentityState;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.IFacadeCache;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.AttributeDto;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.IdentityDto;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory stand-in of the identity DTO cache.<br/>
+ * The identities are generated at startup. A bounded LRU set simulates the cache: the first access to an identity (or an access after eviction) pays the
+ * load latency, the following ones pay the cache latency.
+ */
+public class InMemoryIdentityProvider implements IIdentityProvider
+{
+    private static final String CUSTOMER_ID_PREFIX = "cuid-";
+    private static final String CONNECTION_ID_PREFIX = "guid-";
+    private static final String DELETED_CUSTOMER_ID_PREFIX = "deleted-";
+    private static final String [ ] ATTRIBUTE_KEYS = {
+            "family_name", "preferred_username", "first_name", "gender", "birthdate", "birthplace_code", "birthcountry_code", "email", "mobile_phone",
+            "address", "address_postal_code", "address_city"
+    };
+
+    private final ConcurrentNavigableMap<String, IdentityDto> _mapByCustomerId = new ConcurrentSkipListMap<>( );
+    private final Map<String, IdentityDto> _mapByConnectionId = new ConcurrentHashMap<>( );
+    private final Set<String> _setDeletedCustomerIds = ConcurrentHashMap.newKeySet( );
+    private final Map<String, Boolean> _mapWarmKeys;
+    private final InjectedLatency _cacheLatency;
+    private final InjectedLatency _loadLatency;
+    private final InjectedLatency _historyLatency;
+    private final LongAdder _loads = new LongAdder( );
+
+    /**
+     * Constructor
+     *
+     * @param nIdentityCount
+     *            the number of identities to generate
+     * @param nDeletedCount
+     *            the number of deleted identities (with a history but no identity) to generate
+     * @param nCacheCapacity
+     *            the number of identities the simulated cache can hold
+     * @param cacheLatency
+     *            the latency of a cache hit
+     * @param loadLatency
+     *            the latency of a cache miss
+     * @param historyLatency
+     *            the latency of the history lookup
+     */
+    public InMemoryIdentityProvider( final int nIdentityCount, final int nDeletedCount, final int nCacheCapacity, final InjectedLatency cacheLatency,
+            final InjectedLatency loadLatency, final InjectedLatency historyLatency )
+    {
+        _cacheLatency = cacheLatency;
+        _loadLatency = loadLatency;
+        _historyLatency = historyLatency;
+        _mapWarmKeys = Collections.synchronizedMap( new LinkedHashMap<String, Boolean>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, Boolean> eldest )
+            {
+                return size( ) > nCacheCapacity;
+            }
+        } );
+        for ( int i = 0; i < nIdentityCount; i++ )
+        {
+            final IdentityDto identity = createIdentity( i );
+            _mapByCustomerId.put( identity.getCustomerId( ), identity );
+            _mapByConnectionId.put( identity.getConnectionId( ), identity );
+        }
+        for ( int i = 0; i < nDeletedCount; i++ )
+        {
+            _setDeletedCustomerIds.add( getDeletedCustomerId( i ) );
+        }
+    }
+
+    /**
+     * @return the number of identities read while they were not in the simulated cache
+     */
+    public long getLoadCount( )
+    {
+        return _loads.sum( );
+    }
+
+    /**
+     * @param nIndex
+     *            the index of the identity
+     * @return the customer ID of the generated identity
+     */
+    public static String getCustomerId( final int nIndex )
+    {
+        return CUSTOMER_ID_PREFIX + nIndex;
+    }
+
+    /**
+     * @param nIndex
+     *            the index of the identity
+     * @return the connection ID of the generated identity
+     */
+    public static String getConnectionId( final int nIndex )
+    {
+        return CONNECTION_ID_PREFIX + nIndex;
+    }
+
+    /**
+     * @param nIndex
+     *            the index of the deleted identity
+     * @return the customer ID of the deleted identity
+     */
+    public static String getDeletedCustomerId( final int nIndex )
+    {
+        return DELETED_CUSTOMER_ID_PREFIX + nIndex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdentityDto getByCustomerId( final String strCustomerId, final ServiceContract serviceContract )
+    {
+        return fetch( strCustomerId, _mapByCustomerId );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdentityDto getByConnectionId( final String strConnectionId, final ServiceContract serviceContract )
+    {
+        return fetch( strConnectionId, _mapByConnectionId );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasHistory( final String strCustomerId )
+    {
+        _historyLatency.pause( );
+        return _setDeletedCustomerIds.contains( strCustomerId );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCached( final String strCustomerId )
+    {
+        return _mapWarmKeys.containsKey( strCustomerId );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> findCustomerIds( final String strAfterCustomerId, final int nLimit )
+    {
+        _loadLatency.pause( );
+        final List<String> listCustomerIds = new ArrayList<>( nLimit );
+        for ( final String strCustomerId : _mapByCustomerId.tailMap( strAfterCustomerId, false ).keySet( ) )
+        {
+            if ( listCustomerIds.size( ) >= nLimit )
+            {
+                break;
+            }
+            listCustomerIds.add( strCustomerId );
+        }
+        return listCustomerIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FacadeIdentityChange> findChanges( final long lAfterId, final int nLimit )
+    {
+        // The generated identities never change
+        return Collections.emptyList( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLastChangeId( )
+    {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The generated identities are scanned, paying the load latency once.
+     */
+    @Override
+    public List<String> searchCustomerIds( final Map<String, String> mapAttributes, final int nMax )
+    {
+        _loadLatency.pause( );
+        final List<String> listCustomerIds = new ArrayList<>( );
+        for ( final IdentityDto identity : _mapByCustomerId.values( ) )
+        {
+            if ( listCustomerIds.size( ) >= nMax )
+            {
+                break;
+            }
+            final long lMatched = identity.getAttributes( ).stream( )
+                    .filter( attribute -> attribute.getValue( ).equals( mapAttributes.get( attribute.getKey( ) ) ) ).count( );
+            if ( lMatched == mapAttributes.size( ) )
+            {
+                listCustomerIds.add( identity.getCustomerId( ) );
+            }
+        }
+        return listCustomerIds;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The identities are warmed paying the load latency once.
+     */
+    @Override
+    public void loadIntoCache( final List<String> listCustomerIds )
+    {
+        _loadLatency.pause( );
+        for ( final String strCustomerId : listCustomerIds )
+        {
+            if ( _mapByCustomerId.containsKey( strCustomerId ) )
+            {
+                _mapWarmKeys.put( strCustomerId, Boolean.TRUE );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The load latency is paid once, the simulated cache is left untouched and the attributes are not filtered.
+     */
+    @Override
+    public List<IdentityDto> findByCustomerIds( final List<String> listCustomerIds, final ServiceContract serviceContract )
+    {
+        _loadLatency.pause( );
+        final List<IdentityDto> listIdentities = new ArrayList<>( listCustomerIds.size( ) );
+        for ( final String strCustomerId : listCustomerIds )
+        {
+            final IdentityDto identity = _mapByCustomerId.get( strCustomerId );
+            if ( identity != null )
+            {
+                listIdentities.add( identity );
+            }
+        }
+        return listIdentities;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The history latency is paid once.
+     */
+    @Override
+    public Set<String> findCustomerIdsWithHistory( final List<String> listCustomerIds )
+    {
+        _historyLatency.pause( );
+        final Set<String> setWithHistory = new HashSet<>( );
+        for ( final String strCustomerId : listCustomerIds )
+        {
+            if ( _setDeletedCustomerIds.contains( strCustomerId ) )
+            {
+                setWithHistory.add( strCustomerId );
+            }
+        }
+        return setWithHistory;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The deleted identities have a history only, as the identities deleted for good. The history latency is paid once.
+     */
+    @Override
+    public List<FacadeIdentityState> findStates( final List<String> listCustomerIds )
+    {
+        _historyLatency.pause( );
+        final List<FacadeIdentityState> listStates = new ArrayList<>( );
+        for ( final String strCustomerId : listCustomerIds )
+        {
+            if ( _mapByCustomerId.containsKey( strCustomerId ) )
+            {
+                final FacadeIdentityState state = new FacadeIdentityState( );
+                state.setCustomerId( strCustomerId );
+                listStates.add( state );
+            }
+        }
+        return listStates;
+    }
+
+    /**
+     * Fetch an identity, paying the cache or the load latency
+     *
+     * @param strKey
+     *            the key
+     * @param mapIdentities
+     *            the identities
+     * @return the identity, or {@code null}
+     */
+    private IdentityDto fetch( final String strKey, final Map<String, IdentityDto> mapIdentities )
+    {
+        if ( _mapWarmKeys.get( strKey ) != null )
+        {
+            _cacheLatency.pause( );
+        }
+        else
+        {
+            _loadLatency.pause( );
+            _loads.increment( );
+            _mapWarmKeys.put( strKey, Boolean.TRUE );
+        }
+        return mapIdentities.get( strKey );
+    }
+
+    /**
+     * Generate an identity
+     *
+     * @param nIndex
+     *            the index of the identity
+     * @return the identity
+     */
+    private static IdentityDto createIdentity( final int nIndex )
+    {
+        final IdentityDto identity = new IdentityDto( );
+        identity.setCustomerId( getCustomerId( nIndex ) );
+        identity.setConnectionId( getConnectionId( nIndex ) );
+        final Timestamp now = new Timestamp( System.currentTimeMillis( ) );
+        final List<AttributeDto> attributes = new ArrayList<>( ATTRIBUTE_KEYS.length );
+        for ( int i = 0; i < ATTRIBUTE_KEYS.length; i++ )
+        {
+            final AttributeDto attribute = new AttributeDto( );
+            attribute.setKey( ATTRIBUTE_KEYS [i] );
+            attribute.setValue( ATTRIBUTE_KEYS [i] + "-value-" + nIndex );
+            attribute.setType( "string" );
+            attribute.setLastUpdateClientCode( "loadtest" );
+            attribute.setLastUpdateDate( now );
+            if ( i % 2 == 0 )
+            {
+                attribute.setCertifier( "fccertifier" );
+                attribute.setCertificationLevel( 400 );
+            }
+            attributes.add( attribute );
+        }
+        identity.setAttributes( attributes );
+        return identity;
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The in-memory provider has no cache.
+     */
+    @Override
+    public List<IFacadeCache> getCaches( )
+    {
+        return Collections.emptyList( );
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IServiceContractProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.cache.IFacadeCache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory stand-in of the service contract service
+ */
+public class InMemoryServiceContractProvider implements IServiceContractProvider
+{
+    private final Map<String, ServiceContract> _mapServiceContracts = new ConcurrentHashMap<>( );
+    private final InjectedLatency _latency;
+
+    /**
+     * Constructor
+     *
+     * @param latency
+     *            the latency of a service contract lookup
+     */
+    public InMemoryServiceContractProvider( final InjectedLatency latency )
+    {
+        _latency = latency;
+    }
+
+    /**
+     * Declare an active service contract for the given client code
+     *
+     * @param strClientCode
+     *            the client code
+     */
+    public void addServiceContract( final String strClientCode )
+    {
+        final ServiceContract serviceContract = new ServiceContract( );
+        serviceContract.setId( _mapServiceContracts.size( ) + 1 );
+        serviceContract.setName( "Load test contract " + strClientCode );
+        serviceContract.setClientCode( strClientCode );
+        serviceContract.setAuthorizedExport( true );
+        _mapServiceContracts.put( strClientCode, serviceContract );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ServiceContract getActiveServiceContract( final String strClientCode )
+    {
+        _latency.pause( );
+        return _mapServiceContracts.get( strClientCode );
+    }
+
+    /**
+     * {@inheritDoc}<br/>
+     * The in-memory provider has no cache.
+     */
+    @Override
+    public List<IFacadeCache> getCaches( )
+    {
+        return Collections.emptyList( );
+    }
+}
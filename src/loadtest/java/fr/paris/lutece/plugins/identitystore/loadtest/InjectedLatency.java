@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency injected by the in-memory stand-ins, to simulate the database and cache costs of the real backend.<br/>
+ * The injected latency is a base duration plus a uniform random jitter.
+ */
+public final class InjectedLatency
+{
+    public static final InjectedLatency NONE = new InjectedLatency( 0, 0 );
+
+    private final long _lBaseMicros;
+    private final long _lJitterMicros;
+
+    /**
+     * Constructor
+     *
+     * @param lBaseMicros
+     *            the base latency, in microseconds
+     * @param lJitterMicros
+     *            the maximum jitter added to the base latency, in microseconds
+     */
+    public InjectedLatency( final long lBaseMicros, final long lJitterMicros )
+    {
+        _lBaseMicros = lBaseMicros;
+        _lJitterMicros = lJitterMicros;
+    }
+
+    /**
+     * Parse a latency from a string of the form <code>base[+jitter]</code>, in microseconds
+     *
+     * @param strLatency
+     *            the latency string
+     * @return the latency
+     */
+    public static InjectedLatency parse( final String strLatency )
+    {
+        if ( strLatency == null || strLatency.trim( ).isEmpty( ) )
+        {
+            return NONE;
+        }
+        final String [ ] parts = strLatency.trim( ).split( "\\+" );
+        final long lBase = Long.parseLong( parts [0].trim( ) );
+        final long lJitter = parts.length > 1 ? Long.parseLong( parts [1].trim( ) ) : 0;
+        return new InjectedLatency( lBase, lJitter );
+    }
+
+    /**
+     * Block the current thread for the injected latency
+     */
+    public void pause( )
+    {
+        long lMicros = _lBaseMicros;
+        if ( _lJitterMicros > 0 )
+        {
+            lMicros += ThreadLocalRandom.current( ).nextLong( _lJitterMicros + 1 );
+        }
+        if ( lMicros <= 0 )
+        {
+            return;
+        }
+        try
+        {
+            TimeUnit.MICROSECONDS.sleep( lMicros );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString( )
+    {
+        return _lBaseMicros + "+" + _lJitterMicros + "us";
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import fr.paris.lutece.plugins.identitystore.old.business.FacadeInvalidation;
+import fr.paris.lutece.plugins.identitystore.old.common.invalidation.IInvalidationTransport;
+import fr.paris.lutece.plugins.identitystore.old.common.invalidation.InvalidationBus;
+import fr.paris.lutece.plugins.identitystore.old.common.dto.InvalidationBusDto;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process harness of the cache invalidation bus.<br/>
+ * Runs nodes in the same JVM, each with its own {@link InvalidationBus} on a shared transport whose sequences are allocated at publication, as by the
+ * auto-increment of the JDBC transport, while a share of the batches become visible late, as a transaction late to commit. Identity invalidations are
+ * published at a steady rate on nodes chosen at random, for customer IDs chosen at random. The harness prints the lag between the publication and the
+ * application of the invalidations on the other nodes, the invalidations merged by the deduplication, the sequences skipped after the gap wait, and the
+ * time the nodes take to converge once the publications stop. The run is configured with <code>loadtest.invalidation.*</code> system properties, e.g.
+ * <code>mvn -Ploadtest test-compile exec:java -Dexec.mainClass=fr.paris.lutece.plugins.identitystore.loadtest.InvalidationBusHarness
+ * -Dloadtest.invalidation.nodes=4 -Dloadtest.invalidation.lateRatio=0.05</code>
+ */
+public final class InvalidationBusHarness
+{
+    private static final String PREFIX = "loadtest.invalidation.";
+    private static final String NODE_PREFIX = "node-";
+    private static final int BATCH_SIZE = 500;
+    private static final long CONVERGENCE_TIMEOUT_MILLIS = 60_000L;
+    private static final long SEED = 42;
+
+    private final int _nNodeCount = Integer.getInteger( PREFIX + "nodes", 4 );
+    private final int _nKeyCount = Integer.getInteger( PREFIX + "keys", 5000 );
+    private final int _nRate = Integer.getInteger( PREFIX + "rate", 2000 );
+    private final int _nDurationSeconds = Integer.getInteger( PREFIX + "duration", 10 );
+    private final int _nIntervalMillis = Integer.getInteger( PREFIX + "interval", 200 );
+    private final int _nGapWaitMillis = Integer.getInteger( PREFIX + "gapWait", 1000 );
+    private final double _dLateRatio = Double.parseDouble( System.getProperty( PREFIX + "lateRatio", "0.02" ) );
+    private final int _nLateMillis = Integer.getInteger( PREFIX + "lateMillis", 300 );
+    private final LatencyHistogram _lag = new LatencyHistogram( );
+
+    /**
+     * Run the harness
+     *
+     * @param args
+     *            not used, the configuration is read from the system properties
+     * @throws Exception
+     *             if the run fails
+     */
+    public static void main( final String [ ] args ) throws Exception
+    {
+        new InvalidationBusHarness( ).run( System.out );
+    }
+
+    /**
+     * Publish the invalidations, wait for the convergence of the nodes, and print the report
+     *
+     * @param out
+     *            the stream of the report
+     * @throws Exception
+     *             if the run fails
+     */
+    private void run( final PrintStream out ) throws Exception
+    {
+        final LateCommitTransport transport = new LateCommitTransport( _dLateRatio, _nLateMillis );
+        final List<InvalidationBus> listBuses = new ArrayList<>( );
+        for ( int nNode = 0; nNode < _nNodeCount; nNode++ )
+        {
+            final InvalidationBus bus = new InvalidationBus( NODE_PREFIX + nNode, transport,
+                    invalidation -> _lag.record( 1000L * ( System.currentTimeMillis( ) - invalidation.getCreationDate( ).getTime( ) ) ), _nIntervalMillis,
+                    BATCH_SIZE, _nGapWaitMillis, 0 );
+            bus.start( );
+            listBuses.add( bus );
+        }
+        out.println( "nodes " + _nNodeCount + ", keys " + _nKeyCount + ", rate " + _nRate + "/s for " + _nDurationSeconds + " s, interval " + _nIntervalMillis
+                + " ms, gap wait " + _nGapWaitMillis + " ms, late commits " + 100 * _dLateRatio + "% by " + _nLateMillis + " ms" );
+
+        final Random random = new Random( SEED );
+        final long lStart = System.nanoTime( );
+        long lSent = 0;
+        while ( System.nanoTime( ) - lStart < TimeUnit.SECONDS.toNanos( _nDurationSeconds ) )
+        {
+            final long lDue = ( System.nanoTime( ) - lStart ) * _nRate / TimeUnit.SECONDS.toNanos( 1 );
+            for ( ; lSent < lDue; lSent++ )
+            {
+                listBuses.get( random.nextInt( _nNodeCount ) ).publish( FacadeInvalidation.ofIdentity( "cid-" + random.nextInt( _nKeyCount ) ) );
+            }
+            Thread.sleep( 1 );
+        }
+
+        final long lStopMillis = System.currentTimeMillis( );
+        boolean bConverged = false;
+        while ( !bConverged && System.currentTimeMillis( ) - lStopMillis < CONVERGENCE_TIMEOUT_MILLIS )
+        {
+            Thread.sleep( 10 );
+            bConverged = transport.isSettled( );
+            for ( final InvalidationBus bus : listBuses )
+            {
+                final InvalidationBusDto state = bus.getState( );
+                bConverged &= state.getPending( ) == 0 && state.getWatermark( ) == transport.getLastSequence( );
+            }
+        }
+        final long lConvergenceMillis = System.currentTimeMillis( ) - lStopMillis;
+        listBuses.forEach( InvalidationBus::shutdown );
+        transport.shutdown( );
+
+        long lPublished = 0;
+        long lDeduplicated = 0;
+        long lSkipped = 0;
+        for ( final InvalidationBus bus : listBuses )
+        {
+            final InvalidationBusDto state = bus.getState( );
+            lPublished += state.getPublished( );
+            lDeduplicated += state.getDeduplicated( );
+            lSkipped += state.getSkippedSequences( );
+        }
+        out.println( "requested " + lSent + ", published " + lPublished + ", deduplicated " + lDeduplicated + ", applied " + _lag.getCount( )
+                + ", skipped sequences " + lSkipped );
+        out.println( String.format( "lag ms : mean %.1f, p50 %d, p99 %d, p99.9 %d", _lag.getMean( ) / 1000, _lag.getPercentile( 50 ) / 1000,
+                _lag.getPercentile( 99 ) / 1000, _lag.getPercentile( 99.9 ) / 1000 ) );
+        out.println( ( bConverged ? "converged in " : "not converged after " ) + lConvergenceMillis + " ms" );
+    }
+
+    /**
+     * Transport allocating the sequences at publication, and making a share of the batches visible late
+     */
+    private static final class LateCommitTransport implements IInvalidationTransport
+    {
+        private final ConcurrentNavigableMap<Long, FacadeInvalidation> _mapInvalidations = new ConcurrentSkipListMap<>( );
+        private final AtomicLong _lSequence = new AtomicLong( );
+        private final AtomicLong _lLateBatches = new AtomicLong( );
+        private final ScheduledExecutorService _scheduler = Executors.newSingleThreadScheduledExecutor( );
+        private final Random _random = new Random( SEED );
+        private final double _dLateRatio;
+        private final int _nLateMillis;
+
+        /**
+         * Constructor
+         *
+         * @param dLateRatio
+         *            the share of the batches visible late
+         * @param nLateMillis
+         *            the delay of the late batches, in milliseconds
+         */
+        private LateCommitTransport( final double dLateRatio, final int nLateMillis )
+        {
+            _dLateRatio = dLateRatio;
+            _nLateMillis = nLateMillis;
+        }
+
+        @Override
+        public void publish( final List<FacadeInvalidation> listInvalidations )
+        {
+            final List<FacadeInvalidation> listCommitted = new ArrayList<>( );
+            for ( final FacadeInvalidation invalidation : listInvalidations )
+            {
+                invalidation.setId( _lSequence.incrementAndGet( ) );
+                listCommitted.add( invalidation );
+            }
+            final boolean bLate;
+            synchronized( _random )
+            {
+                bLate = _random.nextDouble( ) < _dLateRatio;
+            }
+            if ( bLate )
+            {
+                _lLateBatches.incrementAndGet( );
+                _scheduler.schedule( ( ) -> commit( listCommitted ), _nLateMillis, TimeUnit.MILLISECONDS );
+            }
+            else
+            {
+                commit( listCommitted );
+            }
+        }
+
+        @Override
+        public List<FacadeInvalidation> poll( final long lAfterSequence, final int nLimit )
+        {
+            final List<FacadeInvalidation> listInvalidations = new ArrayList<>( );
+            for ( final FacadeInvalidation invalidation : _mapInvalidations.tailMap( lAfterSequence, false ).values( ) )
+            {
+                if ( listInvalidations.size( ) >= nLimit )
+                {
+                    break;
+                }
+                listInvalidations.add( invalidation );
+            }
+            return listInvalidations;
+        }
+
+        @Override
+        public long getLastSequence( )
+        {
+            return _lSequence.get( );
+        }
+
+        @Override
+        public void purge( final long lBeforeMillis )
+        {
+            // the run is short
+        }
+
+        @Override
+        public String getName( )
+        {
+            return "late-commit";
+        }
+
+        /**
+         * @return {@code true} if all the batches are visible
+         */
+        private boolean isSettled( )
+        {
+            return _mapInvalidations.size( ) == _lSequence.get( );
+        }
+
+        private void commit( final List<FacadeInvalidation> listInvalidations )
+        {
+            for ( final FacadeInvalidation invalidation : listInvalidations )
+            {
+                _mapInvalidations.put( invalidation.getId( ), invalidation );
+            }
+        }
+
+        private void shutdown( )
+        {
+            _scheduler.shutdownNow( );
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear latency histogram, in microseconds.<br/>
+ * Each power of two is split in {@value #SUB_BUCKET_COUNT} linear sub-buckets, which gives a relative error lower than 2% on the percentiles.
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAGNITUDE_COUNT = 40;
+
+    private final AtomicLongArray _counts = new AtomicLongArray( MAGNITUDE_COUNT * SUB_BUCKET_COUNT );
+    private final LongAdder _totalCount = new LongAdder( );
+    private final LongAdder _totalMicros = new LongAdder( );
+
+    /**
+     * Record a latency
+     *
+     * @param lMicros
+     *            the latency, in microseconds
+     */
+    public void record( final long lMicros )
+    {
+        final long lValue = Math.max( 0, lMicros );
+        _counts.incrementAndGet( indexOf( lValue ) );
+        _totalCount.increment( );
+        _totalMicros.add( lValue );
+    }
+
+    /**
+     * @return the number of recorded latencies
+     */
+    public long getCount( )
+    {
+        return _totalCount.sum( );
+    }
+
+    /**
+     * @return the mean latency, in microseconds
+     */
+    public double getMean( )
+    {
+        final long lCount = getCount( );
+        return lCount == 0 ? 0 : (double) _totalMicros.sum( ) / lCount;
+    }
+
+    /**
+     * Get the latency at the given percentile
+     *
+     * @param dPercentile
+     *            the percentile, between 0 and 100
+     * @return the latency, in microseconds (upper bound of the bucket)
+     */
+    public long getPercentile( final double dPercentile )
+    {
+        final long lCount = getCount( );
+        if ( lCount == 0 )
+        {
+            return 0;
+        }
+        final long lRank = (long) Math.ceil( lCount * dPercentile / 100d );
+        long lSeen = 0;
+        for ( int i = 0; i < _counts.length( ); i++ )
+        {
+            lSeen += _counts.get( i );
+            if ( lSeen >= Math.max( 1, lRank ) )
+            {
+                return upperBoundOf( i );
+            }
+        }
+        return upperBoundOf( _counts.length( ) - 1 );
+    }
+
+    /**
+     * Get the bucket index of a value
+     *
+     * @param lValue
+     *            the value
+     * @return the bucket index
+     */
+    private static int indexOf( final long lValue )
+    {
+        if ( lValue < SUB_BUCKET_COUNT )
+        {
+            return (int) lValue;
+        }
+        final int nMagnitude = Math.min( 63 - Long.numberOfLeadingZeros( lValue ) - SUB_BUCKET_BITS + 1, MAGNITUDE_COUNT - 1 );
+        final int nSubBucket = (int) Math.min( ( lValue >>> ( nMagnitude - 1 ) ) - SUB_BUCKET_COUNT, SUB_BUCKET_COUNT - 1 );
+        return nMagnitude * SUB_BUCKET_COUNT + nSubBucket;
+    }
+
+    /**
+     * Get the upper bound of a bucket
+     *
+     * @param nIndex
+     *            the bucket index
+     * @return the upper bound, in microseconds
+     */
+    private static long upperBoundOf( final int nIndex )
+    {
+        final int nMagnitude = nIndex / SUB_BUCKET_COUNT;
+        final int nSubBucket = nIndex % SUB_BUCKET_COUNT;
+        if ( nMagnitude == 0 )
+        {
+            return nSubBucket;
+        }
+        return ( ( (long) nSubBucket + SUB_BUCKET_COUNT + 1 ) << ( nMagnitude - 1 ) ) - 1;
+    }
+}
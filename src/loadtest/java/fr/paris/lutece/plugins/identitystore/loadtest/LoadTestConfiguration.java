@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+/**
+ * Configuration of a load test run, read from the <code>loadtest.*</code> system properties
+ */
+public final class LoadTestConfiguration
+{
+    private static final String PREFIX = "loadtest.";
+
+    private final int _nPort = getInt( "port", 0 );
+    private final int _nRate = getInt( "rate", 500 );
+    private final int _nDurationSeconds = getInt( "duration", 60 );
+    private final int _nWarmupSeconds = getInt( "warmup", 10 );
+    private final int _nMaxOutstanding = getInt( "maxOutstanding", 10000 );
+    private final int _nIdentityCount = getInt( "identities", 100000 );
+    private final int _nDeletedCount = getInt( "deleted", 1000 );
+    private final int _nCacheCapacity = getInt( "cacheCapacity", 20000 );
+    private final int _nHotSetSize = getInt( "hotSet", 5000 );
+    private final int _nHitPercent = getInt( "mix.hit", 85 );
+    private final int _nMissPercent = getInt( "mix.miss", 5 );
+    private final int _nDeletedPercent = getInt( "mix.deleted", 3 );
+    private final int _nConnectionIdPercent = getInt( "mix.connectionId", 5 );
+    private final int _nV1Percent = getInt( "mix.v1", 30 );
+    private final boolean _bJwt = Boolean.parseBoolean( System.getProperty( PREFIX + "jwt", "false" ) );
+    private final InjectedLatency _cacheLatency = getLatency( "latency.cache", "50+50" );
+    private final InjectedLatency _loadLatency = getLatency( "latency.load", "3000+2000" );
+    private final InjectedLatency _historyLatency = getLatency( "latency.history", "1500+1000" );
+    private final InjectedLatency _contractLatency = getLatency( "latency.contract", "20+20" );
+    private final InjectedLatency _clientApplicationLatency = getLatency( "latency.clientApplication", "500+500" );
+    private final InjectedLatency _accessLogLatency = getLatency( "latency.accessLog", "100+100" );
+
+    /**
+     * @return the HTTP port of the embedded server, 0 for a random port
+     */
+    public int getPort( )
+    {
+        return _nPort;
+    }
+
+    /**
+     * @return the request arrival rate, in requests per second
+     */
+    public int getRate( )
+    {
+        return _nRate;
+    }
+
+    /**
+     * @return the measured duration, in seconds
+     */
+    public int getDurationSeconds( )
+    {
+        return _nDurationSeconds;
+    }
+
+    /**
+     * @return the warm-up duration (not measured), in seconds
+     */
+    public int getWarmupSeconds( )
+    {
+        return _nWarmupSeconds;
+    }
+
+    /**
+     * @return the maximum number of outstanding requests, beyond which arrivals are dropped and counted
+     */
+    public int getMaxOutstanding( )
+    {
+        return _nMaxOutstanding;
+    }
+
+    /**
+     * @return the number of generated identities
+     */
+    public int getIdentityCount( )
+    {
+        return _nIdentityCount;
+    }
+
+    /**
+     * @return the number of generated deleted identities
+     */
+    public int getDeletedCount( )
+    {
+        return _nDeletedCount;
+    }
+
+    /**
+     * @return the capacity of the simulated identity cache
+     */
+    public int getCacheCapacity( )
+    {
+        return _nCacheCapacity;
+    }
+
+    /**
+     * @return the number of identities which receive the hit traffic
+     */
+    public int getHotSetSize( )
+    {
+        return Math.min( _nHotSetSize, _nIdentityCount );
+    }
+
+    /**
+     * @return the percentage of requests on existing identities by customer ID
+     */
+    public int getHitPercent( )
+    {
+        return _nHitPercent;
+    }
+
+    /**
+     * @return the percentage of requests on unknown customer IDs
+     */
+    public int getMissPercent( )
+    {
+        return _nMissPercent;
+    }
+
+    /**
+     * @return the percentage of requests on deleted customer IDs
+     */
+    public int getDeletedPercent( )
+    {
+        return _nDeletedPercent;
+    }
+
+    /**
+     * @return the percentage of requests by connection ID
+     */
+    public int getConnectionIdPercent( )
+    {
+        return _nConnectionIdPercent;
+    }
+
+    /**
+     * @return the percentage of requests sent to the v1 API, the others being sent to the v2 API
+     */
+    public int getV1Percent( )
+    {
+        return _nV1Percent;
+    }
+
+    /**
+     * @return {@code true} if the facade runs in JWT secure mode and the client code is sent as a JWT
+     */
+    public boolean isJwt( )
+    {
+        return _bJwt;
+    }
+
+    /**
+     * @return the latency of a cache hit
+     */
+    public InjectedLatency getCacheLatency( )
+    {
+        return _cacheLatency;
+    }
+
+    /**
+     * @return the latency of a cache miss
+     */
+    public InjectedLatency getLoadLatency( )
+    {
+        return _loadLatency;
+    }
+
+    /**
+     * @return the latency of a history lookup
+     */
+    public InjectedLatency getHistoryLatency( )
+    {
+        return _historyLatency;
+    }
+
+    /**
+     * @return the latency of a service contract lookup
+     */
+    public InjectedLatency getContractLatency( )
+    {
+        return _contractLatency;
+    }
+
+    /**
+     * @return the latency of a client application lookup
+     */
+    public InjectedLatency getClientApplicationLatency( )
+    {
+        return _clientApplicationLatency;
+    }
+
+    /**
+     * @return the latency of an access log write
+     */
+    public InjectedLatency getAccessLogLatency( )
+    {
+        return _accessLogLatency;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString( )
+    {
+        return "rate=" + _nRate + "/s duration=" + _nDurationSeconds + "s warmup=" + _nWarmupSeconds + "s identities=" + _nIdentityCount + " hotSet="
+                + getHotSetSize( ) + " cacheCapacity=" + _nCacheCapacity + " mix(hit/miss/deleted/guid/v1)=" + _nHitPercent + "/" + _nMissPercent + "/"
+                + _nDeletedPercent + "/" + _nConnectionIdPercent + "/" + _nV1Percent + " jwt=" + _bJwt + " latencies(cache/load/history/contract/app/log)="
+                + _cacheLatency + "/" + _loadLatency + "/" + _historyLatency + "/" + _contractLatency + "/" + _clientApplicationLatency + "/"
+                + _accessLogLatency;
+    }
+
+    private static int getInt( final String strKey, final int nDefault )
+    {
+        return Integer.parseInt( System.getProperty( PREFIX + strKey, String.valueOf( nDefault ) ) );
+    }
+
+    private static InjectedLatency getLatency( final String strKey, final String strDefault )
+    {
+        return InjectedLatency.parse( System.getProperty( PREFIX + strKey, strDefault ) );
+    }
+}
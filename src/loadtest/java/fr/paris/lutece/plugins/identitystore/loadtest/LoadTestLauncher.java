@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import fr.paris.lutece.plugins.identitystore.business.identity.IdentityConstants;
+import fr.paris.lutece.plugins.identitystore.old.common.CertifierDefinition;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * Entry point of the load test harness.<br/>
+ * Boots the v1/v2 facade in an embedded server on top of in-memory stand-ins of the identitystore backend, drives an open-model load against it and prints
+ * the throughput and latency percentiles. The run is configured with <code>loadtest.*</code> system properties (see {@link LoadTestConfiguration}), e.g.
+ * <code>mvn -Ploadtest test-compile exec:java -Dloadtest.rate=2000 -Dloadtest.latency.load=5000+5000</code>
+ */
+public final class LoadTestLauncher
+{
+    private static final String CLIENT_CODE = "LOADTEST_CLIENT";
+    private static final String APPLICATION_CODE = "LOADTEST_APP";
+    private static final String CERTIFIER_CODE = "fccertifier";
+    private static final String CERTIFIER_NAME = "FranceConnect";
+    private static final String SWAGGER_DIRECTORY = "plugins/identitystore/api/swagger/v";
+    private static final String SWAGGER_FILE = "/swagger.json";
+    private static final String CONF_DIRECTORY = "WEB-INF/conf/";
+    private static final String CONFIG_FILE = "config.properties";
+
+    /**
+     * private constructor
+     */
+    private LoadTestLauncher( )
+    {
+    }
+
+    /**
+     * Run a load test
+     *
+     * @param args
+     *            not used, the configuration is read from the system properties
+     * @throws Exception
+     *             if the run fails
+     */
+    public static void main( final String [ ] args ) throws Exception
+    {
+        final LoadTestConfiguration configuration = new LoadTestConfiguration( );
+        initLuteceEnvironment( configuration );
+
+        final InMemoryServiceContractProvider serviceContractProvider = new InMemoryServiceContractProvider( configuration.getContractLatency( ) );
+        serviceContractProvider.addServiceContract( CLIENT_CODE );
+        final InMemoryClientApplicationProvider clientApplicationProvider = new InMemoryClientApplicationProvider(
+                configuration.getClientApplicationLatency( ) );
+        clientApplicationProvider.addClientApplication( CLIENT_CODE, APPLICATION_CODE );
+        final InMemoryAccessLogger accessLogger = new InMemoryAccessLogger( configuration.getAccessLogLatency( ) );
+
+        FacadeAdapters.setIdentityProvider( new InMemoryIdentityProvider( configuration.getIdentityCount( ), configuration.getDeletedCount( ),
+                configuration.getCacheCapacity( ), configuration.getCacheLatency( ), configuration.getLoadLatency( ), configuration.getHistoryLatency( ) ) );
+        FacadeAdapters.setServiceContractProvider( serviceContractProvider );
+        FacadeAdapters.setClientApplicationProvider( clientApplicationProvider );
+        FacadeAdapters.setAccessLogger( accessLogger );
+        FacadeAdapters.setCertifierProvider(
+                ( ) -> Collections.singletonList( new CertifierDefinition( CERTIFIER_CODE, CERTIFIER_NAME, CertifierDefinition.NO_EXPIRATION ) ) );
+
+        final EmbeddedFacadeServer server = new EmbeddedFacadeServer( configuration.getPort( ) );
+        server.start( );
+        try
+        {
+            final OpenModelLoadGenerator generator = new OpenModelLoadGenerator( configuration, server.getRestBaseUrl( ), CLIENT_CODE );
+            generator.run( );
+            generator.printReport( System.out );
+            System.out.println( "Access logs   : " + accessLogger.getLogCount( ) );
+        }
+        finally
+        {
+            server.stop( );
+        }
+    }
+
+    /**
+     * Create a minimal webapp directory (configuration and swagger files) and initialize the Lutece path and properties services on it
+     *
+     * @param configuration
+     *            the load test configuration
+     * @throws Exception
+     *             if the initialization fails
+     */
+    private static void initLuteceEnvironment( final LoadTestConfiguration configuration ) throws Exception
+    {
+        final Path webappPath = Files.createTempDirectory( "identitystore-loadtest" );
+        final Path confPath = Files.createDirectories( webappPath.resolve( CONF_DIRECTORY ) );
+        final StringBuilder sbConfig = new StringBuilder( );
+        sbConfig.append( IdentityConstants.PROPERTY_SECURE_MODE ).append( '=' ).append( configuration.isJwt( ) ? "jwt" : "none" ).append( '\n' );
+        sbConfig.append( IdentityConstants.PROPERTY_JWT_CLAIM_APP_CODE ).append( '=' ).append( OpenModelLoadGenerator.getJwtClaimClientCode( ) )
+                .append( '\n' );
+        write( confPath.resolve( CONFIG_FILE ), sbConfig.toString( ) );
+        for ( int nVersion = 1; nVersion <= 2; nVersion++ )
+        {
+            final Path swaggerPath = webappPath.resolve( SWAGGER_DIRECTORY + nVersion + SWAGGER_FILE );
+            Files.createDirectories( swaggerPath.getParent( ) );
+            write( swaggerPath, "{\"swagger\":\"2.0\",\"info\":{\"title\":\"identitystore v" + nVersion + "\"},\"paths\":{}}" );
+        }
+
+        AppPathService.init( webappPath.toString( ) );
+        AppPropertiesService.init( confPath.toString( ) + File.separator );
+    }
+
+    private static void write( final Path path, final String strContent ) throws IOException
+    {
+        Files.write( path, strContent.getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
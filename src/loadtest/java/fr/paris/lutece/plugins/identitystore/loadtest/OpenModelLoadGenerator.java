@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import fr.paris.lutece.plugins.identitystore.v2.web.rs.util.Constants;
+import fr.paris.lutece.plugins.rest.service.RestConstants;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: requests are sent at a Poisson arrival rate, independently of the response times of the server.<br/>
+ * Latencies are measured from the intended send time, so that a stalled server is not hidden by the generator itself (coordinated omission).
+ */
+public class OpenModelLoadGenerator
+{
+    private static final String JWT_CLAIM_CLIENT_CODE = "client_code";
+    private static final String SWAGGER_API_PATH = "identitystore/api";
+    private static final String SWAGGER_PATH = "/swagger";
+
+    /**
+     * Kinds of generated requests
+     */
+    public enum RequestKind
+    {
+        HIT,
+        MISS,
+        DELETED,
+        CONNECTION_ID,
+        SWAGGER
+    }
+
+    private final LoadTestConfiguration _configuration;
+    private final String _strRestBaseUrl;
+    private final String _strClientCode;
+    private final HttpClient _httpClient;
+    private final ExecutorService _executor;
+    private final Map<RequestKind, LatencyHistogram> _mapHistograms = new EnumMap<>( RequestKind.class );
+    private final LatencyHistogram _globalHistogram = new LatencyHistogram( );
+    private final Map<Integer, LongAdder> _mapStatusCounts = new ConcurrentHashMap<>( );
+    private final AtomicInteger _outstanding = new AtomicInteger( );
+    private final LongAdder _dropped = new LongAdder( );
+    private final LongAdder _errors = new LongAdder( );
+
+    /**
+     * Constructor
+     *
+     * @param configuration
+     *            the load test configuration
+     * @param strRestBaseUrl
+     *            the base URL of the REST servlet
+     * @param strClientCode
+     *            the client code sent by the generated requests
+     */
+    public OpenModelLoadGenerator( final LoadTestConfiguration configuration, final String strRestBaseUrl, final String strClientCode )
+    {
+        _configuration = configuration;
+        _strRestBaseUrl = strRestBaseUrl;
+        _strClientCode = configuration.isJwt( ) ? buildUnsignedJwt( strClientCode ) : strClientCode;
+        _executor = Executors.newFixedThreadPool( Math.max( 4, Runtime.getRuntime( ).availableProcessors( ) ) );
+        _httpClient = HttpClient.newBuilder( ).version( HttpClient.Version.HTTP_1_1 ).connectTimeout( Duration.ofSeconds( 5 ) ).executor( _executor ).build( );
+        for ( final RequestKind kind : RequestKind.values( ) )
+        {
+            _mapHistograms.put( kind, new LatencyHistogram( ) );
+        }
+    }
+
+    /**
+     * Run the load and block until the last response is received
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    public void run( ) throws InterruptedException
+    {
+        final double dMeanIntervalNanos = TimeUnit.SECONDS.toNanos( 1 ) / (double) _configuration.getRate( );
+        final long lStart = System.nanoTime( );
+        final long lMeasureFrom = lStart + TimeUnit.SECONDS.toNanos( _configuration.getWarmupSeconds( ) );
+        final long lEnd = lMeasureFrom + TimeUnit.SECONDS.toNanos( _configuration.getDurationSeconds( ) );
+
+        long lNext = lStart;
+        while ( lNext < lEnd )
+        {
+            long lWait = lNext - System.nanoTime( );
+            while ( lWait > 0 )
+            {
+                LockSupport.parkNanos( lWait );
+                lWait = lNext - System.nanoTime( );
+            }
+            if ( _outstanding.get( ) >= _configuration.getMaxOutstanding( ) )
+            {
+                _dropped.increment( );
+            }
+            else
+            {
+                send( nextKind( ), lNext, lNext >= lMeasureFrom );
+            }
+            lNext += (long) ( -Math.log( 1 - ThreadLocalRandom.current( ).nextDouble( ) ) * dMeanIntervalNanos );
+        }
+
+        final long lDrainDeadline = System.nanoTime( ) + TimeUnit.SECONDS.toNanos( 30 );
+        while ( _outstanding.get( ) > 0 && System.nanoTime( ) < lDrainDeadline )
+        {
+            Thread.sleep( 10 );
+        }
+        _executor.shutdownNow( );
+    }
+
+    /**
+     * Print the report of the run
+     *
+     * @param out
+     *            the output
+     */
+    public void printReport( final PrintStream out )
+    {
+        out.println( "Configuration : " + _configuration );
+        out.printf( "Throughput    : %.1f req/s (%d measured responses, %d dropped arrivals, %d transport errors)%n",
+                _globalHistogram.getCount( ) / (double) _configuration.getDurationSeconds( ), _globalHistogram.getCount( ), _dropped.sum( ), _errors.sum( ) );
+        out.println( "Statuses      : " + _mapStatusCounts );
+        out.printf( "%-14s %10s %10s %10s %10s %10s%n", "kind", "count", "mean(us)", "p50(us)", "p99(us)", "p999(us)" );
+        printLine( out, "ALL", _globalHistogram );
+        for ( final Map.Entry<RequestKind, LatencyHistogram> entry : _mapHistograms.entrySet( ) )
+        {
+            printLine( out, entry.getKey( ).name( ), entry.getValue( ) );
+        }
+    }
+
+    private static void printLine( final PrintStream out, final String strName, final LatencyHistogram histogram )
+    {
+        out.printf( "%-14s %10d %10.0f %10d %10d %10d%n", strName, histogram.getCount( ), histogram.getMean( ), histogram.getPercentile( 50 ),
+                histogram.getPercentile( 99 ), histogram.getPercentile( 99.9 ) );
+    }
+
+    /**
+     * Send a request asynchronously
+     *
+     * @param kind
+     *            the kind of request
+     * @param lIntendedStart
+     *            the intended send time
+     * @param bMeasured
+     *            {@code true} if the latency of this request must be recorded
+     */
+    private void send( final RequestKind kind, final long lIntendedStart, final boolean bMeasured )
+    {
+        final HttpRequest request = HttpRequest.newBuilder( URI.create( buildUrl( kind ) ) ).header( Constants.PARAM_CLIENT_CODE, _strClientCode )
+                .timeout( Duration.ofSeconds( 30 ) ).GET( ).build( );
+        _outstanding.incrementAndGet( );
+        _httpClient.sendAsync( request, HttpResponse.BodyHandlers.discarding( ) ).whenComplete( ( response, throwable ) -> {
+            _outstanding.decrementAndGet( );
+            if ( !bMeasured )
+            {
+                return;
+            }
+            if ( throwable != null )
+            {
+                _errors.increment( );
+                return;
+            }
+            final long lMicros = TimeUnit.NANOSECONDS.toMicros( System.nanoTime( ) - lIntendedStart );
+            _globalHistogram.record( lMicros );
+            _mapHistograms.get( kind ).record( lMicros );
+            _mapStatusCounts.computeIfAbsent( response.statusCode( ), k -> new LongAdder( ) ).increment( );
+        } );
+    }
+
+    /**
+     * Draw the kind of the next request according to the traffic mix
+     *
+     * @return the kind of request
+     */
+    private RequestKind nextKind( )
+    {
+        int nDraw = ThreadLocalRandom.current( ).nextInt( 100 );
+        if ( ( nDraw -= _configuration.getHitPercent( ) ) < 0 )
+        {
+            return RequestKind.HIT;
+        }
+        if ( ( nDraw -= _configuration.getMissPercent( ) ) < 0 )
+        {
+            return RequestKind.MISS;
+        }
+        if ( ( nDraw -= _configuration.getDeletedPercent( ) ) < 0 )
+        {
+            return RequestKind.DELETED;
+        }
+        if ( nDraw - _configuration.getConnectionIdPercent( ) < 0 )
+        {
+            return RequestKind.CONNECTION_ID;
+        }
+        return RequestKind.SWAGGER;
+    }
+
+    /**
+     * Build the URL of a request
+     *
+     * @param kind
+     *            the kind of request
+     * @return the URL
+     */
+    private String buildUrl( final RequestKind kind )
+    {
+        final ThreadLocalRandom random = ThreadLocalRandom.current( );
+        final boolean bV1 = random.nextInt( 100 ) < _configuration.getV1Percent( );
+        if ( kind == RequestKind.SWAGGER )
+        {
+            return normalize( RestConstants.BASE_PATH + SWAGGER_API_PATH + "/v" + ( bV1 ? 1 : 2 ) + SWAGGER_PATH );
+        }
+        final String strIdentityPath = RestConstants.BASE_PATH + Constants.PLUGIN_PATH + ( bV1 ? Constants.VERSION_PATH_V1 : Constants.VERSION_PATH_V2 )
+                + Constants.IDENTITY_PATH;
+        switch( kind )
+        {
+            case HIT:
+                return normalize( strIdentityPath ) + "?" + Constants.PARAM_ID_CUSTOMER + "="
+                        + encode( InMemoryIdentityProvider.getCustomerId( random.nextInt( _configuration.getHotSetSize( ) ) ) );
+            case DELETED:
+                return normalize( strIdentityPath ) + "?" + Constants.PARAM_ID_CUSTOMER + "="
+                        + encode( InMemoryIdentityProvider.getDeletedCustomerId( random.nextInt( Math.max( 1, _configuration.getDeletedCount( ) ) ) ) );
+            case CONNECTION_ID:
+                return normalize( strIdentityPath ) + "?" + Constants.PARAM_ID_CONNECTION + "="
+                        + encode( InMemoryIdentityProvider.getConnectionId( random.nextInt( _configuration.getIdentityCount( ) ) ) );
+            default:
+                return normalize( strIdentityPath ) + "?" + Constants.PARAM_ID_CUSTOMER + "=" + encode( "unknown-" + random.nextLong( ) );
+        }
+    }
+
+    private String normalize( final String strPath )
+    {
+        return _strRestBaseUrl + ( "/" + strPath ).replaceAll( "/+", "/" );
+    }
+
+    private static String encode( final String strValue )
+    {
+        return URLEncoder.encode( strValue, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Build an unsigned JWT carrying the client code
+     *
+     * @param strClientCode
+     *            the client code
+     * @return the JWT
+     */
+    private static String buildUnsignedJwt( final String strClientCode )
+    {
+        final Base64.Encoder encoder = Base64.getUrlEncoder( ).withoutPadding( );
+        final String strHeader = encoder.encodeToString( "{\"alg\":\"none\",\"typ\":\"JWT\"}".getBytes( StandardCharsets.UTF_8 ) );
+        final String strPayload = encoder
+                .encodeToString( ( "{\"" + JWT_CLAIM_CLIENT_CODE + "\":\"" + strClientCode + "\"}" ).getBytes( StandardCharsets.UTF_8 ) );
+        return strHeader + "." + strPayload + ".";
+    }
+
+    /**
+     * @return the name of the JWT claim carrying the client code
+     */
+    public static String getJwtClaimClientCode( )
+    {
+        return JWT_CLAIM_CLIENT_CODE;
+    }
+}
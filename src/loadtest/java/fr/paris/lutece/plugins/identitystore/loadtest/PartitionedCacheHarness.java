@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.loadtest;
+
+import fr.paris.lutece.plugins.identitystore.business.contract.ServiceContract;
+import fr.paris.lutece.plugins.identitystore.old.common.partition.ConsistentHashRing;
+import fr.paris.lutece.plugins.identitystore.old.common.partition.IPeerTransport;
+import fr.paris.lutece.plugins.identitystore.old.common.partition.PartitionedIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.partition.PeerIdentityCache;
+import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * In-process harness of the partitioned identity cache.<br/>
+ * Runs clusters of increasing sizes in the same JVM : each node is a {@link PartitionedIdentityProvider} on top of its own simulated identity cache, the
+ * nodes read from each other through an in-process transport, and the requests are spread at random over the nodes as by a load balancer. For each cluster
+ * size, the harness prints the hit ratio of the identity caches, which grows with the number of nodes while the capacity of the cluster is below the number
+ * of identities, and the share of the reads crossing to another node. The run is configured with <code>loadtest.partition.*</code> system properties, e.g.
+ * <code>mvn -Ploadtest test-compile exec:java -Dexec.mainClass=fr.paris.lutece.plugins.identitystore.loadtest.PartitionedCacheHarness
+ * -Dloadtest.partition.nodes=1,2,4,8</code>
+ */
+public final class PartitionedCacheHarness
+{
+    private static final String PREFIX = "loadtest.partition.";
+    private static final String CLIENT_CODE = "LOADTEST_CLIENT";
+    private static final String NODE_PREFIX = "node-";
+    private static final String PROPERTY_PREFIX_PARTITION_L1 = "identitystore.facade.partition.l1";
+    private static final int VIRTUAL_NODES = 128;
+    private static final long SEED = 42;
+
+    private final int _nIdentityCount = Integer.getInteger( PREFIX + "identities", 100000 );
+    private final int _nCacheCapacity = Integer.getInteger( PREFIX + "cacheCapacity", 20000 );
+    private final int _nRequestCount = Integer.getInteger( PREFIX + "requests", 400000 );
+    private final ServiceContract _serviceContract = new ServiceContract( );
+
+    /**
+     * Constructor
+     */
+    private PartitionedCacheHarness( )
+    {
+        _serviceContract.setId( 1 );
+        _serviceContract.setClientCode( CLIENT_CODE );
+    }
+
+    /**
+     * Run the harness
+     *
+     * @param args
+     *            not used, the configuration is read from the system properties
+     * @throws Exception
+     *             if the run fails
+     */
+    public static void main( final String [ ] args ) throws Exception
+    {
+        initProperties( );
+        final PartitionedCacheHarness harness = new PartitionedCacheHarness( );
+        final PrintStream out = System.out;
+        out.println( "identities " + harness._nIdentityCount + ", cache capacity per node " + harness._nCacheCapacity + ", requests "
+                + harness._nRequestCount );
+        out.println( "nodes  capacity  hit ratio  peer reads  backend loads" );
+        for ( final String strNodeCount : System.getProperty( PREFIX + "nodes", "1,2,4,8" ).split( "," ) )
+        {
+            harness.run( Integer.parseInt( strNodeCount.trim( ) ), out );
+        }
+    }
+
+    /**
+     * Run the requests against a cluster, once to warm the caches and once to measure them
+     *
+     * @param nNodeCount
+     *            the number of nodes of the cluster
+     * @param out
+     *            the stream of the report
+     * @throws IdentityStoreException
+     *             if a read fails
+     */
+    private void run( final int nNodeCount, final PrintStream out ) throws IdentityStoreException
+    {
+        final List<String> listNodes = new ArrayList<>( );
+        for ( int nNode = 0; nNode < nNodeCount; nNode++ )
+        {
+            listNodes.add( NODE_PREFIX + nNode );
+        }
+        final ConsistentHashRing ring = new ConsistentHashRing( listNodes, VIRTUAL_NODES );
+        final Map<String, PartitionedIdentityProvider> mapNodes = new HashMap<>( );
+        final List<InMemoryIdentityProvider> listBackends = new ArrayList<>( );
+        // as the partition REST service, the owner reads the identity without partitioning
+        final IPeerTransport transport = ( strNode, strCustomerId, serviceContract ) -> mapNodes.get( strNode ).getDelegate( )
+                .getByCustomerId( strCustomerId, serviceContract );
+        for ( final String strNode : listNodes )
+        {
+            final InMemoryIdentityProvider backend = new InMemoryIdentityProvider( _nIdentityCount, 0, _nCacheCapacity, InjectedLatency.NONE,
+                    InjectedLatency.NONE, InjectedLatency.NONE );
+            listBackends.add( backend );
+            mapNodes.put( strNode,
+                    new PartitionedIdentityProvider( backend, ring, strNode, transport, new PeerIdentityCache( PROPERTY_PREFIX_PARTITION_L1, 0, 0 ) ) );
+        }
+
+        sendRequests( listNodes, mapNodes );
+        final long lLoadsBefore = sumLoads( listBackends );
+        final long lPeerReadsBefore = sumPeerReads( mapNodes );
+        sendRequests( listNodes, mapNodes );
+        final long lLoads = sumLoads( listBackends ) - lLoadsBefore;
+        final long lPeerReads = sumPeerReads( mapNodes ) - lPeerReadsBefore;
+
+        out.println( String.format( "%5d  %8d  %8.1f%%  %9.1f%%  %13d", nNodeCount, (long) nNodeCount * _nCacheCapacity,
+                100.0 * ( _nRequestCount - lLoads ) / _nRequestCount, 100.0 * lPeerReads / _nRequestCount, lLoads ) );
+    }
+
+    /**
+     * Send the requests, each to a node chosen at random, for identities chosen at random
+     *
+     * @param listNodes
+     *            the nodes
+     * @param mapNodes
+     *            the providers of the nodes
+     * @throws IdentityStoreException
+     *             if a read fails
+     */
+    private void sendRequests( final List<String> listNodes, final Map<String, PartitionedIdentityProvider> mapNodes ) throws IdentityStoreException
+    {
+        final Random random = new Random( SEED );
+        for ( int nRequest = 0; nRequest < _nRequestCount; nRequest++ )
+        {
+            final PartitionedIdentityProvider node = mapNodes.get( listNodes.get( random.nextInt( listNodes.size( ) ) ) );
+            node.getByCustomerId( InMemoryIdentityProvider.getCustomerId( random.nextInt( _nIdentityCount ) ), _serviceContract );
+        }
+    }
+
+    private static long sumLoads( final List<InMemoryIdentityProvider> listBackends )
+    {
+        return listBackends.stream( ).mapToLong( InMemoryIdentityProvider::getLoadCount ).sum( );
+    }
+
+    private static long sumPeerReads( final Map<String, PartitionedIdentityProvider> mapNodes )
+    {
+        return mapNodes.values( ).stream( ).mapToLong( PartitionedIdentityProvider::getPeerReadCount ).sum( );
+    }
+
+    /**
+     * Initialize the Lutece properties service with the size and time to live of the L1 caches
+     *
+     * @throws Exception
+     *             if the initialization fails
+     */
+    private static void initProperties( ) throws Exception
+    {
+        final Path confPath = Files.createTempDirectory( "identitystore-partition" );
+        final String strConfig = PROPERTY_PREFIX_PARTITION_L1 + ".size=" + Integer.getInteger( PREFIX + "l1Size", 1000 ) + '\n'
+                + PROPERTY_PREFIX_PARTITION_L1 + ".ttl=" + Integer.getInteger( PREFIX + "l1Ttl", 5 ) + '\n';
+        Files.write( confPath.resolve( "config.properties" ), strConfig.getBytes( StandardCharsets.UTF_8 ) );
+        AppPropertiesService.init( confPath.toString( ) + File.separator );
+    }
+}
@@ -0,0 +1,15 @@
+--
+-- Structure for table identitystore_facade_invalidation : cache invalidations sent between the v1/v2 facade nodes
+--
+DROP TABLE IF EXISTS identitystore_facade_invalidation;
+CREATE TABLE identitystore_facade_invalidation (
+id_invalidation BIGINT AUTO_INCREMENT,
+node VARCHAR(100) NOT NULL,
+invalidation_type VARCHAR(20) NOT NULL,
+cache_name VARCHAR(50) NULL,
+cache_key VARCHAR(255) NULL,
+creation_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+PRIMARY KEY (id_invalidation)
+);
+
+CREATE INDEX idx_facade_invalidation_date ON identitystore_facade_invalidation (creation_date);
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.standalone;
+
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IAccessLogger;
+import fr.paris.lutece.plugins.identitystore.v3.web.rs.dto.common.RequestAuthor;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Access logger of a standalone node, writing the accesses to the log of the node instead of the access log of the identitystore webapp
+ */
+public class LogAccessLogger implements IAccessLogger
+{
+    private static final String SEPARATOR = " | ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void info( final String strEventType, final String strEventCode, final String strClientCode, final RequestAuthor author, final String strData,
+            final String strSpecificOrigin )
+    {
+        final StringBuilder sbAccess = new StringBuilder( "ACCESS" );
+        sbAccess.append( SEPARATOR ).append( strEventType ).append( SEPARATOR ).append( strEventCode ).append( SEPARATOR ).append( strClientCode );
+        if ( author != null )
+        {
+            sbAccess.append( SEPARATOR ).append( author.getType( ) ).append( ':' ).append( author.getName( ) );
+        }
+        sbAccess.append( SEPARATOR ).append( strData ).append( SEPARATOR ).append( strSpecificOrigin );
+        AppLogService.info( sbAccess.toString( ) );
+    }
+}
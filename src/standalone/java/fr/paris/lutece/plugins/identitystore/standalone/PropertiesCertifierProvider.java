@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.standalone;
+
+import fr.paris.lutece.plugins.identitystore.old.common.CertifierDefinition;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.ICertifierProvider;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Certifier provider of a standalone node, reading the certifier definitions from its properties instead of the identitystore database :
+ * <code>identitystore.facade.standalone.certifiers=code1,code2</code>, each certifier having a <code>.name</code> and an optional <code>.expiration</code>
+ * in days under <code>identitystore.facade.standalone.certifier.&lt;code&gt;</code>.
+ */
+public class PropertiesCertifierProvider implements ICertifierProvider
+{
+    private static final String PROPERTY_CERTIFIERS = "identitystore.facade.standalone.certifiers";
+    private static final String PROPERTY_PREFIX_CERTIFIER = "identitystore.facade.standalone.certifier.";
+    private static final String PROPERTY_SUFFIX_NAME = ".name";
+    private static final String PROPERTY_SUFFIX_EXPIRATION = ".expiration";
+    private static final String CODE_SEPARATOR = ",";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<CertifierDefinition> findAll( )
+    {
+        final List<CertifierDefinition> listCertifiers = new ArrayList<>( );
+        for ( final String strCode : StringUtils.split( AppPropertiesService.getProperty( PROPERTY_CERTIFIERS, StringUtils.EMPTY ), CODE_SEPARATOR ) )
+        {
+            final String strTrimmedCode = strCode.trim( );
+            if ( StringUtils.isNotEmpty( strTrimmedCode ) )
+            {
+                listCertifiers.add( new CertifierDefinition( strTrimmedCode,
+                        AppPropertiesService.getProperty( PROPERTY_PREFIX_CERTIFIER + strTrimmedCode + PROPERTY_SUFFIX_NAME, strTrimmedCode ),
+                        AppPropertiesService.getPropertyInt( PROPERTY_PREFIX_CERTIFIER + strTrimmedCode + PROPERTY_SUFFIX_EXPIRATION,
+                                CertifierDefinition.NO_EXPIRATION ) ) );
+            }
+        }
+        return listCertifiers;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.standalone;
+
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.FacadeAdapters;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IAccessLogger;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.ICertifierProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IClientApplicationProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IIdentityProvider;
+import fr.paris.lutece.plugins.identitystore.old.common.adapter.IServiceContractProvider;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Installation of the backend adapters of a standalone node.<br/>
+ * The identitystore (Lutece) adapters need the Spring context and the caches of the webapp : a standalone node is given the class of each adapter in its
+ * properties instead. The classes must have a public constructor without arguments, and read their own settings from the properties of the node. The
+ * identity, service contract and client application adapters are required ; the access log defaults to the log of the node, and the certifiers to
+ * their definitions in the properties.
+ */
+public final class StandaloneAdapters
+{
+    private static final String PROPERTY_ADAPTER_IDENTITY = "identitystore.facade.standalone.adapter.identity";
+    private static final String PROPERTY_ADAPTER_SERVICE_CONTRACT = "identitystore.facade.standalone.adapter.service.contract";
+    private static final String PROPERTY_ADAPTER_CLIENT_APPLICATION = "identitystore.facade.standalone.adapter.client.application";
+    private static final String PROPERTY_ADAPTER_ACCESS_LOGGER = "identitystore.facade.standalone.adapter.access.logger";
+    private static final String PROPERTY_ADAPTER_CERTIFIER = "identitystore.facade.standalone.adapter.certifier";
+
+    /**
+     * private constructor
+     */
+    private StandaloneAdapters( )
+    {
+    }
+
+    /**
+     * Install the adapters configured in the properties of the node
+     *
+     * @throws IllegalStateException
+     *             if a required adapter is not configured, or an adapter cannot be created
+     */
+    public static void install( )
+    {
+        FacadeAdapters.setIdentityProvider( create( PROPERTY_ADAPTER_IDENTITY, IIdentityProvider.class, null ) );
+        FacadeAdapters.setServiceContractProvider( create( PROPERTY_ADAPTER_SERVICE_CONTRACT, IServiceContractProvider.class, null ) );
+        FacadeAdapters.setClientApplicationProvider( create( PROPERTY_ADAPTER_CLIENT_APPLICATION, IClientApplicationProvider.class, null ) );
+        FacadeAdapters.setAccessLogger( create( PROPERTY_ADAPTER_ACCESS_LOGGER, IAccessLogger.class, LogAccessLogger.class ) );
+        FacadeAdapters.setCertifierProvider( create( PROPERTY_ADAPTER_CERTIFIER, ICertifierProvider.class, PropertiesCertifierProvider.class ) );
+    }
+
+    /**
+     * Create the adapter configured by a property
+     *
+     * @param strProperty
+     *            the property giving the class of the adapter
+     * @param adapterType
+     *            the type of the adapter
+     * @param defaultClass
+     *            the class of the adapter when the property is not set, {@code null} if the adapter is required
+     * @param <A>
+     *            the type of the adapter
+     * @return the adapter
+     * @throws IllegalStateException
+     *             if the adapter is required and not configured, or cannot be created
+     */
+    private static <A> A create( final String strProperty, final Class<A> adapterType, final Class<? extends A> defaultClass )
+    {
+        final String strClassName = AppPropertiesService.getProperty( strProperty );
+        if ( StringUtils.isBlank( strClassName ) && defaultClass == null )
+        {
+            throw new IllegalStateException( "The adapter " + strProperty + " is required in standalone mode" );
+        }
+        try
+        {
+            final Class<? extends A> adapterClass = StringUtils.isBlank( strClassName ) ? defaultClass
+                    : Class.forName( strClassName.trim( ) ).asSubclass( adapterType );
+            AppLogService.info( "Identitystore facade adapter " + adapterType.getSimpleName( ) + " : " + adapterClass.getName( ) );
+            return adapterClass.getConstructor( ).newInstance( );
+        }
+        catch( ReflectiveOperationException | ClassCastException e )
+        {
+            throw new IllegalStateException( "The adapter " + strClassName + " of " + strProperty + " cannot be created", e );
+        }
+    }
+}
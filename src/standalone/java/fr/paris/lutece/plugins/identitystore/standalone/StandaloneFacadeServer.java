@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2002-2024, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.identitystore.standalone;
+
+import fr.paris.lutece.plugins.identitystore.old.common.invalidation.InvalidationBus;
+import fr.paris.lutece.plugins.identitystore.old.common.payload.PayloadStoreShutdownService;
+import fr.paris.lutece.plugins.identitystore.old.web.rs.FacadeAdminRestService;
+import fr.paris.lutece.plugins.identitystore.old.web.rs.FacadePartitionRestService;
+import fr.paris.lutece.portal.service.init.LuteceInitException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.servlet.ServletContainer;
+
+import java.io.File;
+
+/**
+ * Standalone mode of the v1/v2 facade.<br/>
+ * Serves the v1/v2 REST resources, their Swagger documentation and optionally the admin resource in an embedded Jetty server, outside of the Lutece webapp :
+ * only the path and properties services of Lutece are initialized, on the home directory of the node, and the backend is reached through the adapters
+ * configured in its properties (see {@link StandaloneAdapters}). A node starts in seconds and only holds the caches of the facade, so that the read facade
+ * scales horizontally, independently of the identitystore webapp.<br/>
+ * The home directory holds the properties in <code>WEB-INF/conf/config.properties</code> and the Swagger files in
+ * <code>plugins/identitystore/api/swagger/v1</code> and <code>v2</code>, as in the webapp, e.g.
+ * <code>mvn -Pstandalone compile exec:java -Dstandalone.home=/opt/identitystore-facade</code>
+ */
+public final class StandaloneFacadeServer
+{
+    public static final String REST_SERVLET_PATH = "/rest";
+
+    private static final String SYSTEM_PROPERTY_HOME = "standalone.home";
+    private static final String CONF_DIRECTORY = "WEB-INF" + File.separator + "conf" + File.separator;
+    private static final String PROPERTY_STANDALONE_HOST = "identitystore.facade.standalone.host";
+    private static final String PROPERTY_STANDALONE_PORT = "identitystore.facade.standalone.port";
+    private static final String PROPERTY_STANDALONE_THREADS_MIN = "identitystore.facade.standalone.threads.min";
+    private static final String PROPERTY_STANDALONE_THREADS_MAX = "identitystore.facade.standalone.threads.max";
+    private static final String PROPERTY_STANDALONE_ADMIN_ENABLED = "identitystore.facade.standalone.admin.enabled";
+    private static final int DEFAULT_STANDALONE_PORT = 8080;
+    private static final int DEFAULT_STANDALONE_THREADS_MIN = 8;
+    private static final int DEFAULT_STANDALONE_THREADS_MAX = 200;
+
+    private final Server _server;
+
+    /**
+     * Constructor, once the properties are initialized
+     */
+    public StandaloneFacadeServer( )
+    {
+        final ResourceConfig resourceConfig = new ResourceConfig( );
+        resourceConfig.register( fr.paris.lutece.plugins.identitystore.v1.web.rs.IdentityStoreRestService.class );
+        resourceConfig.register( fr.paris.lutece.plugins.identitystore.v2.web.rs.IdentityStoreRestService.class );
+        resourceConfig.register( fr.paris.lutece.plugins.identitystore.v1.web.rs.swagger.SwaggerRest.class );
+        resourceConfig.register( fr.paris.lutece.plugins.identitystore.v2.web.rs.swagger.SwaggerRest.class );
+        resourceConfig.register( FacadePartitionRestService.class );
+        if ( AppPropertiesService.getPropertyBoolean( PROPERTY_STANDALONE_ADMIN_ENABLED, true ) )
+        {
+            resourceConfig.register( FacadeAdminRestService.class );
+        }
+
+        final ServletContextHandler context = new ServletContextHandler( ServletContextHandler.NO_SESSIONS );
+        context.setContextPath( "/" );
+        context.addServlet( new ServletHolder( new ServletContainer( resourceConfig ) ), REST_SERVLET_PATH + "/*" );
+
+        final QueuedThreadPool threadPool = new QueuedThreadPool(
+                AppPropertiesService.getPropertyInt( PROPERTY_STANDALONE_THREADS_MAX, DEFAULT_STANDALONE_THREADS_MAX ),
+                AppPropertiesService.getPropertyInt( PROPERTY_STANDALONE_THREADS_MIN, DEFAULT_STANDALONE_THREADS_MIN ) );
+        threadPool.setName( "identitystore-facade-http" );
+        _server = new Server( threadPool );
+        final ServerConnector connector = new ServerConnector( _server );
+        connector.setPort( AppPropertiesService.getPropertyInt( PROPERTY_STANDALONE_PORT, DEFAULT_STANDALONE_PORT ) );
+        final String strHost = AppPropertiesService.getProperty( PROPERTY_STANDALONE_HOST );
+        if ( StringUtils.isNotBlank( strHost ) )
+        {
+            connector.setHost( strHost );
+        }
+        _server.addConnector( connector );
+        _server.setHandler( context );
+    }
+
+    /**
+     * Start a standalone node
+     *
+     * @param args
+     *            the home directory of the node, defaults to the <code>standalone.home</code> system property, then to the current directory
+     * @throws Exception
+     *             if the node cannot start
+     */
+    public static void main( final String [ ] args ) throws Exception
+    {
+        final String strHome = args.length > 0 ? args [0] : System.getProperty( SYSTEM_PROPERTY_HOME, "." );
+        init( strHome );
+        StandaloneAdapters.install( );
+
+        final StandaloneFacadeServer server = new StandaloneFacadeServer( );
+        Runtime.getRuntime( ).addShutdownHook( new Thread( server::shutdown, "identitystore-facade-shutdown" ) );
+        server.start( );
+        AppLogService.info( "Identitystore facade started on port " + server.getPort( ) + " from " + strHome );
+        server.join( );
+    }
+
+    /**
+     * Initialize the path and properties services of Lutece on the home directory of the node
+     *
+     * @param strHome
+     *            the home directory
+     * @throws LuteceInitException
+     *             if the properties cannot be read
+     */
+    public static void init( final String strHome ) throws LuteceInitException
+    {
+        final File home = new File( strHome ).getAbsoluteFile( );
+        final File conf = new File( home, CONF_DIRECTORY );
+        if ( !conf.isDirectory( ) )
+        {
+            throw new IllegalStateException( "No configuration directory " + conf + " in the home directory of the node" );
+        }
+        AppPathService.init( home.getPath( ) );
+        AppPropertiesService.init( conf.getPath( ) + File.separator );
+    }
+
+    /**
+     * Start the cache invalidation bus, if it is enabled, then the server
+     *
+     * @throws Exception
+     *             if the server cannot start
+     */
+    public void start( ) throws Exception
+    {
+        InvalidationBus.instance( );
+        _server.start( );
+    }
+
+    /**
+     * Wait for the end of the server
+     *
+     * @throws InterruptedException
+     *             if the wait is interrupted
+     */
+    public void join( ) throws InterruptedException
+    {
+        _server.join( );
+    }
+
+    /**
+     * Stop accepting requests, then stop the workers of the facade and flush the payload store
+     */
+    public void shutdown( )
+    {
+        try
+        {
+            _server.stop( );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Error while stopping the identitystore facade server", e );
+        }
+        new PayloadStoreShutdownService( ).process( );
+    }
+
+    /**
+     * @return the HTTP port of the server
+     */
+    public int getPort( )
+    {
+        return ( (ServerConnector) _server.getConnectors( ) [0] ).getLocalPort( );
+    }
+}